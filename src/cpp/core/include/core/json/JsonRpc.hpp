@@ -157,6 +157,9 @@ struct JsonRpcRequest
 //
 Error parseJsonRpcRequest(const std::string& input, JsonRpcRequest* pRequest) ;
 
+Error parseJsonRpcRequest(const json::Object& requestObject,
+                          JsonRpcRequest* pRequest) ;
+
 bool parseJsonRpcRequestForMethod(const std::string& input, 
                                   const std::string& method,
                                   JsonRpcRequest* pRequest,
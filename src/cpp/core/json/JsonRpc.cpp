@@ -44,8 +44,22 @@ Error parseJsonRpcRequest(const std::string& input, JsonRpcRequest* pRequest)
          return Error(errc::InvalidRequest, ERROR_LOCATION) ;
       }
 
+      return parseJsonRpcRequest(var.get_obj(), pRequest);
+   }
+   catch(const std::exception& e)
+   {
+      Error error = Error(errc::ParseError, ERROR_LOCATION);
+      error.addProperty("exception", e.what()) ;
+      return error ;
+   }
+}
+
+Error parseJsonRpcRequest(const json::Object& requestObject,
+                          JsonRpcRequest* pRequest)
+{
+   try
+   {
       // extract the fields
-      json::Object& requestObject = var.get_obj();
       for (json::Object::const_iterator it = 
             requestObject.begin(); it != requestObject.end(); ++it)
       {
@@ -16,6 +16,7 @@
 #include "SessionClientEventService.hpp"
 
 #include <algorithm>
+#include <sstream>
 
 #include <boost/function.hpp>
 
@@ -34,6 +35,7 @@
 #include <session/SessionHttpConnectionListener.hpp>
 
 #include "SessionClientEventQueue.hpp"
+#include "http/SessionHttpConnectionUtils.hpp"
 
 using namespace rstudio::core;
 
@@ -185,6 +187,105 @@ void ClientEventService::setClientEventResult(
 }
 
 
+void ClientEventService::dequeClientEvents(int* pNextEventId,
+                                           json::Array* pNewEvents)
+{
+   // deque the events
+   std::vector<ClientEvent> events;
+   clientEventQueue().remove(&events);
+
+   // convert to json and add event id (events are retained until the client
+   // confirms receipt so they can be re-sent if the client reconnects)
+   for (std::vector<ClientEvent>::const_iterator
+        it = events.begin(); it != events.end(); ++it)
+   {
+      json::Object event ;
+      it->asJsonObject((*pNextEventId)++, &event);
+      addClientEvent(event);
+      if (pNewEvents)
+         pNewEvents->push_back(event);
+   }
+}
+
+bool ClientEventService::writeStreamedEvents(
+                        boost::shared_ptr<HttpConnection> ptrConnection,
+                        const json::Array& events)
+{
+   // each batch is written as a json rpc response on its own line
+   json::JsonRpcResponse response;
+   response.setResult(events);
+   response.setField(kEventsPending, "false");
+   std::ostringstream ostr;
+   response.write(ostr);
+   ostr << std::endl;
+   return ptrConnection->writeStreamingData(ostr.str());
+}
+
+void ClientEventService::streamEvents(
+                  boost::shared_ptr<HttpConnection> ptrConnection,
+                  const std::string& clientId,
+                  const boost::posix_time::time_duration& maxStreamDuration,
+                  const boost::posix_time::time_duration& batchDelay,
+                  const boost::posix_time::time_duration& maxTotalBatchDelay,
+                  int* pNextEventId,
+                  bool* pStopServer)
+{
+   using namespace boost::posix_time;
+   ClientEventQueue& clientEventQueue = session::clientEventQueue();
+   HttpConnectionQueue& connectionQueue =
+                           httpConnectionListener().eventsConnectionQueue();
+   boost::system_time streamEndTime =
+                           boost::get_system_time() + maxStreamDuration;
+
+   // start with any events which the client hasn't yet confirmed receipt of
+   json::Array events;
+   LOCK_MUTEX(mutex_)
+   {
+      events = clientEvents_;
+   }
+   END_LOCK_MUTEX
+   bool connected = events.empty() ||
+                    writeStreamedEvents(ptrConnection, events);
+
+   // write events as they occur. the stream is ended periodically (after
+   // which the client reconnects, confirming the events it has seen) and
+   // whenever another request is waiting (e.g. the client restarted its
+   // listener or a new client took over)
+   while (connected &&
+          !*pStopServer &&
+          boost::get_system_time() < streamEndTime &&
+          connectionQueue.peekNextConnectionUri().empty() &&
+          clientId == this->clientId())
+   {
+      try
+      {
+         if (!clientEventQueue.waitForEvent(milliseconds(500)))
+            continue;
+
+         // wait for additional events that occur in rapid succession
+         boost::system_time maxBatchDelayTime =
+                        boost::get_system_time() + maxTotalBatchDelay;
+         while ( clientEventQueue.waitForEvent(batchDelay) &&
+                 (boost::get_system_time() < maxBatchDelayTime) )
+         {
+         }
+      }
+      catch(const boost::thread_interrupted& e)
+      {
+         // set flag so we terminate on the next accept loop iteration,
+         // but still send any remaining events (e.g. the quit event)
+         *pStopServer = true ;
+      }
+
+      json::Array newEvents;
+      dequeClientEvents(pNextEventId, &newEvents);
+      if (!newEvents.empty())
+         connected = writeStreamedEvents(ptrConnection, newEvents);
+   }
+
+   ptrConnection->close();
+}
+
 void ClientEventService::run()
 {
    try
@@ -285,6 +386,25 @@ void ClientEventService::run()
          // would never see any events!)
          nextEventId = std::max(nextEventId, lastClientEventIdSeen + 1);
 
+         // stream events to clients which support it. when running behind
+         // rserver the proxy buffers the entire response, so in that case
+         // we fall through and answer with a single batch (the client treats
+         // a stream_events response which contains one batch just like a
+         // get_events response)
+         if (connection::isStreamEvents(ptrConnection) &&
+             options().programMode() == kSessionProgramModeDesktop &&
+             ptrConnection->beginStreamingResponse())
+         {
+            streamEvents(ptrConnection,
+                         request.clientId,
+                         maxRequestSec,
+                         batchDelay,
+                         maxTotalBatchDelay,
+                         &nextEventId,
+                         &stopServer);
+            continue;
+         }
+
          // check for events (and wait a specified internal if there are none)
          try
          {
@@ -322,17 +442,7 @@ void ClientEventService::run()
          if (request.clientId == clientId())
          {
             // deque the events
-            std::vector<ClientEvent> events;
-            clientEventQueue.remove(&events);
-            
-            // convert to json and add event id
-            for (std::vector<ClientEvent>::const_iterator 
-                 it = events.begin(); it != events.end(); ++it)
-            {
-               json::Object event ;
-               it->asJsonObject(nextEventId++, &event);
-               addClientEvent(event);
-            }
+            dequeClientEvents(&nextEventId, NULL);
 
             // send them (pass false for kEventsPending b/c responses from the
             // event service shouldn't interact with automatic event service
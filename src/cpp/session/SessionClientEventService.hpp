@@ -19,6 +19,7 @@
 #include <string>
 
 #include <boost/utility.hpp>
+#include <boost/shared_ptr.hpp>
 
 #include <core/BoostThread.hpp>
 
@@ -34,6 +35,8 @@ namespace core {
 namespace rstudio {
 namespace session {
 
+class HttpConnection;
+
 // singleton
 class ClientEventService;
 ClientEventService& clientEventService();
@@ -58,6 +61,17 @@ private:
 
    void run();
 
+   void streamEvents(boost::shared_ptr<HttpConnection> ptrConnection,
+                     const std::string& clientId,
+                     const boost::posix_time::time_duration& maxStreamDuration,
+                     const boost::posix_time::time_duration& batchDelay,
+                     const boost::posix_time::time_duration& maxTotalBatchDelay,
+                     int* pNextEventId,
+                     bool* pStopServer);
+   bool writeStreamedEvents(boost::shared_ptr<HttpConnection> ptrConnection,
+                            const core::json::Array& events);
+   void dequeClientEvents(int* pNextEventId, core::json::Array* pNewEvents);
+
    void erasePreviouslyDeliveredEvents(int lastClientEventIdSeen);
    bool havePendingClientEvents();
    void addClientEvent(const core::json::Object& eventObject);
@@ -243,6 +243,10 @@ const char * const kHandleUnsavedChangesCompleted = "handle_unsaved_changes_comp
 const char * const kQuitSession = "quit_session" ;   
 const char * const kSuspendSession = "suspend_session";
 const char * const kInterrupt = "interrupt";
+const char * const kMultiplex = "multiplex";
+const char * const kSuspendForRestart = "suspend_for_restart";
+const char * const kExecuteInlineChunk = "execute_inline_chunk";
+const char * const kRefreshChunkOutput = "refresh_chunk_output";
 
 // convenience function for disallowing suspend (note still doesn't override
 // the presence of s_forceSuspend = 1)
@@ -828,6 +832,217 @@ bool isMethod(const std::string& uri, const std::string& method)
    return boost::algorithm::ends_with(uri, method);
 }
 
+// state for a multiplexed rpc request (a batch of calls sent by the client
+// in a single round trip). the calls are executed in order and their
+// responses collected into an array which is returned as the result
+struct MultiplexedRpcRequest
+{
+   explicit MultiplexedRpcRequest(
+                  boost::shared_ptr<HttpConnection> ptrConnection)
+      : ptrConnection(ptrConnection), next(0)
+   {
+   }
+
+   boost::shared_ptr<HttpConnection> ptrConnection;
+   std::vector<json::JsonRpcRequest> requests;
+   std::size_t next;
+   json::Array responses;
+   std::vector<json::JsonRpcResponse> afterResponses;
+};
+
+bool isWaitForMethod(const std::string& method)
+{
+   return std::find(s_waitForMethodNames.begin(),
+                    s_waitForMethodNames.end(),
+                    method) != s_waitForMethodNames.end();
+}
+
+// methods handled outside of normal rpc dispatch can't be multiplexed, nor
+// can methods which do their work in an after response handler (their
+// handlers don't run until the whole batch has been responded to, which
+// would reorder them relative to the calls which follow them)
+bool isMultiplexableMethod(const std::string& method)
+{
+   return method != kClientInit &&
+          method != kQuitSession &&
+          method != kSuspendSession &&
+          method != kInterrupt &&
+          method != kSuspendForRestart &&
+          method != kExecuteInlineChunk &&
+          method != kRefreshChunkOutput &&
+          method != kMultiplex &&
+          method != kConsoleInput &&
+          !isWaitForMethod(method);
+}
+
+void executeNextMultiplexedRpcRequest(
+                        boost::shared_ptr<MultiplexedRpcRequest> pMultiplex);
+
+void endMultiplexedRpcRequest(
+                        boost::shared_ptr<MultiplexedRpcRequest> pMultiplex,
+                        boost::posix_time::ptime executeStartTime,
+                        const core::Error& executeError,
+                        json::JsonRpcResponse* pJsonRpcResponse)
+{
+   json::JsonRpcResponse jsonRpcResponse;
+   if (executeError)
+   {
+      jsonRpcResponse.setError(executeError);
+   }
+   else
+   {
+      // allow modules to detect changes after rpc calls
+      if (!pJsonRpcResponse->suppressDetectChanges())
+         detectChanges(module_context::ChangeSourceRPC);
+
+      // are there (or will there likely be) events pending?
+      if ( !clientEventQueue().eventAddedSince(executeStartTime) &&
+           !pJsonRpcResponse->hasAfterResponse() )
+      {
+         pJsonRpcResponse->setField(kEventsPending, "false");
+      }
+
+      jsonRpcResponse = *pJsonRpcResponse;
+   }
+
+   pMultiplex->responses.push_back(jsonRpcResponse.getRawResponse());
+
+   // defer after response handlers until the batch response is sent (so
+   // that long running handlers don't hold up the other calls' responses)
+   if (jsonRpcResponse.hasAfterResponse())
+      pMultiplex->afterResponses.push_back(jsonRpcResponse);
+
+   pMultiplex->next++;
+   executeNextMultiplexedRpcRequest(pMultiplex);
+}
+
+void executeNextMultiplexedRpcRequest(
+                        boost::shared_ptr<MultiplexedRpcRequest> pMultiplex)
+{
+   // all calls complete, send the batch response
+   if (pMultiplex->next >= pMultiplex->requests.size())
+   {
+      json::JsonRpcResponse response;
+      response.setResult(pMultiplex->responses);
+      if (pMultiplex->afterResponses.empty())
+         response.setField(kEventsPending, "false");
+      pMultiplex->ptrConnection->sendJsonRpcResponse(response);
+
+      BOOST_FOREACH(json::JsonRpcResponse& afterResponse,
+                    pMultiplex->afterResponses)
+      {
+         afterResponse.runAfterResponse();
+         if (!afterResponse.suppressDetectChanges())
+            detectChanges(module_context::ChangeSourceRPC);
+      }
+      return;
+   }
+
+   using namespace boost::posix_time;
+   ptime executeStartTime = microsec_clock::universal_time();
+
+   const json::JsonRpcRequest& request =
+                              pMultiplex->requests[pMultiplex->next];
+
+   json::JsonRpcAsyncMethods::const_iterator it =
+                                     s_jsonRpcMethods.find(request.method);
+   if (!isMultiplexableMethod(request.method))
+   {
+      Error executeError = Error(json::errc::MethodUnexpected, ERROR_LOCATION);
+      executeError.addProperty("method", request.method);
+      LOG_ERROR(executeError);
+      endMultiplexedRpcRequest(pMultiplex, executeStartTime, executeError, NULL);
+   }
+   else if (it == s_jsonRpcMethods.end())
+   {
+      Error executeError = Error(json::errc::MethodNotFound, ERROR_LOCATION);
+      executeError.addProperty("method", request.method);
+      LOG_ERROR(executeError);
+      endMultiplexedRpcRequest(pMultiplex, executeStartTime, executeError, NULL);
+   }
+   else
+   {
+      std::pair<bool, json::JsonRpcAsyncFunction> reg = it->second;
+      json::JsonRpcAsyncFunction handlerFunction = reg.second;
+
+      if (reg.first)
+      {
+         // direct return
+         handlerFunction(request,
+                         boost::bind(endMultiplexedRpcRequest,
+                                     pMultiplex,
+                                     executeStartTime,
+                                     _1,
+                                     _2));
+      }
+      else
+      {
+         // indirect return (asyncHandle style) -- record the handle as the
+         // response for this call then move on to the next one
+         std::string handle = core::system::generateUuid(true);
+         json::JsonRpcResponse response;
+         response.setAsyncHandle(handle);
+         response.setField(kEventsPending, "false");
+         pMultiplex->responses.push_back(response.getRawResponse());
+
+         json::JsonRpcRequest indirectRequest = request;
+         pMultiplex->next++;
+
+         handlerFunction(indirectRequest,
+                         boost::bind(endHandleRpcRequestIndirect,
+                                     handle,
+                                     _1,
+                                     _2));
+
+         executeNextMultiplexedRpcRequest(pMultiplex);
+      }
+   }
+}
+
+void handleMultiplexedRpcRequest(const core::json::JsonRpcRequest& request,
+                                 boost::shared_ptr<HttpConnection> ptrConnection,
+                                 ConnectionType connectionType)
+{
+   boost::shared_ptr<MultiplexedRpcRequest> pMultiplex(
+                  new MultiplexedRpcRequest(ptrConnection));
+
+   // parse the individual calls (the envelope has already been validated
+   // so the calls inherit its client id and version)
+   json::Array calls;
+   Error error = json::readParams(request.params, &calls);
+   if (!error)
+   {
+      BOOST_FOREACH(const json::Value& call, calls)
+      {
+         if (!json::isType<json::Object>(call))
+         {
+            error = Error(json::errc::InvalidRequest, ERROR_LOCATION);
+            break;
+         }
+
+         json::JsonRpcRequest callRequest;
+         error = json::parseJsonRpcRequest(call.get_obj(), &callRequest);
+         if (error)
+            break;
+
+         callRequest.clientId = request.clientId;
+         callRequest.clientVersion = request.clientVersion;
+         callRequest.isBackgroundConnection =
+                                 (connectionType == BackgroundConnection);
+         pMultiplex->requests.push_back(callRequest);
+      }
+   }
+
+   if (error)
+   {
+      ptrConnection->sendJsonRpcError(error);
+      return;
+   }
+
+   executeNextMultiplexedRpcRequest(pMultiplex);
+}
+
+
 bool isMethod(boost::shared_ptr<HttpConnection> ptrConnection,
               const std::string& method)
 {
@@ -1083,6 +1298,14 @@ void handleConnection(boost::shared_ptr<HttpConnection> ptrConnection,
                rstudio::r::exec::setInterruptsPending(true);
          }
 
+         // multiplexed rpc methods (batch of calls in a single request)
+         else if (jsonRpcRequest.method == kMultiplex)
+         {
+            handleMultiplexedRpcRequest(jsonRpcRequest,
+                                        ptrConnection,
+                                        connectionType);
+         }
+
          // other rpc method, handle it
          else
          {
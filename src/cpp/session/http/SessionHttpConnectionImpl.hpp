@@ -107,6 +107,36 @@ public:
       CATCH_UNEXPECTED_EXCEPTION
    }
 
+   virtual bool beginStreamingResponse()
+   {
+      // no content-length (and therefore no keep-alive), the client reads
+      // the body as it arrives until we close the connection
+      return writeStreamingData("HTTP/1.1 200 OK\r\n"
+                                "Content-Type: application/json\r\n"
+                                "Cache-Control: no-cache\r\n"
+                                "Connection: close\r\n"
+                                "\r\n");
+   }
+
+   virtual bool writeStreamingData(const std::string& data)
+   {
+      try
+      {
+         boost::asio::write(socket_, boost::asio::buffer(data));
+         return true;
+      }
+      catch(const boost::system::system_error& e)
+      {
+         core::Error error = core::Error(e.code(), ERROR_LOCATION);
+         error.addProperty("request-uri", request_.uri());
+         if (!core::http::isConnectionTerminatedError(error))
+            LOG_ERROR(error);
+      }
+      CATCH_UNEXPECTED_EXCEPTION
+
+      return false;
+   }
+
    // close (occurs automatically after writeResponse, here in case it
    // need to be closed in other circumstances
    virtual void close()
@@ -88,7 +88,14 @@ bool isMethod(boost::shared_ptr<HttpConnection> ptrConnection,
 bool isGetEvents(boost::shared_ptr<HttpConnection> ptrConnection)
 {
    return boost::algorithm::ends_with(ptrConnection->request().uri(),
-                                      "events/get_events");
+                                      "events/get_events") ||
+          isStreamEvents(ptrConnection);
+}
+
+bool isStreamEvents(boost::shared_ptr<HttpConnection> ptrConnection)
+{
+   return boost::algorithm::ends_with(ptrConnection->request().uri(),
+                                      "events/stream_events");
 }
 
 void handleAbortNextProjParam(
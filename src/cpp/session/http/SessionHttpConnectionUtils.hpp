@@ -40,8 +40,12 @@ bool isMethod(boost::shared_ptr<HttpConnection> ptrConnection,
               const std::string& method);
 
 
+// true for all requests handled by the client event service (both
+// get_events and stream_events)
 bool isGetEvents(boost::shared_ptr<HttpConnection> ptrConnection);
 
+bool isStreamEvents(boost::shared_ptr<HttpConnection> ptrConnection);
+
 void handleAbortNextProjParam(
                boost::shared_ptr<HttpConnection> ptrConnection);
 
@@ -68,6 +68,14 @@ public:
                   const core::json::JsonRpcResponse& jsonRpcResponse);
 
 
+   // streaming responses (used to push client events as they occur). the
+   // response headers are written by beginStreamingResponse and the body
+   // is then written incrementally by writeStreamingData, with the end of
+   // the body signaled by closing the connection. connections which don't
+   // support streaming return false from beginStreamingResponse
+   virtual bool beginStreamingResponse() { return false; }
+   virtual bool writeStreamingData(const std::string& data) { return false; }
+
    // close (occurs automatically after writeResponse, here in case it
    // need to be closed in other circumstances
    virtual void close() = 0;
@@ -597,47 +597,63 @@ void applyOptions(const FileLocalLintOptions& fileOptions,
 
 const char * const kLintComment = "(?:^|\\n)#+\\s+\\!diagnostics";
 
-void setFileLocalParseOptions(const std::wstring& rCode,
-                              ParseOptions* pOptions,
-                              bool* pNoLint)
+// Extracts the commands from the '# !diagnostics' comments in R code, and
+// (optionally) the rows the comments are on. Returns false if diagnostics
+// are turned off.
+bool readLintCommands(const std::wstring& rCode,
+                      std::vector<std::string>* pCommands,
+                      std::set<int>* pRows = NULL)
 {
-   using namespace string_utils;
-   
    // Extract all of the lint commands.
    boost::regex reLintComments(kLintComment);
-   std::vector<std::string> lintCommands;
    boost::wsmatch match;
    
    std::wstring::const_iterator start = rCode.begin();
    std::wstring::const_iterator end = rCode.end();
+   
+   int row = 0;
+   std::wstring::const_iterator rowCounted = rCode.begin();
+   
    while (boost::regex_search(start, end, match, reLintComments))
    {
       std::wstring::const_iterator matchBegin = match[0].second;
       std::wstring::const_iterator matchEnd   = std::find(matchBegin, end, L'\n');
       std::string command = string_utils::trimWhitespace(std::string(matchBegin, matchEnd));
       
-      if (command == "off")
+      if (pRows)
       {
-         *pNoLint = true;
-         return;
+         row += std::count(rowCounted, matchBegin, L'\n');
+         rowCounted = matchBegin;
+         pRows->insert(row);
       }
       
-      lintCommands.push_back(command);
+      if (command == "off")
+         return false;
+      
+      pCommands->push_back(command);
       start = match[0].second;
    }
    
+   return true;
+}
+
+void setFileLocalParseOptions(const std::wstring& rCode,
+                              ParseOptions* pOptions,
+                              bool* pNoLint)
+{
+   std::vector<std::string> lintCommands;
+   if (!readLintCommands(rCode, &lintCommands))
+   {
+      *pNoLint = true;
+      return;
+   }
+   
    FileLocalLintOptions options = parseLintOptions(lintCommands);
    applyOptions(options, pOptions);
 }
 
-} // end anonymous namespace
-
-ParseResults parse(const std::wstring& rCode,
-                   const FilePath& origin,
-                   const std::string& documentId = std::string(),
-                   bool isExplicit = false)
+ParseOptions diagnosticsParseOptions(bool isExplicit)
 {
-   ParseResults results;
    ParseOptions options;
    
    options.setLintRFunctions(
@@ -655,12 +671,15 @@ ParseResults parse(const std::wstring& rCode,
    options.setRecordStyleLint(
             userSettings().enableStyleDiagnostics());
    
-   bool noLint = false;
-   setFileLocalParseOptions(rCode, &options, &noLint);
-   if (noLint)
-      return ParseResults();
-   
-   results = rparser::parse(origin, rCode, options);
+   return options;
+}
+
+ParseResults parseWithOptions(const std::wstring& rCode,
+                              const FilePath& origin,
+                              const std::string& documentId,
+                              const ParseOptions& options)
+{
+   ParseResults results = rparser::parse(origin, rCode, options);
    
    ParseNode* pRoot = results.parseTree();
    if (!pRoot)
@@ -688,6 +707,23 @@ ParseResults parse(const std::wstring& rCode,
    return results;
 }
 
+} // end anonymous namespace
+
+ParseResults parse(const std::wstring& rCode,
+                   const FilePath& origin,
+                   const std::string& documentId = std::string(),
+                   bool isExplicit = false)
+{
+   ParseOptions options = diagnosticsParseOptions(isExplicit);
+   
+   bool noLint = false;
+   setFileLocalParseOptions(rCode, &options, &noLint);
+   if (noLint)
+      return ParseResults();
+   
+   return parseWithOptions(rCode, origin, documentId, options);
+}
+
 ParseResults parse(const std::string& rCode,
                    const FilePath& origin,
                    const std::string& documentId)
@@ -697,7 +733,171 @@ ParseResults parse(const std::string& rCode,
 
 namespace {
 
-json::Array lintAsJson(const LintItems& items)
+int countRows(const std::wstring& rCode)
+{
+   return static_cast<int>(std::count(rCode.begin(), rCode.end(), L'\n')) + 1;
+}
+
+void addDefinitions(const ParseResults& results,
+                    int rowOffset,
+                    std::multimap<int, std::string>* pDefinitions)
+{
+   ParseNode* pRoot = results.parseTree();
+   if (!pRoot)
+      return;
+   
+   BOOST_FOREACH(const ParseNode::SymbolPositions::value_type& symbol,
+                 pRoot->getDefinedSymbols())
+   {
+      BOOST_FOREACH(const Position& position, symbol.second)
+      {
+         pDefinitions->insert(std::make_pair(
+                  static_cast<int>(position.row) + rowOffset,
+                  symbol.first));
+      }
+   }
+}
+
+// Removes the entries for rows [startRow, endRow] of a container keyed by
+// row, and moves the entries after them by delta rows.
+template <typename Container, typename Shift>
+void replaceRows(int startRow, int endRow, int delta, Container* pContainer,
+                 Shift shift)
+{
+   Container shifted;
+   for (typename Container::const_iterator it =
+           pContainer->upper_bound(endRow);
+        it != pContainer->end();
+        ++it)
+   {
+      shifted.insert(shift(*it, delta));
+   }
+   
+   pContainer->erase(pContainer->lower_bound(startRow), pContainer->end());
+   pContainer->insert(shifted.begin(), shifted.end());
+}
+
+int shiftRow(int row, int delta)
+{
+   return row + delta;
+}
+
+std::pair<int, std::string> shiftDefinition(
+      const std::pair<const int, std::string>& definition,
+      int delta)
+{
+   return std::make_pair(definition.first + delta, definition.second);
+}
+
+} // anonymous namespace
+
+DocumentLintState::DocumentLintState()
+   : known_(false), noLint_(false), rowCount_(0)
+{
+}
+
+void DocumentLintState::reset(const std::wstring& rCode,
+                              const ParseResults& results)
+{
+   known_ = true;
+   rowCount_ = countRows(rCode);
+   
+   lintCommands_.clear();
+   lintCommentRows_.clear();
+   noLint_ = !readLintCommands(rCode, &lintCommands_, &lintCommentRows_);
+   
+   definitions_.clear();
+   addDefinitions(results, 0, &definitions_);
+}
+
+bool DocumentLintState::findReplacedRows(const std::wstring& rCode,
+                                         int startRow,
+                                         int rowCount,
+                                         int* pOldEndRow) const
+{
+   if (!known_)
+      return false;
+   
+   // the rows after the range are unchanged, so the range replaces the
+   // rows of the previous version up to the same distance from its end
+   int endRow = startRow + countRows(rCode) - 1;
+   int oldEndRow = endRow + rowCount_ - rowCount;
+   if (startRow < 0 ||
+       endRow >= rowCount ||
+       oldEndRow < startRow - 1 ||
+       oldEndRow >= rowCount_)
+   {
+      return false;
+   }
+   
+   *pOldEndRow = oldEndRow;
+   return true;
+}
+
+bool DocumentLintState::rangeParseOptions(const std::wstring& rCode,
+                                          int startRow,
+                                          int rowCount,
+                                          ParseOptions* pOptions) const
+{
+   int oldEndRow;
+   if (!findReplacedRows(rCode, startRow, rowCount, &oldEndRow))
+      return false;
+   
+   // file-local options which have been added, edited or removed need the
+   // whole document to be read again
+   if (lintCommentRows_.lower_bound(startRow) !=
+       lintCommentRows_.upper_bound(oldEndRow))
+   {
+      return false;
+   }
+   
+   std::vector<std::string> lintCommands;
+   if (!readLintCommands(rCode, &lintCommands) || !lintCommands.empty())
+      return false;
+   
+   applyOptions(parseLintOptions(lintCommands_), pOptions);
+   
+   // symbols defined by the rest of the document (the range's own
+   // definitions are found when it's parsed)
+   typedef std::multimap<int, std::string>::const_iterator iterator;
+   for (iterator it = definitions_.begin();
+        it != definitions_.lower_bound(startRow);
+        ++it)
+   {
+      pOptions->globals().insert(it->second);
+   }
+   for (iterator it = definitions_.upper_bound(oldEndRow);
+        it != definitions_.end();
+        ++it)
+   {
+      pOptions->globals().insert(it->second);
+   }
+   
+   return true;
+}
+
+void DocumentLintState::updateRange(const std::wstring& rCode,
+                                    int startRow,
+                                    int rowCount,
+                                    const ParseResults& results)
+{
+   int oldEndRow;
+   if (!findReplacedRows(rCode, startRow, rowCount, &oldEndRow))
+   {
+      known_ = false;
+      return;
+   }
+   
+   int delta = rowCount - rowCount_;
+   replaceRows(startRow, oldEndRow, delta, &lintCommentRows_, shiftRow);
+   replaceRows(startRow, oldEndRow, delta, &definitions_, shiftDefinition);
+   addDefinitions(results, startRow, &definitions_);
+   rowCount_ = rowCount;
+}
+
+namespace {
+
+json::Array lintAsJson(const LintItems& items, int rowOffset = 0)
 {
    json::Array jsonArray;
    jsonArray.reserve(items.size());
@@ -706,8 +906,8 @@ json::Array lintAsJson(const LintItems& items)
    {
       json::Object jsonObject;
       
-      jsonObject["start.row"] = item.startRow;
-      jsonObject["end.row"] = item.endRow;
+      jsonObject["start.row"] = item.startRow + rowOffset;
+      jsonObject["end.row"] = item.endRow + rowOffset;
       jsonObject["start.column"] = item.startColumn;
       jsonObject["end.column"] = item.endColumn;
       jsonObject["text"] = item.message;
@@ -765,6 +965,20 @@ module_context::SourceMarkerSet asSourceMarkerSet(
    return SourceMarkerSet("Diagnostics", markers);
 }
 
+// The state of each R document as of its last lint, which its ranges are
+// linted against
+std::map<std::string, DocumentLintState> s_lintStates;
+
+void onDocRemoved(const std::string& id, const std::string&)
+{
+   s_lintStates.erase(id);
+}
+
+void onRemoveAll()
+{
+   s_lintStates.clear();
+}
+
 Error lintRSourceDocument(const json::JsonRpcRequest& request,
                           json::JsonRpcResponse* pResponse)
 {
@@ -811,12 +1025,20 @@ Error lintRSourceDocument(const json::JsonRpcRequest& request,
    if (error)
       return error;
    
+   std::wstring rCode = string_utils::utf8ToWide(content);
    ParseResults results = diagnostics::parse(
-            string_utils::utf8ToWide(content),
+            rCode,
             origin,
             documentId,
             isExplicit);
    
+   // only R scripts are linted by range (the rows of the code extracted
+   // from other documents needn't match the document's)
+   if (pDoc->type() == SourceDocument::SourceDocumentTypeRSource)
+      s_lintStates[documentId].reset(rCode, results);
+   else
+      s_lintStates.erase(documentId);
+   
    pResponse->setResult(lintAsJson(results.lint()));
    
    if (showMarkersTab)
@@ -830,6 +1052,90 @@ Error lintRSourceDocument(const json::JsonRpcRequest& request,
    return Success();
 }
 
+// Lints a range of top-level expressions taken from the editor's (possibly
+// unsaved) copy of an R script, starting at startRow of the rowCount rows
+// now in the document. Nothing else in the document is read or parsed;
+// it's linted against the document's state as of its last lint (see
+// DocumentLintState), which is then updated with the range. Rows in the
+// returned lint are relative to the document. Returns null if the range
+// can't be linted on its own (e.g. the document hasn't been linted since
+// the session started), in which case the whole document should be.
+Error lintRSourceRange(const json::JsonRpcRequest& request,
+                       json::JsonRpcResponse* pResponse)
+{
+   pResponse->setResult(json::Value());
+   
+   std::string documentId;
+   std::string documentPath;
+   std::string code;
+   int startRow = 0;
+   int rowCount = 0;
+   Error error = json::readParams(request.params,
+                                  &documentId,
+                                  &documentPath,
+                                  &code,
+                                  &startRow,
+                                  &rowCount);
+   if (error)
+   {
+      LOG_ERROR(error);
+      return error;
+   }
+   
+   FilePath origin = module_context::resolveAliasedPath(documentPath);
+   if (module_context::isUnmonitoredPackageSourceFile(origin))
+   {
+      pResponse->setResult(json::Array());
+      return Success();
+   }
+   
+   std::map<std::string, DocumentLintState>::iterator it =
+         s_lintStates.find(documentId);
+   if (it == s_lintStates.end())
+      return Success();
+   DocumentLintState& state = it->second;
+   
+   std::wstring rCode = string_utils::utf8ToWide(code);
+   ParseOptions options = diagnosticsParseOptions(false);
+   if (!state.rangeParseOptions(rCode, startRow, rowCount, &options))
+      return Success();
+   
+   ParseResults results;
+   if (!state.noLint())
+      results = parseWithOptions(rCode, origin, documentId, options);
+   
+   state.updateRange(rCode, startRow, rowCount, results);
+   
+   pResponse->setResult(lintAsJson(results.lint(), startRow));
+   return Success();
+}
+
+void addLintItems(const std::vector<LintItem>& lint,
+                  int rowOffset,
+                  r::sexp::ListBuilder* pBuilder,
+                  r::sexp::Protect* pProtect)
+{
+   using namespace r::sexp;
+   
+   std::size_t n = lint.size();
+   for (std::size_t i = 0; i < n; ++i)
+   {
+      const LintItem& item = lint[i];
+      
+      ListBuilder el(pProtect);
+      
+      // NOTE: R / document indexing is 1-based, so adjust for that.
+      el.add("start.row", item.startRow + rowOffset + 1);
+      el.add("start.column", item.startColumn + 1);
+      el.add("end.row", item.endRow + rowOffset + 1);
+      el.add("end.column", item.endColumn + 1);
+      el.add("message", item.message);
+      el.add("type", lintTypeToString(item.type));
+      
+      pBuilder->add(el);
+   }
+}
+
 SEXP rs_lintRFile(SEXP filePathSEXP)
 {
    using namespace r::sexp;
@@ -865,25 +1171,53 @@ SEXP rs_lintRFile(SEXP filePathSEXP)
    }
    
    ParseResults results = parse(rCode, filePath, std::string());
-   const std::vector<LintItem>& lint = results.lint().get();
+   addLintItems(results.lint().get(), 0, &builder, &protect);
    
-   std::size_t n = lint.size();
-   for (std::size_t i = 0; i < n; ++i)
-   {
-      const LintItem& item = lint[i];
-      
-      ListBuilder el(&protect);
-      
-      // NOTE: R / document indexing is 1-based, so adjust for that.
-      el.add("start.row", item.startRow + 1);
-      el.add("start.column", item.startColumn + 1);
-      el.add("end.row", item.endRow + 1);
-      el.add("end.column", item.endColumn + 1);
-      el.add("message", item.message);
-      el.add("type", lintTypeToString(item.type));
-      
-      builder.add(el);
-   }
+   return r::sexp::create(builder, &protect);
+}
+
+// Lints rows [startRow, endRow] (1-based) of the R code 'after' by range, as
+// if 'before' had been linted and then edited within those rows to give
+// 'after'. Returns NULL if the range can't be linted on its own. (Used to
+// test range lint.)
+SEXP rs_lintRSourceRange(SEXP beforeSEXP,
+                         SEXP afterSEXP,
+                         SEXP startRowSEXP,
+                         SEXP endRowSEXP)
+{
+   using namespace r::sexp;
+   
+   Protect protect;
+   ListBuilder builder(&protect);
+   
+   std::wstring before = string_utils::utf8ToWide(safeAsString(beforeSEXP));
+   std::wstring after = string_utils::utf8ToWide(safeAsString(afterSEXP));
+   int startRow = asInteger(startRowSEXP) - 1;
+   int endRow = asInteger(endRowSEXP) - 1;
+   
+   std::vector<std::wstring> lines;
+   boost::algorithm::split(lines, after, boost::algorithm::is_any_of(L"\n"));
+   int rowCount = static_cast<int>(lines.size());
+   if (startRow < 0 || endRow < startRow || endRow >= rowCount)
+      return R_NilValue;
+   
+   std::vector<std::wstring> rangeLines(lines.begin() + startRow,
+                                        lines.begin() + endRow + 1);
+   std::wstring rCode = boost::algorithm::join(rangeLines, L"\n");
+   
+   DocumentLintState state;
+   state.reset(before, rparser::parse(before));
+   
+   ParseOptions options = diagnosticsParseOptions(false);
+   options.setWarnIfNoSuchVariableInScope(true);
+   if (!state.rangeParseOptions(rCode, startRow, rowCount, &options))
+      return R_NilValue;
+   
+   ParseResults results;
+   if (!state.noLint())
+      results = parseWithOptions(rCode, FilePath(), std::string(), options);
+   
+   addLintItems(results.lint().get(), startRow, &builder, &protect);
    
    return r::sexp::create(builder, &protect);
 }
@@ -1025,13 +1359,18 @@ core::Error initialize()
    cb.onFilesChanged = onFilesChanged;
    projects::projectContext().subscribeToFileMonitor("Diagnostics", cb);
    
+   source_database::events().onDocRemoved.connect(onDocRemoved);
+   source_database::events().onRemoveAll.connect(onRemoveAll);
+   
    RS_REGISTER_CALL_METHOD(rs_lintRFile, 1);
+   RS_REGISTER_CALL_METHOD(rs_lintRSourceRange, 4);
    RS_REGISTER_CALL_METHOD(rs_lintDirectory, 1);
    
    ExecBlock initBlock;
    initBlock.addFunctions()
          (bind(sourceModuleRFile, "SessionDiagnostics.R"))
-         (bind(registerRpcMethod, "lint_r_source_document", lintRSourceDocument));
+         (bind(registerRpcMethod, "lint_r_source_document", lintRSourceDocument))
+         (bind(registerRpcMethod, "lint_r_source_range", lintRSourceRange));
    
    return initBlock.execute();
 
@@ -16,6 +16,11 @@
 #ifndef SESSION_MODULES_DIAGNOSTICS_HPP
 #define SESSION_MODULES_DIAGNOSTICS_HPP
 
+#include <map>
+#include <set>
+#include <string>
+#include <vector>
+
 namespace rstudio {
 namespace core {
    class Error;
@@ -25,8 +30,65 @@ namespace core {
 namespace rstudio {
 namespace session {
 namespace modules {
+
+namespace rparser {
+   class ParseOptions;
+   class ParseResults;
+}
+
 namespace diagnostics {
 
+// What linting a range of an R document needs to know about the rest of it,
+// as of its last lint: the file-local '# !diagnostics' options, and the rows
+// on which top-level symbols are defined. Ranges are linted against this
+// state and then folded into it, so that linting a range takes time
+// proportional to the range rather than the document.
+//
+// A range is given as the code now on rows [startRow, endRow] of a document
+// that is now rowCount rows long. Every edit since the last lint must lie
+// within those rows; they replace the corresponding rows of the previous
+// version of the document.
+class DocumentLintState
+{
+public:
+   DocumentLintState();
+
+   // records the state of a whole document from its lint
+   void reset(const std::wstring& rCode,
+              const rparser::ParseResults& results);
+
+   // adds the file-local options and the symbols defined outside the range
+   // to pOptions; returns false if the range can't be linted on its own
+   // (e.g. it edits file-local options), in which case the whole document
+   // must be linted instead
+   bool rangeParseOptions(const std::wstring& rCode,
+                          int startRow,
+                          int rowCount,
+                          rparser::ParseOptions* pOptions) const;
+
+   // replaces the state of the range's rows with its lint
+   void updateRange(const std::wstring& rCode,
+                    int startRow,
+                    int rowCount,
+                    const rparser::ParseResults& results);
+
+   // true if lint is turned off for the document ('# !diagnostics off')
+   bool noLint() const { return noLint_; }
+
+private:
+   bool findReplacedRows(const std::wstring& rCode,
+                         int startRow,
+                         int rowCount,
+                         int* pOldEndRow) const;
+
+   bool known_;
+   bool noLint_;
+   int rowCount_;
+   std::vector<std::string> lintCommands_;
+   std::set<int> lintCommentRows_;
+   std::multimap<int, std::string> definitions_;
+};
+
 core::Error initialize();
 
 } // namespace diagnostics
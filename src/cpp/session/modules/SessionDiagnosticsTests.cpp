@@ -22,11 +22,15 @@
 #include <core/collection/Tree.hpp>
 #include <core/FilePath.hpp>
 #include <core/system/FileScanner.hpp>
+#include <core/Algorithm.hpp>
 #include <core/FileUtils.hpp>
+#include <core/SafeConvert.hpp>
+#include <core/StringUtils.hpp>
 
 #include <boost/algorithm/string.hpp>
 #include <boost/bind.hpp>
 #include <boost/foreach.hpp>
+#include <boost/date_time/posix_time/posix_time.hpp>
 
 #include <session/SessionOptions.hpp>
 #include "SessionRParser.hpp"
@@ -270,6 +274,240 @@ context("Diagnostics")
    lintRStudioRFiles();
 }
 
+// Records the state of 'before' as of a whole document lint, then gets the
+// options for linting rows [startRow, endRow] of 'after' by range.
+bool rangeParseOptions(const std::string& before,
+                       const std::string& after,
+                       int startRow,
+                       int endRow,
+                       ParseOptions* pOptions,
+                       DocumentLintState* pState)
+{
+   std::wstring code = string_utils::utf8ToWide(before);
+   pState->reset(code, parse(code));
+   
+   std::vector<std::string> lines = core::algorithm::split(after, "\n");
+   std::vector<std::string> rangeLines(lines.begin() + startRow,
+                                       lines.begin() + endRow + 1);
+   std::wstring rangeCode = string_utils::utf8ToWide(
+            boost::algorithm::join(rangeLines, "\n"));
+   
+   return pState->rangeParseOptions(rangeCode,
+                                    startRow,
+                                    static_cast<int>(lines.size()),
+                                    pOptions);
+}
+
+// Folds rows [startRow, endRow] of 'after' into the state, as they would be
+// after linting them.
+void updateRange(const std::string& after,
+                 int startRow,
+                 int endRow,
+                 DocumentLintState* pState)
+{
+   std::vector<std::string> lines = core::algorithm::split(after, "\n");
+   std::vector<std::string> rangeLines(lines.begin() + startRow,
+                                       lines.begin() + endRow + 1);
+   std::wstring rangeCode = string_utils::utf8ToWide(
+            boost::algorithm::join(rangeLines, "\n"));
+   
+   pState->updateRange(rangeCode,
+                       startRow,
+                       static_cast<int>(lines.size()),
+                       parse(rangeCode));
+}
+
+// A document of top-level functions, five rows each. The function at
+// 'calling' calls a helper defined at the end of the document.
+std::string createFunctions(int count, int calling)
+{
+   std::string code;
+   for (int i = 0; i < count; i++)
+   {
+      code += "f" + safe_convert::numberToString(i) + " <- function(x, y) {\n";
+      code += "   z <- x + y\n";
+      code += (i == calling) ? "   helper(z)\n" : "   print(z)\n";
+      code += "   z\n";
+      code += "}\n";
+   }
+   return code + "helper <- function(z) z";
+}
+
+context("Range diagnostics")
+{
+   test_that("symbols defined outside the range are in scope")
+   {
+      DocumentLintState state;
+      ParseOptions options;
+      expect_true(rangeParseOptions("foo <- 1\nbar <- 2\nbaz <- 3",
+                                    "foo <- 1\nbar <- foo\nbaz <- 3",
+                                    1, 1, &options, &state));
+      
+      expect_true(options.globals().count("foo") == 1);
+      expect_true(options.globals().count("baz") == 1);
+      expect_true(options.globals().count("bar") == 0);
+   }
+   
+   test_that("definitions removed from the range are no longer in scope")
+   {
+      DocumentLintState state;
+      ParseOptions options;
+      expect_true(rangeParseOptions("foo <- 1\nprint(foo)\nbaz <- 3",
+                                    "bar <- 1\nprint(foo)\nbaz <- 3",
+                                    0, 1, &options, &state));
+      
+      expect_true(options.globals().count("foo") == 0);
+      expect_true(options.globals().count("baz") == 1);
+   }
+   
+   test_that("definitions move with rows inserted above them")
+   {
+      // insert two rows, then edit the row which was moved down by them
+      std::string before = "a <- 1\n\nb <- 2";
+      std::string after = "a <- 1\nc <- 3\nd <- 4\n\nb <- 2";
+      
+      DocumentLintState state;
+      ParseOptions options;
+      expect_true(rangeParseOptions(before, after, 1, 2, &options, &state));
+      updateRange(after, 1, 2, &state);
+      
+      std::wstring code = string_utils::utf8ToWide("x <- b");
+      ParseOptions nextOptions;
+      expect_true(state.rangeParseOptions(code, 4, 5, &nextOptions));
+      
+      expect_true(nextOptions.globals().count("a") == 1);
+      expect_true(nextOptions.globals().count("c") == 1);
+      expect_true(nextOptions.globals().count("d") == 1);
+      expect_true(nextOptions.globals().count("b") == 0);
+   }
+   
+   test_that("definitions move with rows removed above them")
+   {
+      std::string before = "a <- 1\nc <- 3\nd <- 4\nb <- 2";
+      std::string after = "a <- 1\n\nb <- 2";
+      
+      DocumentLintState state;
+      ParseOptions options;
+      expect_true(rangeParseOptions(before, after, 1, 1, &options, &state));
+      expect_true(options.globals().count("c") == 0);
+      expect_true(options.globals().count("d") == 0);
+      updateRange(after, 1, 1, &state);
+      
+      std::wstring code = string_utils::utf8ToWide("x <- 1");
+      ParseOptions nextOptions;
+      expect_true(state.rangeParseOptions(code, 2, 3, &nextOptions));
+      expect_true(nextOptions.globals().count("a") == 1);
+      expect_true(nextOptions.globals().count("b") == 0);
+   }
+   
+   test_that("file-local options apply to ranges")
+   {
+      DocumentLintState state;
+      ParseOptions options;
+      expect_true(rangeParseOptions("# !diagnostics suppress=foo\nx <- 1",
+                                    "# !diagnostics suppress=foo\nx <- foo",
+                                    1, 1, &options, &state));
+      expect_true(options.globals().count("foo") == 1);
+      
+      expect_true(rangeParseOptions("# !diagnostics off\nx <- 1",
+                                    "# !diagnostics off\nx <- foo",
+                                    1, 1, &options, &state));
+      expect_true(state.noLint());
+   }
+   
+   test_that("ranges which edit file-local options can't be linted alone")
+   {
+      DocumentLintState state;
+      ParseOptions options;
+      
+      // edited
+      expect_false(rangeParseOptions("# !diagnostics suppress=foo\nx <- 1",
+                                     "# !diagnostics suppress=bar\nx <- 1",
+                                     0, 0, &options, &state));
+      
+      // added
+      expect_false(rangeParseOptions("x <- 1\ny <- 2",
+                                     "x <- 1\n# !diagnostics off\ny <- 2",
+                                     1, 1, &options, &state));
+      
+      // removed
+      expect_false(rangeParseOptions("x <- 1\n# !diagnostics off\ny <- 2",
+                                     "x <- 1\n\ny <- 2",
+                                     1, 1, &options, &state));
+   }
+   
+   test_that("ranges which don't fit the document can't be linted alone")
+   {
+      ParseOptions options;
+      
+      // nothing is known about the document yet
+      DocumentLintState unknown;
+      expect_false(unknown.rangeParseOptions(L"x <- 1", 0, 1, &options));
+      
+      // the range extends past the end of the document
+      DocumentLintState state;
+      std::wstring code = string_utils::utf8ToWide("x <- 1\ny <- 2");
+      state.reset(code, parse(code));
+      expect_false(state.rangeParseOptions(L"x <- 1", 0, 0, &options));
+      expect_false(state.rangeParseOptions(L"x <- 1\ny <- 2\nz <- 3",
+                                           0, 2, &options));
+   }
+   
+   test_that("range lint costs less than whole document lint")
+   {
+      using namespace boost::posix_time;
+      
+      // a 10,000 row document in which one function is edited
+      const int kFunctions = 2000;
+      const int kEdited = kFunctions / 2;
+      const int kRuns = 20;
+      std::wstring before = string_utils::utf8ToWide(
+               createFunctions(kFunctions, -1));
+      std::string after = createFunctions(kFunctions, kEdited);
+      std::wstring afterCode = string_utils::utf8ToWide(after);
+      
+      std::vector<std::string> lines = core::algorithm::split(after, "\n");
+      int rowCount = static_cast<int>(lines.size());
+      int startRow = kEdited * 5;
+      std::vector<std::string> rangeLines(lines.begin() + startRow,
+                                          lines.begin() + startRow + 5);
+      std::wstring rangeCode = string_utils::utf8ToWide(
+               boost::algorithm::join(rangeLines, "\n"));
+      
+      DocumentLintState state;
+      state.reset(before, parse(before, s_parseOptions));
+      
+      // before: every background lint parsed the whole document
+      ptime start = microsec_clock::universal_time();
+      for (int i = 0; i < kRuns; i++)
+         parse(afterCode, s_parseOptions);
+      time_duration documentTime =
+            (microsec_clock::universal_time() - start) / kRuns;
+      
+      // after: only the edited function is parsed, against the state
+      // cached by the last whole document lint
+      start = microsec_clock::universal_time();
+      for (int i = 0; i < kRuns; i++)
+      {
+         ParseOptions options = s_parseOptions;
+         expect_true(state.rangeParseOptions(rangeCode, startRow, rowCount,
+                                             &options));
+         ParseResults results = parse(rangeCode, options);
+         state.updateRange(rangeCode, startRow, rowCount, results);
+         expect_true(options.globals().count("helper") == 1);
+      }
+      time_duration rangeTime =
+            (microsec_clock::universal_time() - start) / kRuns;
+      
+      std::cout << "Lint after editing one function of " << rowCount
+                << " rows: whole document "
+                << documentTime.total_microseconds() << "us, range "
+                << rangeTime.total_microseconds() << "us" << std::endl;
+      
+      expect_true(rangeTime < documentTime);
+   }
+}
+
 } // namespace linter
 } // namespace modules
 } // namespace session
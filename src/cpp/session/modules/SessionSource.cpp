@@ -31,6 +31,7 @@
 #include <core/FilePath.hpp>
 #include <core/FileInfo.hpp>
 #include <core/FileSerializer.hpp>
+#include <core/Hash.hpp>
 #include <core/StringUtils.hpp>
 #include <core/text/TemplateFilter.hpp>
 #include <core/r_util/RPackageInfo.hpp>
@@ -491,6 +492,87 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    return Success();
 }
 
+Error saveDocumentPatch(const json::JsonRpcRequest& request,
+                        json::JsonRpcResponse* pResponse)
+{
+   // unique id and jsonPath (can be null for auto-save)
+   std::string id;
+   json::Value jsonPath, jsonType, jsonEncoding, jsonFoldSpec, jsonChunkOutput;
+
+   // The hunks to apply to the current document (see applyDocumentPatch)
+   json::Array hunksJson;
+
+   // This is the expected hash of the current document. If the
+   // current hash value is different than this value, then the
+   // document cannot be patched and the request should be discarded.
+   std::string hash;
+
+   // The expected length (in UTF-16 code units, as the client measures
+   // strings) and hash of the patched document; if the patch doesn't
+   // produce exactly this then it is discarded. The hash is empty if the
+   // client didn't compute one, in which case only the length is checked
+   int newLength;
+   std::string newHash;
+
+   // read params
+   Error error = json::readParams(request.params,
+                                  &id,
+                                  &jsonPath,
+                                  &jsonType,
+                                  &jsonEncoding,
+                                  &jsonFoldSpec,
+                                  &jsonChunkOutput,
+                                  &hunksJson,
+                                  &hash,
+                                  &newLength,
+                                  &newHash);
+   if (error)
+      return error ;
+
+   // if this has no path then it is an autosave, in this case
+   // suppress change detection
+   bool hasPath = json::isType<std::string>(jsonPath);
+   if (!hasPath)
+       pResponse->setSuppressDetectChanges(true);
+
+   // get the doc
+   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument());
+   error = source_database::get(id, pDoc);
+   if (error)
+      return error ;
+
+   // Don't even attempt anything if we're not working off the same original
+   if (pDoc->hash() != hash)
+      return Success();
+
+   // Verify the patch yields the contents the client has (if not, the
+   // client falls back to saving the whole document)
+   std::string contents;
+   if (newLength < 0 ||
+       !applyDocumentPatch(pDoc->contents(),
+                           hunksJson,
+                           static_cast<std::size_t>(newLength),
+                           newHash,
+                           &contents))
+   {
+      return Success();
+   }
+
+   error = saveDocumentCore(contents, jsonPath, jsonType, jsonEncoding,
+                            jsonFoldSpec, jsonChunkOutput, pDoc);
+   if (error)
+      return error;
+
+   // write to the source_database
+   error = sourceDatabasePutWithUpdatedContents(pDoc);
+   if (error)
+      return error;
+
+   pResponse->setResult(pDoc->hash());
+
+   return Success();
+}
+
 Error checkForExternalEdit(const json::JsonRpcRequest& request,
                            json::JsonRpcResponse* pResponse)
 {
@@ -585,8 +667,90 @@ Error reopen(std::string id, std::string fileType, std::string encoding,
    return Success();
 }
 
+// The length of UTF-8 encoded text in UTF-16 code units: one per character,
+// plus one for each character outside the basic multilingual plane (which
+// takes a surrogate pair)
+std::size_t utf16Length(const std::string& text)
+{
+   std::size_t length = 0;
+   for (std::string::const_iterator it = text.begin(); it != text.end(); ++it)
+   {
+      unsigned char byte = static_cast<unsigned char>(*it);
+      if ((byte & 0xC0) != 0x80)
+         length++;
+      if (byte >= 0xF0)
+         length++;
+   }
+   return length;
+}
+
 } // anonymous namespace
 
+// Applies the hunks of a save_document_patch request to the original
+// contents. Each hunk is an object with offset, length and replacement
+// fields and replaces the subrange [offset, offset+length) of the original
+// (offsets and lengths are in characters, and hunks are in ascending order
+// of offset). Returns false if the patch is malformed or the patched
+// contents don't have the expected length (in UTF-16 code units) and hash
+// (which isn't checked if empty).
+bool applyDocumentPatch(const std::string& original,
+                        const json::Array& hunksJson,
+                        std::size_t expectedLength,
+                        const std::string& expectedHash,
+                        std::string* pContents)
+{
+   using namespace rstudio::core::string_utils;
+
+   std::string contents;
+   contents.reserve(original.size());
+
+   // Offsets and lengths are specified in characters, but contents
+   // is in UTF8 bytes. Convert as we copy the unchanged ranges.
+   std::string::const_iterator pos = original.begin();
+   int posOffset = 0;
+   for (std::size_t i = 0; i < hunksJson.size(); i++)
+   {
+      if (!json::isType<json::Object>(hunksJson[i]))
+         return false;
+
+      int offset, length;
+      std::string replacement;
+      Error error = json::readObject(hunksJson[i].get_obj(),
+                                     "offset", &offset,
+                                     "length", &length,
+                                     "replacement", &replacement);
+      if (error || offset < posOffset || length < 0)
+         return false;
+
+      std::string::const_iterator rangeBegin;
+      error = utf8Advance(pos, offset - posOffset, original.end(),
+                          &rangeBegin);
+      if (error)
+         return false;
+
+      std::string::const_iterator rangeEnd;
+      error = utf8Advance(rangeBegin, length, original.end(), &rangeEnd);
+      if (error)
+         return false;
+
+      contents.append(pos, rangeBegin);
+      contents.append(replacement);
+      pos = rangeEnd;
+      posOffset = offset + length;
+   }
+   contents.append(pos, original.end());
+
+   if (utf16Length(contents) != expectedLength ||
+       (!expectedHash.empty() &&
+        core::hash::crc32Hash(contents) != expectedHash))
+   {
+      return false;
+   }
+
+   pContents->swap(contents);
+   return true;
+}
+
 Error revertDocument(const json::JsonRpcRequest& request,
                      json::JsonRpcResponse* pResponse)
 {
@@ -1218,6 +1382,7 @@ Error initialize()
       (bind(registerRpcMethod, "open_document", openDocument))
       (bind(registerRpcMethod, "save_document", saveDocument))
       (bind(registerRpcMethod, "save_document_diff", saveDocumentDiff))
+      (bind(registerRpcMethod, "save_document_patch", saveDocumentPatch))
       (bind(registerRpcMethod, "check_for_external_edit", checkForExternalEdit))
       (bind(registerRpcMethod, "ignore_external_edit", ignoreExternalEdit))
       (bind(registerRpcMethod, "set_source_document_on_save", setSourceDocumentOnSave))
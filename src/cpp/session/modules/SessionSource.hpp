@@ -16,6 +16,7 @@
 #ifndef SESSION_SOURCE_HPP
 #define SESSION_SOURCE_HPP
 
+#include <string>
 #include <vector>
 
 #include <boost/shared_ptr.hpp>
@@ -38,6 +39,12 @@ namespace source {
    
 core::Error clientInitDocuments(core::json::Array* pJsonDocs) ;
 
+bool applyDocumentPatch(const std::string& original,
+                        const core::json::Array& hunksJson,
+                        std::size_t expectedLength,
+                        const std::string& expectedHash,
+                        std::string* pContents);
+
 core::Error initialize();
                        
 } // namespace source
@@ -0,0 +1,164 @@
+/*
+ * SessionSourceTests.cpp
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+#include <tests/TestThat.hpp>
+
+#include "SessionSource.hpp"
+
+#include <core/Hash.hpp>
+#include <core/StringUtils.hpp>
+#include <core/json/Json.hpp>
+
+namespace rstudio {
+namespace session {
+namespace modules {
+namespace source {
+
+using namespace core;
+
+namespace {
+
+json::Value hunk(int offset, int length, const std::string& replacement)
+{
+   json::Object hunkJson;
+   hunkJson["offset"] = offset;
+   hunkJson["length"] = length;
+   hunkJson["replacement"] = replacement;
+   return hunkJson;
+}
+
+// the length of expected as the client measures it (no test contents are
+// outside the basic multilingual plane unless a length is given)
+bool applyPatch(const std::string& original,
+                const json::Array& hunks,
+                const std::string& expected,
+                std::string* pContents)
+{
+   std::size_t length;
+   Error error = string_utils::utf8Distance(expected.begin(),
+                                            expected.end(),
+                                            &length);
+   if (error)
+      return false;
+
+   return applyDocumentPatch(original,
+                             hunks,
+                             length,
+                             hash::crc32Hash(expected),
+                             pContents);
+}
+
+} // anonymous namespace
+
+context("save_document_patch")
+{
+   test_that("hunks are applied relative to the original contents")
+   {
+      json::Array hunks;
+      hunks.push_back(hunk(0, 3, "xyz"));
+      hunks.push_back(hunk(8, 0, "!"));
+      hunks.push_back(hunk(10, 3, ""));
+
+      std::string contents;
+      expect_true(applyPatch("abc\ndef\ngh\nij\n", hunks,
+                             "xyz\ndef\n!gh\n", &contents));
+      expect_true(contents == "xyz\ndef\n!gh\n");
+   }
+
+   test_that("an empty patch leaves the contents unchanged")
+   {
+      std::string contents;
+      expect_true(applyPatch("abc\n", json::Array(), "abc\n", &contents));
+      expect_true(contents == "abc\n");
+   }
+
+   test_that("offsets and lengths are in characters, not bytes")
+   {
+      // "\xc3\xa9" is a single (two byte) character
+      json::Array hunks;
+      hunks.push_back(hunk(1, 1, "e"));
+      hunks.push_back(hunk(3, 1, "\xc3\xa8"));
+
+      std::string contents;
+      expect_true(applyPatch("a\xc3\xa9" "bc", hunks,
+                             "aeb\xc3\xa8", &contents));
+      expect_true(contents == "aeb\xc3\xa8");
+   }
+
+   test_that("patches which don't yield the expected contents are rejected")
+   {
+      json::Array hunks;
+      hunks.push_back(hunk(0, 1, "x"));
+
+      // wrong length
+      std::string contents = "unchanged";
+      expect_false(applyDocumentPatch("abc", hunks, 4,
+                                      hash::crc32Hash("xbc"), &contents));
+
+      // right length, wrong hash
+      expect_false(applyDocumentPatch("abc", hunks, 3,
+                                      hash::crc32Hash("ybc"), &contents));
+
+      // the output is left untouched when a patch is rejected
+      expect_true(contents == "unchanged");
+   }
+
+   test_that("only the length is checked when no hash is given")
+   {
+      json::Array hunks;
+      hunks.push_back(hunk(0, 1, "x"));
+
+      std::string contents;
+      expect_true(applyDocumentPatch("abc", hunks, 3, std::string(),
+                                     &contents));
+      expect_true(contents == "xbc");
+
+      expect_false(applyDocumentPatch("abc", hunks, 4, std::string(),
+                                      &contents));
+   }
+
+   test_that("lengths count surrogate pairs as two code units")
+   {
+      // "ð" is a single character outside the BMP
+      json::Array hunks;
+      hunks.push_back(hunk(0, 1, "x"));
+
+      std::string contents;
+      expect_true(applyDocumentPatch("a\xf0\x9f\x98\x80", hunks, 3,
+                                     std::string(), &contents));
+      expect_true(contents == "x\xf0\x9f\x98\x80");
+   }
+
+   test_that("malformed patches are rejected")
+   {
+      std::string contents;
+
+      // overlapping (or out of order) hunks
+      json::Array overlapping;
+      overlapping.push_back(hunk(2, 2, "x"));
+      overlapping.push_back(hunk(1, 1, "y"));
+      expect_false(applyPatch("abcdef", overlapping, "ayxef", &contents));
+
+      // hunks which aren't objects
+      json::Array notObjects;
+      notObjects.push_back(json::Value(1));
+      expect_false(applyPatch("abc", notObjects, "abc", &contents));
+   }
+}
+
+} // namespace source
+} // namespace modules
+} // namespace session
+} // namespace rstudio
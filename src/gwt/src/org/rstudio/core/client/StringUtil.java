@@ -153,6 +153,14 @@ public class StringUtil
       return val == null || val.length() == 0;
    }
 
+   // null-safe string equality
+   public static boolean equals(String s1, String s2)
+   {
+      if (s1 == null)
+         return s2 == null;
+      return s1.equals(s2);
+   }
+
    // WARNING: I'm pretty sure this will fail for UTF-8
    public static String textToRLiteral(String value)
    {
@@ -1,7 +1,7 @@
 /*
  * VirtualConsole.java
  *
- * Copyright (C) 2009-12 by RStudio, Inc.
+ * Copyright (C) 2009-16 by RStudio, Inc.
  *
  * Unless you have received this program directly from RStudio pursuant
  * to the terms of a commercial license agreement with RStudio, then
@@ -21,26 +21,35 @@ import org.rstudio.core.client.regex.Pattern;
 
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.SpanElement;
 import com.google.gwt.dom.client.Text;
 
 /**
  * Simulates a console that behaves like the R console, specifically with
  * regard to \r (carriage return) and \b (backspace) characters.
+ *
+ * Control characters can only ever move the cursor within the last line of
+ * output, so the text is stored as the committed lines plus the current
+ * line, and all edits are made to the current line. Character classes are
+ * stored as runs, and when rendering we only replace the DOM nodes which
+ * follow the first character changed since the last render (so e.g. a
+ * progress bar which repeatedly overwrites its line only re-renders that
+ * line).
  */
 public class VirtualConsole
 {
    public VirtualConsole()
    {
    }
-   
+
    public boolean submit(String data)
    {
       return submit(data, null);
    }
 
-   // Adds the given data to the console. Returns true if the data can be 
-   // processed as an append-only operation, false if characters were 
+   // Adds the given data to the console. Returns true if the data can be
+   // processed as an append-only operation, false if characters were
    // overwritten.
    public boolean submit(String data, String className)
    {
@@ -72,7 +81,7 @@ public class VirtualConsole
                carriageReturn();
                // the sequence \r\n or \n\r can be represented in an append-only
                // way, so treat these cases as an append
-               appendOnly = 
+               appendOnly =
                      ((pos > 0 && data.charAt(pos - 1) == '\n') ||
                       (tail < data.length() && data.charAt(tail) == '\n'));
                break;
@@ -81,7 +90,7 @@ public class VirtualConsole
                appendOnly = false;
                break;
             case '\n':
-               newline();
+               newline(className);
                break;
             case '\f':
                formfeed();
@@ -103,103 +112,321 @@ public class VirtualConsole
 
    private void backspace()
    {
-      if (pos_ == 0)
+      if (pos_ > 0)
+      {
+         int offset = committed_.length() + pos_ - 1;
+         line_.deleteCharAt(--pos_);
+         deleteClassAt(offset);
+         invalidate(offset);
          return;
-      o.deleteCharAt(--pos_);
+      }
+
+      if (committed_.length() == 0)
+         return;
+
+      // backspace over the newline terminating the previous line, which
+      // makes that line the current line
+      int newline = committed_.length() - 1;
+      int lineStart = committed_.lastIndexOf("\n", newline - 1) + 1;
+      String previous = committed_.substring(lineStart, newline);
+      committed_.setLength(lineStart);
+      lineCount_--;
+      line_.insert(0, previous);
+      pos_ = previous.length();
+      deleteClassAt(newline);
+      invalidate(newline);
    }
 
    private void carriageReturn()
    {
-      if (pos_ == 0)
-         return;
-      while (pos_ > 0 && o.charAt(pos_ - 1) != '\n')
-         pos_--;
-      // Now we're either at the beginning of the buffer, or just past a '\n'
+      pos_ = 0;
    }
 
-   private void newline()
+   private void newline(String className)
    {
-      while (pos_ < o.length() && o.charAt(pos_) != '\n')
-         pos_++;
-      // Now we're either at the end of the buffer, or on top of a '\n'
-      text("\n", null);
+      // move to the end of the current line and commit it
+      int offset = committed_.length() + line_.length();
+      committed_.append(line_).append('\n');
+      lineCount_++;
+      line_.setLength(0);
+      pos_ = 0;
+      setClass(offset, offset + 1, className);
+      invalidate(offset);
    }
 
    private void formfeed()
    {
-      o.setLength(0);
+      committed_.setLength(0);
+      line_.setLength(0);
       pos_ = 0;
-      charClass.clear();
+      lineCount_ = 0;
+      runs_.clear();
+      redrawPending_ = true;
    }
 
    private void text(String text, String className)
    {
       assert text.indexOf('\r') < 0 && text.indexOf('\b') < 0;
 
+      int start = 0;
+      int newline = text.indexOf('\n');
+      while (newline >= 0)
+      {
+         lineText(text.substring(start, newline), className);
+         newline(className);
+         start = newline + 1;
+         newline = text.indexOf('\n', start);
+      }
+      lineText(start == 0 ? text : text.substring(start), className);
+   }
+
+   // write text (which doesn't contain any newlines) at the cursor
+   private void lineText(String text, String className)
+   {
+      if (text.length() == 0)
+         return;
+
       int endPos = pos_ + text.length();
-      
-      o.replace(pos_, endPos, text);
-      
-      // record the class of each character emitted
-      if (className != null) 
+      line_.replace(pos_, Math.min(endPos, line_.length()), text);
+
+      int offset = committed_.length();
+      setClass(offset + pos_, offset + endPos, className);
+      invalidate(offset + pos_);
+
+      pos_ = endPos;
+   }
+
+   // assigns a class to the given range of characters (which has just been
+   // written); a null class leaves the class of overwritten characters as-is
+   private void setClass(int start, int end, String className)
+   {
+      int runsEnd = getRunsEnd();
+      if (className != null && start < runsEnd)
       {
-         padCharClass(endPos);
-         for (int i = pos_; i < endPos; i++)
+         int overwriteEnd = Math.min(end, runsEnd);
+         int first = splitRunAt(start);
+         int last = splitRunAt(overwriteEnd);
+         for (int i = last - 1; i >= first; i--)
+            runs_.remove(i);
+         runs_.add(first, new ClassRun(start, overwriteEnd - start, className));
+         mergeRuns(first);
+      }
+
+      if (end > runsEnd)
+      {
+         ClassRun last = runs_.isEmpty() ? null : runs_.get(runs_.size() - 1);
+         if (last != null && StringUtil.equals(last.className, className))
+            last.length += end - runsEnd;
+         else
+            runs_.add(new ClassRun(runsEnd, end - runsEnd, className));
+      }
+   }
+
+   private void deleteClassAt(int offset)
+   {
+      int index = findRun(offset);
+      ClassRun run = runs_.get(index);
+      run.length--;
+      for (int i = index + 1; i < runs_.size(); i++)
+         runs_.get(i).start--;
+
+      if (run.length == 0)
+      {
+         runs_.remove(index);
+         if (index > 0)
+            mergeRuns(index - 1);
+      }
+   }
+
+   // returns the index of the run containing the given offset
+   private int findRun(int offset)
+   {
+      int low = 0;
+      int high = runs_.size() - 1;
+      while (low < high)
+      {
+         int mid = (low + high + 1) >>> 1;
+         if (runs_.get(mid).start <= offset)
+            low = mid;
+         else
+            high = mid - 1;
+      }
+      return low;
+   }
+
+   // ensures that a run begins at the given offset, and returns its index
+   private int splitRunAt(int offset)
+   {
+      if (offset >= getRunsEnd())
+         return runs_.size();
+
+      int index = findRun(offset);
+      ClassRun run = runs_.get(index);
+      if (run.start == offset)
+         return index;
+
+      int headLength = offset - run.start;
+      runs_.add(index + 1, new ClassRun(offset,
+                                        run.length - headLength,
+                                        run.className));
+      run.length = headLength;
+      return index + 1;
+   }
+
+   // merges the run at the given index with its neighbors if they share
+   // the same class
+   private void mergeRuns(int index)
+   {
+      if (index + 1 < runs_.size())
+      {
+         ClassRun run = runs_.get(index);
+         ClassRun next = runs_.get(index + 1);
+         if (StringUtil.equals(run.className, next.className))
          {
-            charClass.set(i, className);
+            run.length += next.length;
+            runs_.remove(index + 1);
          }
       }
 
-      pos_ = endPos;
+      if (index > 0 && index < runs_.size())
+      {
+         ClassRun previous = runs_.get(index - 1);
+         ClassRun run = runs_.get(index);
+         if (StringUtil.equals(previous.className, run.className))
+         {
+            previous.length += run.length;
+            runs_.remove(index);
+         }
+      }
    }
-   
-   // ensures that the character class mapping buffer is at least 'len' 
-   // characters long (note that ensureCapacity just reallocs the underlying
-   // JavaScript array if necessary)
-   private void padCharClass(int len)
+
+   private int getRunsEnd()
    {
-      int curSize = charClass.size();
-      if (curSize >= len)
-         return;
-      charClass.ensureCapacity(len);
-      for (int i = 0; i < (len - curSize); i++)
-         charClass.add(null);
+      if (runs_.isEmpty())
+         return 0;
+      ClassRun last = runs_.get(runs_.size() - 1);
+      return last.start + last.length;
+   }
+
+   private void invalidate(int offset)
+   {
+      dirtyFrom_ = Math.min(dirtyFrom_, offset);
    }
-   
+
    @Override
    public String toString()
    {
-      return o.toString();
+      return committed_.toString() + line_.toString();
    }
-   
+
    public int getLength()
    {
-      return o.length();
+      return committed_.length() + line_.length();
    }
-   
-   public void submitAndRender(String data, String clazz, Element parent)
+
+   // the number of newlines in the console
+   public int getLineCount()
    {
-      if (!submit(data, clazz))
+      return lineCount_;
+   }
+
+   // whether the console ends with text that isn't terminated by a newline
+   public boolean hasPartialLine()
+   {
+      return line_.length() > 0;
+   }
+
+   // removes up to the given number of lines from the top of the console
+   // (along with their rendered output); returns the number of lines removed
+   public int trimLines(int lines)
+   {
+      int removed = 0;
+      int offset = 0;
+      while (removed < lines)
       {
-         // output isn't append-only; redraw the whole thing
-         // (note that even this isn't technically necessary but control 
-         // characters are relatively infrequent and additional bookkeeping
-         // would be required to determine the invalidated range when 
-         // control characters are used)
-         redraw(parent);
+         int newline = committed_.indexOf("\n", offset);
+         if (newline < 0)
+            break;
+         offset = newline + 1;
+         removed++;
+      }
+      if (removed == 0)
+         return 0;
+
+      committed_.delete(0, offset);
+      lineCount_ -= removed;
+
+      int firstRun = splitRunAt(offset);
+      runs_.subList(0, firstRun).clear();
+      for (ClassRun run : runs_)
+         run.start -= offset;
+
+      int firstSegment = 0;
+      while (firstSegment < segments_.size())
+      {
+         Segment segment = segments_.get(firstSegment);
+         if (segment.end > offset)
+         {
+            if (segment.start < offset)
+            {
+               segment.text.deleteData(0, offset - segment.start);
+               segment.start = offset;
+            }
+            break;
+         }
+         segment.node.removeFromParent();
+         firstSegment++;
       }
-      else
+      segments_.subList(0, firstSegment).clear();
+      for (Segment segment : segments_)
       {
-         // consolify just the data to be rendered
-         emitRange(consolify(data), clazz, parent);
+         segment.start -= offset;
+         segment.end -= offset;
       }
+
+      if (dirtyFrom_ != Integer.MAX_VALUE)
+         dirtyFrom_ = Math.max(0, dirtyFrom_ - offset);
+
+      return removed;
+   }
+
+   // trims the oldest lines once the console holds more than the given
+   // number of lines; lines are trimmed in batches so that the cost of
+   // trimming is amortized over many appended lines
+   public int enforceMaxLines(int maxLines)
+   {
+      if (maxLines <= 0 || lineCount_ <= maxLines + maxLines / 10)
+         return 0;
+      return trimLines(lineCount_ - maxLines);
+   }
+
+   // returns the text from the given offset to the end of the console
+   private String getText(int offset)
+   {
+      int lineStart = committed_.length();
+      if (offset >= lineStart)
+         return line_.substring(offset - lineStart);
+      return committed_.substring(offset) + line_.toString();
+   }
+
+   public void submitAndRender(String data, String clazz, Element parent)
+   {
+      submit(data, clazz);
+      render(parent);
    }
-   
+
    public void clear()
    {
       formfeed();
+
+      // callers clear their own output when clearing the console, so the
+      // next render appends to the parent rather than redrawing it
+      segments_.clear();
+      parent_ = null;
+      redrawPending_ = false;
+      dirtyFrom_ = 0;
    }
-   
+
    public static String consolify(String text)
    {
       VirtualConsole console = new VirtualConsole();
@@ -207,64 +434,182 @@ public class VirtualConsole
       return console.toString();
    }
 
-   private void emitRange(String text, String clazz, Element parent)
+   // renders the text changed since the last render into the given parent
+   public void render(Element parent)
    {
-      if (StringUtil.isNullOrEmpty(text))
-         return;
-      Text textNode = Document.get().createTextNode(text);
-      if (clazz != null)
+      if (parent_ != parent)
       {
-         SpanElement span = Document.get().createSpanElement();
-         span.addClassName(clazz);
-         parent.appendChild(span);
-         parent = span;
+         if (!segments_.isEmpty())
+         {
+            redraw(parent);
+            return;
+         }
+         parent_ = parent;
       }
-      parent.appendChild(textNode);
+
+      // redraw everything if the console was cleared by a form feed or
+      // if our output was removed from the parent
+      if (redrawPending_ ||
+          (!segments_.isEmpty() &&
+           segments_.get(segments_.size() - 1).node.getParentNode() != parent))
+      {
+         redraw(parent);
+         return;
+      }
+
+      if (dirtyFrom_ == Integer.MAX_VALUE)
+         return;
+
+      truncateSegments(dirtyFrom_);
+      emitFrom(dirtyFrom_);
+      dirtyFrom_ = Integer.MAX_VALUE;
    }
-   
+
    public void redraw(Element parent)
    {
-      // convert to a plain-text string
-      String plainText = toString();
-      int len = plainText.length();
-      String lastClass = null;
-      padCharClass(len);
-      
       // clean existing content
       parent.setInnerHTML("");
-      
-      // for performance reasons, we don't emit one character at a time;
-      // instead, we keep track of the string indices that correspond to
-      // contiguous runs of characters to emit into the stream
-      int accumulateBegin = 0;
-      int accumulateEnd = 0;
-
-      // iterate in lockstep over the plain-text string and character class
-      // assignment list; emit the appropriate tags when switching classes
-      for (int i = 0; i < len; i++)
+      segments_.clear();
+      parent_ = parent;
+      redrawPending_ = false;
+
+      emitFrom(0);
+      dirtyFrom_ = Integer.MAX_VALUE;
+   }
+
+   // removes rendered output at or beyond the given offset
+   private void truncateSegments(int offset)
+   {
+      while (!segments_.isEmpty())
+      {
+         Segment last = segments_.get(segments_.size() - 1);
+         if (last.start >= offset)
+         {
+            last.node.removeFromParent();
+            segments_.remove(segments_.size() - 1);
+         }
+         else
+         {
+            if (last.end > offset)
+            {
+               last.text.deleteData(offset - last.start, last.end - offset);
+               last.end = offset;
+            }
+            break;
+         }
+      }
+   }
+
+   // renders the text from the given offset to the end of the console
+   private void emitFrom(int offset)
+   {
+      int length = getLength();
+      if (offset >= length)
+         return;
+
+      String text = getText(offset);
+      int index = findRun(offset);
+      int pos = offset;
+      while (pos < length)
+      {
+         ClassRun run = runs_.get(index++);
+         int runEnd = Math.min(run.start + run.length, length);
+         emitRange(text.substring(pos - offset, runEnd - offset),
+                   pos,
+                   run.className);
+         pos = runEnd;
+      }
+   }
+
+   private void emitRange(String text, int offset, String clazz)
+   {
+      int pos = 0;
+      while (pos < text.length())
       {
-         if (!charClass.get(i).equals(lastClass))
+         // extend the last segment if it has the same class (segments are
+         // kept short so that truncating one is cheap)
+         Segment last = segments_.isEmpty() ?
+                              null : segments_.get(segments_.size() - 1);
+         if (last != null && last.end == offset + pos &&
+             StringUtil.equals(last.className, clazz) &&
+             last.end - last.start < MAX_SEGMENT_LENGTH)
          {
-            emitRange(
-                  plainText.substring(accumulateBegin, accumulateEnd),
-                  lastClass, parent);
-            
-            // begin accumulating from the emitted point
-            accumulateBegin = accumulateEnd;
+            int count = Math.min(text.length() - pos,
+                                 MAX_SEGMENT_LENGTH - (last.end - last.start));
+            last.text.insertData(last.end - last.start,
+                                 text.substring(pos, pos + count));
+            last.end += count;
+            pos += count;
+            continue;
          }
-         lastClass = charClass.get(i);
-         accumulateEnd = i;
+
+         int count = Math.min(text.length() - pos, MAX_SEGMENT_LENGTH);
+         Text textNode = Document.get().createTextNode(
+                                          text.substring(pos, pos + count));
+         Node node = textNode;
+         if (clazz != null)
+         {
+            SpanElement span = Document.get().createSpanElement();
+            span.addClassName(clazz);
+            span.appendChild(textNode);
+            node = span;
+         }
+         parent_.appendChild(node);
+         segments_.add(new Segment(offset + pos,
+                                   offset + pos + count,
+                                   clazz,
+                                   textNode,
+                                   node));
+         pos += count;
+      }
+   }
+
+   // a run of characters which share the same class
+   private static class ClassRun
+   {
+      ClassRun(int start, int length, String className)
+      {
+         this.start = start;
+         this.length = length;
+         this.className = className;
       }
 
-      // finishing up--emit accumulated text into stream
-      emitRange(
-            plainText.substring(accumulateBegin),
-            lastClass, parent);
-      return;
+      int start;
+      int length;
+      final String className;
    }
-   private final StringBuilder o = new StringBuilder();
-   private final ArrayList<String> charClass = new ArrayList<String>();
+
+   // a rendered text node (possibly wrapped in a span) and the range of
+   // characters it contains
+   private static class Segment
+   {
+      Segment(int start, int end, String className, Text text, Node node)
+      {
+         this.start = start;
+         this.end = end;
+         this.className = className;
+         this.text = text;
+         this.node = node;
+      }
+
+      int start;
+      int end;
+      final String className;
+      final Text text;
+      final Node node;
+   }
+
+   private final StringBuilder committed_ = new StringBuilder();
+   private final StringBuilder line_ = new StringBuilder();
+   private final ArrayList<ClassRun> runs_ = new ArrayList<ClassRun>();
+   private final ArrayList<Segment> segments_ = new ArrayList<Segment>();
    private int pos_ = 0;
+   private int lineCount_ = 0;
+   private Element parent_ = null;
+   private int dirtyFrom_ = 0;
+   private boolean redrawPending_ = false;
+
+   private static final int MAX_SEGMENT_LENGTH = 4096;
    private static final Pattern CONTROL = Pattern.create("[\r\b\f\n]");
    private static final Pattern CONTROL_SPECIAL = Pattern.create("[\r\b\f]");
 }
@@ -0,0 +1,134 @@
+/*
+ * RingBuffer.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.container;
+
+import java.util.ArrayList;
+
+// A first-in first-out queue backed by a circular array, so that adding
+// at the end and removing from the front are O(1) (amortized, as the
+// array is doubled when full). If created with a maximum size the buffer
+// never grows past it; adding to a full buffer evicts the oldest element.
+// Otherwise the buffer grows as needed.
+public class RingBuffer<T>
+{
+   public RingBuffer()
+   {
+      this(16, 0);
+   }
+   
+   public RingBuffer(int maxSize)
+   {
+      this(maxSize, maxSize);
+   }
+   
+   private RingBuffer(int capacity, int maxSize)
+   {
+      maxSize_ = maxSize;
+      items_ = new ArrayList<T>(capacity);
+      for (int i = 0; i < capacity; i++)
+         items_.add(null);
+   }
+   
+   public int size()
+   {
+      return size_;
+   }
+   
+   public boolean isEmpty()
+   {
+      return size_ == 0;
+   }
+   
+   // add an item at the end of the buffer; returns the evicted item if 
+   // the buffer was at its maximum size (otherwise null)
+   public T add(T item)
+   {
+      T evicted = null;
+      if (size_ == items_.size())
+      {
+         if (maxSize_ > 0 && size_ >= maxSize_)
+            evicted = remove();
+         else
+            grow();
+      }
+      
+      items_.set((head_ + size_) % items_.size(), item);
+      size_++;
+      return evicted;
+   }
+   
+   // remove and return the item at the front of the buffer
+   public T remove()
+   {
+      if (size_ == 0)
+         return null;
+      
+      T item = items_.get(head_);
+      items_.set(head_, null);
+      head_ = (head_ + 1) % items_.size();
+      size_--;
+      return item;
+   }
+   
+   public T peek()
+   {
+      return size_ == 0 ? null : items_.get(head_);
+   }
+   
+   public T peekLast()
+   {
+      return size_ == 0 ? null : get(size_ - 1);
+   }
+   
+   // index 0 is the oldest item in the buffer
+   public T get(int index)
+   {
+      if (index < 0 || index >= size_)
+         throw new IndexOutOfBoundsException();
+      return items_.get((head_ + index) % items_.size());
+   }
+   
+   public void set(int index, T item)
+   {
+      if (index < 0 || index >= size_)
+         throw new IndexOutOfBoundsException();
+      items_.set((head_ + index) % items_.size(), item);
+   }
+   
+   public void clear()
+   {
+      for (int i = 0; i < items_.size(); i++)
+         items_.set(i, null);
+      head_ = 0;
+      size_ = 0;
+   }
+   
+   private void grow()
+   {
+      int capacity = Math.max(16, items_.size() * 2);
+      ArrayList<T> items = new ArrayList<T>(capacity);
+      for (int i = 0; i < size_; i++)
+         items.add(get(i));
+      for (int i = size_; i < capacity; i++)
+         items.add(null);
+      items_ = items;
+      head_ = 0;
+   }
+   
+   private final int maxSize_;
+   private ArrayList<T> items_;
+   private int head_ = 0;
+   private int size_ = 0;
+}
@@ -14,6 +14,8 @@
  */
 package org.rstudio.core.client.js;
 
+import java.util.List;
+
 import com.google.gwt.core.client.JavaScriptObject;
 
 /* 
@@ -55,6 +57,15 @@ import com.google.gwt.core.client.JavaScriptObject;
  *    // true
  * }
  * 
+ * // Several instances can also be serialized into a single payload
+ * 
+ * JavaScriptObject batch = serializer.serializeBatch(foos);
+ * List<Foo> hydrated = serializer.deserializeBatch(batch);
+ * 
+ * Each serializable class is assigned a compact type id at compile time;
+ * serialized objects carry both the type id (used for dispatch) and the 
+ * class name.
+ * 
  * Currently, the primary usage of the JavaScriptSerializer is marshaling GWT
  * "Java" objects across window boundaries (see CrossWindowEvent).
  */
@@ -62,4 +73,6 @@ public interface JavaScriptSerializer
 {
    <T> JavaScriptObject serialize(T source);
    <T> T deserialize(JavaScriptObject jso);
+   <T> JavaScriptObject serializeBatch(List<T> sources);
+   <T> List<T> deserializeBatch(JavaScriptObject jso);
 }
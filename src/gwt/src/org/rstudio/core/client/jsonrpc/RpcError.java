@@ -65,6 +65,10 @@ public class RpcError extends JavaScriptObject
    // transmission error (application state indeterminate)
    public final static int TRANSMISSION_ERROR = 200;
    
+   // superseded by a newer request from the same caller before it was
+   // sent (method not executed)
+   public final static int SUPERSEDED = 201;
+   
    public final native int getCode() /*-{
       return this.code;
    }-*/;
@@ -0,0 +1,239 @@
+/*
+ * RpcMethodStats.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+
+// Call count, error/retry counts, payload sizes, and a latency histogram
+// for a single rpc method. Latencies are kept in logarithmic buckets (four
+// per power of two, so ~19% resolution) which keeps the memory used per
+// method fixed no matter how many calls are recorded.
+public class RpcMethodStats
+{
+   RpcMethodStats(String method)
+   {
+      method_ = method;
+   }
+
+   void record(int requestBytes,
+               int responseBytes,
+               double latencyMs,
+               boolean error)
+   {
+      count_++;
+      if (error)
+         errors_++;
+      requestBytes_ += requestBytes;
+      responseBytes_ += responseBytes;
+      totalLatencyMs_ += latencyMs;
+      maxLatencyMs_ = Math.max(maxLatencyMs_, latencyMs);
+      buckets_[bucketFor(latencyMs)]++;
+   }
+
+   void recordRetry()
+   {
+      retries_++;
+   }
+
+   void recordQueueTime(double queuedMs)
+   {
+      queuedCount_++;
+      totalQueuedMs_ += queuedMs;
+      maxQueuedMs_ = Math.max(maxQueuedMs_, queuedMs);
+   }
+
+   void recordCacheHit()
+   {
+      cacheHits_++;
+   }
+
+   void recordSharedCall()
+   {
+      sharedCalls_++;
+   }
+
+   void recordProxiedCall(double proxyMs)
+   {
+      proxiedCalls_++;
+      totalProxyMs_ += proxyMs;
+   }
+
+   void recordProxyTime(double proxyMs)
+   {
+      totalProxyMs_ += proxyMs;
+   }
+
+   public String getMethod()
+   {
+      return method_;
+   }
+
+   public int getCount()
+   {
+      return count_;
+   }
+
+   public int getErrors()
+   {
+      return errors_;
+   }
+
+   public int getRetries()
+   {
+      return retries_;
+   }
+
+   // calls answered from RpcResponseCache (not included in getCount)
+   public int getCacheHits()
+   {
+      return cacheHits_;
+   }
+
+   // calls which shared the response of an identical outstanding call
+   // (not included in getCount)
+   public int getSharedCalls()
+   {
+      return sharedCalls_;
+   }
+
+   // payload sizes are the length of the json text sent/received, which
+   // matches the byte count for the (typically ascii) payloads we exchange
+   public double getRequestBytes()
+   {
+      return requestBytes_;
+   }
+
+   public double getResponseBytes()
+   {
+      return responseBytes_;
+   }
+
+   public double getMeanLatencyMs()
+   {
+      return count_ == 0 ? 0 : totalLatencyMs_ / count_;
+   }
+
+   public double getMaxLatencyMs()
+   {
+      return maxLatencyMs_;
+   }
+
+   // time spent waiting client side in RpcRequestScheduler (not included
+   // in the latencies above)
+   public double getMeanQueuedMs()
+   {
+      return queuedCount_ == 0 ? 0 : totalQueuedMs_ / queuedCount_;
+   }
+
+   public double getMaxQueuedMs()
+   {
+      return maxQueuedMs_;
+   }
+
+   // calls made by satellite windows which this (main) window sent on
+   // their behalf, and the time this window's event loop spent doing so
+   public int getProxiedCalls()
+   {
+      return proxiedCalls_;
+   }
+
+   public double getTotalProxyMs()
+   {
+      return totalProxyMs_;
+   }
+
+   // returns the upper bound of the bucket containing the given percentile
+   // (e.g. 0.95), so the result overstates the true value by at most one
+   // bucket width
+   public double getLatencyPercentileMs(double percentile)
+   {
+      if (count_ == 0)
+         return 0;
+
+      int rank = (int)Math.ceil(percentile * count_);
+      int seen = 0;
+      for (int i = 0; i < BUCKETS; i++)
+      {
+         seen += buckets_[i];
+         if (seen >= Math.max(1, rank))
+            return Math.min(bucketUpperBound(i), maxLatencyMs_);
+      }
+      return maxLatencyMs_;
+   }
+
+   public JSONObject toJSONObject()
+   {
+      JSONObject json = new JSONObject();
+      json.put("method", new JSONString(method_));
+      json.put("count", new JSONNumber(count_));
+      json.put("errors", new JSONNumber(errors_));
+      json.put("retries", new JSONNumber(retries_));
+      json.put("cache_hits", new JSONNumber(cacheHits_));
+      json.put("shared_calls", new JSONNumber(sharedCalls_));
+      json.put("request_bytes", new JSONNumber(requestBytes_));
+      json.put("response_bytes", new JSONNumber(responseBytes_));
+      json.put("mean_ms", new JSONNumber(getMeanLatencyMs()));
+      json.put("p50_ms", new JSONNumber(getLatencyPercentileMs(0.50)));
+      json.put("p95_ms", new JSONNumber(getLatencyPercentileMs(0.95)));
+      json.put("p99_ms", new JSONNumber(getLatencyPercentileMs(0.99)));
+      json.put("max_ms", new JSONNumber(maxLatencyMs_));
+      json.put("mean_queued_ms", new JSONNumber(getMeanQueuedMs()));
+      json.put("max_queued_ms", new JSONNumber(maxQueuedMs_));
+      json.put("proxied_calls", new JSONNumber(proxiedCalls_));
+      json.put("proxy_ms", new JSONNumber(totalProxyMs_));
+      return json;
+   }
+
+   // bucket 0 holds everything under 1ms, bucket i > 0 holds latencies
+   // in [2^((i-1)/4), 2^(i/4)); the last bucket also catches the overflow
+   private static int bucketFor(double latencyMs)
+   {
+      if (latencyMs < 1)
+         return 0;
+      int bucket = 1 + (int)(Math.log(latencyMs) / LOG2 * BUCKETS_PER_DOUBLING);
+      return Math.min(bucket, BUCKETS - 1);
+   }
+
+   private static double bucketUpperBound(int bucket)
+   {
+      return Math.pow(2, (double)bucket / BUCKETS_PER_DOUBLING);
+   }
+
+   private final String method_;
+   private int count_ = 0;
+   private int errors_ = 0;
+   private int retries_ = 0;
+   private int cacheHits_ = 0;
+   private int sharedCalls_ = 0;
+   private double requestBytes_ = 0;
+   private double responseBytes_ = 0;
+   private double totalLatencyMs_ = 0;
+   private double maxLatencyMs_ = 0;
+   private int queuedCount_ = 0;
+   private double totalQueuedMs_ = 0;
+   private double maxQueuedMs_ = 0;
+   private int proxiedCalls_ = 0;
+   private double totalProxyMs_ = 0;
+   private final int[] buckets_ = new int[BUCKETS];
+
+   private static final double LOG2 = Math.log(2);
+   private static final int BUCKETS_PER_DOUBLING = 4;
+
+   // covers latencies up to 2^18ms (~4 minutes)
+   private static final int BUCKETS = 18 * BUCKETS_PER_DOUBLING + 1;
+}
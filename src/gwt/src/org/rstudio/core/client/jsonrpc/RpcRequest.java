@@ -15,18 +15,23 @@
 
 package org.rstudio.core.client.jsonrpc;
 
+import java.util.ArrayList;
+
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.http.client.*;
 import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONObject;
-import com.google.gwt.json.client.JSONString;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Random;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
 
-// NOTE: RpcRequest is an immutable object (all fields are marked final).
-// this means that it is safe to re-submit an RpcRequest since the 
-// re-submission will always be identical to the initial submission (useful
-// for retries after network or authentication errors)
+// NOTE: the contents of an RpcRequest (url, method, params, etc.) are
+// immutable, so a re-submission is always identical to the initial
+// submission (useful for retries after network or authentication errors).
+// the transport state (caller, batch, cancel handlers) is mutable however,
+// and a cancelled request stays cancelled -- use copy() to obtain a fresh
+// request which can be sent (and cancelled) independently
 public class RpcRequest 
 {
    public static final boolean TRACE = false ;
@@ -45,15 +50,56 @@ public class RpcRequest
       params_ = params ;
       kwparams_ = kwparams;
       redactLog_ = redactLog;
-      if (sourceWindow != null)
-         sourceWindow_ = new JSONString(sourceWindow);
-      else
-         sourceWindow_ = null;
-      if (clientId != null)
-         clientId_ = new JSONString(clientId);
-      else
-         clientId_ = null;
-      clientVersion_ = new JSONString(clientVersion);
+      sourceWindow_ = sourceWindow;
+      clientId_ = clientId;
+      clientVersion_ = clientVersion;
+   }
+   
+   // a copy of another request, which can be sent (and cancelled)
+   // independently of the original
+   private RpcRequest(RpcRequest other)
+   {
+      url_ = other.url_;
+      method_ = other.method_;
+      params_ = other.params_;
+      kwparams_ = other.kwparams_;
+      redactLog_ = other.redactLog_;
+      sourceWindow_ = other.sourceWindow_;
+      clientId_ = other.clientId_;
+      clientVersion_ = other.clientVersion_;
+      caller_ = other.caller_;
+   }
+   
+   RpcRequest copy()
+   {
+      return new RpcRequest(this);
+   }
+   
+   String getUrl()
+   {
+      return url_;
+   }
+   
+   public String getMethod()
+   {
+      return method_;
+   }
+   
+   public boolean getRedactLog()
+   {
+      return redactLog_;
+   }
+   
+   // identifies the code which issued the request (RpcRequestScheduler only
+   // supersedes or reorders requests relative to others from the same caller)
+   public void setCaller(Object caller)
+   {
+      caller_ = caller;
+   }
+   
+   Object getCaller()
+   {
+      return caller_;
    }
    
    public void send(RpcRequestCallback callback)
@@ -62,111 +108,68 @@ public class RpcRequest
       final RpcRequest enclosingRequest = this ;
       final RpcRequestCallback requestCallback = callback ;
       
-      // build json request object
-      JSONObject request = new JSONObject() ;
-      request.put("method", new JSONString(method_)) ;
-      if ( params_ != null )
-         request.put("params", params_);  
-      if ( kwparams_ != null)
-         request.put("kwparams", kwparams_);
-      
-      // add src window if we have it
-      if (sourceWindow_ != null)
-         request.put("sourceWnd", sourceWindow_);
-      
-      // add client id if we have it
-      if (clientId_ != null)
-         request.put("clientId", clientId_);
-      
-      // add client version
-      request.put("clientVersion", clientVersion_);
-      
-      // configure request builder
-      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
-      builder.setHeader("Content-Type", "application/json") ;
-      builder.setHeader("Accept", "application/json");
       String requestId = Integer.toString(Random.nextInt());
-      builder.setHeader("X-RS-RID", requestId);
       
       // send request
       try
       {
-         String requestString = request.toString();
+         final String requestString = stringify(toJavaScriptObject());
          if (TRACE)
             Debug.log("Request: " + requestString) ;
+         
+         final double startTime = System.currentTimeMillis();
 
          requestLogEntry_ = RequestLog.log(requestId,
                                            redactLog_ ? "[REDACTED]"
                                                       : requestString);
 
-         request_ = builder.sendRequest(requestString, new RequestCallback() {
-            
-            public void onError(Request request, Throwable exception)
-            {      
-               requestLogEntry_.logResponse(ResponseType.Error,
-                                           exception.getLocalizedMessage());
-               // ERROR: Request failed
-               RpcError error = RpcError.create(
-                                          RpcError.TRANSMISSION_ERROR,
-                                          exception.getLocalizedMessage());
-               requestCallback.onError(enclosingRequest, error) ;
-            }
+         request_ = post(url_, requestId, requestString, new PostCallback() {
             
-            public void onResponseReceived(Request request, 
-                                           Response response)
+            public void onResponseText(String responseText)
             {
-               // only accept 200 responses
-               int status = response.getStatusCode();
-               if ( status == 200 )
+               // attempt to parse the response
+               RpcResponse rpcResponse = null ;
+               try
                {
-                  // attempt to parse the response
-                  RpcResponse rpcResponse = null ;
-                  try
-                  {
-                     String responseText = response.getText();
-                     if (TRACE)
-                        Debug.log("Response: " + responseText) ;
-                     requestLogEntry_.logResponse(ResponseType.Normal,
-                                                 responseText);
-                     rpcResponse = RpcResponse.parse(responseText);
-                     
-                     // response received and validated, process it!
-                     requestCallback.onResponseReceived(enclosingRequest, 
-                                                        rpcResponse) ;
-                  }
-                  catch(Exception e)
-                  {
-                     // ERROR: Unable to parse JSON
-                     RpcError error = RpcError.create(
-                                                RpcError.TRANSMISSION_ERROR,
-                                                e.getLocalizedMessage());
-                     requestCallback.onError(enclosingRequest, error) ;
-                  }
-               }
-               else
-               {
-                  // ERROR: Non-200 response from server
-                  
-                  // default error message
-                  String message = "Status code " + 
-                                   Integer.toString(status) + 
-                                   " returned";
+                  if (TRACE)
+                     Debug.log("Response: " + responseText) ;
+                  requestLogEntry_.logResponse(ResponseType.Normal,
+                                              responseText);
+                  rpcResponse = RpcResponse.parse(responseText);
                   
-                  // override error message for status code 0
-                  if (status == 0)
-                  {
-                     message = "Unable to establish connection with R session"; 
-                  }
+                  RpcStats.record(method_,
+                                  requestString.length(),
+                                  responseText.length(),
+                                  System.currentTimeMillis() - startTime,
+                                  rpcResponse == null || 
+                                  rpcResponse.getError() != null);
                   
-                 
-                  requestLogEntry_.logResponse(ResponseType.Unknown,
-                                              message);
+                  // response received and validated, process it!
+                  requestCallback.onResponseReceived(enclosingRequest, 
+                                                     rpcResponse) ;
+               }
+               catch(Exception e)
+               {
+                  // ERROR: Unable to parse JSON
                   RpcError error = RpcError.create(
                                              RpcError.TRANSMISSION_ERROR,
-                                             message) ;
-                  requestCallback.onError(enclosingRequest, error);
+                                             e.getLocalizedMessage());
+                  requestCallback.onError(enclosingRequest, error) ;
                }
-            };
+            }
+            
+            public void onTransmissionError(int responseType, String message)
+            {
+               requestLogEntry_.logResponse(responseType, message);
+               RpcStats.record(method_,
+                               requestString.length(),
+                               0,
+                               System.currentTimeMillis() - startTime,
+                               true);
+               RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR,
+                                                message);
+               requestCallback.onError(enclosingRequest, error);
+            }
          });
       }
       catch(RequestException e)
@@ -184,8 +187,167 @@ public class RpcRequest
       }
    }
    
+   // build the request as a plain javascript object (also used by
+   // RpcRequestBatch to assemble the individual calls within a multiplexed
+   // envelope). the params are the js values which already back the
+   // JSONArray/JSONObject wrappers, so serializing with JSON.stringify
+   // doesn't require walking (and re-building strings for) the wrapper tree
+   JavaScriptObject toJavaScriptObject()
+   {
+      return createRequest(
+            method_,
+            params_ != null ? params_.getJavaScriptObject() : null,
+            kwparams_ != null ? kwparams_.getJavaScriptObject() : null,
+            sourceWindow_,
+            clientId_,
+            clientVersion_);
+   }
+   
+   private static native JavaScriptObject createRequest(
+                                             String method,
+                                             JavaScriptObject params,
+                                             JavaScriptObject kwparams,
+                                             String sourceWindow,
+                                             String clientId,
+                                             String clientVersion) /*-{
+      var request = { method: method };
+      if (params != null)
+         request.params = params;
+      if (kwparams != null)
+         request.kwparams = kwparams;
+      if (sourceWindow != null)
+         request.sourceWnd = sourceWindow;
+      if (clientId != null)
+         request.clientId = clientId;
+      request.clientVersion = clientVersion;
+      return request;
+   }-*/;
+   
+   static native String stringify(JavaScriptObject value) /*-{
+      return JSON.stringify(value);
+   }-*/;
+   
+   // identifies requests which are guaranteed to yield the same result
+   // from an idempotent method (used by RpcResponseCache)
+   String getCacheKey()
+   {
+      StringBuilder key = new StringBuilder(url_);
+      if (params_ != null)
+         key.append(stringify(params_.getJavaScriptObject()));
+      if (kwparams_ != null)
+         key.append(stringify(kwparams_.getJavaScriptObject()));
+      return key.toString();
+   }
+   
+   String getClientId()
+   {
+      return clientId_;
+   }
+   
+   String getClientVersion()
+   {
+      return clientVersion_;
+   }
+   
+   boolean isCancelled()
+   {
+      return cancelled_;
+   }
+   
+   // notified if the request is cancelled once it has been handed off
+   // (e.g. lets RpcRequestScheduler release the request's connection slot)
+   void addCancelHandler(Command handler)
+   {
+      cancelHandlers_.add(handler);
+   }
+   
+   void removeCancelHandler(Command handler)
+   {
+      cancelHandlers_.remove(handler);
+   }
+   
+   void setBatch(RpcRequestBatch batch)
+   {
+      batch_ = batch;
+   }
+   
+   // callback for the low level post shared by RpcRequest and RpcRequestBatch
+   interface PostCallback
+   {
+      void onResponseText(String responseText);
+      void onTransmissionError(int responseType, String message);
+   }
+   
+   static Request post(String url, 
+                       String requestId, 
+                       String requestString,
+                       final PostCallback callback) throws RequestException
+   {
+      // configure request builder
+      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url);
+      builder.setHeader("Content-Type", "application/json") ;
+      builder.setHeader("Accept", "application/json");
+      builder.setHeader("X-RS-RID", requestId);
+      
+      return builder.sendRequest(requestString, new RequestCallback() {
+         
+         public void onError(Request request, Throwable exception)
+         {      
+            // ERROR: Request failed
+            callback.onTransmissionError(ResponseType.Error,
+                                         exception.getLocalizedMessage());
+         }
+         
+         public void onResponseReceived(Request request, 
+                                        Response response)
+         {
+            // only accept 200 responses
+            int status = response.getStatusCode();
+            if ( status == 200 )
+            {
+               callback.onResponseText(response.getText());
+            }
+            else
+            {
+               // ERROR: Non-200 response from server
+               
+               // default error message
+               String message = "Status code " + 
+                                Integer.toString(status) + 
+                                " returned";
+               
+               // override error message for status code 0
+               if (status == 0)
+               {
+                  message = "Unable to establish connection with R session"; 
+               }
+               
+               callback.onTransmissionError(ResponseType.Unknown, message);
+            }
+         };
+      });
+   }
+   
    public void cancel()
    {
+      cancelled_ = true;
+      
+      if (!cancelHandlers_.isEmpty())
+      {
+         ArrayList<Command> handlers = new ArrayList<Command>(cancelHandlers_);
+         cancelHandlers_.clear();
+         for (Command handler : handlers)
+            handler.execute();
+      }
+      
+      // requests sent as part of a batch are cancelled by the batch
+      if (batch_ != null)
+      {
+         batch_.cancel(this);
+         batch_ = null;
+         return;
+      }
+      
       if (request_ != null)
       {
          request_.cancel();
@@ -204,11 +366,16 @@ public class RpcRequest
    final private JSONArray params_ ;
    final private JSONObject kwparams_;
    private final boolean redactLog_;
-   final private JSONString sourceWindow_;
-   final private JSONString clientId_;
-   final private JSONString clientVersion_;
+   final private String sourceWindow_;
+   final private String clientId_;
+   final private String clientVersion_;
+   private Object caller_ = null;
    private Request request_ = null;
    private RequestLogEntry requestLogEntry_ = null;
+   private RpcRequestBatch batch_ = null;
+   private final ArrayList<Command> cancelHandlers_ = 
+                                                new ArrayList<Command>();
+   private boolean cancelled_ = false;
    
      
 }
@@ -0,0 +1,319 @@
+/*
+ * RpcRequestBatch.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.user.client.Random;
+
+// A set of rpc requests which are sent to the server within a single
+// multiplexed envelope. The server executes the calls in order and returns
+// an array with one response per call, which we then fan back out to the
+// callbacks of the individual requests (so error handling, retries, and
+// request logging all continue to work on a per-call basis)
+public class RpcRequestBatch
+{
+   public RpcRequestBatch(String url)
+   {
+      url_ = url;
+   }
+
+   public void add(RpcRequest request, RpcRequestCallback callback)
+   {
+      assert !sent_ : "Can't add requests to a batch that has been sent";
+
+      request.setBatch(this);
+      entries_.add(new Entry(request, callback));
+   }
+
+   public int size()
+   {
+      return entries_.size();
+   }
+
+   public void send()
+   {
+      sent_ = true;
+
+      // nothing to send (e.g. every call was cancelled before the flush)
+      if (entries_.isEmpty())
+         return;
+
+      // no need for an envelope if there is only a single call
+      if (entries_.size() == 1)
+      {
+         Entry entry = entries_.get(0);
+         entry.request.setBatch(null);
+         entry.request.send(entry.callback);
+         return;
+      }
+
+      // build the envelope and a log entry for each call
+      String batchId = Integer.toString(Random.nextInt());
+      StringBuilder calls = new StringBuilder();
+      for (int i = 0; i < entries_.size(); i++)
+      {
+         Entry entry = entries_.get(i);
+         String callString = RpcRequest.stringify(
+                                       entry.request.toJavaScriptObject());
+         if (RpcRequest.TRACE)
+            Debug.log("Request: " + callString);
+
+         entry.logEntry = RequestLog.log(
+                               batchId + "." + i,
+                               entry.request.getRedactLog() ? "[REDACTED]"
+                                                            : callString);
+         entry.requestBytes = callString.length();
+         if (i > 0)
+            calls.append(',');
+         calls.append(callString);
+      }
+
+      Entry first = entries_.get(0);
+      String envelope = createEnvelope(calls.toString(),
+                                       first.request.getClientId(),
+                                       first.request.getClientVersion());
+
+      final double startTime = System.currentTimeMillis();
+      try
+      {
+         request_ = RpcRequest.post(url_,
+                                    batchId,
+                                    envelope,
+                                    new RpcRequest.PostCallback() {
+
+            public void onResponseText(String responseText)
+            {
+               if (RpcRequest.TRACE)
+                  Debug.log("Response: " + responseText);
+
+               RpcResponse response = null;
+               try
+               {
+                  response = RpcResponse.parse(responseText);
+               }
+               catch(Exception e)
+               {
+               }
+
+               if (response == null)
+               {
+                  onTransmissionError(ResponseType.Unknown,
+                                      "Unable to parse batch response");
+               }
+               else if (response.getError() != null)
+               {
+                  // the envelope itself was rejected (e.g. invalid client id
+                  // or credentials) so every call gets the same error
+                  double elapsed = System.currentTimeMillis() - startTime;
+                  for (Entry entry : entries_)
+                  {
+                     if (entry.logEntry != null)
+                     {
+                        entry.logEntry.logResponse(ResponseType.Normal,
+                                                   responseText);
+                     }
+                     entry.recordStats(responseText.length(), elapsed, true);
+                     entry.dispatchResponse(response);
+                  }
+               }
+               else
+               {
+                  JsArray<RpcResponse> responses = response.getResult();
+                  if (responses == null ||
+                      responses.length() != entries_.size())
+                  {
+                     onTransmissionError(ResponseType.Unknown,
+                                         "Unexpected batch response length");
+                     return;
+                  }
+
+                  double elapsed = System.currentTimeMillis() - startTime;
+                  for (int i = 0; i < entries_.size(); i++)
+                  {
+                     Entry entry = entries_.get(i);
+                     RpcResponse callResponse = responses.get(i);
+                     String callResponseText = 
+                                          RpcRequest.stringify(callResponse);
+                     if (entry.logEntry != null)
+                     {
+                        entry.logEntry.logResponse(ResponseType.Normal,
+                                                   callResponseText);
+                     }
+                     entry.recordStats(callResponseText.length(), 
+                                       elapsed,
+                                       callResponse.getError() != null);
+                     entry.dispatchResponse(callResponse);
+                  }
+               }
+            }
+
+            public void onTransmissionError(int responseType, String message)
+            {
+               RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR,
+                                                message);
+               double elapsed = System.currentTimeMillis() - startTime;
+               for (Entry entry : entries_)
+               {
+                  if (entry.logEntry != null)
+                     entry.logEntry.logResponse(responseType, message);
+                  entry.recordStats(0, elapsed, true);
+                  entry.dispatchError(error);
+               }
+            }
+         });
+      }
+      catch(RequestException e)
+      {
+         String message = e.getLocalizedMessage();
+         RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR,
+                                          message);
+         for (Entry entry : entries_)
+         {
+            if (entry.logEntry != null)
+               entry.logEntry.logResponse(ResponseType.Unknown, message);
+            entry.dispatchError(error);
+         }
+      }
+   }
+
+   // the calls have already been serialized (for the request log) so we
+   // splice them into the envelope rather than serializing them again
+   private static native String createEnvelope(String calls,
+                                               String clientId,
+                                               String clientVersion) /*-{
+      var envelope = {
+         method: @org.rstudio.core.client.jsonrpc.RpcRequestBatch::MULTIPLEX
+      };
+      if (clientId != null)
+         envelope.clientId = clientId;
+      envelope.clientVersion = clientVersion;
+      var json = JSON.stringify(envelope);
+      return json.substring(0, json.length - 1) +
+             ',"params":[[' + calls + ']]}';
+   }-*/;
+
+   // called by RpcRequest.cancel for requests that belong to this batch
+   void cancel(RpcRequest request)
+   {
+      boolean allCancelled = true;
+      for (int i = 0; i < entries_.size(); i++)
+      {
+         Entry entry = entries_.get(i);
+         if (entry.request == request && !entry.cancelled)
+         {
+            entry.cancelled = true;
+            if (entry.logEntry != null)
+            {
+               entry.logEntry.logResponse(ResponseType.Cancelled,
+                                          "Cancelled");
+               entry.logEntry = null;
+            }
+         }
+         allCancelled = allCancelled && entry.cancelled;
+      }
+
+      // if not yet sent then just drop the request from the batch
+      if (!sent_)
+      {
+         for (int i = entries_.size() - 1; i >= 0; i--)
+         {
+            if (entries_.get(i).request == request)
+               entries_.remove(i);
+         }
+      }
+      // if every call in an outstanding batch was cancelled then we can
+      // cancel the underlying http request
+      else if (allCancelled && request_ != null)
+      {
+         request_.cancel();
+         request_ = null;
+      }
+   }
+
+   private static class Entry
+   {
+      Entry(RpcRequest request, RpcRequestCallback callback)
+      {
+         this.request = request;
+         this.callback = callback;
+      }
+
+      void recordStats(int responseBytes, double latencyMs, boolean error)
+      {
+         if (cancelled)
+            return;
+         
+         RpcStats.record(request.getMethod(),
+                         requestBytes,
+                         responseBytes,
+                         latencyMs,
+                         error);
+      }
+
+      // exceptions thrown by one callback must not prevent delivery
+      // to the remaining callbacks in the batch
+      
+      void dispatchResponse(RpcResponse response)
+      {
+         if (cancelled)
+            return;
+         
+         try
+         {
+            callback.onResponseReceived(request, response);
+         }
+         catch(Exception e)
+         {
+            Debug.logException(e);
+         }
+      }
+
+      void dispatchError(RpcError error)
+      {
+         if (cancelled)
+            return;
+         
+         try
+         {
+            callback.onError(request, error);
+         }
+         catch(Exception e)
+         {
+            Debug.logException(e);
+         }
+      }
+
+      final RpcRequest request;
+      final RpcRequestCallback callback;
+      RequestLogEntry logEntry = null;
+      int requestBytes = 0;
+      boolean cancelled = false;
+   }
+
+   public static final String MULTIPLEX = "multiplex";
+
+   private final String url_;
+   private final ArrayList<Entry> entries_ = new ArrayList<Entry>();
+   private boolean sent_ = false;
+   private Request request_ = null;
+}
@@ -0,0 +1,123 @@
+/*
+ * RpcRequestBatcher.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.user.client.Timer;
+
+// Collects rpc requests issued in close succession (by default within the
+// same turn of the event loop) and sends them to the server as a single
+// RpcRequestBatch. When batching is disabled requests are sent immediately.
+public class RpcRequestBatcher implements RpcRequestSender
+{
+   public RpcRequestBatcher(String url)
+   {
+      url_ = url;
+   }
+
+   // flushWindowMs == 0 flushes at the end of the current event loop turn,
+   // otherwise requests are collected for up to flushWindowMs before sending;
+   // a batch is always flushed immediately once it reaches maxBatchSize
+   public void setOptions(boolean enabled, int flushWindowMs, int maxBatchSize)
+   {
+      // send anything pending using the previous options
+      if (!enabled)
+         flush();
+
+      enabled_ = enabled;
+      flushWindowMs_ = Math.max(0, flushWindowMs);
+      maxBatchSize_ = Math.max(1, maxBatchSize);
+   }
+
+   public boolean isEnabled()
+   {
+      return enabled_;
+   }
+
+   @Override
+   public void send(RpcRequest request, RpcRequestCallback callback)
+   {
+      if (!enabled_ || maxBatchSize_ <= 1)
+      {
+         request.send(callback);
+         return;
+      }
+
+      if (pending_ == null)
+      {
+         pending_ = new RpcRequestBatch(url_);
+         scheduleFlush();
+      }
+
+      pending_.add(request, callback);
+
+      if (pending_.size() >= maxBatchSize_)
+         flush();
+   }
+
+   public void flush()
+   {
+      if (flushTimer_ != null)
+      {
+         flushTimer_.cancel();
+         flushTimer_ = null;
+      }
+
+      RpcRequestBatch batch = pending_;
+      pending_ = null;
+      if (batch != null && batch.size() > 0)
+         batch.send();
+   }
+
+   private void scheduleFlush()
+   {
+      if (flushWindowMs_ == 0)
+      {
+         final RpcRequestBatch batch = pending_;
+         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         {
+            @Override
+            public void execute()
+            {
+               // batch may have already been flushed due to size
+               if (pending_ == batch)
+                  flush();
+            }
+         });
+      }
+      else
+      {
+         flushTimer_ = new Timer()
+         {
+            @Override
+            public void run()
+            {
+               flushTimer_ = null;
+               flush();
+            }
+         };
+         flushTimer_.schedule(flushWindowMs_);
+      }
+   }
+
+   private final String url_;
+   private boolean enabled_ = false;
+   private int flushWindowMs_ = 0;
+   private int maxBatchSize_ = 20;
+   private RpcRequestBatch pending_ = null;
+   private Timer flushTimer_ = null;
+}
@@ -0,0 +1,305 @@
+/*
+ * RpcRequestScheduler.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.rstudio.core.client.container.RingBuffer;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.user.client.Command;
+
+// Limits the number of rpc requests outstanding at once (so that we don't
+// exhaust the browser's per-host connection limit, which we share with the
+// event listener's long-poll) and decides which queued request goes next.
+// Requests are assigned a priority class:
+//
+//   - INTERACTIVE requests (e.g. completions) may use every connection and
+//     are always dispatched first;
+//   - BACKGROUND requests may use all but one connection, so there is
+//     always a connection free for interactive requests;
+//   - BULK requests (e.g. diffs, deployment file listings) may use at most
+//     half of the connections.
+//
+// Requests from the same caller (see RpcRequest.setCaller) are always sent
+// in the order they were made: a request which would otherwise overtake one
+// of its caller's queued requests is queued behind it instead.
+//
+// A queued interactive request is superseded by a newer request for the
+// same method from the same caller when that method is registered as
+// supersedable. The superseded request is never sent and its callback
+// receives an RpcError.SUPERSEDED error.
+//
+// Note that the limit applies to requests rather than connections, so when
+// requests are batched downstream it also bounds the size of each batch.
+// Scheduling is therefore disabled unless a limit is explicitly set.
+public class RpcRequestScheduler implements RpcRequestSender
+{
+   public enum Priority
+   {
+      INTERACTIVE,
+      BACKGROUND,
+      BULK
+   }
+   
+   public RpcRequestScheduler(RpcRequestSender sender)
+   {
+      sender_ = sender;
+      for (int i = 0; i < queues_.length; i++)
+         queues_[i] = new RingBuffer<Entry>();
+   }
+   
+   // maxConcurrent <= 0 disables scheduling (requests are sent immediately)
+   public void setMaxConcurrent(int maxConcurrent)
+   {
+      maxConcurrent_ = maxConcurrent;
+      pump();
+   }
+   
+   public void setPriority(String method, Priority priority)
+   {
+      priorities_.put(method, priority);
+   }
+   
+   public Priority getPriority(String method)
+   {
+      Priority priority = priorities_.get(method);
+      return priority != null ? priority : Priority.BACKGROUND;
+   }
+   
+   public void setSupersedable(String method)
+   {
+      supersedable_.add(method);
+   }
+   
+   @Override
+   public void send(RpcRequest request, RpcRequestCallback callback)
+   {
+      Priority priority = getPriority(request.getMethod());
+      Object caller = request.getCaller();
+      
+      if (caller != null)
+      {
+         if (priority == Priority.INTERACTIVE &&
+             supersedable_.contains(request.getMethod()))
+         {
+            supersede(caller, request.getMethod());
+         }
+         
+         // don't overtake requests this caller already has queued
+         for (int i = queues_.length - 1; i > priority.ordinal(); i--)
+         {
+            if (hasQueued(queues_[i], caller))
+            {
+               priority = Priority.values()[i];
+               break;
+            }
+         }
+      }
+      
+      queues_[priority.ordinal()].add(new Entry(request, callback));
+      pump();
+   }
+   
+   public int getInFlight()
+   {
+      return inFlight_;
+   }
+   
+   public int getQueued()
+   {
+      int queued = 0;
+      for (RingBuffer<Entry> queue : queues_)
+         queued += queue.size();
+      return queued;
+   }
+   
+   public int getSuperseded()
+   {
+      return superseded_;
+   }
+   
+   private boolean hasQueued(RingBuffer<Entry> queue, Object caller)
+   {
+      for (int i = 0; i < queue.size(); i++)
+      {
+         Entry entry = queue.get(i);
+         if (!entry.superseded && caller.equals(entry.request.getCaller()))
+            return true;
+      }
+      return false;
+   }
+   
+   private void supersede(Object caller, String method)
+   {
+      for (RingBuffer<Entry> queue : queues_)
+      {
+         for (int i = 0; i < queue.size(); i++)
+         {
+            final Entry entry = queue.get(i);
+            if (entry.superseded ||
+                entry.request.isCancelled() ||
+                !entry.request.getMethod().equals(method) ||
+                !caller.equals(entry.request.getCaller()))
+            {
+               continue;
+            }
+            
+            // the entry is dropped when it reaches the head of its queue;
+            // let the caller know now that it won't be receiving a response
+            superseded_++;
+            entry.superseded = true;
+            final RpcError error = RpcError.create(
+                  RpcError.SUPERSEDED,
+                  "Superseded by a newer " + method + " request");
+            
+            // deferred as the caller is in the midst of its newer request
+            Scheduler.get().scheduleDeferred(new ScheduledCommand()
+            {
+               @Override
+               public void execute()
+               {
+                  entry.callback.onError(entry.request, error);
+               }
+            });
+         }
+      }
+   }
+   
+   private void pump()
+   {
+      while (true)
+      {
+         Entry entry = next();
+         if (entry == null)
+            return;
+         
+         dispatch(entry);
+      }
+   }
+   
+   // removes and returns the highest priority request which is allowed to
+   // go out now (or null if none can)
+   private Entry next()
+   {
+      for (int i = 0; i < queues_.length; i++)
+      {
+         RingBuffer<Entry> queue = queues_[i];
+         
+         // drop requests cancelled or superseded while they were queued
+         while (!queue.isEmpty() && (queue.peek().superseded ||
+                                     queue.peek().request.isCancelled()))
+         {
+            queue.remove();
+         }
+         
+         if (!queue.isEmpty() && inFlight_ < limitFor(i))
+            return queue.remove();
+      }
+      return null;
+   }
+   
+   private int limitFor(int priority)
+   {
+      if (maxConcurrent_ <= 0)
+         return Integer.MAX_VALUE;
+      
+      if (priority == Priority.INTERACTIVE.ordinal())
+         return maxConcurrent_;
+      else if (priority == Priority.BACKGROUND.ordinal())
+         return Math.max(1, maxConcurrent_ - 1);
+      else
+         return Math.max(1, maxConcurrent_ / 2);
+   }
+   
+   private void dispatch(final Entry entry)
+   {
+      inFlight_++;
+      RpcStats.recordQueueTime(entry.request.getMethod(), 
+                               System.currentTimeMillis() - entry.queuedAt);
+      
+      // the request's slot is released when it completes or if it is
+      // cancelled while outstanding (in which case there is no callback)
+      entry.request.addCancelHandler(entry);
+      
+      sender_.send(entry.request, new RpcRequestCallback()
+      {
+         @Override
+         public void onResponseReceived(RpcRequest request,
+                                        RpcResponse response)
+         {
+            entry.release();
+            entry.callback.onResponseReceived(request, response);
+         }
+         
+         @Override
+         public void onError(RpcRequest request, RpcError error)
+         {
+            entry.release();
+            entry.callback.onError(request, error);
+         }
+      });
+   }
+   
+   private class Entry implements Command
+   {
+      Entry(RpcRequest request, RpcRequestCallback callback)
+      {
+         this.request = request;
+         this.callback = callback;
+         this.queuedAt = System.currentTimeMillis();
+      }
+      
+      // invoked when the request is cancelled
+      @Override
+      public void execute()
+      {
+         release();
+      }
+      
+      void release()
+      {
+         if (released)
+            return;
+         
+         released = true;
+         request.removeCancelHandler(this);
+         inFlight_--;
+         pump();
+      }
+      
+      final RpcRequest request;
+      final RpcRequestCallback callback;
+      final double queuedAt;
+      boolean superseded = false;
+      boolean released = false;
+   }
+   
+   private final RpcRequestSender sender_;
+   
+   @SuppressWarnings("unchecked")
+   private final RingBuffer<Entry>[] queues_ = 
+                           new RingBuffer[Priority.values().length];
+   private final HashMap<String, Priority> priorities_ = 
+                           new HashMap<String, Priority>();
+   private final HashSet<String> supersedable_ = new HashSet<String>();
+   
+   private int maxConcurrent_ = 0;
+   private int inFlight_ = 0;
+   private int superseded_ = 0;
+}
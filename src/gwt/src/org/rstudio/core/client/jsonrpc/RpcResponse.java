@@ -30,17 +30,17 @@ public class RpcResponse extends JavaScriptObject
    {      
       try
       {
-         // we first call parseStrict so we can use the browser
-         // json parser (for performance) whenever possible)
-         JSONValue val = JSONParser.parseStrict(json);
-         return val.isObject().getJavaScriptObject().cast();
+         // we first use the browser's native json parser, which creates
+         // the response object directly (without an intermediate tree of
+         // JSONValue wrappers)
+         return parseStrict(json);
       }
       catch(Exception e)
       {
          try
          {
             // there are some cases where json emitted by our 
-            // server isn't parsable by parseStrict (for example,
+            // server isn't parsable by JSON.parse (for example,
             // see bug #3025). for these situations we call 
             // parseLenient (which in turn calls eval)
             JSONValue val = JSONParser.parseLenient(json);
@@ -52,6 +52,14 @@ public class RpcResponse extends JavaScriptObject
          }
       }
    }
+   
+   // throws if the json is invalid or isn't an object
+   private final native static RpcResponse parseStrict(String json) /*-{
+      var response = JSON.parse(json);
+      if (response === null || typeof response !== "object")
+         throw new Error("Response is not a JSON object");
+      return response;
+   }-*/;
     
    public final native static RpcResponse create(RpcError error) /*-{
       var response = new Object();
@@ -0,0 +1,281 @@
+/*
+ * RpcResponseCache.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.user.client.Command;
+
+// Deduplicates and caches calls to idempotent (read-only) rpc methods. While
+// a call is outstanding, identical calls (same url and parameters) share its
+// response rather than going to the server again, and successful responses
+// are then reused for the method's ttl or until invalidated. Only methods
+// which are handled synchronously by the server (i.e. never return an
+// async handle), and which have no side effects on the server, should be
+// registered.
+//
+// Note that all of the callers sharing a call (or a cached response) are
+// handed the same RpcResponse object, so callbacks must treat the response
+// (and the result within it) as read-only.
+public class RpcResponseCache
+{
+   public RpcResponseCache(RpcRequestSender sender)
+   {
+      sender_ = sender;
+   }
+   
+   // register a method as idempotent; a ttl of 0 shares in-flight calls
+   // but doesn't retain responses once they have been delivered
+   public void setIdempotent(String method, int ttlMs)
+   {
+      ttls_.put(method, Math.max(0, ttlMs));
+   }
+   
+   public boolean isIdempotent(String method)
+   {
+      return ttls_.containsKey(method);
+   }
+   
+   public void send(final RpcRequest request, final RpcRequestCallback callback)
+   {
+      final String method = request.getMethod();
+      final String key = request.getCacheKey();
+      double now = System.currentTimeMillis();
+      
+      Entry entry = entries_.get(key);
+      if (entry != null && entry.response != null && now < entry.expires)
+      {
+         // deliver asynchronously, as would be the case for a server call
+         hits_++;
+         RpcStats.recordCacheHit(method);
+         final RpcResponse response = entry.response;
+         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         {
+            @Override
+            public void execute()
+            {
+               callback.onResponseReceived(request, response);
+            }
+         });
+         return;
+      }
+      
+      if (entry != null && entry.response == null)
+      {
+         shared_++;
+         RpcStats.recordSharedCall(method);
+         entry.waiters.add(new Waiter(request, callback));
+         
+         // the call now belongs to more than one caller, so it must not be
+         // superseded on behalf of any one of them
+         entry.call.setCaller(null);
+         return;
+      }
+      
+      misses_++;
+      final Entry newEntry = new Entry(method);
+      newEntry.waiters.add(new Waiter(request, callback));
+      entries_.put(key, newEntry);
+      prune(now);
+      
+      // the shared call is made with a copy of the request so that one of
+      // the callers cancelling its request doesn't cancel it for the others.
+      // the copy itself can still be cancelled further down the pipeline,
+      // in which case there is no response to share so the callers still
+      // waiting make their calls individually
+      RpcRequest sharedCall = request.copy();
+      newEntry.call = sharedCall;
+      sharedCall.addCancelHandler(new Command()
+      {
+         @Override
+         public void execute()
+         {
+            if (entries_.get(key) == newEntry)
+               entries_.remove(key);
+            
+            final ArrayList<Waiter> waiters =
+                  new ArrayList<Waiter>(newEntry.waiters);
+            newEntry.waiters.clear();
+            
+            // deferred as we may be called from within the sender
+            Scheduler.get().scheduleDeferred(new ScheduledCommand()
+            {
+               @Override
+               public void execute()
+               {
+                  for (Waiter waiter : waiters)
+                  {
+                     if (!waiter.request.isCancelled())
+                        sender_.send(waiter.request, waiter.callback);
+                  }
+               }
+            });
+         }
+      });
+      sender_.send(sharedCall, new RpcRequestCallback()
+      {
+         @Override
+         public void onResponseReceived(RpcRequest sharedRequest,
+                                        RpcResponse response)
+         {
+            // only retain successful responses, and only if the entry
+            // wasn't invalidated while the call was outstanding
+            Integer ttl = ttls_.get(method);
+            boolean current = entries_.get(key) == newEntry;
+            if (current && ttl != null && ttl > 0 &&
+                response.getError() == null &&
+                response.getAsyncHandle() == null)
+            {
+               newEntry.response = response;
+               newEntry.expires = System.currentTimeMillis() + ttl;
+            }
+            else if (current)
+            {
+               entries_.remove(key);
+            }
+            
+            for (Waiter waiter : newEntry.waiters)
+            {
+               try
+               {
+                  waiter.callback.onResponseReceived(waiter.request, response);
+               }
+               catch(Exception e)
+               {
+                  Debug.logException(e);
+               }
+            }
+            newEntry.waiters.clear();
+         }
+         
+         @Override
+         public void onError(RpcRequest sharedRequest, RpcError error)
+         {
+            if (entries_.get(key) == newEntry)
+               entries_.remove(key);
+            
+            for (Waiter waiter : newEntry.waiters)
+            {
+               try
+               {
+                  waiter.callback.onError(waiter.request, error);
+               }
+               catch(Exception e)
+               {
+                  Debug.logException(e);
+               }
+            }
+            newEntry.waiters.clear();
+         }
+      });
+   }
+   
+   // drop cached responses for a method (calls already in flight still
+   // deliver to their callers but their responses won't be retained)
+   public void invalidate(String method)
+   {
+      Iterator<Entry> it = entries_.values().iterator();
+      while (it.hasNext())
+      {
+         if (it.next().method.equals(method))
+            it.remove();
+      }
+   }
+   
+   public void invalidateAll()
+   {
+      entries_.clear();
+   }
+   
+   public int getHits()
+   {
+      return hits_;
+   }
+   
+   public int getMisses()
+   {
+      return misses_;
+   }
+   
+   public int getShared()
+   {
+      return shared_;
+   }
+   
+   // keep the number of retained responses bounded by dropping expired
+   // entries (and if need be all completed ones) once we reach MAX_ENTRIES
+   private void prune(double now)
+   {
+      if (entries_.size() <= MAX_ENTRIES)
+         return;
+      
+      boolean dropAll = false;
+      for (int pass = 0; pass < 2 && entries_.size() > MAX_ENTRIES; pass++)
+      {
+         Iterator<Entry> it = entries_.values().iterator();
+         while (it.hasNext())
+         {
+            Entry entry = it.next();
+            if (entry.response != null && (dropAll || now >= entry.expires))
+               it.remove();
+         }
+         dropAll = true;
+      }
+   }
+   
+   private static class Entry
+   {
+      Entry(String method)
+      {
+         this.method = method;
+      }
+      
+      final String method;
+      final ArrayList<Waiter> waiters = new ArrayList<Waiter>();
+      RpcRequest call = null;
+      RpcResponse response = null;
+      double expires = 0;
+   }
+   
+   private static class Waiter
+   {
+      Waiter(RpcRequest request, RpcRequestCallback callback)
+      {
+         this.request = request;
+         this.callback = callback;
+      }
+      
+      final RpcRequest request;
+      final RpcRequestCallback callback;
+   }
+   
+   private final RpcRequestSender sender_;
+   private final HashMap<String, Integer> ttls_ = 
+                                          new HashMap<String, Integer>();
+   private final HashMap<String, Entry> entries_ = 
+                                          new HashMap<String, Entry>();
+   private int hits_ = 0;
+   private int misses_ = 0;
+   private int shared_ = 0;
+   
+   private static final int MAX_ENTRIES = 100;
+}
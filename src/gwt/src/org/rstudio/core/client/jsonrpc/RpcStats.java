@@ -0,0 +1,133 @@
+/*
+ * RpcStats.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+
+// Per-method rpc telemetry for this window. Recording is a map lookup plus
+// a few counter updates so it is always on; the collected stats can be
+// viewed or exported via Help > Diagnostics.
+public class RpcStats
+{
+   public static void record(String method,
+                             int requestBytes,
+                             int responseBytes,
+                             double latencyMs,
+                             boolean error)
+   {
+      getMethodStats(method).record(requestBytes,
+                                    responseBytes,
+                                    latencyMs,
+                                    error);
+   }
+
+   public static void recordRetry(String method)
+   {
+      getMethodStats(method).recordRetry();
+   }
+
+   public static void recordQueueTime(String method, double queuedMs)
+   {
+      getMethodStats(method).recordQueueTime(queuedMs);
+   }
+
+   public static void recordCacheHit(String method)
+   {
+      getMethodStats(method).recordCacheHit();
+   }
+
+   public static void recordSharedCall(String method)
+   {
+      getMethodStats(method).recordSharedCall();
+   }
+
+   // a call sent on behalf of a satellite window, and the time spent
+   // doing so on this window's event loop
+   public static void recordProxiedCall(String method, double proxyMs)
+   {
+      getMethodStats(method).recordProxiedCall(proxyMs);
+   }
+
+   // further time spent on a proxied call (e.g. delivering its response)
+   public static void recordProxyTime(String method, double proxyMs)
+   {
+      getMethodStats(method).recordProxyTime(proxyMs);
+   }
+
+   // returns stats for all methods, most frequently called first
+   public static ArrayList<RpcMethodStats> getStats()
+   {
+      ArrayList<RpcMethodStats> stats =
+            new ArrayList<RpcMethodStats>(stats_.values());
+      Collections.sort(stats, new Comparator<RpcMethodStats>()
+      {
+         @Override
+         public int compare(RpcMethodStats a, RpcMethodStats b)
+         {
+            return b.getCount() - a.getCount();
+         }
+      });
+      return stats;
+   }
+
+   public static double getStartTime()
+   {
+      return startTime_;
+   }
+
+   public static void reset()
+   {
+      stats_.clear();
+      startTime_ = System.currentTimeMillis();
+   }
+
+   public static String toJSON()
+   {
+      JSONArray methods = new JSONArray();
+      ArrayList<RpcMethodStats> stats = getStats();
+      for (int i = 0; i < stats.size(); i++)
+         methods.set(i, stats.get(i).toJSONObject());
+
+      JSONObject json = new JSONObject();
+      json.put("start_time", new JSONNumber(startTime_));
+      json.put("end_time", new JSONNumber(System.currentTimeMillis()));
+      json.put("methods", methods);
+      return json.toString();
+   }
+
+   private static RpcMethodStats getMethodStats(String method)
+   {
+      RpcMethodStats stats = stats_.get(method);
+      if (stats == null)
+      {
+         stats = new RpcMethodStats(method);
+         stats_.put(method, stats);
+      }
+      return stats;
+   }
+
+   private static final HashMap<String, RpcMethodStats> stats_ =
+         new HashMap<String, RpcMethodStats>();
+
+   private static double startTime_ = System.currentTimeMillis();
+}
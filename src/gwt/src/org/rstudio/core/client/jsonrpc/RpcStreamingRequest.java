@@ -0,0 +1,192 @@
+/*
+ * RpcStreamingRequest.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.core.client.jsonrpc;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.Random;
+
+// Sends an rpc request whose response is a stream of json rpc responses,
+// one per line, which are delivered to the callback as they arrive (rather
+// than once the entire response has been received)
+public class RpcStreamingRequest
+{
+   public interface Callback
+   {
+      void onResponse(RpcResponse response);
+      
+      // the server ended the stream normally
+      void onCompleted();
+      
+      // the request failed or the stream contained something other than
+      // json rpc responses
+      void onError(RpcError error);
+   }
+   
+   public RpcStreamingRequest(RpcRequest request)
+   {
+      request_ = request;
+   }
+   
+   public void send(Callback callback)
+   {
+      callback_ = callback;
+      offset_ = 0;
+      responses_ = 0;
+      
+      String requestId = Integer.toString(Random.nextInt());
+      String requestString = RpcRequest.stringify(
+                                             request_.toJavaScriptObject());
+      if (RpcRequest.TRACE)
+         Debug.log("Request: " + requestString);
+      
+      logEntry_ = RequestLog.log(requestId, requestString);
+      xhr_ = sendNative(request_.getUrl(), requestId, requestString);
+   }
+   
+   public void cancel()
+   {
+      if (xhr_ != null)
+      {
+         abortNative(xhr_);
+         xhr_ = null;
+      }
+      
+      if (logEntry_ != null)
+      {
+         logEntry_.logResponse(ResponseType.Cancelled, "Cancelled");
+         logEntry_ = null;
+      }
+      
+      callback_ = null;
+   }
+   
+   // called as data arrives, deliver any complete lines we haven't yet seen
+   private void onProgress(String text)
+   {
+      int newline;
+      while (callback_ != null && 
+             (newline = text.indexOf('\n', offset_)) != -1)
+      {
+         String line = text.substring(offset_, newline).trim();
+         offset_ = newline + 1;
+         if (line.length() == 0)
+            continue;
+         
+         if (RpcRequest.TRACE)
+            Debug.log("Response: " + line);
+         
+         RpcResponse response = RpcResponse.parse(line);
+         if (response == null)
+         {
+            onError("Unable to parse streamed response");
+            return;
+         }
+         
+         responses_++;
+         callback_.onResponse(response);
+      }
+   }
+   
+   private void onDone(int status, String text)
+   {
+      xhr_ = null;
+      if (callback_ == null)
+         return;
+      
+      if (status != 200)
+      {
+         onError(status == 0 ? "Unable to establish connection with R session"
+                             : "Status code " + status + " returned");
+         return;
+      }
+      
+      // the final response may not be newline terminated
+      onProgress(text.endsWith("\n") ? text : text + "\n");
+      if (callback_ == null)
+         return;
+      
+      if (logEntry_ != null)
+      {
+         logEntry_.logResponse(ResponseType.Normal, 
+                               "[" + responses_ + " streamed responses]");
+         logEntry_ = null;
+      }
+      
+      Callback callback = callback_;
+      callback_ = null;
+      callback.onCompleted();
+   }
+   
+   private void onError(String message)
+   {
+      if (xhr_ != null)
+      {
+         abortNative(xhr_);
+         xhr_ = null;
+      }
+      
+      if (logEntry_ != null)
+      {
+         logEntry_.logResponse(ResponseType.Error, message);
+         logEntry_ = null;
+      }
+      
+      Callback callback = callback_;
+      callback_ = null;
+      if (callback != null)
+         callback.onError(RpcError.create(RpcError.TRANSMISSION_ERROR, 
+                                          message));
+   }
+   
+   private native JavaScriptObject sendNative(String url,
+                                              String requestId,
+                                              String requestString) /*-{
+      var self = this;
+      var xhr = new XMLHttpRequest();
+      xhr.open("POST", url, true);
+      xhr.setRequestHeader("Content-Type", "application/json");
+      xhr.setRequestHeader("Accept", "application/json");
+      xhr.setRequestHeader("X-RS-RID", requestId);
+      xhr.onreadystatechange = $entry(function() {
+         if (xhr.readyState == 3)
+         {
+            self.@org.rstudio.core.client.jsonrpc.RpcStreamingRequest::onProgress(Ljava/lang/String;)(xhr.responseText);
+         }
+         else if (xhr.readyState == 4)
+         {
+            xhr.onreadystatechange = function() {};
+            self.@org.rstudio.core.client.jsonrpc.RpcStreamingRequest::onDone(ILjava/lang/String;)(xhr.status, xhr.responseText);
+         }
+      });
+      xhr.send(requestString);
+      return xhr;
+   }-*/;
+   
+   private static native void abortNative(JavaScriptObject xhr) /*-{
+      xhr.onreadystatechange = function() {};
+      xhr.abort();
+   }-*/;
+   
+   private final RpcRequest request_;
+   private Callback callback_;
+   private JavaScriptObject xhr_;
+   private RequestLogEntry logEntry_;
+   private int offset_;
+   private int responses_;
+}
@@ -0,0 +1,85 @@
+/*
+ * Crc32.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+/**
+ * CRC-32 checksums of the UTF-8 encoding of strings, matching the document
+ * hashes computed by the server (core::hash::crc32Hash), so the client can
+ * tell the server what a document's contents should hash to.
+ */
+public class Crc32
+{
+   /**
+    * @return The checksum of the UTF-8 encoding of text, as an unsigned
+    *    decimal string
+    */
+   public static String hash(String text)
+   {
+      int crc = 0xFFFFFFFF;
+      for (int i = 0; i < text.length(); i++)
+      {
+         int c = text.charAt(i);
+         if (c < 0x80)
+         {
+            crc = update(crc, c);
+         }
+         else if (c < 0x800)
+         {
+            crc = update(crc, 0xC0 | (c >> 6));
+            crc = update(crc, 0x80 | (c & 0x3F));
+         }
+         else if (isSurrogatePair(text, i))
+         {
+            int codePoint = 0x10000 +
+                  ((c - 0xD800) << 10) + (text.charAt(++i) - 0xDC00);
+            crc = update(crc, 0xF0 | (codePoint >> 18));
+            crc = update(crc, 0x80 | ((codePoint >> 12) & 0x3F));
+            crc = update(crc, 0x80 | ((codePoint >> 6) & 0x3F));
+            crc = update(crc, 0x80 | (codePoint & 0x3F));
+         }
+         else
+         {
+            crc = update(crc, 0xE0 | (c >> 12));
+            crc = update(crc, 0x80 | ((c >> 6) & 0x3F));
+            crc = update(crc, 0x80 | (c & 0x3F));
+         }
+      }
+      return Long.toString((~crc) & 0xFFFFFFFFL);
+   }
+
+   private static boolean isSurrogatePair(String text, int i)
+   {
+      char c = text.charAt(i);
+      return c >= 0xD800 && c <= 0xDBFF && i + 1 < text.length() &&
+             text.charAt(i + 1) >= 0xDC00 && text.charAt(i + 1) <= 0xDFFF;
+   }
+
+   private static int update(int crc, int b)
+   {
+      return TABLE[(crc ^ b) & 0xFF] ^ (crc >>> 8);
+   }
+
+   private static final int[] TABLE = new int[256];
+   static
+   {
+      for (int n = 0; n < 256; n++)
+      {
+         int c = n;
+         for (int k = 0; k < 8; k++)
+            c = (c & 1) != 0 ? 0xEDB88320 ^ (c >>> 1) : c >>> 1;
+         TABLE[n] = c;
+      }
+   }
+}
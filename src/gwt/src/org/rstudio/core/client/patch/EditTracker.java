@@ -0,0 +1,223 @@
+/*
+ * EditTracker.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+
+/**
+ * Records the edits made to a base string as they happen, merging them into
+ * a minimal set of changed ranges, so that a patch from the base to the
+ * current text can be created without comparing the two.
+ *
+ * Edits are recorded as the rows they replace (and the change in length
+ * they make) rather than as character offsets, since converting the
+ * position of each edit to an offset costs time proportional to its row.
+ * The changed rows are converted to offsets once, when the patch is
+ * created. Only the positions of edits are recorded; the replacement text
+ * is read from the current text when the patch is created.
+ */
+public class EditTracker
+{
+   /**
+    * Starts tracking edits made to the given text.
+    */
+   public void reset(String base)
+   {
+      base_ = base;
+      length_ = base.length();
+      hunks_.clear();
+   }
+
+   /**
+    * Stops tracking (e.g. because an edit was missed); createPatch will
+    * return null until the next reset.
+    */
+   public void invalidate()
+   {
+      base_ = null;
+      hunks_.clear();
+   }
+
+   /**
+    * Records that removedRows rows of the current text, starting at row,
+    * were replaced with insertedRows rows, changing the length of the text
+    * by delta characters. An edit within a single row replaces that row
+    * with one row; inserting a line break replaces it with two.
+    */
+   public void replaceRows(int row, int removedRows, int insertedRows,
+                           int delta)
+   {
+      if (base_ == null)
+         return;
+
+      if (row < 0 || removedRows < 1 || insertedRows < 1)
+      {
+         invalidate();
+         return;
+      }
+
+      // skip the hunks which end before the edit, keeping track of how far
+      // they've moved the current rows relative to the base
+      int index = 0;
+      int shift = 0;
+      while (index < hunks_.size() && hunks_.get(index).end < row)
+      {
+         shift += hunks_.get(index).getRowDelta();
+         index++;
+      }
+
+      // merge the edit with the hunks it overlaps or touches
+      int end = row + removedRows;
+      Hunk merged = new Hunk();
+      merged.start = row;
+      merged.oldStart = row - shift;
+      merged.delta = delta;
+      int mergedEnd = end;
+      int last = index;
+      while (last < hunks_.size() && hunks_.get(last).start <= end)
+      {
+         Hunk hunk = hunks_.get(last);
+         if (last == index && hunk.start < row)
+         {
+            merged.start = hunk.start;
+            merged.oldStart = hunk.oldStart;
+         }
+         shift += hunk.getRowDelta();
+         merged.delta += hunk.delta;
+         if (hunk.end > mergedEnd)
+            mergedEnd = hunk.end;
+         last++;
+      }
+
+      if (last > index && hunks_.get(last - 1).end >= end)
+         merged.oldEnd = hunks_.get(last - 1).oldEnd;
+      else
+         merged.oldEnd = end - shift;
+
+      int rowDelta = insertedRows - removedRows;
+      merged.end = mergedEnd + rowDelta;
+
+      hunks_.subList(index, last).clear();
+      hunks_.add(index, merged);
+      for (int i = index + 1; i < hunks_.size(); i++)
+      {
+         hunks_.get(i).start += rowDelta;
+         hunks_.get(i).end += rowDelta;
+      }
+
+      length_ += delta;
+   }
+
+   /**
+    * Creates a patch which transforms base into current, or returns null if
+    * the edits to base weren't tracked (or current doesn't match them).
+    * Hunks which restore the base text are omitted.
+    */
+   public TextPatch createPatch(String base, String current)
+   {
+      if (base_ == null ||
+          current.length() != length_ ||
+          !base_.equals(base))
+      {
+         return null;
+      }
+
+      // walk the rows of current once, converting the changed rows to
+      // offsets; the unchanged text between hunks is the same in base and
+      // current, so base offsets are current offsets less the length the
+      // preceding hunks added
+      TextPatch patch = new TextPatch();
+      int row = 0;
+      int offset = 0;
+      int shift = 0;
+      for (Hunk hunk : hunks_)
+      {
+         int start = advanceRows(current, offset, hunk.start - row);
+         int end = advanceRows(current, start, hunk.end - hunk.start);
+         if (start < 0 || end < 0)
+            return null;
+         row = hunk.end;
+         offset = end;
+
+         start = Math.min(start, current.length());
+         end = Math.min(end, current.length());
+         int oldStart = start - shift;
+         int oldEnd = oldStart + (end - start) - hunk.delta;
+         if (oldEnd < oldStart ||
+             !isRowStart(base, oldStart) ||
+             !isRowStart(base, oldEnd))
+         {
+            return null;
+         }
+         shift += hunk.delta;
+
+         String replacement = current.substring(start, end);
+         if (oldEnd - oldStart == replacement.length() &&
+             base.startsWith(replacement, oldStart))
+         {
+            continue;
+         }
+
+         patch.addHunk(oldStart, oldEnd - oldStart, replacement);
+      }
+      return patch;
+   }
+
+   // returns the offset of the row the given number of rows after the row
+   // starting at offset, or -1 if there is no such row. the row after the
+   // last row of text is at text.length() + 1 (the last row needn't end with
+   // a line break, so text.length() may be the start of the last row)
+   private static int advanceRows(String text, int offset, int rows)
+   {
+      for (int i = 0; i < rows; i++)
+      {
+         if (offset < 0 || offset > text.length())
+            return -1;
+
+         int newline = text.indexOf('\n', offset);
+         offset = newline == -1 ? text.length() + 1 : newline + 1;
+      }
+      return offset;
+   }
+
+   private static boolean isRowStart(String text, int offset)
+   {
+      if (offset < 0 || offset > text.length())
+         return false;
+      return offset == 0 ||
+             offset == text.length() ||
+             text.charAt(offset - 1) == '\n';
+   }
+
+   // a changed range: rows [start, end) of the current text replace rows
+   // [oldStart, oldEnd) of the base, and are delta characters longer
+   private static class Hunk
+   {
+      public int getRowDelta()
+      {
+         return (end - start) - (oldEnd - oldStart);
+      }
+
+      int start;
+      int end;
+      int oldStart;
+      int oldEnd;
+      int delta;
+   }
+
+   private String base_ = null;
+   private int length_ = 0;
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+}
@@ -0,0 +1,126 @@
+/*
+ * TextPatch.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+
+/**
+ * A set of non-overlapping replacements within a string. Hunk offsets and
+ * lengths are relative to the original (unpatched) string, and hunks are
+ * kept in ascending order of offset.
+ */
+public class TextPatch
+{
+   public static class Hunk
+   {
+      public Hunk(int offset, int length, String replacement)
+      {
+         offset_ = offset;
+         length_ = length;
+         replacement_ = replacement;
+      }
+
+      public int getOffset()
+      {
+         return offset_;
+      }
+
+      public int getLength()
+      {
+         return length_;
+      }
+
+      public String getReplacement()
+      {
+         return replacement_;
+      }
+
+      private final int offset_;
+      private final int length_;
+      private final String replacement_;
+   }
+
+   /**
+    * Creates a single hunk patch from the difference between two strings.
+    */
+   public static TextPatch fromDiff(String origVal, String newVal)
+   {
+      TextPatch patch = new TextPatch();
+      SubstringDiff diff = new SubstringDiff(origVal, newVal);
+      if (!diff.isEmpty())
+      {
+         patch.addHunk(diff.getOffset(),
+                       diff.getLength(),
+                       diff.getReplacement());
+      }
+      return patch;
+   }
+
+   public void addHunk(int offset, int length, String replacement)
+   {
+      assert hunks_.isEmpty() ||
+             offset >= lastEnd() : "Hunks must be added in order";
+      hunks_.add(new Hunk(offset, length, replacement));
+   }
+
+   public ArrayList<Hunk> getHunks()
+   {
+      return hunks_;
+   }
+
+   /**
+    * @return The total number of characters in the replacements
+    */
+   public int getReplacementLength()
+   {
+      int length = 0;
+      for (Hunk hunk : hunks_)
+         length += hunk.getReplacement().length();
+      return length;
+   }
+
+   public String patch(String original)
+   {
+      if (isEmpty())
+         return original;
+
+      StringBuilder result = new StringBuilder();
+      int pos = 0;
+      for (Hunk hunk : hunks_)
+      {
+         result.append(original, pos, hunk.getOffset());
+         result.append(hunk.getReplacement());
+         pos = hunk.getOffset() + hunk.getLength();
+      }
+      result.append(original, pos, original.length());
+      return result.toString();
+   }
+
+   /**
+    * @return True iff the patch makes no changes.
+    */
+   public boolean isEmpty()
+   {
+      return hunks_.isEmpty();
+   }
+
+   private int lastEnd()
+   {
+      Hunk last = hunks_.get(hunks_.size() - 1);
+      return last.getOffset() + last.getLength();
+   }
+
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+}
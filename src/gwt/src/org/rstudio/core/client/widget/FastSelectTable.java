@@ -14,11 +14,14 @@
  */
 package org.rstudio.core.client.widget;
 
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.*;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.Style.Cursor;
+import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.DOM;
@@ -35,6 +38,7 @@ import org.rstudio.core.client.widget.events.SelectionChangedHandler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.TreeSet;
 
 public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widget
    implements HasAllMouseHandlers, HasClickHandlers, HasAllKeyHandlers
@@ -88,7 +92,7 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
             if (cell == null)
                return;
             TableRowElement row = (TableRowElement) cell.getParentElement();
-            if (codec_.isValueRow(row))
+            if (isValueRow(row))
                handleRowClick(event, row);
          }
       });
@@ -124,6 +128,36 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       scrollPanel_ = scrollPanel;
    }
 
+   /**
+    * Keeps the items in a model and only creates rows for the items in and
+    * near the owning scroll panel's viewport; selection is tracked by item
+    * index. Must be called after setOwningScrollPanel and before any items
+    * are added, and can't be used with codecs that insert non-value rows.
+    */
+   public void enableVirtualization()
+   {
+      assert scrollPanel_ != null : "Virtualization requires a scroll panel";
+      assert !codec_.hasNonValueRows() : "Virtualization requires value rows";
+      assert getRowCount() == 0 : "Virtualization must be enabled when empty";
+
+      virtualized_ = true;
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         public void onScroll(ScrollEvent event)
+         {
+            scheduleUpdate();
+         }
+      });
+   }
+
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      if (virtualized_)
+         scheduleUpdate();
+   }
+
    private void handleRowClick(MouseDownEvent event, TableRowElement row)
    {
       int modifiers = KeyboardShortcut.getModifierValue(event.getNativeEvent());
@@ -152,14 +186,25 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       {
          // SHIFT or CTRL+SHIFT
 
-         int target = row.getRowIndex();
+         int target = getPhysicalIndex(row);
          Integer min = null;
          Integer max = null;
-         for (TableRowElement selectedRow : selectedRows_)
+         if (virtualized_)
+         {
+            if (!selectedIndexes_.isEmpty())
+            {
+               min = selectedIndexes_.first();
+               max = selectedIndexes_.last();
+            }
+         }
+         else
          {
-            if (min == null)
-               min = selectedRow.getRowIndex();
-            max = selectedRow.getRowIndex();
+            for (TableRowElement selectedRow : selectedRows_)
+            {
+               if (min == null)
+                  min = selectedRow.getRowIndex();
+               max = selectedRow.getRowIndex();
+            }
          }
 
          int offset; // selection offset
@@ -232,13 +277,24 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
             return;
       }
 
-      sortSelectedRows();
-      int min = table_.getRows().getLength();
+      int min = getPhysicalRowCount();
       int max = -1;
-      if (selectedRows_.size() > 0)
+      if (virtualized_)
       {
-         min = selectedRows_.get(0).getRowIndex();
-         max = selectedRows_.get(selectedRows_.size() - 1).getRowIndex();
+         if (!selectedIndexes_.isEmpty())
+         {
+            min = selectedIndexes_.first();
+            max = selectedIndexes_.last();
+         }
+      }
+      else
+      {
+         sortSelectedRows();
+         if (selectedRows_.size() > 0)
+         {
+            min = selectedRows_.get(0).getRowIndex();
+            max = selectedRows_.get(selectedRows_.size() - 1).getRowIndex();
+         }
       }
 
       switch (event.getNativeKeyCode())
@@ -278,11 +334,11 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    private Integer findNextValueRow(int physicalRowIndex, boolean up)
    {
-      int limit = up ? -1 : table_.getRows().getLength();
+      int limit = up ? -1 : getPhysicalRowCount();
       int increment = up ? -1 : 1;
       for (int i = physicalRowIndex + increment; i != limit; i += increment)
       {
-         if (codec_.isValueRow(getRow(i)))
+         if (virtualized_ || codec_.isValueRow(getRow(i)))
             return i;
       }
       return null;
@@ -290,12 +346,30 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public void clearSelection()
    {
+      if (virtualized_)
+      {
+         for (Integer index : selectedIndexes_)
+         {
+            TableRowElement row = getRenderedRow(index);
+            if (row != null)
+               setStyleName(row, selectedClassName_, false);
+         }
+         selectedIndexes_.clear();
+         return;
+      }
+
       while (selectedRows_.size() > 0)
          setSelected(selectedRows_.get(0), false);
    }
 
    public void addItems(Iterable<TItemInput> items, boolean top)
    {
+      if (virtualized_)
+      {
+         addVirtualItems(items, top);
+         return;
+      }
+
       TableSectionElement tbody = Document.get().createTBodyElement();
       for (TItemInput item : items)
          tbody.appendChild(codec_.getRowForItem(item));
@@ -316,6 +390,9 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    {
       table_.setInnerText("");
       selectedRows_.clear();
+      items_.clear();
+      blocks_.clear();
+      selectedIndexes_.clear();
    }
    
    public void focus()
@@ -326,6 +403,8 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    
    public int getRowCount()
    {
+      if (virtualized_)
+         return items_.size();
       return codec_.getLogicalRowCount(table_);
    }
    
@@ -334,6 +413,12 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       if (rowCount <= 0)
          return;
 
+      if (virtualized_)
+      {
+         removeTopVirtualItems(rowCount);
+         return;
+      }
+
       NodeList<TableSectionElement> tBodies = table_.getTBodies();
       for (int i = 0; i < tBodies.getLength(); i++)
       {
@@ -364,6 +449,9 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<Integer> getSelectedRowIndexes()
    {
+      if (virtualized_)
+         return new ArrayList<Integer>(selectedIndexes_);
+
       sortSelectedRows();
 
       ArrayList<Integer> results = new ArrayList<Integer>();
@@ -381,7 +469,10 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    @Deprecated
    public void setSelected(int row, boolean selected)
    {
-      setSelected(getRow(row), selected);
+      if (virtualized_)
+         setIndexSelected(row, selected);
+      else
+         setSelected(getRow(row), selected);
    }
 
    public void setSelected(int offset, int length, boolean selected)
@@ -411,11 +502,24 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    private void setSelectedPhysical(int offset, int length, boolean selected)
    {
       for (int i = 0; i < length; i++)
-         setSelected(getRow(offset + i), selected);
+      {
+         if (virtualized_)
+            setIndexSelected(offset + i, selected);
+         else
+            setSelected(getRow(offset + i), selected);
+      }
    }
 
    public void setSelected(TableRowElement row, boolean selected)
    {
+      if (virtualized_)
+      {
+         int index = getItemIndex(row);
+         if (index >= 0)
+            setIndexSelected(index, selected);
+         return;
+      }
+
       try
       {
          if (row.getParentElement().getParentElement() != table_)
@@ -440,22 +544,50 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
          selectedRows_.remove(row);
 
       if (selected && !allowMultiSelect_)
+         fireSelectionChanged();
+   }
+
+   private void setIndexSelected(int index, boolean selected)
+   {
+      if (index < 0 || index >= items_.size())
+         return;
+
+      boolean changed = selected ? selectedIndexes_.add(index)
+                                 : selectedIndexes_.remove(index);
+      if (!changed)
+         return;
+
+      TableRowElement row = getRenderedRow(index);
+      if (row != null)
+         setStyleName(row, selectedClassName_, selected);
+
+      if (selected && !allowMultiSelect_)
+         fireSelectionChanged();
+   }
+
+   private void fireSelectionChanged()
+   {
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
       {
-         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         public void execute()
          {
-            public void execute()
-            {
-               fireEvent(new SelectionChangedEvent());
-            }
-         });
-      }
+            fireEvent(new SelectionChangedEvent());
+         }
+      });
    }
 
    public ArrayList<TItemOutput> getSelectedValues()
    {
+      ArrayList<TItemOutput> results = new ArrayList<TItemOutput>();
+      if (virtualized_)
+      {
+         for (Integer index : selectedIndexes_)
+            results.add(codec_.getOutputForRow(getRowForOutput(index)));
+         return results;
+      }
+
       sortSelectedRows();
 
-      ArrayList<TItemOutput> results = new ArrayList<TItemOutput>();
       for (TableRowElement row : selectedRows_)
          results.add(codec_.getOutputForRow(row));
       return results;
@@ -474,9 +606,16 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<TItemOutput2> getSelectedValues2()
    {
+      ArrayList<TItemOutput2> results = new ArrayList<TItemOutput2>();
+      if (virtualized_)
+      {
+         for (Integer index : selectedIndexes_)
+            results.add(codec_.getOutputForRow2(getRowForOutput(index)));
+         return results;
+      }
+
       sortSelectedRows();
 
-      ArrayList<TItemOutput2> results = new ArrayList<TItemOutput2>();
       for (TableRowElement row : selectedRows_)
          results.add(codec_.getOutputForRow2(row));
       return results;
@@ -484,6 +623,17 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public boolean moveSelectionUp()
    {
+      if (virtualized_)
+      {
+         if (selectedIndexes_.isEmpty() || selectedIndexes_.first() == 0)
+            return false;
+
+         int index = selectedIndexes_.first() - 1;
+         clearSelection();
+         setIndexSelected(index, true);
+         return true;
+      }
+
       if (selectedRows_.size() == 0)
          return false;
 
@@ -511,6 +661,18 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public boolean moveSelectionDown()
    {
+      if (virtualized_)
+      {
+         if (selectedIndexes_.isEmpty() ||
+             selectedIndexes_.last() == items_.size() - 1)
+            return false;
+
+         int index = selectedIndexes_.last() + 1;
+         clearSelection();
+         setIndexSelected(index, true);
+         return true;
+      }
+
       if (selectedRows_.size() == 0)
          return false;
 
@@ -538,12 +700,35 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    private TableRowElement getRow(int row)
    {
+      if (virtualized_)
+         return getRowForIndex(row);
       return (TableRowElement) table_.getRows().getItem(row).cast();
    }
 
+   private int getPhysicalRowCount()
+   {
+      if (virtualized_)
+         return items_.size();
+      return table_.getRows().getLength();
+   }
+
+   private int getPhysicalIndex(TableRowElement row)
+   {
+      if (virtualized_)
+         return getItemIndex(row);
+      return row.getRowIndex();
+   }
+
+   private boolean isValueRow(TableRowElement row)
+   {
+      if (virtualized_)
+         return getItemIndex(row) >= 0;
+      return codec_.isValueRow(row);
+   }
+
    public TableRowElement getTopRow()
    {
-      if (table_.getRows().getLength() > 0)
+      if (getPhysicalRowCount() > 0)
          return getRow(0);
       else
          return null;
@@ -551,18 +736,39 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<TableRowElement> getSelectedRows()
    {
+      if (virtualized_)
+      {
+         ArrayList<TableRowElement> rows = new ArrayList<TableRowElement>();
+         for (Integer index : selectedIndexes_)
+            rows.add(getRowForOutput(index));
+         return rows;
+      }
+
       return new ArrayList<TableRowElement>(selectedRows_);
    }
 
    public Rectangle getSelectionRect()
    {
-      if (selectedRows_.size() == 0)
-         return null;
+      TableRowElement first;
+      TableRowElement last;
+      if (virtualized_)
+      {
+         if (selectedIndexes_.isEmpty())
+            return null;
 
-      sortSelectedRows();
+         first = getRow(selectedIndexes_.first());
+         last = getRow(selectedIndexes_.last());
+      }
+      else
+      {
+         if (selectedRows_.size() == 0)
+            return null;
+
+         sortSelectedRows();
+         first = selectedRows_.get(0);
+         last = selectedRows_.get(selectedRows_.size() - 1);
+      }
 
-      TableRowElement first = selectedRows_.get(0);
-      TableRowElement last = selectedRows_.get(selectedRows_.size() - 1);
       int top = first.getOffsetTop();
       int bottom = last.getOffsetTop() + last.getOffsetHeight();
       int left = first.getOffsetLeft();
@@ -570,6 +776,354 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       return new Rectangle(left, top, width, bottom - top);
    }
 
+   private void addVirtualItems(Iterable<TItemInput> items, boolean top)
+   {
+      ArrayList<TItemInput> added = new ArrayList<TItemInput>();
+      for (TItemInput item : items)
+         added.add(item);
+      if (added.isEmpty())
+         return;
+
+      if (top)
+      {
+         items_.addAll(0, added);
+         shiftSelection(added.size());
+
+         // addToTop inserts before the existing bodies, so add the new
+         // blocks last to first
+         int count = added.size();
+         int firstSize = count % BLOCK_SIZE == 0 ? BLOCK_SIZE
+                                                 : count % BLOCK_SIZE;
+         int end = count;
+         while (end > 0)
+         {
+            int size = end == firstSize ? firstSize : BLOCK_SIZE;
+            RowBlock block = createBlock(size);
+            blocks_.add(0, block);
+            addToTop(block.tbody);
+            end -= size;
+         }
+      }
+      else
+      {
+         int start = items_.size();
+         items_.addAll(added);
+
+         // fill the last block before creating new ones
+         int remaining = added.size();
+         if (!blocks_.isEmpty())
+         {
+            RowBlock last = blocks_.get(blocks_.size() - 1);
+            int fill = Math.min(remaining, BLOCK_SIZE - last.count);
+            if (fill > 0)
+            {
+               last.count += fill;
+               if (last.rendered)
+               {
+                  for (int i = 0; i < fill; i++)
+                     last.tbody.appendChild(createRow(start + i));
+                  codec_.onRowsChanged(last.tbody);
+               }
+               else
+               {
+                  last.height = -1;
+                  setPlaceholder(last);
+               }
+               remaining -= fill;
+            }
+         }
+
+         while (remaining > 0)
+         {
+            int size = Math.min(remaining, BLOCK_SIZE);
+            RowBlock block = createBlock(size);
+            blocks_.add(block);
+            getElement().appendChild(block.tbody);
+            remaining -= size;
+         }
+      }
+
+      renumberBlocks();
+      scheduleUpdate();
+   }
+
+   private void removeTopVirtualItems(int count)
+   {
+      count = Math.min(count, items_.size());
+      items_.subList(0, count).clear();
+      shiftSelection(-count);
+
+      int remaining = count;
+      while (remaining > 0)
+      {
+         RowBlock block = blocks_.get(0);
+         if (block.count <= remaining)
+         {
+            remaining -= block.count;
+            block.tbody.removeFromParent();
+            blocks_.remove(0);
+         }
+         else
+         {
+            block.count -= remaining;
+            if (block.rendered)
+            {
+               for (int i = 0; i < remaining; i++)
+                  block.tbody.getRows().getItem(0).removeFromParent();
+            }
+            else
+            {
+               block.height = -1;
+               setPlaceholder(block);
+            }
+            remaining = 0;
+         }
+      }
+
+      renumberBlocks();
+      scheduleUpdate();
+   }
+
+   private void shiftSelection(int delta)
+   {
+      if (selectedIndexes_.isEmpty())
+         return;
+
+      TreeSet<Integer> shifted = new TreeSet<Integer>();
+      for (Integer index : selectedIndexes_)
+      {
+         if (index + delta >= 0)
+            shifted.add(index + delta);
+      }
+      selectedIndexes_.clear();
+      selectedIndexes_.addAll(shifted);
+   }
+
+   private RowBlock createBlock(int count)
+   {
+      RowBlock block = new RowBlock();
+      block.tbody = Document.get().createTBodyElement();
+      block.count = count;
+      setPlaceholder(block);
+      return block;
+   }
+
+   private TableRowElement createRow(int index)
+   {
+      TableRowElement row = codec_.getRowForItem(items_.get(index));
+      if (selectedIndexes_.contains(index))
+         setStyleName(row, selectedClassName_, true);
+      return row;
+   }
+
+   private void renumberBlocks()
+   {
+      int start = 0;
+      for (RowBlock block : blocks_)
+      {
+         block.start = start;
+         start += block.count;
+      }
+   }
+
+   private int findBlockIndex(int index)
+   {
+      int low = 0;
+      int high = blocks_.size() - 1;
+      while (low < high)
+      {
+         int mid = (low + high + 1) >>> 1;
+         if (blocks_.get(mid).start <= index)
+            low = mid;
+         else
+            high = mid - 1;
+      }
+      return low;
+   }
+
+   // returns the item index of a rendered row, or -1 if the row isn't one
+   // (e.g. it's a placeholder)
+   private int getItemIndex(TableRowElement row)
+   {
+      Element tbody = row.getParentElement();
+      for (RowBlock block : blocks_)
+      {
+         if (block.tbody == tbody)
+            return block.rendered ? block.start + row.getSectionRowIndex()
+                                  : -1;
+      }
+      return -1;
+   }
+
+   private TableRowElement getRenderedRow(int index)
+   {
+      RowBlock block = blocks_.get(findBlockIndex(index));
+      if (!block.rendered)
+         return null;
+      return block.tbody.getRows().getItem(index - block.start);
+   }
+
+   // returns the row for the item, rendering its block if necessary
+   private TableRowElement getRowForIndex(int index)
+   {
+      RowBlock block = blocks_.get(findBlockIndex(index));
+      renderBlock(block);
+      scheduleUpdate();
+      return block.tbody.getRows().getItem(index - block.start);
+   }
+
+   // returns a row from which the item's output can be read, without
+   // rendering its block
+   private TableRowElement getRowForOutput(int index)
+   {
+      TableRowElement row = getRenderedRow(index);
+      return row != null ? row : codec_.getRowForItem(items_.get(index));
+   }
+
+   private void renderBlock(RowBlock block)
+   {
+      if (block.rendered)
+         return;
+
+      block.tbody.removeAllChildren();
+      for (int i = 0; i < block.count; i++)
+         block.tbody.appendChild(createRow(block.start + i));
+      codec_.onRowsChanged(block.tbody);
+      block.rendered = true;
+   }
+
+   private void releaseBlock(RowBlock block)
+   {
+      block.height = block.tbody.getOffsetHeight();
+      block.rendered = false;
+      setPlaceholder(block);
+   }
+
+   private void setPlaceholder(RowBlock block)
+   {
+      int height = block.height >= 0 ? block.height : block.count * rowHeight_;
+
+      TableCellElement td = Document.get().createTDElement();
+      td.setColSpan(PLACEHOLDER_COLSPAN);
+      td.getStyle().setPadding(0, Unit.PX);
+      td.getStyle().setHeight(height, Unit.PX);
+      TableRowElement tr = Document.get().createTRElement();
+      tr.appendChild(td);
+
+      block.tbody.removeAllChildren();
+      block.tbody.appendChild(tr);
+   }
+
+   private void scheduleUpdate()
+   {
+      if (updateScheduled_)
+         return;
+
+      updateScheduled_ = true;
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            updateScheduled_ = false;
+            updateVirtualRows();
+         }
+      });
+   }
+
+   // renders the blocks in and near the viewport and releases the others
+   private void updateVirtualRows()
+   {
+      if (!isAttached() || blocks_.isEmpty())
+         return;
+
+      Element scrollEl = scrollPanel_.getElement();
+      int viewportHeight = scrollEl.getClientHeight();
+      int width = table_.getClientWidth();
+      if (viewportHeight == 0 || width == 0)
+         return; // not visible, so nothing can be measured
+
+      if (width != width_)
+      {
+         // row wrapping changed, so measured heights are stale
+         width_ = width;
+         for (RowBlock block : blocks_)
+         {
+            block.height = -1;
+            if (!block.rendered)
+               setPlaceholder(block);
+         }
+      }
+
+      boolean atBottom = scrollEl.getScrollTop() + viewportHeight >=
+                         scrollEl.getScrollHeight() - 1;
+      int top = scrollEl.getAbsoluteTop() - table_.getAbsoluteTop();
+      int bottom = top + viewportHeight;
+      int margin = viewportHeight;
+
+      // find the first block which ends within the margin above the viewport
+      int low = 0;
+      int high = blocks_.size() - 1;
+      while (low < high)
+      {
+         int mid = (low + high) >>> 1;
+         TableSectionElement tbody = blocks_.get(mid).tbody;
+         if (tbody.getOffsetTop() + tbody.getOffsetHeight() < top - margin)
+            low = mid + 1;
+         else
+            high = mid;
+      }
+
+      int first = low;
+      int last = low;
+      int scrollAdjust = 0;
+      int position = blocks_.get(low).tbody.getOffsetTop();
+      for (int i = low; i < blocks_.size() && position < bottom + margin; i++)
+      {
+         RowBlock block = blocks_.get(i);
+         int previous = block.tbody.getOffsetHeight();
+         renderBlock(block);
+         int height = block.tbody.getOffsetHeight();
+
+         // use well populated blocks to estimate the height of the others
+         if (block.count >= 32)
+            rowHeight_ = Math.max(1, height / block.count);
+
+         // keep the visible rows in place when a block above them changes
+         // height
+         if (position + previous <= top && height != previous)
+         {
+            scrollAdjust += height - previous;
+            top += height - previous;
+            bottom += height - previous;
+         }
+
+         position += height;
+         last = i;
+      }
+
+      for (int i = 0; i < blocks_.size(); i++)
+      {
+         RowBlock block = blocks_.get(i);
+         if (block.rendered && (i < first || i > last))
+            releaseBlock(block);
+      }
+
+      if (atBottom)
+         scrollEl.setScrollTop(scrollEl.getScrollHeight());
+      else if (scrollAdjust != 0)
+         scrollEl.setScrollTop(scrollEl.getScrollTop() + scrollAdjust);
+   }
+
+   private static class RowBlock
+   {
+      TableSectionElement tbody;
+      int start;
+      int count;
+      boolean rendered;
+      int height = -1;
+   }
+
    protected Element getEventTargetCell(Event event) {
      Element td = DOM.eventGetTarget(event);
      for (; td != null; td = DOM.getParent(td)) {
@@ -658,4 +1212,16 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    private final boolean allowMultiSelect_;
    private ScrollPanel scrollPanel_;
    private final boolean focusable_;
+
+   // virtualized mode
+   private boolean virtualized_ = false;
+   private final ArrayList<TItemInput> items_ = new ArrayList<TItemInput>();
+   private final ArrayList<RowBlock> blocks_ = new ArrayList<RowBlock>();
+   private final TreeSet<Integer> selectedIndexes_ = new TreeSet<Integer>();
+   private boolean updateScheduled_ = false;
+   private int width_ = -1;
+   private int rowHeight_ = 16;
+
+   private static final int BLOCK_SIZE = 128;
+   private static final int PLACEHOLDER_COLSPAN = 100;
 }
\ No newline at end of file
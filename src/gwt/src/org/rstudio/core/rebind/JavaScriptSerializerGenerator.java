@@ -17,6 +17,8 @@ package org.rstudio.core.rebind;
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.rstudio.core.client.js.JavaScriptSerializable;
@@ -49,13 +51,29 @@ public class JavaScriptSerializerGenerator extends Generator
              classes.add(classType);
        }
        
+       // each class's type id is its index in this list; sort by name so
+       // that ids are stable (serialized objects are exchanged between
+       // windows, each of which runs its own copy of the generated code)
+       Collections.sort(classes, new Comparator<JClassType>() {
+          @Override
+          public int compare(JClassType a, JClassType b)
+          {
+             return a.getQualifiedSourceName().compareTo(
+                                             b.getQualifiedSourceName());
+          }
+       });
+       
        ClassSourceFileComposerFactory sourceFile = 
              new ClassSourceFileComposerFactory(genPackageName, 
                                                 genClassName );
        sourceFile.addImplementedInterface(
              JavaScriptSerializer.class.getCanonicalName());
        sourceFile.addImport("com.google.gwt.core.client.JavaScriptObject");
+       sourceFile.addImport("com.google.gwt.core.client.JsArray");
        sourceFile.addImport("org.rstudio.core.client.js.JsObject;");
+       sourceFile.addImport("java.util.ArrayList");
+       sourceFile.addImport("java.util.HashMap");
+       sourceFile.addImport("java.util.List");
 
        PrintWriter printWriter = context.tryCreate(logger, genPackageName, 
              genClassName);
@@ -66,8 +84,10 @@ public class JavaScriptSerializerGenerator extends Generator
            sourceWriter.println(genClassName + "() {");
            sourceWriter.println("}");
 
+           printTypeIds(classes, sourceWriter);
            printSerializers(classes, sourceWriter);
            printDeserializers(classes, sourceWriter);
+           printBatchMethods(sourceWriter);
 
            sourceWriter.commit(logger);
        }
@@ -80,32 +100,39 @@ public class JavaScriptSerializerGenerator extends Generator
        w.println("public <T> JavaScriptObject serialize(T source)");
        w.println("{");
        w.indent();
-       for (JClassType classType : classes)
+       w.println("if (source == null)");
+       w.indentln("return null;");
+       w.println();
+       w.println("Integer typeId = TYPE_IDS.get(source.getClass());");
+       w.println("if (typeId == null)");
+       w.indentln("return null;");
+       w.println();
+       w.println("switch (typeId.intValue())");
+       w.println("{");
+       for (int i = 0; i < classes.size(); i++)
        {
+          JClassType classType = classes.get(i);
           if (classType.isAbstract())
               continue;
-          w.println();
-          w.println("if (source.getClass().getName() == " +
-                classType.getQualifiedSourceName() + ".class.getName())");
-          w.println("{");
-          w.indent();
-          w.println("return serializeJso((" + 
+          w.println("case " + i + ":");
+          w.indentln("return serializeJso((" + 
              classType.getQualifiedSourceName() + ") source);");
-          w.outdent();
-          w.println("}");
-          w.println();
        }
+       w.println("}");
+       w.println();
        w.println("return null;");
        w.outdent();
        w.println("}");
        // print individual serializers
-       for (JClassType classType : classes)
+       for (int id = 0; id < classes.size(); id++)
        {
+          JClassType classType = classes.get(id);
           w.print("private final native JavaScriptObject serializeJso(");
           w.println(classType.getQualifiedSourceName() + " source) /*-{");
           w.indent();
           w.println("return {");
           w.indent();
+          w.println("\"type_id\":" + id + ",");
           w.println("\"class_name\":\"" +  
                     classType.getQualifiedSourceName() + "\",");
           w.println("\"class_data\": {");
@@ -157,20 +184,44 @@ public class JavaScriptSerializerGenerator extends Generator
        w.println("}-*/;");
        w.println();
        
+       // objects without a type id are looked up by class name
+       w.println("private final native int typeIdFromJso(" + 
+                      "JavaScriptObject jso) /*-{");
+       w.indent();
+       w.println("return typeof jso.type_id === \"number\" ? jso.type_id : -1;");
+       w.outdent();
+       w.println("}-*/;");
+       w.println();
+       
        // print the method that dispatches to the appropriate deserializer
        w.println("public <T> T deserialize (JavaScriptObject jso)");
        w.println("{");
        w.indent();
-       for (JClassType classType : classes)
+       w.println("if (jso == null)");
+       w.indentln("return null;");
+       w.println();
+       w.println("int typeId = typeIdFromJso(jso);");
+       w.println("if (typeId < 0)");
+       w.println("{");
+       w.indent();
+       w.println("Integer id = CLASS_NAME_IDS.get(classFromJso(jso));");
+       w.println("if (id == null)");
+       w.indentln("return null;");
+       w.println("typeId = id.intValue();");
+       w.outdent();
+       w.println("}");
+       w.println();
+       w.println("switch (typeId)");
+       w.println("{");
+       for (int i = 0; i < classes.size(); i++)
        {
+          JClassType classType = classes.get(i);
+          
           // ignore abstract classes
           if (classType.isAbstract())
               continue;
 
-          // determine class name from string
-          w.println();
-          w.println("if (classFromJso(jso) == \"" + 
-                classType.getQualifiedSourceName() + "\")");
+          w.println("case " + i + ":");
           w.println("{");
           w.indent();
           w.println(classType.getQualifiedSourceName()  + " ret = new " + 
@@ -179,8 +230,9 @@ public class JavaScriptSerializerGenerator extends Generator
           w.println("return (T) ret;");
           w.outdent();
           w.println("}");
-          w.println();
        }
+       w.println("}");
+       w.println();
        w.println("return null;");
        w.outdent();
        w.println("}");
@@ -219,6 +271,64 @@ public class JavaScriptSerializerGenerator extends Generator
        }
     }
 
+    // emit the lookup tables used to map classes (and, for objects 
+    // serialized without a type id, class names) to type ids
+    private void printTypeIds(List<JClassType> classes, SourceWriter w)
+    {
+       w.println("private static final HashMap<Class<?>, Integer> TYPE_IDS =");
+       w.indentln("new HashMap<Class<?>, Integer>();");
+       w.println("private static final HashMap<String, Integer> CLASS_NAME_IDS =");
+       w.indentln("new HashMap<String, Integer>();");
+       w.println("static");
+       w.println("{");
+       w.indent();
+       for (int i = 0; i < classes.size(); i++)
+       {
+          JClassType classType = classes.get(i);
+          if (classType.isAbstract())
+             continue;
+          String name = classType.getQualifiedSourceName();
+          w.println("TYPE_IDS.put(" + name + ".class, " + i + ");");
+          w.println("CLASS_NAME_IDS.put(\"" + name + "\", " + i + ");");
+       }
+       w.outdent();
+       w.println("}");
+       w.println();
+    }
+    
+    // emit the methods which serialize several objects into (and 
+    // deserialize them from) a single payload
+    private void printBatchMethods(SourceWriter w)
+    {
+       w.println();
+       w.println("public <T> JavaScriptObject serializeBatch(List<T> sources)");
+       w.println("{");
+       w.indent();
+       w.println("JsArray<JavaScriptObject> batch = " + 
+                 "JavaScriptObject.createArray().cast();");
+       w.println("for (T source : sources)");
+       w.indentln("batch.push(serialize(source));");
+       w.println("return batch;");
+       w.outdent();
+       w.println("}");
+       w.println();
+       w.println("public <T> List<T> deserializeBatch(JavaScriptObject jso)");
+       w.println("{");
+       w.indent();
+       w.println("JsArray<JavaScriptObject> batch = jso.cast();");
+       w.println("List<T> results = new ArrayList<T>(batch.length());");
+       w.println("for (int i = 0; i < batch.length(); i++)");
+       w.println("{");
+       w.indent();
+       w.println("T result = deserialize(batch.get(i));");
+       w.println("results.add(result);");
+       w.outdent();
+       w.println("}");
+       w.println("return results;");
+       w.outdent();
+       w.println("}");
+    }
+    
     private boolean isAnnotatedSerializable(JField field)
     {
        JClassType classType = field.getType().isClass();
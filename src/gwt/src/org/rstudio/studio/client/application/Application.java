@@ -49,6 +49,7 @@ import org.rstudio.studio.client.application.model.ProductInfo;
 import org.rstudio.studio.client.application.model.SessionSerializationAction;
 import org.rstudio.studio.client.application.ui.AboutDialog;
 import org.rstudio.studio.client.application.ui.RequestLogVisualization;
+import org.rstudio.studio.client.application.ui.RpcStatsDialog;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.common.SuperDevMode;
@@ -319,6 +320,18 @@ public class Application implements ApplicationEventHandlers
       });
    }
 
+   @Handler
+   public void onShowRpcStats()
+   {
+      new RpcStatsDialog(false).showModal();
+   }
+   
+   @Handler
+   public void onExportRpcStats()
+   {
+      new RpcStatsDialog(true).showModal();
+   }
+
    @Handler
    public void onLogFocusedElement()
    {
@@ -14,6 +14,8 @@
  */
 package org.rstudio.studio.client.application.events;
 
+import java.util.List;
+
 import org.rstudio.core.client.dom.WindowEx;
 import org.rstudio.core.client.js.JavaScriptSerializer;
 import org.rstudio.studio.client.application.Desktop;
@@ -101,6 +103,14 @@ public class EventBus extends HandlerManager
             satelliteWindow);
    }
    
+   // deliver several events to a satellite in a single cross-window call
+   public void fireEventsToSatellite(List<CrossWindowEvent<?>> events,
+         WindowEx satelliteWindow)
+   {
+      fireEventToSatellite(serializer_.serializeBatch(events), 
+            satelliteWindow);
+   }
+   
    public void fireEventToMainWindow(CrossWindowEvent<?> event)
    {
       if (Satellite.isCurrentWindowSatellite())
@@ -148,12 +158,33 @@ public class EventBus extends HandlerManager
    private void fireEventFromOtherWindow(JavaScriptObject data, 
          String windowName)
    {
-      CrossWindowEvent<?> evt = 
-            (CrossWindowEvent<?>)serializer_.deserialize(data);
+      if (isArray(data))
+      {
+         List<CrossWindowEvent<?>> events = serializer_.deserializeBatch(data);
+         for (CrossWindowEvent<?> evt : events)
+            fireEventFromOtherWindow(evt, windowName);
+      }
+      else
+      {
+         CrossWindowEvent<?> evt = 
+               (CrossWindowEvent<?>)serializer_.deserialize(data);
+         fireEventFromOtherWindow(evt, windowName);
+      }
+   }
+   
+   private void fireEventFromOtherWindow(CrossWindowEvent<?> evt,
+         String windowName)
+   {
       evt.setOriginWindowName(windowName);
       fireEvent(evt, true);
    }
    
+   // note that Array.isArray is used rather than instanceof since the
+   // array may have been created in another window
+   private static final native boolean isArray(JavaScriptObject data) /*-{
+      return Array.isArray(data);
+   }-*/;
+   
    private final native void fireEventToMainWindow(JavaScriptObject data,
          String windowName) /*-{
       $wnd.opener.fireRStudioEventExternal(data, windowName);
@@ -0,0 +1,164 @@
+/*
+ * RpcStatsDialog.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.studio.client.application.ui;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.jsonrpc.RpcMethodStats;
+import org.rstudio.core.client.jsonrpc.RpcStats;
+import org.rstudio.core.client.widget.FocusHelper;
+import org.rstudio.core.client.widget.FontSizer;
+import org.rstudio.core.client.widget.ModalDialogBase;
+import org.rstudio.core.client.widget.ThemedButton;
+
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.i18n.client.NumberFormat;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.user.client.ui.TextArea;
+import com.google.gwt.user.client.ui.Widget;
+
+// Shows the per-method rpc telemetry collected by RpcStats, either as a
+// table or (when exporting) as json which can be copied to the clipboard
+public class RpcStatsDialog extends ModalDialogBase
+{
+   public RpcStatsDialog(boolean export)
+   {
+      export_ = export;
+      
+      setText(export ? "Export RPC Statistics" : "RPC Statistics");
+      
+      addOkButton(new ThemedButton("Close", new ClickHandler() {
+         public void onClick(ClickEvent event)
+         {
+            closeDialog();
+         }
+      }));
+      
+      if (!export)
+      {
+         addButton(new ThemedButton("Export...", new ClickHandler() {
+            public void onClick(ClickEvent event)
+            {
+               new RpcStatsDialog(true).showModal();
+            }
+         }));
+         
+         addLeftButton(new ThemedButton("Reset", new ClickHandler() {
+            public void onClick(ClickEvent event)
+            {
+               RpcStats.reset();
+               table_.setHTML(renderTable());
+            }
+         }));
+      }
+   }
+   
+   @Override
+   protected Widget createMainWidget()
+   {
+      if (export_)
+      {
+         textArea_ = new TextArea();
+         textArea_.setReadOnly(true);
+         textArea_.setText(RpcStats.toJSON());
+         textArea_.setSize("600px", "350px");
+         textArea_.getElement().setAttribute("spellcheck", "false");
+         FontSizer.applyNormalFontSize(textArea_.getElement());
+         return textArea_;
+      }
+      else
+      {
+         table_ = new HTML(renderTable());
+         ScrollPanel scrollPanel = new ScrollPanel(table_);
+         scrollPanel.setSize("800px", "400px");
+         return scrollPanel;
+      }
+   }
+   
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      
+      if (textArea_ != null)
+      {
+         textArea_.selectAll();
+         FocusHelper.setFocusDeferred(textArea_);
+      }
+   }
+   
+   private String renderTable()
+   {
+      SafeHtmlBuilder sb = new SafeHtmlBuilder();
+      sb.appendHtmlConstant(
+            "<table cellspacing=\"0\" cellpadding=\"2\" width=\"100%\">");
+      sb.appendHtmlConstant("<tr>");
+      for (String header : HEADERS)
+      {
+         sb.appendHtmlConstant("<th align=\"left\">");
+         sb.appendEscaped(header);
+         sb.appendHtmlConstant("</th>");
+      }
+      sb.appendHtmlConstant("</tr>");
+      
+      ArrayList<RpcMethodStats> stats = RpcStats.getStats();
+      for (RpcMethodStats method : stats)
+      {
+         sb.appendHtmlConstant("<tr>");
+         appendCell(sb, method.getMethod());
+         appendCell(sb, method.getCount() + "");
+         appendCell(sb, method.getErrors() + "");
+         appendCell(sb, method.getRetries() + "");
+         appendCell(sb, method.getCacheHits() + "");
+         appendCell(sb, method.getSharedCalls() + "");
+         appendCell(sb, MS.format(method.getLatencyPercentileMs(0.50)));
+         appendCell(sb, MS.format(method.getLatencyPercentileMs(0.95)));
+         appendCell(sb, MS.format(method.getLatencyPercentileMs(0.99)));
+         appendCell(sb, MS.format(method.getMaxLatencyMs()));
+         appendCell(sb, MS.format(method.getMeanQueuedMs()));
+         appendCell(sb, MS.format(method.getTotalProxyMs()));
+         appendCell(sb, KB.format(method.getRequestBytes() / 1024));
+         appendCell(sb, KB.format(method.getResponseBytes() / 1024));
+         sb.appendHtmlConstant("</tr>");
+      }
+      
+      sb.appendHtmlConstant("</table>");
+      return sb.toSafeHtml().asString();
+   }
+   
+   private static void appendCell(SafeHtmlBuilder sb, String value)
+   {
+      sb.appendHtmlConstant("<td>");
+      sb.appendEscaped(value);
+      sb.appendHtmlConstant("</td>");
+   }
+   
+   private final boolean export_;
+   private HTML table_;
+   private TextArea textArea_;
+   
+   private static final String[] HEADERS = new String[] {
+      "Method", "Calls", "Errors", "Retries", "Cached", "Shared",
+      "p50 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)", "Queued (ms)",
+      "Proxied (ms)", "Sent (KB)", "Received (KB)"
+   };
+   
+   private static final NumberFormat MS = NumberFormat.getFormat("0");
+   private static final NumberFormat KB = NumberFormat.getFormat("0.0");
+}
@@ -20,6 +20,7 @@ import org.rstudio.core.client.VirtualConsole;
 import org.rstudio.core.client.widget.BottomScrollPanel;
 import org.rstudio.core.client.widget.FontSizer;
 import org.rstudio.core.client.widget.PreWidget;
+import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.workbench.views.console.ConsoleResources;
 
 import com.google.gwt.user.client.ui.Composite;
@@ -39,12 +40,17 @@ public class CompileOutputBuffer extends Composite
       scrollPanel_.add(output_);
       
       initWidget(scrollPanel_);
+      
+      // build output is retained in full unless a limit has been set
+      setMaxOutputLines(RStudioGinjector.INSTANCE.getUIPrefs()
+                              .compileOutputMaxLines().getValue());
    }
    
    public void append(String output)
    {
-      virtualConsole_.submit(output);
-      output_.setText(virtualConsole_.toString()); 
+      // only the output changed by this chunk is re-rendered
+      virtualConsole_.submitAndRender(output, null, output_.getElement());
+      virtualConsole_.enforceMaxLines(maxLines_);
 
       scrollPanel_.onContentSizeChanged();
    }
@@ -81,8 +87,16 @@ public class CompileOutputBuffer extends Composite
       output_.setText("");
       virtualConsole_ = new VirtualConsole();
    }
+
+   @Override
+   public void setMaxOutputLines(int maxLines)
+   {
+      maxLines_ = maxLines;
+      virtualConsole_.enforceMaxLines(maxLines_);
+   }
  
    private PreWidget output_;
    private VirtualConsole virtualConsole_ = new VirtualConsole();
+   private int maxLines_ = -1;
    private BottomScrollPanel scrollPanel_;
 }
@@ -46,6 +46,10 @@ public class CompileOutputBufferWithHighlight extends Composite
       scrollPanel_.setWidget(output_);
       
       initWidget(scrollPanel_);
+      
+      // build output is retained in full unless a limit has been set
+      setMaxOutputLines(RStudioGinjector.INSTANCE.getUIPrefs()
+                              .compileOutputMaxLines().getValue());
    }
    
    
@@ -79,10 +83,18 @@ public class CompileOutputBufferWithHighlight extends Composite
       console_.clear();
       output_.setText("");
    }
+
+   @Override
+   public void setMaxOutputLines(int maxLines)
+   {
+      maxLines_ = maxLines;
+      console_.enforceMaxLines(maxLines_);
+   }
    
    private void write(String output, String className)
    {
       console_.submitAndRender(output, className, output_.getElement());
+      console_.enforceMaxLines(maxLines_);
       scrollPanel_.onContentSizeChanged();
    }
    
@@ -94,6 +106,7 @@ public class CompileOutputBufferWithHighlight extends Composite
  
    PreWidget output_;
    VirtualConsole console_ = new VirtualConsole();
+   private int maxLines_ = -1;
    private BottomScrollPanel scrollPanel_;
    private ConsoleResources.ConsoleStyles styles_;
 }
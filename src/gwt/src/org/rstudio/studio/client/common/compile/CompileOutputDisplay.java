@@ -29,4 +29,7 @@ public interface CompileOutputDisplay
    public void clear();
    public void scrollToBottom();
    
+   // limits the output to (about) the given number of lines, evicting the
+   // oldest output; a value <= 0 means no limit
+   public void setMaxOutputLines(int maxLines);
 }
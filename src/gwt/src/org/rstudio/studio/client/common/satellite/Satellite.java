@@ -14,7 +14,13 @@
  */
 package org.rstudio.studio.client.common.satellite;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
 import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.dom.WindowEx;
 import org.rstudio.studio.client.application.Desktop;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -27,6 +33,9 @@ import org.rstudio.studio.client.workbench.model.SessionInfo;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.event.dom.client.FocusEvent;
 import com.google.gwt.event.dom.client.FocusHandler;
 import com.google.gwt.event.logical.shared.CloseEvent;
@@ -60,9 +69,49 @@ public class Satellite implements HasCloseHandlers<Satellite>
    
    public void initialize(String name, 
                           CommandWithArg<JavaScriptObject> onReactivated)
+   {
+      initialize(name, null, onReactivated);
+   }
+   
+   // eventTypes lists the client event types which the satellite handles 
+   // (the main window only forwards events of these types); pass null to 
+   // receive all events
+   public void initialize(String name,
+                          String[] eventTypes,
+                          CommandWithArg<JavaScriptObject> onReactivated)
    {
       onReactivated_ = onReactivated;
-      initializeNative(name);
+      
+      JsArrayString types = null;
+      if (eventTypes != null)
+      {
+         types = JsArrayString.createArray().cast();
+         for (String type : eventTypes)
+            types.push(type);
+      }
+      
+      initializeNative(name, types);
+      
+      // once startup is complete (and the satellite's widgets have
+      // registered their handlers) check that we'll receive the events
+      // they handle
+      if (eventTypes != null)
+      {
+         final String[] subscribed = eventTypes;
+         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         {
+            @Override
+            public void execute()
+            {
+               for (String type : getUnsubscribedEventTypes(subscribed, 
+                                                            events_))
+               {
+                  Debug.log("WARNING: Satellite " + getSatelliteName() + 
+                            " handles but doesn't subscribe to " + type);
+               }
+            }
+         });
+      }
       
       // NOTE: Desktop doesn't seem to get onWindowClosing events in Qt 4.8
       // so we instead rely on an explicit callback from the desktop frame
@@ -90,6 +139,36 @@ public class Satellite implements HasCloseHandlers<Satellite>
       });
    }
 
+   // the server event types (see ClientEvent) which fire events that have
+   // handlers registered but which aren't subscribed to (so would never be
+   // forwarded from the main window)
+   public static ArrayList<String> getUnsubscribedEventTypes(
+                                                String[] subscribed,
+                                                HandlerManager handlers)
+   {
+      HashSet<String> forwarded = new HashSet<String>(
+                           SatelliteManager.ALL_SATELLITE_EVENT_TYPES);
+      forwarded.addAll(Arrays.asList(subscribed));
+      
+      ArrayList<String> unsubscribed = new ArrayList<String>();
+      HashMap<GwtEvent.Type<?>, ArrayList<String>> sources = 
+                              ClientEventDispatcher.getEventTypeSources();
+      for (GwtEvent.Type<?> type : sources.keySet())
+      {
+         if (!handlers.isEventHandled(type))
+            continue;
+         
+         // events fired by more than one server event type need only one
+         // of them forwarded
+         boolean received = false;
+         for (String source : sources.get(type))
+            received = received || forwarded.contains(source);
+         if (!received)
+            unsubscribed.addAll(sources.get(type));
+      }
+      return unsubscribed;
+   }
+
    @Override
    public HandlerRegistration addCloseHandler(CloseHandler<Satellite> handler)
    {
@@ -118,7 +197,8 @@ public class Satellite implements HasCloseHandlers<Satellite>
 
    // satellite windows should call this during startup to setup a 
    // communication channel with the main window
-   private native void initializeNative(String name) /*-{
+   private native void initializeNative(String name, 
+                                        JsArrayString eventTypes) /*-{
       
       // global flag used to conditionalize behavior
       $wnd.isRStudioSatellite = true;
@@ -163,6 +243,14 @@ public class Satellite implements HasCloseHandlers<Satellite>
          }
       ); 
       
+      // export batched event notification callback
+      $wnd.dispatchEventsToRStudioSatellite = $entry(
+         function(clientEvents) {
+            for (var i = 0; i < clientEvents.length; i++)
+               satellite.@org.rstudio.studio.client.common.satellite.Satellite::dispatchEvent(Lcom/google/gwt/core/client/JavaScriptObject;)(clientEvents[i]);
+         }
+      ); 
+      
       // export request activation callback
       $wnd.notifyPendingReactivate = $entry(function() {
          satellite.@org.rstudio.studio.client.common.satellite.Satellite::notifyPendingReactivate()();
@@ -188,7 +276,7 @@ public class Satellite implements HasCloseHandlers<Satellite>
             true);
 
       // register (this will call the setSessionInfo back)
-      $wnd.opener.registerAsRStudioSatellite(name, $wnd);
+      $wnd.opener.registerAsRStudioSatellite(name, $wnd, eventTypes);
    }-*/;
    
    
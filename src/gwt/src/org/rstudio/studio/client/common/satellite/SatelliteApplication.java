@@ -14,6 +14,8 @@
  */
 package org.rstudio.studio.client.common.satellite;
 
+import java.util.ArrayList;
+
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.dom.client.Style;
 import com.google.gwt.user.client.Command;
@@ -66,11 +68,23 @@ public class SatelliteApplication
       return false;
    }
    
+   /**
+    * Have subclasses override and return the types of the client events 
+    * (see ClientEvent) which the satellite handles. The main window only 
+    * forwards events of these types (and those needed by all satellites). 
+    * @return The event types, or null to receive all events.
+    */
+   protected String[] getClientEventTypes()
+   {
+      return null;
+   }
+   
    public void go(RootLayoutPanel rootPanel, 
                   final Command dismissLoadingProgress)
    {
       // indicate that we are a satellite window
       satellite_.initialize(name_,
+                            getClientEventTypes(),
                             new CommandWithArg<JavaScriptObject> () {
                                @Override
                                public void execute(JavaScriptObject params)
@@ -108,6 +122,22 @@ public class SatelliteApplication
    {
       satellite_.flushPendingEvents(name_);
    }
+   
+   // combines the event types handled by each of the satellite's widgets
+   // (for use in getClientEventTypes)
+   public static String[] combineClientEventTypes(String[]... types)
+   {
+      ArrayList<String> combined = new ArrayList<String>();
+      for (String[] widgetTypes : types)
+      {
+         for (String type : widgetTypes)
+         {
+            if (!combined.contains(type))
+               combined.add(type);
+         }
+      }
+      return combined.toArray(new String[combined.size()]);
+   }
 
 
    private String name_;
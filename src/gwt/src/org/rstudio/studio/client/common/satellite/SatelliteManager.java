@@ -15,7 +15,10 @@
 package org.rstudio.studio.client.common.satellite;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 
 import com.google.inject.Provider;
@@ -40,14 +43,23 @@ import org.rstudio.studio.client.common.satellite.events.AllSatellitesClosingEve
 import org.rstudio.studio.client.common.satellite.events.SatelliteClosedEvent;
 import org.rstudio.studio.client.common.satellite.events.WindowClosedEvent;
 import org.rstudio.studio.client.common.satellite.events.WindowOpenedEvent;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.SessionInfo;
 import org.rstudio.studio.client.workbench.views.source.SourceWindowManager;
 
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationHandle;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.event.logical.shared.CloseEvent;
 import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Window;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -314,9 +326,13 @@ public class SatelliteManager implements CloseHandler<Window>
       }   
    }
    
-   // dispatch an event to all satellites
+   // dispatch an event to all satellites which handle it (events are 
+   // queued and then forwarded to each satellite in a single call per
+   // animation frame)
    public void dispatchClientEvent(JavaScriptObject clientEvent)
    {
+      String type = getClientEventType(clientEvent);
+      
       // list of windows to remove (because they were closed)
       ArrayList<ActiveSatellite> removeWindows = null;
         
@@ -343,7 +359,7 @@ public class SatelliteManager implements CloseHandler<Window>
             }
             else
             {
-               callDispatchEvent(satelliteWnd, clientEvent);
+               queueEvent(satellite, type, clientEvent);
             }
          }
          catch(Throwable e)
@@ -351,6 +367,9 @@ public class SatelliteManager implements CloseHandler<Window>
          }
       }
 
+      // buffer events for satellites which aren't yet ready (these are
+      // filtered by event type when they are flushed, since the satellite
+      // may not have registered the types it handles yet)
       for (Entry<String, ArrayList<JavaScriptObject>> entry :
                                        pendingEventsBySatelliteName_.entrySet())
       {
@@ -367,6 +386,21 @@ public class SatelliteManager implements CloseHandler<Window>
       }
    }
    
+   // number of client events forwarded to the named satellite
+   public int getForwardedEventCount(String name)
+   {
+      SatelliteEvents events = satelliteEvents_.get(name);
+      return events != null ? events.forwarded : 0;
+   }
+   
+   // number of client events not forwarded to the named satellite (because
+   // it doesn't handle them)
+   public int getSkippedEventCount(String name)
+   {
+      SatelliteEvents events = satelliteEvents_.get(name);
+      return events != null ? events.skipped : 0;
+   }
+   
    // dispatch a command to the named satellite window, or to the main window
    // if no target is specified
    public void dispatchCommand(AppCommand command, String target)
@@ -388,12 +422,37 @@ public class SatelliteManager implements CloseHandler<Window>
       }
    }
    
-   // dispatch a cross-window event to all satellites
+   // dispatch a cross-window event to all satellites. events dispatched
+   // during the same event loop turn are delivered to each satellite in a
+   // single cross-window call
    public void dispatchCrossWindowEvent(CrossWindowEvent<?> event)
    {
+      pendingCrossWindowEvents_.add(event);
+      if (pendingCrossWindowEvents_.size() > 1)
+         return;
+      
+      Scheduler.get().scheduleFinally(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            flushCrossWindowEvents();
+         }
+      });
+   }
+   
+   private void flushCrossWindowEvents()
+   {
+      List<CrossWindowEvent<?>> events = 
+            new ArrayList<CrossWindowEvent<?>>(pendingCrossWindowEvents_);
+      pendingCrossWindowEvents_.clear();
+      
       for (ActiveSatellite satellite: satellites_)
       {
-         events_.fireEventToSatellite(event, satellite.getWindow());
+         if (events.size() == 1)
+            events_.fireEventToSatellite(events.get(0), satellite.getWindow());
+         else
+            events_.fireEventsToSatellite(events, satellite.getWindow());
       }
    }
    
@@ -415,8 +474,20 @@ public class SatelliteManager implements CloseHandler<Window>
    }-*/;
 
    // called by satellites to connect themselves with the main window
-   private void registerAsSatellite(final String name, JavaScriptObject wnd)
+   private void registerAsSatellite(final String name, 
+                                    JavaScriptObject wnd,
+                                    JsArrayString eventTypes)
    {
+      // record the types of events the satellite handles
+      HashSet<String> types = null;
+      if (eventTypes != null)
+      {
+         types = new HashSet<String>(ALL_SATELLITE_EVENT_TYPES);
+         for (int i = 0; i < eventTypes.length(); i++)
+            types.add(eventTypes.get(i));
+      }
+      getSatelliteEvents(name).types = types;
+      
       // get the satellite and add it to our list. in some cases (such as
       // the Ctrl+R reload of an existing satellite window) we actually
       // already have a reference to this satellite in our list so in that
@@ -487,26 +558,118 @@ public class SatelliteManager implements CloseHandler<Window>
              && !satellite.getWindow().isClosed())
          {
             for (JavaScriptObject evt : events)
-            {
-               try
-               {
-                  callDispatchEvent(satellite.getWindow(), evt);
-               }
-               catch (Exception e)
-               {
-                  pUncaughtExceptionHandler_.get().onUncaughtException(e);
-               }
-            }
+               queueEvent(satellite, getClientEventType(evt), evt);
+            
+            // deliver the buffered events right away
+            flushQueuedEvents();
          }
       }
    }
    
+   private SatelliteEvents getSatelliteEvents(String name)
+   {
+      SatelliteEvents events = satelliteEvents_.get(name);
+      if (events == null)
+      {
+         events = new SatelliteEvents();
+         satelliteEvents_.put(name, events);
+      }
+      return events;
+   }
+   
+   private void queueEvent(ActiveSatellite satellite, 
+                           String type, 
+                           JavaScriptObject clientEvent)
+   {
+      SatelliteEvents events = getSatelliteEvents(satellite.getName());
+      if (events.types != null && !events.types.contains(type))
+      {
+         events.skipped++;
+         return;
+      }
+      
+      // if the satellite window changed (e.g. it was reloaded) then
+      // deliver anything queued for the previous window first
+      if (events.window != null && events.window != satellite.getWindow())
+         flushQueuedEvents(events);
+      
+      if (events.queued == null)
+         events.queued = JsArray.createArray().cast();
+      events.window = satellite.getWindow();
+      events.queued.push(clientEvent);
+      events.forwarded++;
+      
+      scheduleFlushQueuedEvents();
+   }
+   
+   private void scheduleFlushQueuedEvents()
+   {
+      if (flushScheduled_)
+         return;
+      flushScheduled_ = true;
+      
+      // animation frames aren't delivered while the main window is hidden 
+      // so we also flush on a timer (whichever comes first wins)
+      final AnimationHandle handle = 
+            AnimationScheduler.get().requestAnimationFrame(
+                                                new AnimationCallback() {
+         @Override
+         public void execute(double timestamp)
+         {
+            flushQueuedEvents();
+         }
+      });
+      
+      flushTimer_ = new Timer() {
+         @Override
+         public void run()
+         {
+            handle.cancel();
+            flushQueuedEvents();
+         }
+      };
+      flushTimer_.schedule(MAX_FLUSH_DELAY_MS);
+   }
+   
+   private void flushQueuedEvents()
+   {
+      flushScheduled_ = false;
+      if (flushTimer_ != null)
+      {
+         flushTimer_.cancel();
+         flushTimer_ = null;
+      }
+      
+      for (SatelliteEvents events : satelliteEvents_.values())
+         flushQueuedEvents(events);
+   }
+   
+   private void flushQueuedEvents(SatelliteEvents events)
+   {
+      JsArray<JavaScriptObject> queued = events.queued;
+      WindowEx window = events.window;
+      events.queued = null;
+      events.window = null;
+      
+      if (queued == null || queued.length() == 0 || window.isClosed())
+         return;
+      
+      try
+      {
+         callDispatchEvents(window, queued);
+      }
+      catch (Exception e)
+      {
+         pUncaughtExceptionHandler_.get().onUncaughtException(e);
+      }
+   }
+   
    // export the global function required for satellites to register
    private native void exportSatelliteRegistrationCallback() /*-{
       var manager = this;     
       $wnd.registerAsRStudioSatellite = $entry(
-         function(name, satelliteWnd) {
-            manager.@org.rstudio.studio.client.common.satellite.SatelliteManager::registerAsSatellite(Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;)(name, satelliteWnd);
+         function(name, satelliteWnd, eventTypes) {
+            manager.@org.rstudio.studio.client.common.satellite.SatelliteManager::registerAsSatellite(Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;Lcom/google/gwt/core/client/JsArrayString;)(name, satelliteWnd, eventTypes || null);
          }
       );
       $wnd.flushPendingEvents = $entry(
@@ -578,10 +741,15 @@ public class SatelliteManager implements CloseHandler<Window>
       satellite.notifyRStudioSatelliteReactivated(params);
    }-*/;
    
-   // dispatch event to a satellite
-   private native void callDispatchEvent(JavaScriptObject satellite,
-                                         JavaScriptObject clientEvent) /*-{
-      satellite.dispatchEventToRStudioSatellite(clientEvent);
+   // dispatch a batch of events to a satellite
+   private native void callDispatchEvents(JavaScriptObject satellite,
+                                          JavaScriptObject clientEvents) /*-{
+      satellite.dispatchEventsToRStudioSatellite(clientEvents);
+   }-*/;
+   
+   private static native String getClientEventType(
+                                          JavaScriptObject clientEvent) /*-{
+      return clientEvent.type;
    }-*/;
    
    // dispatch command to a satellite
@@ -635,6 +803,36 @@ public class SatelliteManager implements CloseHandler<Window>
 
    private final HashMap<String, ArrayList<JavaScriptObject>>
          pendingEventsBySatelliteName_ = new HashMap<String, ArrayList<JavaScriptObject>>();
+   
+   private final HashMap<String, SatelliteEvents> satelliteEvents_ =
+                                       new HashMap<String, SatelliteEvents>();
+   private boolean flushScheduled_ = false;
+   private final ArrayList<CrossWindowEvent<?>> pendingCrossWindowEvents_ =
+                                       new ArrayList<CrossWindowEvent<?>>();
+   private Timer flushTimer_ = null;
+   
+   private static final int MAX_FLUSH_DELAY_MS = 100;
+   
+   // event types forwarded to every satellite regardless of the types 
+   // it registered
+   static final List<String> ALL_SATELLITE_EVENT_TYPES = 
+         Arrays.asList(
+            ClientEvent.UiPrefsChanged,
+            ClientEvent.Busy,
+            ClientEvent.Quit,
+            ClientEvent.Suicide,
+            ClientEvent.SessionSerialization,
+            ClientEvent.DeferredInitCompleted);
+   
+   // event subscription, queue, and counters for a satellite
+   private static class SatelliteEvents
+   {
+      HashSet<String> types = null;
+      JsArray<JavaScriptObject> queued = null;
+      WindowEx window = null;
+      int forwarded = 0;
+      int skipped = 0;
+   }
 
    private class ActiveSatellite
    {
@@ -0,0 +1,713 @@
+/*
+ * ConsoleOutputLines.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.StringUtil;
+
+import com.google.gwt.dom.client.Element;
+
+/**
+ * In-memory line store for the console output. Output is kept as lines of
+ * text with per-line style runs, grouped into blocks so that lines can be
+ * appended, prepended (when replaying the console) and trimmed cheaply; only
+ * the blocks near the viewport are materialized as DOM (by
+ * ConsoleOutputView), which is notified of changes through the Observer.
+ *
+ * Lines are addressed by absolute index, which remains stable as the oldest
+ * lines are trimmed (or the output is cleared).
+ */
+public class ConsoleOutputLines
+{
+   public interface Observer
+   {
+      void onBlockAdded(Block block, int index);
+      void onBlockRemoved(Block block);
+
+      // the lines at and after the given offset within the block changed
+      void onBlockChanged(Block block, int offset);
+
+      // the given number of lines were removed from the start of the block
+      void onBlockTrimmed(Block block, int lines);
+
+      void onCleared();
+   }
+
+   public static class Line
+   {
+      private Line(String text, String className)
+      {
+         text_ = text;
+         className_ = className;
+      }
+
+      private Line(Element widget)
+      {
+         text_ = "";
+         widget_ = widget;
+      }
+
+      public String getText()
+      {
+         return text_;
+      }
+
+      // the element shown in place of the line's text (e.g. an error box)
+      public Element getWidget()
+      {
+         return widget_;
+      }
+
+      public int getRunCount()
+      {
+         return classes_ == null ? 1 : classes_.length;
+      }
+
+      public String getRunClass(int index)
+      {
+         return classes_ == null ? className_ : classes_[index];
+      }
+
+      public int getRunEnd(int index)
+      {
+         return ends_ == null ? text_.length() : ends_[index];
+      }
+
+      // writes text at the given column, overwriting any existing text; a
+      // null class keeps the class of overwritten characters
+      private void write(int column, String text, String className)
+      {
+         int length = text_.length();
+         int end = column + text.length();
+         Runs runs = new Runs();
+         if (className == null)
+         {
+            runs.addRange(this, 0, length, 0);
+            runs.add(null, end);
+         }
+         else
+         {
+            runs.addRange(this, 0, column, 0);
+            runs.add(className, end);
+            runs.addRange(this, end, length, 0);
+         }
+
+         text_ = text_.substring(0, column) + text +
+                 (end < length ? text_.substring(end) : "");
+         runs.apply(this);
+      }
+
+      private void delete(int column)
+      {
+         Runs runs = new Runs();
+         runs.addRange(this, 0, column, 0);
+         runs.addRange(this, column + 1, text_.length(), -1);
+         text_ = text_.substring(0, column) + text_.substring(column + 1);
+         runs.apply(this);
+      }
+
+      // appends the contents of another line to this one
+      private void append(Line other)
+      {
+         int length = text_.length();
+         Runs runs = new Runs();
+         runs.addRange(this, 0, length, 0);
+         runs.addRange(other, 0, other.text_.length(), length);
+         text_ = text_ + other.text_;
+         runs.apply(this);
+      }
+
+      // a line with a single run keeps its class in className_, otherwise
+      // classes_[i] applies up to (but not including) offset ends_[i]
+      private String text_;
+      private String className_;
+      private String[] classes_;
+      private int[] ends_;
+      private Element widget_;
+   }
+
+   public static class Block
+   {
+      private Block(int start)
+      {
+         start_ = start;
+      }
+
+      public int getStart()
+      {
+         return start_;
+      }
+
+      public int getLineCount()
+      {
+         return lines_.size();
+      }
+
+      public Line getLine(int index)
+      {
+         return lines_.get(index);
+      }
+
+      private final ArrayList<Line> lines_ = new ArrayList<Line>();
+      private int start_;
+
+      // rendering state, maintained by ConsoleOutputView
+      Element element_;
+      boolean rendered_ = false;
+      int dirtyFrom_ = Integer.MAX_VALUE;
+      int height_ = -1;
+      int heightWidth_ = -1;
+   }
+
+   public void setObserver(Observer observer)
+   {
+      observer_ = observer;
+   }
+
+   public int getBlockCount()
+   {
+      return blocks_.size();
+   }
+
+   public Block getBlock(int index)
+   {
+      return blocks_.get(index);
+   }
+
+   // returns the index of the block containing the given line, or -1
+   public int findBlock(int line)
+   {
+      int low = 0;
+      int high = blocks_.size() - 1;
+      while (low <= high)
+      {
+         int mid = (low + high) >>> 1;
+         Block block = blocks_.get(mid);
+         if (line < block.start_)
+            high = mid - 1;
+         else if (line >= block.start_ + block.lines_.size())
+            low = mid + 1;
+         else
+            return mid;
+      }
+      return -1;
+   }
+
+   public int getLineCount()
+   {
+      return lineCount_;
+   }
+
+   // absolute index of the oldest line retained
+   public int getFirstLine()
+   {
+      return firstLine_;
+   }
+
+   // absolute index following the newest line
+   public int getEndLine()
+   {
+      return firstLine_ + lineCount_;
+   }
+
+   // absolute index of the line which the next output will be written to
+   public int getCursorLine()
+   {
+      return open_ != null ? getEndLine() - 1 : getEndLine();
+   }
+
+   // whether the given line is the last line and isn't terminated by a
+   // newline yet
+   public boolean isOpen(Line line)
+   {
+      return line == open_;
+   }
+
+   // appends output, interpreting \r, \b, \n and \f; output appended by
+   // consecutive calls can pound over itself using \r and \b
+   public void appendOutput(String text, String className)
+   {
+      if (StringUtil.isNullOrEmpty(text))
+         return;
+
+      if (!outputActive_)
+      {
+         outputActive_ = true;
+         outputLine_ = getCursorLine();
+         outputColumn_ = column_;
+      }
+
+      int tail = 0;
+      for (int i = 0; i < text.length(); i++)
+      {
+         char c = text.charAt(i);
+         if (c != '\r' && c != '\b' && c != '\n' && c != '\f')
+            continue;
+
+         if (i > tail)
+            write(text.substring(tail, i), className);
+         tail = i + 1;
+
+         switch (c)
+         {
+            case '\r':
+               column_ = getCursorLine() == outputLine_ ? outputColumn_ : 0;
+               break;
+            case '\b':
+               backspace();
+               break;
+            case '\n':
+               newline();
+               break;
+            case '\f':
+               clear();
+               outputActive_ = true;
+               outputLine_ = getCursorLine();
+               outputColumn_ = 0;
+               break;
+         }
+      }
+
+      if (tail < text.length())
+         write(tail == 0 ? text : text.substring(tail), className);
+   }
+
+   // appends text (containing no control characters other than newlines);
+   // if the current line holds output the text starts on a new line
+   public void appendText(String text, String className)
+   {
+      if (outputActive_)
+      {
+         ensureNewLine();
+         outputActive_ = false;
+      }
+
+      if (open_ != null)
+         column_ = open_.text_.length();
+
+      int start = 0;
+      int newline = text.indexOf('\n');
+      while (newline >= 0)
+      {
+         if (newline > start)
+            write(text.substring(start, newline), className);
+         newline();
+         start = newline + 1;
+         newline = text.indexOf('\n', start);
+      }
+      if (start < text.length())
+         write(text.substring(start), className);
+   }
+
+   // terminates the current line if it isn't empty
+   public void ensureNewLine()
+   {
+      if (open_ != null && open_.text_.length() > 0)
+         newline();
+   }
+
+   // moves the output of another line store before the existing output; if
+   // it ends with an unterminated line, that line continues on the first
+   // existing line (or remains the current line if there's no output yet)
+   public void prepend(ConsoleOutputLines other)
+   {
+      ArrayList<Line> lines = new ArrayList<Line>(other.lineCount_);
+      for (Block block : other.blocks_)
+         lines.addAll(block.lines_);
+
+      Line last = other.open_;
+      if (last != null)
+         lines.remove(lines.size() - 1);
+
+      boolean adopt = lineCount_ == 0;
+      prependLines(lines, last);
+
+      // with no existing output, subsequent output continues where the
+      // other store left off
+      if (adopt && last != null)
+      {
+         column_ = other.column_;
+         outputActive_ = other.outputActive_;
+         outputLine_ = other.outputLine_ - other.firstLine_ + firstLine_;
+         outputColumn_ = other.outputColumn_;
+      }
+
+      other.clear();
+   }
+
+   private void prependLines(ArrayList<Line> lines, Line last)
+   {
+      if (last != null)
+      {
+         if (!blocks_.isEmpty() &&
+             blocks_.get(0).lines_.get(0).widget_ != null)
+         {
+            lines.add(last);
+         }
+         else if (blocks_.isEmpty())
+         {
+            lines.add(last);
+            open_ = last;
+            column_ = last.text_.length();
+         }
+         else
+         {
+            Block block = blocks_.get(0);
+            Line first = block.lines_.get(0);
+            if (first == open_)
+               column_ += last.text_.length();
+            last.append(first);
+            block.lines_.set(0, last);
+            if (first == open_)
+               open_ = last;
+            notifyChanged(block, 0);
+         }
+      }
+
+      if (lines.isEmpty())
+         return;
+
+      firstLine_ -= lines.size();
+      lineCount_ += lines.size();
+
+      int next = lines.size();
+      if (!blocks_.isEmpty())
+      {
+         Block block = blocks_.get(0);
+         int count = Math.min(next,
+                              Math.max(0, BLOCK_SIZE - block.lines_.size()));
+         if (count > 0)
+         {
+            block.lines_.addAll(0, lines.subList(next - count, next));
+            block.start_ -= count;
+            next -= count;
+            notifyChanged(block, 0);
+         }
+      }
+
+      while (next > 0)
+      {
+         int count = Math.min(next, BLOCK_SIZE);
+         Block block = new Block(firstLine_ + next - count);
+         block.lines_.addAll(lines.subList(next - count, next));
+         blocks_.add(0, block);
+         next -= count;
+         if (observer_ != null)
+            observer_.onBlockAdded(block, 0);
+      }
+   }
+
+   // replaces the lines in the given range with the given widget element,
+   // so the lines which follow the range move up; returns false if the
+   // lines are no longer retained
+   public boolean replaceLines(int from, int to, Element widget)
+   {
+      if (from < firstLine_ || from >= getEndLine())
+         return false;
+      to = Math.min(to, getEndLine());
+
+      // the lines are generally recent, so rebuild the blocks from the one
+      // containing the first line
+      int index = findBlock(from);
+      int start = blocks_.get(index).start_;
+      ArrayList<Line> lines = new ArrayList<Line>();
+      while (blocks_.size() > index)
+      {
+         Block block = blocks_.remove(blocks_.size() - 1);
+         lines.addAll(0, block.lines_);
+         if (observer_ != null)
+            observer_.onBlockRemoved(block);
+      }
+
+      lines.subList(from - start, to - start).clear();
+      lines.add(from - start, new Line(widget));
+      if (to == firstLine_ + lineCount_ && open_ != null)
+      {
+         open_ = null;
+         column_ = 0;
+         outputActive_ = false;
+      }
+
+      // the lines following the range move up (or down, if the range was
+      // empty) to follow the widget
+      int removed = to - from - 1;
+      if (outputLine_ >= to)
+         outputLine_ -= removed;
+      else if (outputLine_ >= from)
+         outputLine_ = from;
+
+      lineCount_ = start - firstLine_;
+      for (Line line : lines)
+         addLine(line);
+      return true;
+   }
+
+   // removes the oldest lines so that at most maxLines remain; returns the
+   // number of lines removed
+   public int trim(int maxLines)
+   {
+      int linesToTrim = lineCount_ - Math.max(0, maxLines);
+      if (linesToTrim <= 0)
+         return 0;
+
+      int trimmed = 0;
+      while (trimmed < linesToTrim)
+      {
+         Block block = blocks_.get(0);
+         int count = block.lines_.size();
+         int remaining = linesToTrim - trimmed;
+         if (count <= remaining)
+         {
+            blocks_.remove(0);
+            if (observer_ != null)
+               observer_.onBlockRemoved(block);
+            trimmed += count;
+         }
+         else
+         {
+            block.lines_.subList(0, remaining).clear();
+            block.start_ += remaining;
+            if (observer_ != null)
+               observer_.onBlockTrimmed(block, remaining);
+            trimmed += remaining;
+         }
+      }
+
+      firstLine_ += trimmed;
+      lineCount_ -= trimmed;
+      if (lineCount_ == 0)
+      {
+         open_ = null;
+         column_ = 0;
+      }
+      return trimmed;
+   }
+
+   public void clear()
+   {
+      blocks_.clear();
+      firstLine_ += lineCount_;
+      lineCount_ = 0;
+      open_ = null;
+      column_ = 0;
+      outputActive_ = false;
+      if (observer_ != null)
+         observer_.onCleared();
+   }
+
+   // returns the absolute index of the first line at or after (or at or
+   // before, if searching backwards) the given line which contains the
+   // given text (ignoring case), or -1 if there is none
+   public int find(String text, int fromLine, boolean backwards)
+   {
+      if (StringUtil.isNullOrEmpty(text) || lineCount_ == 0)
+         return -1;
+
+      text = text.toLowerCase();
+      int line = Math.max(firstLine_, Math.min(fromLine, getEndLine() - 1));
+      int index = findBlock(line);
+      while (index >= 0 && index < blocks_.size())
+      {
+         Block block = blocks_.get(index);
+         int offset = line - block.start_;
+         while (offset >= 0 && offset < block.lines_.size())
+         {
+            if (block.lines_.get(offset).text_.toLowerCase().contains(text))
+               return block.start_ + offset;
+            offset += backwards ? -1 : 1;
+         }
+
+         index += backwards ? -1 : 1;
+         if (index >= 0 && index < blocks_.size())
+         {
+            Block next = blocks_.get(index);
+            line = backwards ? next.start_ + next.lines_.size() - 1
+                             : next.start_;
+         }
+      }
+      return -1;
+   }
+
+   // writes text (which doesn't contain any control characters) at the
+   // cursor
+   private void write(String text, String className)
+   {
+      if (open_ == null)
+      {
+         open_ = new Line("", null);
+         column_ = 0;
+         addLine(open_);
+      }
+
+      open_.write(column_, text, className);
+      column_ += text.length();
+      notifyChanged(getEndLine() - 1);
+   }
+
+   private void newline()
+   {
+      if (open_ == null)
+         addLine(new Line("", null));
+      else
+         notifyChanged(getEndLine() - 1);
+
+      open_ = null;
+      column_ = 0;
+   }
+
+   private void backspace()
+   {
+      int cursorLine = getCursorLine();
+      int minColumn = cursorLine == outputLine_ ? outputColumn_ : 0;
+      if (column_ > minColumn)
+      {
+         if (column_ <= open_.text_.length())
+            open_.delete(column_ - 1);
+         column_--;
+         notifyChanged(cursorLine);
+         return;
+      }
+
+      // backspace over the newline terminating the previous line (if it was
+      // written by the current output), which makes it the current line
+      if (column_ > 0 || cursorLine - 1 < Math.max(outputLine_, firstLine_))
+         return;
+
+      Block block = blocks_.get(blocks_.size() - 1);
+      if (open_ != null)
+      {
+         block.lines_.remove(block.lines_.size() - 1);
+         lineCount_--;
+         if (block.lines_.isEmpty())
+         {
+            blocks_.remove(blocks_.size() - 1);
+            if (observer_ != null)
+               observer_.onBlockRemoved(block);
+            block = blocks_.get(blocks_.size() - 1);
+         }
+      }
+
+      Line previous = block.lines_.get(block.lines_.size() - 1);
+      column_ = previous.text_.length();
+      if (open_ != null)
+         previous.append(open_);
+      open_ = previous;
+      notifyChanged(block, block.lines_.size() - 1);
+   }
+
+   private void addLine(Line line)
+   {
+      Block block = blocks_.isEmpty() ? null : blocks_.get(blocks_.size() - 1);
+      lineCount_++;
+      if (block != null && block.lines_.size() < BLOCK_SIZE)
+      {
+         block.lines_.add(line);
+         notifyChanged(block, block.lines_.size() - 1);
+         return;
+      }
+
+      block = new Block(getEndLine() - 1);
+      block.lines_.add(line);
+      blocks_.add(block);
+      if (observer_ != null)
+         observer_.onBlockAdded(block, blocks_.size() - 1);
+   }
+
+   private void notifyChanged(int line)
+   {
+      // changes are almost always to the last block
+      Block block = blocks_.get(blocks_.size() - 1);
+      if (line < block.start_)
+         block = blocks_.get(findBlock(line));
+      notifyChanged(block, line - block.start_);
+   }
+
+   private void notifyChanged(Block block, int offset)
+   {
+      if (observer_ != null)
+         observer_.onBlockChanged(block, offset);
+   }
+
+   // accumulates the style runs of a line being edited
+   private static class Runs
+   {
+      public void add(String className, int end)
+      {
+         int last = ends_.size() - 1;
+         if (end <= (last < 0 ? 0 : ends_.get(last)))
+            return;
+
+         if (last >= 0 && StringUtil.equals(classes_.get(last), className))
+            ends_.set(last, end);
+         else
+         {
+            classes_.add(className);
+            ends_.add(end);
+         }
+      }
+
+      // adds the runs of the given line between from and to, offset by shift
+      public void addRange(Line line, int from, int to, int shift)
+      {
+         int start = 0;
+         for (int i = 0; i < line.getRunCount() && start < to; i++)
+         {
+            int end = line.getRunEnd(i);
+            if (end > from)
+               add(line.getRunClass(i), Math.min(end, to) + shift);
+            start = end;
+         }
+      }
+
+      public void apply(Line line)
+      {
+         if (classes_.size() <= 1)
+         {
+            line.className_ = classes_.isEmpty() ? null : classes_.get(0);
+            line.classes_ = null;
+            line.ends_ = null;
+            return;
+         }
+
+         line.className_ = null;
+         line.classes_ = classes_.toArray(new String[classes_.size()]);
+         line.ends_ = new int[ends_.size()];
+         for (int i = 0; i < ends_.size(); i++)
+            line.ends_[i] = ends_.get(i);
+      }
+
+      private final ArrayList<String> classes_ = new ArrayList<String>();
+      private final ArrayList<Integer> ends_ = new ArrayList<Integer>();
+   }
+
+   private final ArrayList<Block> blocks_ = new ArrayList<Block>();
+   private Observer observer_;
+   private int firstLine_ = 0;
+   private int lineCount_ = 0;
+
+   // the last line, while it isn't terminated by a newline, and the column
+   // the next output will be written at
+   private Line open_ = null;
+   private int column_ = 0;
+
+   // whether output (as opposed to other text) is being written, and the
+   // position at which it started; \r and \b don't move past that position
+   private boolean outputActive_ = false;
+   private int outputLine_ = 0;
+   private int outputColumn_ = 0;
+
+   private static final int BLOCK_SIZE = 128;
+}
@@ -0,0 +1,441 @@
+/*
+ * ConsoleOutputView.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.widget.BottomScrollPanel;
+import org.rstudio.studio.client.common.shell.ConsoleOutputLines.Block;
+import org.rstudio.studio.client.common.shell.ConsoleOutputLines.Line;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Node;
+import com.google.gwt.dom.client.SpanElement;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+
+/**
+ * Virtualized view of the console output. Each block of lines in the
+ * ConsoleOutputLines store has an element in the container, but only the
+ * blocks in and near the viewport are rendered; the others are empty
+ * placeholders sized to the block's last measured (or estimated) height, so
+ * the scroll height remains correct without keeping the text in the DOM.
+ *
+ * Rendered blocks are kept while there's a selection (so it survives
+ * scrolling), and the blocks spanned by a selection are rendered before
+ * it's copied.
+ */
+public class ConsoleOutputView implements ConsoleOutputLines.Observer
+{
+   public ConsoleOutputView(ConsoleOutputLines lines,
+                            Element container,
+                            BottomScrollPanel scrollPanel)
+   {
+      lines_ = lines;
+      container_ = container;
+      scrollPanel_ = scrollPanel;
+
+      lines_.setObserver(this);
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            scheduleUpdate();
+         }
+      });
+
+      // we compensate for blocks changing height above the viewport
+      // ourselves, so the browser shouldn't also do so
+      scrollPanel_.getElement().getStyle().setProperty("overflowAnchor",
+                                                       "none");
+      addCopyHook(scrollPanel_.getElement());
+   }
+
+   @Override
+   public void onBlockAdded(Block block, int index)
+   {
+      block.element_ = Document.get().createDivElement();
+      Node next = index < container_.getChildCount() ?
+                  container_.getChild(index) : null;
+      container_.insertBefore(block.element_, next);
+      setPlaceholderHeight(block);
+   }
+
+   @Override
+   public void onBlockRemoved(Block block)
+   {
+      block.element_.removeFromParent();
+      if (block.rendered_)
+         rendered_.remove(block);
+   }
+
+   @Override
+   public void onBlockChanged(Block block, int offset)
+   {
+      if (block.rendered_)
+      {
+         block.dirtyFrom_ = Math.min(block.dirtyFrom_, offset);
+      }
+      else
+      {
+         // new blocks start out unmeasured, so this must not depend on the
+         // block having been measured
+         block.height_ = -1;
+         setPlaceholderHeight(block);
+      }
+   }
+
+   @Override
+   public void onBlockTrimmed(Block block, int lines)
+   {
+      if (block.rendered_)
+      {
+         int count = Math.min(lines, block.element_.getChildCount());
+         for (int i = 0; i < count; i++)
+            block.element_.removeChild(block.element_.getFirstChild());
+         if (block.dirtyFrom_ != Integer.MAX_VALUE)
+            block.dirtyFrom_ = Math.max(0, block.dirtyFrom_ - lines);
+         block.height_ = -1;
+      }
+      else
+      {
+         block.height_ = -1;
+         setPlaceholderHeight(block);
+      }
+   }
+
+   @Override
+   public void onCleared()
+   {
+      container_.removeAllChildren();
+      rendered_.clear();
+   }
+
+   public void scheduleUpdate()
+   {
+      if (updateScheduled_)
+         return;
+
+      updateScheduled_ = true;
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            updateScheduled_ = false;
+            update();
+         }
+      });
+   }
+
+   // renders the blocks in and near the viewport (and any changes to the
+   // blocks which are already rendered), and releases the others
+   public void update()
+   {
+      int width = container_.getClientWidth();
+      int viewportHeight = scrollPanel_.getElement().getClientHeight();
+      if (width == 0 || viewportHeight == 0)
+         return; // not visible, so nothing can be measured
+
+      if (width != width_)
+      {
+         // line wrapping changed, so all heights must be re-measured
+         width_ = width;
+         for (int i = 0; i < lines_.getBlockCount(); i++)
+         {
+            Block block = lines_.getBlock(i);
+            block.height_ = -1;
+            if (!block.rendered_)
+               setPlaceholderHeight(block);
+         }
+      }
+
+      for (Block block : rendered_)
+         render(block);
+
+      int count = lines_.getBlockCount();
+      if (count == 0)
+         return;
+
+      int margin = viewportHeight;
+      int first;
+      int last;
+      int scrollAdjust = 0;
+      boolean atBottom = scrollPanel_.isScrolledToBottom();
+      if (atBottom)
+      {
+         // the output will be scrolled to the bottom, so walk back from the
+         // last block until the viewport (and margin) is filled
+         last = count - 1;
+         first = last;
+         int remaining = viewportHeight + margin;
+         for (int i = last; i >= 0 && remaining > 0; i--)
+         {
+            Block block = lines_.getBlock(i);
+            render(block);
+            remaining -= measure(block);
+            first = i;
+         }
+      }
+      else
+      {
+         Element scrollEl = scrollPanel_.getElement();
+         int top = scrollEl.getAbsoluteTop() - container_.getAbsoluteTop();
+         int bottom = top + viewportHeight;
+
+         // find the first block which ends within the margin above the
+         // viewport
+         int origin = lines_.getBlock(0).element_.getOffsetTop();
+         int low = 0;
+         int high = count - 1;
+         while (low < high)
+         {
+            int mid = (low + high) >>> 1;
+            Element el = lines_.getBlock(mid).element_;
+            if (el.getOffsetTop() - origin + el.getOffsetHeight() <
+                top - margin)
+               low = mid + 1;
+            else
+               high = mid;
+         }
+
+         first = low;
+         last = low;
+         int position = lines_.getBlock(low).element_.getOffsetTop() - origin;
+         for (int i = low; i < count && position < bottom + margin; i++)
+         {
+            Block block = lines_.getBlock(i);
+            int previous = block.rendered_ ? measure(block)
+                                           : block.element_.getOffsetHeight();
+            render(block);
+            int height = measure(block);
+
+            // keep the visible content in place when a block above it
+            // changes height
+            if (position + previous <= top && height != previous)
+            {
+               scrollAdjust += height - previous;
+               top += height - previous;
+               bottom += height - previous;
+            }
+
+            position += height;
+            last = i;
+         }
+      }
+
+      if (!DomUtils.selectionExists())
+      {
+         for (int i = rendered_.size() - 1; i >= 0; i--)
+         {
+            Block block = rendered_.get(i);
+            int index = lines_.findBlock(block.getStart());
+            if (index < first || index > last)
+               release(block);
+         }
+      }
+
+      if (atBottom)
+      {
+         scrollPanel_.onContentSizeChanged();
+      }
+      else if (scrollAdjust != 0)
+      {
+         Element scrollEl = scrollPanel_.getElement();
+         scrollEl.setScrollTop(scrollEl.getScrollTop() + scrollAdjust);
+      }
+   }
+
+   // called when the height of rendered content changed without the lines
+   // changing (e.g. an error box was expanded)
+   public void remeasure()
+   {
+      for (Block block : rendered_)
+         block.height_ = -1;
+      update();
+   }
+
+   // renders and scrolls to the given line, selecting it
+   public void revealLine(int line)
+   {
+      int index = lines_.findBlock(line);
+      if (index < 0)
+         return;
+
+      Block block = lines_.getBlock(index);
+      render(block);
+      Element el = Element.as(
+            block.element_.getChild(line - block.getStart()));
+      el.scrollIntoView();
+      selectContents(el);
+      measure(block);
+      scheduleUpdate();
+   }
+
+   private void render(Block block)
+   {
+      Element el = block.element_;
+      int from = 0;
+      if (block.rendered_)
+      {
+         from = block.dirtyFrom_;
+         if (from >= block.getLineCount())
+            return;
+      }
+      else
+      {
+         el.getStyle().clearHeight();
+         block.rendered_ = true;
+         rendered_.add(block);
+      }
+
+      while (el.getChildCount() > from)
+         el.removeChild(el.getLastChild());
+      for (int i = from; i < block.getLineCount(); i++)
+         el.appendChild(renderLine(block.getLine(i)));
+
+      block.dirtyFrom_ = Integer.MAX_VALUE;
+      block.height_ = -1;
+   }
+
+   private Node renderLine(Line line)
+   {
+      if (line.getWidget() != null)
+         return line.getWidget();
+
+      String text = line.getText();
+      String newline = lines_.isOpen(line) ? "" : "\n";
+      SpanElement span = Document.get().createSpanElement();
+      if (line.getRunCount() == 1)
+      {
+         if (line.getRunClass(0) != null)
+            span.setClassName(line.getRunClass(0));
+         span.setInnerText(text + newline);
+         return span;
+      }
+
+      int start = 0;
+      for (int i = 0; i < line.getRunCount(); i++)
+      {
+         int end = line.getRunEnd(i);
+         String className = line.getRunClass(i);
+         String run = text.substring(start, end);
+         if (className == null)
+         {
+            span.appendChild(Document.get().createTextNode(run));
+         }
+         else
+         {
+            SpanElement runSpan = Document.get().createSpanElement();
+            runSpan.setClassName(className);
+            runSpan.setInnerText(run);
+            span.appendChild(runSpan);
+         }
+         start = end;
+      }
+      if (newline.length() > 0)
+         span.appendChild(Document.get().createTextNode(newline));
+      return span;
+   }
+
+   // replaces a rendered block with a placeholder of the same height
+   private void release(Block block)
+   {
+      measure(block);
+      block.element_.removeAllChildren();
+      block.rendered_ = false;
+      block.dirtyFrom_ = Integer.MAX_VALUE;
+      rendered_.remove(block);
+      setPlaceholderHeight(block);
+   }
+
+   private int measure(Block block)
+   {
+      if (block.rendered_ && (block.height_ < 0 || block.heightWidth_ != width_))
+      {
+         block.height_ = block.element_.getOffsetHeight();
+         block.heightWidth_ = width_;
+
+         // use well populated blocks to estimate the height of the blocks
+         // which haven't been rendered at the current width
+         if (block.getLineCount() >= 32)
+            lineHeight_ = Math.max(1, block.height_ / block.getLineCount());
+      }
+      return getHeight(block);
+   }
+
+   private int getHeight(Block block)
+   {
+      if (block.height_ >= 0 && block.heightWidth_ == width_)
+         return block.height_;
+      return block.getLineCount() * lineHeight_;
+   }
+
+   private void setPlaceholderHeight(Block block)
+   {
+      block.element_.getStyle().setHeight(getHeight(block), Unit.PX);
+   }
+
+   private void materializeSelection()
+   {
+      for (int i = 0; i < lines_.getBlockCount(); i++)
+      {
+         Block block = lines_.getBlock(i);
+         if (!block.rendered_ && selectionIntersects(block.element_))
+            render(block);
+      }
+   }
+
+   private native void addCopyHook(Element element) /*-{
+      var self = this;
+      var materialize = $entry(function() {
+         self.@org.rstudio.studio.client.common.shell.ConsoleOutputView::materializeSelection()();
+      });
+      element.addEventListener("copy", materialize, true);
+      element.addEventListener("cut", materialize, true);
+   }-*/;
+
+   private static native boolean selectionIntersects(Element el) /*-{
+      var selection = $wnd.getSelection && $wnd.getSelection();
+      if (!selection || selection.rangeCount == 0)
+         return false;
+      var range = selection.getRangeAt(0);
+      return !!range.intersectsNode && range.intersectsNode(el);
+   }-*/;
+
+   private static native void selectContents(Element el) /*-{
+      var selection = $wnd.getSelection && $wnd.getSelection();
+      if (!selection)
+         return;
+      var range = $doc.createRange();
+      range.selectNodeContents(el);
+      selection.removeAllRanges();
+      selection.addRange(range);
+   }-*/;
+
+   private final ConsoleOutputLines lines_;
+   private final Element container_;
+   private final BottomScrollPanel scrollPanel_;
+   private final ArrayList<Block> rendered_ = new ArrayList<Block>();
+   private boolean updateScheduled_ = false;
+   private int width_ = -1;
+   private int lineHeight_ = 16;
+}
@@ -18,14 +18,11 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import com.google.gwt.core.client.Scheduler;
-import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
-import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.SpanElement;
 import com.google.gwt.dom.client.Style.Unit;
-import com.google.gwt.dom.client.Text;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.ui.*;
@@ -185,6 +182,10 @@ public class ShellWidget extends Composite implements ShellDisplay,
          }
       };
 
+      outputView_ = new ConsoleOutputView(outputLines_,
+                                          output_.getElement(),
+                                          scrollPanel_);
+
       initWidget(scrollPanel_) ;
 
       addCopyHook(getElement());
@@ -221,6 +222,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
             public void execute()
             {
                doOnLoad();
+               outputView_.update();
                scrollPanel_.scrollToBottom();
             }
          });
@@ -246,29 +248,28 @@ public class ShellWidget extends Composite implements ShellDisplay,
    public void consoleWriteError(final String error)
    {
       clearPendingInput();
-      output(error, getErrorClass(), false);
+      outputLines_.ensureNewLine();
+      int start = outputLines_.getCursorLine();
+      output(error, getErrorClass());
 
-      // Pick up the last element emitted to the console. If we get extended
+      // Remember the lines emitted for the error. If we get extended
       // information for this error, we'll need to swap out the simple error
-      // element for the extended error element. 
-      Element outputElement = output_.getElement();
-      Node errorNode = outputElement.getChild(
-            outputElement.getChildCount() - 1);
+      // lines for the extended error element. 
       if (clearErrors_)
       {
-         errorNodes_.clear();
+         errorLines_.clear();
          clearErrors_ = false;
       }
-      errorNodes_.put(error, errorNode);
+      errorLines_.put(error, new ErrorLines(start, outputLines_.getEndLine()));
    }
    
    public void consoleWriteExtendedError(
          final String error, UnhandledError traceInfo, 
          boolean expand, String command)
    {
-      if (errorNodes_.containsKey(error))
+      if (errorLines_.containsKey(error))
       {
-         Node errorNode = errorNodes_.get(error);
+         ErrorLines errorLines = errorLines_.get(error);
          clearPendingInput();
          ConsoleError errorWidget = new ConsoleError(
                traceInfo, getErrorClass(), this, command);
@@ -276,20 +277,50 @@ public class ShellWidget extends Composite implements ShellDisplay,
          if (expand)
             errorWidget.setTracebackVisible(true);
          
-         // The widget must be added to the root panel to have its event handlers
-         // wired properly, but this isn't an ideal structure; consider showing
-         // console output as cell widgets in a virtualized scrolling CellTable
-         // so we can easily add arbitrary controls. 
+         // the error may have already been trimmed from the output
+         if (errorLines.start < outputLines_.getFirstLine())
+         {
+            errorLines_.remove(error);
+            return;
+         }
+         
+         // The widget must be added to the root panel to have its event
+         // handlers wired properly; its element is then detached and shown
+         // by the output view whenever the error's line is rendered.
          RootPanel.get().add(errorWidget);
-         output_.getElement().replaceChild(errorWidget.getElement(), 
-                                           errorNode);
+         errorWidget.getElement().removeFromParent();
+         int endLine = outputLines_.getEndLine();
+         outputLines_.replaceLines(errorLines.start, errorLines.end,
+                                   errorWidget.getElement());
          
+         outputView_.update();
          scrollPanel_.onContentSizeChanged();
-         errorNodes_.remove(error);
+         errorLines_.remove(error);
+         
+         // the error's lines collapsed into the widget, so the lines of any
+         // errors which follow it have moved up
+         shiftErrorLines(errorLines.end, 
+                         endLine - outputLines_.getEndLine());
       }
    }
    
    @Override
+   private void shiftErrorLines(int from, int lines)
+   {
+      if (lines == 0)
+         return;
+      
+      for (Map.Entry<String, ErrorLines> entry : errorLines_.entrySet())
+      {
+         ErrorLines errorLines = entry.getValue();
+         if (errorLines.start >= from)
+         {
+            entry.setValue(new ErrorLines(errorLines.start - lines,
+                                          errorLines.end - lines));
+         }
+      }
+   }
+   
    public void showSourceForFrame(ErrorFrame frame)
    {
       if (events_ == null)
@@ -313,13 +344,13 @@ public class ShellWidget extends Composite implements ShellDisplay,
    public void consoleWriteOutput(final String output)
    {
       clearPendingInput();
-      output(output, styles_.output(), false);
+      output(output, styles_.output());
    }
 
    public void consoleWriteInput(final String input)
    {
       clearPendingInput();
-      output(input, styles_.command() + KEYWORD_CLASS_NAME, false);
+      output(input, styles_.command() + KEYWORD_CLASS_NAME);
    }
    
    private void clearPendingInput()
@@ -330,7 +361,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
    public void consoleWritePrompt(final String prompt)
    {
-      output(prompt, styles_.prompt() + KEYWORD_CLASS_NAME, false);
+      output(prompt, styles_.prompt() + KEYWORD_CLASS_NAME);
       clearErrors_ = true;
    }
 
@@ -363,105 +394,33 @@ public class ShellWidget extends Composite implements ShellDisplay,
              RStudioGinjector.INSTANCE.getUIPrefs().getThemeErrorClass();
    }
 
-   private boolean output(String text,
-                          String className,
-                          boolean addToTop)
+   private void output(String text, String className)
    {
       if (text.indexOf('\f') >= 0)
          clearOutput();
 
-      Node node;
       boolean isOutput = StringUtil.isNullOrEmpty(className)
                          || className.equals(styles_.output());
 
-      if (isOutput && !addToTop && trailingOutput_ != null)
+      if (isOutput)
       {
-         // Short-circuit the case where we're appending output to the
-         // bottom, and there's already some output there. We need to
-         // treat this differently in case the new output uses control
-         // characters to pound over parts of the previous output.
-
-         int oldLineCount = DomUtils.countLines(trailingOutput_, true);
-         trailingOutputConsole_.submit(text);
-         trailingOutput_.setNodeValue(
-               ensureNewLine(trailingOutputConsole_.toString()));
-         int newLineCount = DomUtils.countLines(trailingOutput_, true);
-         lines_ += newLineCount - oldLineCount;
+         // Output may use control characters to pound over parts of the
+         // previous output, which the line store interprets. Even if output
+         // doesn't end with \n, subsequent non-output (e.g. a prompt) will
+         // start on its own line.
+         outputLines_.appendOutput(text, null);
       }
       else
       {
-         Element outEl = output_.getElement();
-
-         text = VirtualConsole.consolify(text);
-         if (isOutput)
-         {
-            VirtualConsole console = new VirtualConsole();
-            console.submit(text);
-            String consoleSnapshot = console.toString();
-
-            // We use ensureNewLine to make sure that even if output
-            // doesn't end with \n, a prompt will appear on its own line.
-            // However, if we call ensureNewLine indiscriminantly (i.e.
-            // on an output that's going to be followed by another output)
-            // we can end up inserting newlines where they don't belong.
-            //
-            // It's safe to add a newline when we're appending output to
-            // the end of the console, because if the next append is also
-            // output, we'll use the contents of VirtualConsole and the
-            // newline we add here will be plowed over.
-            //
-            // If we're prepending output to the top of the console, then
-            // it's safe to add a newline if the next chunk (which is already
-            // there) is something besides output.
-            if (!addToTop ||
-                (!outEl.hasChildNodes()
-                 || outEl.getFirstChild().getNodeType() != Node.TEXT_NODE))
-            {
-               consoleSnapshot = ensureNewLine(consoleSnapshot);
-            }
-
-            node = Document.get().createTextNode(consoleSnapshot);
-            if (!addToTop)
-            {
-               trailingOutput_ = (Text) node;
-               trailingOutputConsole_ = console;
-            }
-         }
-         else
-         {
-            SpanElement span = Document.get().createSpanElement();
-            span.setClassName(className);
-            span.setInnerText(text);
-            node = span;
-            if (!addToTop)
-            {
-               trailingOutput_ = null;
-               trailingOutputConsole_ = null;
-            }
-         }
-
-         if (addToTop)
-            outEl.insertFirst(node);
-         else
-            outEl.appendChild(node);
-
-         lines_ += DomUtils.countLines(node, true);
+         outputLines_.appendText(VirtualConsole.consolify(text), className);
       }
-      boolean result = !trimExcess();
+      trimExcess();
 
-      scrollPanel_.onContentSizeChanged();
+      // output often arrives in bursts, so render it at most once per frame
+      // (the view keeps the output scrolled to the bottom as it renders)
+      outputView_.scheduleUpdate();
       if (scrollPanel_.isScrolledToBottom())
          scrollToBottomCommand_.nudge();
-
-      return result;
-   }
-
-   private String ensureNewLine(String s)
-   {
-      if (s.length() == 0 || s.charAt(s.length() - 1) == '\n')
-         return s;
-      else
-         return s + '\n';
    }
 
    private boolean trimExcess()
@@ -469,69 +428,60 @@ public class ShellWidget extends Composite implements ShellDisplay,
       if (maxLines_ <= 0)
          return false;  // No limit in effect
 
-      int linesToTrim = lines_ - maxLines_;
-      if (linesToTrim > 0)
-      {
-         lines_ -= DomUtils.trimLines(output_.getElement(),
-                                      lines_ - maxLines_);
-         return true;
-      }
-
-      return false;
+      return outputLines_.trim(maxLines_) > 0;
    }
 
    public void playbackActions(final RpcObjectList<ConsoleAction> actions)
    {
-      Scheduler.get().scheduleIncremental(new RepeatingCommand()
+      // Replay the actions (oldest first) into a separate line store,
+      // merging adjacent actions of the same type; only the lines which are
+      // retained are then added to the output, in a single step, so that
+      // nothing is rendered until the console has been fully restored.
+      ConsoleOutputLines replay = new ConsoleOutputLines();
+      int i = 0;
+      while (i < actions.length())
       {
-         private int i = actions.length() - 1;
-         private int chunksize = 1000;
+         int type = actions.get(i).getType();
+         StringBuilder data = new StringBuilder();
+         for (; i < actions.length() && actions.get(i).getType() == type; i++)
+         {
+            data.append(actions.get(i).getData());
+            if (type == ConsoleAction.INPUT)
+               data.append('\n');
+         }
 
-         public boolean execute()
+         switch (type)
          {
-            int end = i - chunksize;
-            chunksize = 10;
-            for (; i > end && i >= 0; i--)
-            {
-               // User hit Ctrl+L at some point--we're done.
-               if (cleared_)
-                  return false;
+            case ConsoleAction.INPUT:
+               replay.appendText(VirtualConsole.consolify(data.toString()),
+                                 styles_.command() + " " + KEYWORD_CLASS_NAME);
+               break;
+            case ConsoleAction.OUTPUT:
+               replay.appendOutput(data.toString(), null);
+               break;
+            case ConsoleAction.ERROR:
+               replay.appendText(VirtualConsole.consolify(data.toString()),
+                                 styles_.error());
+               break;
+            case ConsoleAction.PROMPT:
+               replay.appendText(VirtualConsole.consolify(data.toString()),
+                                 styles_.prompt() + " " + KEYWORD_CLASS_NAME);
+               break;
+         }
 
-               boolean canContinue = false;
+         // don't accumulate much more than will be retained
+         if (maxLines_ > 0 && replay.getLineCount() > 2 * maxLines_)
+            replay.trim(maxLines_);
+      }
 
-               ConsoleAction action = actions.get(i);
-               switch (action.getType())
-               {
-                  case ConsoleAction.INPUT:
-                     canContinue = output(action.getData() + "\n",
-                                          styles_.command() + " " + KEYWORD_CLASS_NAME,
-                                          true);
-                     break;
-                  case ConsoleAction.OUTPUT:
-                     canContinue = output(action.getData(),
-                                          styles_.output(),
-                                          true);
-                     break;
-                  case ConsoleAction.ERROR:
-                     canContinue = output(action.getData(),
-                                          styles_.error(),
-                                          true);
-                     break;
-                  case ConsoleAction.PROMPT:
-                     canContinue = output(action.getData(),
-                                          styles_.prompt() + " " + KEYWORD_CLASS_NAME,
-                                          true);
-                     break;
-               }
-               if (!canContinue)
-                  return false;
-            }
-            if (!DomUtils.selectionExists())
-               scrollPanel_.scrollToBottom();
+      if (maxLines_ > 0)
+         replay.trim(maxLines_);
+      outputLines_.prepend(replay);
+      trimExcess();
 
-            return i >= 0;
-         }
-      });
+      outputView_.update();
+      if (!DomUtils.selectionExists())
+         scrollPanel_.scrollToBottom();
    }
 
    public void focus()
@@ -640,11 +590,39 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
    public void clearOutput()
    {
-      output_.setText("") ;
-      lines_ = 0;
-      cleared_ = true;
-      trailingOutput_ = null;
-      trailingOutputConsole_ = null;
+      outputLines_.clear();
+      findLine_ = null;
+   }
+
+   // scrolls to (and selects) the next line of output containing the given
+   // text, which unlike the browser's find also searches output which isn't
+   // currently rendered; returns false if there are no more matches (in
+   // which case the next search starts over from the end of the output)
+   public boolean findInOutput(String text, boolean backwards)
+   {
+      if (!text.equals(findText_))
+      {
+         findText_ = text;
+         findLine_ = null;
+      }
+      
+      int from;
+      if (findLine_ == null)
+         from = backwards ? outputLines_.getEndLine() - 1
+                          : outputLines_.getFirstLine();
+      else
+         from = findLine_ + (backwards ? -1 : 1);
+
+      int line = outputLines_.find(text, from, backwards);
+      if (line < 0 || (findLine_ != null && line == findLine_))
+      {
+         findLine_ = null;
+         return false;
+      }
+
+      findLine_ = line;
+      outputView_.revealLine(line);
+      return true;
    }
    
    public InputEditorDisplay getInputEditorDisplay()
@@ -757,6 +735,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       maxLines_ = maxLines;
       trimExcess();
+      outputView_.update();
    }
    
    @Override
@@ -769,23 +748,25 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       if (getWidget() instanceof RequiresResize)
          ((RequiresResize)getWidget()).onResize();
+      outputView_.scheduleUpdate();
    }
 
    @Override
    public void onErrorBoxResize()
    {
+      outputView_.remeasure();
       scrollPanel_.onContentSizeChanged();
    }
    
-   private int lines_ = 0;
+   // The output is kept in the line store, and only the part of it which
+   // is in or near the viewport is rendered into output_ by the view
+   private final ConsoleOutputLines outputLines_ = new ConsoleOutputLines();
+   private final ConsoleOutputView outputView_;
    private int maxLines_ = -1;
-   private boolean cleared_ = false;
+   private Integer findLine_ = null;
+   private String findText_ = null;
    private final PreWidget output_ ;
    private PreWidget pendingInput_ ;
-   // Save a reference to the most recent output text node in case the
-   // next bit of output contains \b or \r control characters
-   private Text trailingOutput_ ;
-   private VirtualConsole trailingOutputConsole_ ;
    private final HTML prompt_ ;
    protected final AceEditor input_ ;
    private final DockPanel inputLine_ ;
@@ -796,8 +777,20 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private boolean suppressPendingInput_;
    private final EventBus events_;
    
-   // A list of errors that have occurred between console prompts. 
-   private Map<String, Node> errorNodes_ = new TreeMap<String, Node>();
+   // The lines of the errors that have occurred between console prompts. 
+   private static class ErrorLines
+   {
+      ErrorLines(int start, int end)
+      {
+         this.start = start;
+         this.end = end;
+      }
+
+      final int start;
+      final int end;
+   }
+   private Map<String, ErrorLines> errorLines_ =
+         new TreeMap<String, ErrorLines>();
    private boolean clearErrors_ = false;
 
    private static final String KEYWORD_CLASS_NAME = ConsoleResources.KEYWORD_CLASS_NAME;
@@ -18,6 +18,8 @@ import org.rstudio.studio.client.application.ApplicationUncaughtExceptionHandler
 import org.rstudio.studio.client.common.satellite.Satellite;
 import org.rstudio.studio.client.common.satellite.SatelliteApplication;
 import org.rstudio.studio.client.htmlpreview.ui.HTMLPreviewApplicationView;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishButton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.themes.AceThemes;
 
 import com.google.inject.Inject;
@@ -37,4 +39,21 @@ public class HTMLPreviewApplication extends SatelliteApplication
    {
       super(NAME, view, satellite, pAceThemes, exHandler);
    }
+   
+   @Override
+   protected String[] getClientEventTypes()
+   {
+      return CLIENT_EVENT_TYPES;
+   }
+   
+   // the events handled by the preview and by the publish
+   // button in its toolbar
+   public static final String[] CLIENT_EVENT_TYPES = 
+      combineClientEventTypes(
+         new String[] {
+            ClientEvent.HTMLPreviewStartedEvent,
+            ClientEvent.HTMLPreviewOutputEvent,
+            ClientEvent.HTMLPreviewCompletedEvent
+         },
+         RSConnectPublishButton.CLIENT_EVENT_TYPES);
 }
@@ -18,6 +18,8 @@ package org.rstudio.studio.client.rmarkdown;
 import org.rstudio.studio.client.application.ApplicationUncaughtExceptionHandler;
 import org.rstudio.studio.client.common.satellite.Satellite;
 import org.rstudio.studio.client.common.satellite.SatelliteApplication;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishButton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.themes.AceThemes;
 
 import com.google.inject.Inject;
@@ -37,4 +39,21 @@ public class RmdOutputSatellite extends SatelliteApplication
    {
       super(NAME, view, satellite, pAceThemes, exHandler);
    }
-}
\ No newline at end of file
+   
+   @Override
+   protected String[] getClientEventTypes()
+   {
+      return CLIENT_EVENT_TYPES;
+   }
+   
+   // the events handled by the output viewer and by the publish
+   // button in its toolbar
+   public static final String[] CLIENT_EVENT_TYPES = 
+      combineClientEventTypes(
+         new String[] {
+            ClientEvent.RmdRenderStarted,
+            ClientEvent.RmdRenderCompleted,
+            ClientEvent.RmdShinyDocStarted
+         },
+         RSConnectPublishButton.CLIENT_EVENT_TYPES);
+}
@@ -50,6 +50,7 @@ import org.rstudio.studio.client.rsconnect.model.RenderedDocPreview;
 import org.rstudio.studio.client.rsconnect.model.PlotPublishMRUList.Entry;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.shiny.model.ShinyApplicationParams;
 import org.rstudio.studio.client.workbench.commands.Commands;
 import org.rstudio.studio.client.workbench.model.Session;
@@ -841,4 +842,12 @@ public class RSConnectPublishButton extends Composite
    private RSConnectDeploymentRecord defaultRec_;
    
    private static boolean anyRmdRenderPending_ = false;
+   
+   // the server events (see ClientEvent) handled by the button; satellites
+   // which host the button must subscribe to these
+   public static final String[] CLIENT_EVENT_TYPES = new String[] {
+      ClientEvent.RSConnectDeploymentCompleted,
+      ClientEvent.RPubsUploadStatus,
+      ClientEvent.RmdRenderCompleted
+   };
 }
@@ -17,15 +17,41 @@ package org.rstudio.studio.client.server;
 
 public abstract class ServerRequestCallback<T>
 { 
+   public ServerRequestCallback()
+   {
+      this(null);
+   }
+   
+   // the caller identifies the object issuing the request (e.g. an editor's
+   // completion requester): requests from the same caller are sent in the
+   // order they were made, and a queued request for a supersedable method
+   // is superseded by a newer request from the same caller
+   public ServerRequestCallback(Object caller)
+   {
+      caller_ = caller;
+   }
+   
+   public Object getCaller()
+   {
+      return caller_;
+   }
+   
    public void onResponseReceived(T response)
    {
    }
    
    public abstract void onError(ServerError error);
    
+   // called instead of onError when the request was superseded by a newer
+   // request from the same caller before it was sent
+   public void onCancelled()
+   {
+   }
+   
    public void cancel() { cancelled_ = true; }
    public boolean cancelled() { return cancelled_; }
    
+   private final Object caller_;
    private boolean cancelled_ = false;
 }
 
@@ -0,0 +1,131 @@
+/*
+ * ClientEventCoalescer.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import java.util.HashMap;
+
+import org.rstudio.studio.client.workbench.views.console.model.ConsoleText;
+
+// Merges server events which are queued for dispatch but not yet fired.
+// Rules are declared per event type:
+//
+//   CONCATENATE -- adjacent events of the same type (and console) have
+//                  their text concatenated into a single event
+//
+//   LATEST      -- state snapshots where only the most recent matters;
+//                  earlier queued events of the type are dropped and the
+//                  latest fires at its own position in the queue
+//
+// Events of all other types (and the relative order of all events which
+// are actually fired) are left untouched.
+class ClientEventCoalescer
+{
+   enum Rule
+   {
+      CONCATENATE,
+      LATEST
+   }
+   
+   public ClientEventCoalescer()
+   {
+      rules_.put(ClientEvent.ConsoleOutput, Rule.CONCATENATE);
+      rules_.put(ClientEvent.ConsoleError, Rule.CONCATENATE);
+      rules_.put(ClientEvent.PlotsStateChanged, Rule.LATEST);
+      rules_.put(ClientEvent.EnvironmentRefresh, Rule.LATEST);
+      rules_.put(ClientEvent.PackageStateChanged, Rule.LATEST);
+      rules_.put(ClientEvent.VcsRefresh, Rule.LATEST);
+   }
+   
+   // attempt to merge an event into the most recently queued event; returns
+   // the merged event (which replaces the queued one) or null if the events
+   // can't be merged
+   public ClientEvent merge(ClientEvent queued, ClientEvent event)
+   {
+      String type = event.getType();
+      if (rules_.get(type) != Rule.CONCATENATE || 
+          !type.equals(queued.getType()))
+      {
+         return null;
+      }
+      
+      ConsoleText queuedText = queued.getData();
+      ConsoleText text = event.getData();
+      if (!sameConsole(queuedText.getConsole(), text.getConsole()))
+         return null;
+      
+      countMerged(type);
+      return ClientEvent.create(
+            event.getId(),
+            type,
+            ConsoleText.create(queuedText.getText() + text.getText(),
+                               text.getConsole()));
+   }
+   
+   // note that an event has been queued for dispatch
+   public void onQueued(ClientEvent event)
+   {
+      String type = event.getType();
+      if (rules_.get(type) == Rule.LATEST)
+         latest_.put(type, event);
+   }
+   
+   // called just before an event is dispatched; returns true if the event 
+   // has been superseded by a later event of the same type (and therefore
+   // should not be dispatched)
+   public boolean isSuperseded(ClientEvent event)
+   {
+      String type = event.getType();
+      if (rules_.get(type) != Rule.LATEST)
+         return false;
+      
+      if (latest_.get(type) == event)
+      {
+         latest_.remove(type);
+         return false;
+      }
+      
+      countMerged(type);
+      return true;
+   }
+   
+   public int getMergedCount()
+   {
+      return totalMerged_;
+   }
+   
+   public int getMergedCount(String type)
+   {
+      Integer count = merged_.get(type);
+      return count != null ? count.intValue() : 0;
+   }
+   
+   private void countMerged(String type)
+   {
+      totalMerged_++;
+      merged_.put(type, getMergedCount(type) + 1);
+   }
+   
+   private static boolean sameConsole(String a, String b)
+   {
+      return a == null ? b == null : a.equals(b);
+   }
+   
+   private final HashMap<String, Rule> rules_ = new HashMap<String, Rule>();
+   private final HashMap<String, ClientEvent> latest_ = 
+                                          new HashMap<String, ClientEvent>();
+   private final HashMap<String, Integer> merged_ = 
+                                          new HashMap<String, Integer>();
+   private int totalMerged_ = 0;
+}
@@ -15,12 +15,15 @@
 package org.rstudio.studio.client.server.remote;
 
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.event.shared.GwtEvent;
 
+import org.rstudio.core.client.container.RingBuffer;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.js.JsObject;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
@@ -152,6 +155,8 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEve
 import org.rstudio.studio.client.workbench.views.viewer.events.ViewerNavigateEvent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 
 public class ClientEventDispatcher 
 {
@@ -168,635 +173,1245 @@ public class ClientEventDispatcher
 
    public void enqueEvent(ClientEvent event)
    {
-      pendingEvents_.add(event);
-      if (pendingEvents_.size() == 1)
+      boolean bulk = isBulkEvent(event.getType());
+      RingBuffer<ClientEvent> lane = bulk ? bulkEvents_ : pendingEvents_;
+      
+      // attempt to merge with the most recently queued event in the lane
+      if (!lane.isEmpty())
+      {
+         ClientEvent merged = coalescer_.merge(lane.peekLast(), event);
+         if (merged != null)
+         {
+            lane.set(lane.size() - 1, merged);
+            return;
+         }
+      }
+      
+      boolean wasIdle = getQueueDepth() == 0;
+      coalescer_.onQueued(event);
+      lane.add(event);
+      (bulk ? bulkSequence_ : pendingSequence_).add(nextSequence_++);
+      maxQueueDepth_ = Math.max(maxQueueDepth_, getQueueDepth());
+      
+      if (wasIdle)
       {
          Scheduler.get().scheduleIncremental(new RepeatingCommand()
          {
             public boolean execute()
             {
-               final int MAX_EVENTS_AT_ONCE = 200;
-               for (int i = 0;
-                    i < MAX_EVENTS_AT_ONCE && pendingEvents_.size() > 0;
-                    i++)
+               // dispatch events until we've used up the time budget for
+               // this slice (always dispatching at least one event)
+               double start = Duration.currentTimeMillis();
+               double elapsed = 0;
+               do
                {
-                  ClientEvent currentEvent = pendingEvents_.remove(0);
-                  dispatchEvent(currentEvent);
+                  ClientEvent currentEvent = nextEvent();
+                  if (!coalescer_.isSuperseded(currentEvent))
+                     dispatchEvent(currentEvent);
+                  
+                  elapsed = Duration.currentTimeMillis() - start;
                }
-               return pendingEvents_.size() > 0;
+               while (getQueueDepth() > 0 && elapsed < SLICE_BUDGET_MS);
+               
+               sliceCount_++;
+               totalSliceMs_ += elapsed;
+               lastSliceMs_ = elapsed;
+               maxSliceMs_ = Math.max(maxSliceMs_, elapsed);
+               
+               return getQueueDepth() > 0;
             }
          });
       }
    }
    
+   // the interactive lane is drained before the bulk lane, except that
+   // barrier events (see BARRIER_EVENTS) wait for the bulk events queued
+   // before them, so that e.g. chunk or build output can't arrive after
+   // the prompt which followed it
+   private ClientEvent nextEvent()
+   {
+      boolean takeBulk = pendingEvents_.isEmpty() ||
+            (!bulkEvents_.isEmpty() &&
+             BARRIER_EVENTS.contains(pendingEvents_.peek().getType()) &&
+             bulkSequence_.peek() < pendingSequence_.peek());
+      
+      if (takeBulk)
+      {
+         bulkSequence_.remove();
+         return bulkEvents_.remove();
+      }
+      else
+      {
+         pendingSequence_.remove();
+         return pendingEvents_.remove();
+      }
+   }
+   
+   // number of events queued for dispatch
+   public int getQueueDepth()
+   {
+      return pendingEvents_.size() + bulkEvents_.size();
+   }
+   
+   public int getMaxQueueDepth()
+   {
+      return maxQueueDepth_;
+   }
+   
+   // time spent dispatching events in the most recent slice
+   public double getLastSliceMs()
+   {
+      return lastSliceMs_;
+   }
+   
+   public double getMaxSliceMs()
+   {
+      return maxSliceMs_;
+   }
+   
+   public double getAverageSliceMs()
+   {
+      return sliceCount_ == 0 ? 0 : totalSliceMs_ / sliceCount_;
+   }
+   
+   // events which carry bulk output are dispatched in a separate lane so
+   // that they never delay the console stream or requests for user input.
+   // each family of events is kept entirely within one lane so events that
+   // depend on each other (e.g. build output and build completion) are
+   // still dispatched in the order they were received. events whose order
+   // relative to the console matters (e.g. environment and debugger state
+   // around prompts) stay in the interactive lane
+   private static boolean isBulkEvent(String type)
+   {
+      return BULK_EVENTS.contains(type);
+   }
+   
+   // number of queued events which were merged into (or superseded by)
+   // another event rather than being dispatched individually
+   public int getCoalescedEventCount()
+   {
+      return coalescer_.getMergedCount();
+   }
+   
+   public int getCoalescedEventCount(String type)
+   {
+      return coalescer_.getMergedCount(type);
+   }
+   
+   // register a decoder for a server event type (the decoder converts the
+   // event's data into the GwtEvent which is then fired on the EventBus)
+   public static void register(String type, ClientEventDecoder decoder)
+   {
+      decoders_.put(type, decoder);
+   }
+   
+   // the decoder registered for a server event type (null if none)
+   static ClientEventDecoder getDecoder(String type)
+   {
+      return decoders_.get(type);
+   }
+   
+   // the server event types which fire each GwtEvent type, found by
+   // decoding an event with empty data for every registered type (decoders
+   // only wrap the event's data, so this has no side effects). types whose
+   // decoders can't handle empty data are omitted
+   public static HashMap<GwtEvent.Type<?>, ArrayList<String>> 
+                                                      getEventTypeSources()
+   {
+      HashMap<GwtEvent.Type<?>, ArrayList<String>> sources = 
+                        new HashMap<GwtEvent.Type<?>, ArrayList<String>>();
+      for (String type : decoders_.keySet())
+      {
+         GwtEvent<?> event = null;
+         try
+         {
+            event = decoders_.get(type).decode(createEmptyEvent(type));
+         }
+         catch(Throwable e)
+         {
+         }
+         
+         if (event == null)
+            continue;
+         
+         if (!sources.containsKey(event.getAssociatedType()))
+            sources.put(event.getAssociatedType(), new ArrayList<String>());
+         sources.get(event.getAssociatedType()).add(type);
+      }
+      return sources;
+   }
+   
+   private static native ClientEvent createEmptyEvent(String type) /*-{
+      return { id: -1, type: type, data: {} };
+   }-*/;
+   
    private void dispatchEvent(ClientEvent event) 
    { 
       String type = event.getType();
+      ClientEventDecoder decoder = getDecoder(type);
+      if (decoder == null)
+      {
+         GWT.log("WARNING: Server event not dispatched: " + type, null);
+         return;
+      }
+      
       try
       {
-         if (type.equals(ClientEvent.Busy))
+         eventBus_.fireEvent(decoder.decode(event));
+      }
+      catch(Throwable e)
+      {
+         GWT.log("WARNING: Exception occured dispatching event: " + type, e);
+      }
+   }
+   
+   private static final HashMap<String, ClientEventDecoder> decoders_ = 
+                                 new HashMap<String, ClientEventDecoder>();
+   
+   static
+   {
+      register(ClientEvent.Busy, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             boolean busy = event.<Bool>getData().getValue();
-            eventBus_.fireEvent(new BusyEvent(busy));
+            return new BusyEvent(busy);
          }
-         else if (type.equals(ClientEvent.ConsoleOutput))
+      });
+
+      register(ClientEvent.ConsoleOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsoleText output = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteOutputEvent(output));
+            return new ConsoleWriteOutputEvent(output);
          }
-         else if (type.equals(ClientEvent.ConsoleError))
+      });
+
+      register(ClientEvent.ConsoleError, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsoleText error = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteErrorEvent(error));
+            return new ConsoleWriteErrorEvent(error);
          }
-         else if (type.equals(ClientEvent.ConsoleWritePrompt))
+      });
+
+      register(ClientEvent.ConsoleWritePrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String prompt = event.getData();
-            eventBus_.fireEvent(new ConsoleWritePromptEvent(prompt));
+            return new ConsoleWritePromptEvent(prompt);
          }
-         else if (type.equals(ClientEvent.ConsoleWriteInput))
+      });
+
+      register(ClientEvent.ConsoleWriteInput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsoleText input = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteInputEvent(input));
+            return new ConsoleWriteInputEvent(input);
          }
-         else if (type.equals(ClientEvent.ConsolePrompt))
+      });
+
+      register(ClientEvent.ConsolePrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsolePrompt prompt = event.getData();
-            eventBus_.fireEvent(new ConsolePromptEvent(prompt));
+            return new ConsolePromptEvent(prompt);
          }
-         else if (type.equals(ClientEvent.ShowEditor))
+      });
+
+      register(ClientEvent.ShowEditor, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ShowEditorData data = event.getData();
-            eventBus_.fireEvent(new ShowEditorEvent(data));
+            return new ShowEditorEvent(data);
          }
-         else if (type.equals(ClientEvent.FileChanged))
+      });
+
+      register(ClientEvent.FileChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             FileChange fileChange = event.getData();
-            eventBus_.fireEvent(new FileChangeEvent(fileChange));
+            return new FileChangeEvent(fileChange);
          }
-         else if (type.equals(ClientEvent.WorkingDirChanged))
+      });
+
+      register(ClientEvent.WorkingDirChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String path = event.getData();
-            eventBus_.fireEvent(new WorkingDirChangedEvent(path));
+            return new WorkingDirChangedEvent(path);
          }
-         else if (type.equals(ClientEvent.ShowHelp))
+      });
+
+      register(ClientEvent.ShowHelp, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String helpUrl = event.getData();
-            eventBus_.fireEvent(new ShowHelpEvent(helpUrl));
+            return new ShowHelpEvent(helpUrl);
          }
-         else if (type.equals(ClientEvent.ShowErrorMessage))
+      });
+
+      register(ClientEvent.ShowErrorMessage, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ErrorMessage errorMessage = event.getData();
-            eventBus_.fireEvent(new ShowErrorMessageEvent(errorMessage));
+            return new ShowErrorMessageEvent(errorMessage);
          }
-         else if (type.equals(ClientEvent.ChooseFile))
+      });
+
+      register(ClientEvent.ChooseFile, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             boolean newFile = event.<Bool>getData().getValue();
-            eventBus_.fireEvent(new ChooseFileEvent(newFile));
+            return new ChooseFileEvent(newFile);
          }
-         else if (type.equals(ClientEvent.BrowseUrl))
+      });
+
+      register(ClientEvent.BrowseUrl, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             BrowseUrlInfo urlInfo = event.getData();
-            eventBus_.fireEvent(new BrowseUrlEvent(urlInfo));
+            return new BrowseUrlEvent(urlInfo);
          }
-         else if (type.equals(ClientEvent.PlotsStateChanged))
+      });
+
+      register(ClientEvent.PlotsStateChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             PlotsState plotsState = event.getData();
-            eventBus_.fireEvent(new PlotsChangedEvent(plotsState));
+            return new PlotsChangedEvent(plotsState);
          }
-         else if (type.equals(ClientEvent.ViewData))
+      });
+
+      register(ClientEvent.ViewData, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             DataView dataView = event.getData();
-            eventBus_.fireEvent(new ViewDataEvent(dataView));
+            return new ViewDataEvent(dataView);
          }
-         else if (type.equals(ClientEvent.PackageStateChanged))
+      });
+
+      register(ClientEvent.PackageStateChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             PackageState newState = event.getData();
-            eventBus_.fireEvent(new PackageStateChangedEvent(newState));
+            return new PackageStateChangedEvent(newState);
          }
-         else if (type.equals(ClientEvent.PackageStatusChanged))
+      });
+
+      register(ClientEvent.PackageStatusChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             PackageStatus status = event.getData();
-            eventBus_.fireEvent(new PackageStatusChangedEvent(status));
+            return new PackageStatusChangedEvent(status);
          }
-         else if (type.equals(ClientEvent.Locator))
+      });
+
+      register(ClientEvent.Locator, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new LocatorEvent());
+            return new LocatorEvent();
          }
-         else if (type.equals(ClientEvent.ConsoleResetHistory))
+      });
+
+      register(ClientEvent.ConsoleResetHistory, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsoleResetHistory reset = event.getData();
-            eventBus_.fireEvent(new ConsoleResetHistoryEvent(reset));
+            return new ConsoleResetHistoryEvent(reset);
          }
-         else if (type.equals(ClientEvent.SessionSerialization))
+      });
+
+      register(ClientEvent.SessionSerialization, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SessionSerializationAction action = event.getData();
-            eventBus_.fireEvent(new SessionSerializationEvent(action));
+            return new SessionSerializationEvent(action);
          }
-         else if (type.equals(ClientEvent.HistoryEntriesAdded))
+      });
+
+      register(ClientEvent.HistoryEntriesAdded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RpcObjectList<HistoryEntry> entries = event.getData();
-            eventBus_.fireEvent(new HistoryEntriesAddedEvent(entries));
+            return new HistoryEntriesAddedEvent(entries);
          }
-         else if (type.equals(ClientEvent.QuotaStatus))
+      });
+
+      register(ClientEvent.QuotaStatus, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             QuotaStatus quotaStatus = event.getData();
-            eventBus_.fireEvent(new QuotaStatusEvent(quotaStatus));
+            return new QuotaStatusEvent(quotaStatus);
          }
-         else if (type.equals(ClientEvent.FileEdit))
+      });
+
+      register(ClientEvent.FileEdit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             FileSystemItem file = event.getData();
-            eventBus_.fireEvent(new FileEditEvent(file));
+            return new FileEditEvent(file);
          }
-         else if (type.equals(ClientEvent.ShowContent))
+      });
+
+      register(ClientEvent.ShowContent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ContentItem content = event.getData();
-            eventBus_.fireEvent(new ShowContentEvent(content));
+            return new ShowContentEvent(content);
          }
-         else if (type.equals(ClientEvent.ShowData))
+      });
+
+      register(ClientEvent.ShowData, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             DataItem data = event.getData();
-            eventBus_.fireEvent(new ShowDataEvent(data));
+            return new ShowDataEvent(data);
          }
-         else if (type.equals(ClientEvent.AbendWarning))
-         {            
-            eventBus_.fireEvent(new SessionAbendWarningEvent());
+      });
+
+      register(ClientEvent.AbendWarning, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            return new SessionAbendWarningEvent();
          }
-         else if (type.equals(ClientEvent.ShowWarningBar))
+      });
+
+      register(ClientEvent.ShowWarningBar, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             WarningBarMessage message = event.getData();
-            eventBus_.fireEvent(new ShowWarningBarEvent(message));
+            return new ShowWarningBarEvent(message);
          }
-         else if (type.equals(ClientEvent.OpenProjectError))
+      });
+
+      register(ClientEvent.OpenProjectError, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             OpenProjectError error = event.getData();
-            eventBus_.fireEvent(new OpenProjectErrorEvent(error));
+            return new OpenProjectErrorEvent(error);
          }
-         else if (type.equals(ClientEvent.VcsRefresh))
+      });
+
+      register(ClientEvent.VcsRefresh, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             JsObject data = event.getData();
-            eventBus_.fireEvent(new VcsRefreshEvent(Reason.NA,
-                                                    data.getInteger("delay")));
+            return new VcsRefreshEvent(Reason.NA,
+                                       data.getInteger("delay"));
          }
-         else if (type.equals(ClientEvent.AskPass))
+      });
+
+      register(ClientEvent.AskPass, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             AskPassEvent.Data data = event.getData();
-            eventBus_.fireEvent(new AskPassEvent(data));
+            return new AskPassEvent(data);
          }
-         else if (type.equals(ClientEvent.ConsoleProcessOutput))
+      });
+
+      register(ClientEvent.ConsoleProcessOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ServerConsoleOutputEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ServerConsoleOutputEvent(data.getHandle(),
-                                                            data.getOutput(),
-                                                            data.isError()));
+            return new ServerConsoleOutputEvent(data.getHandle(),
+                                               data.getOutput(),
+                                               data.isError());
          }
-         else if (type.equals(ClientEvent.ConsoleProcessPrompt))
+      });
+
+      register(ClientEvent.ConsoleProcessPrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ServerConsolePromptEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ServerConsolePromptEvent(data.getHandle(),
-                                                             data.getPrompt()));
+            return new ServerConsolePromptEvent(data.getHandle(),
+                                                data.getPrompt());
          }
-         else if (type.equals(ClientEvent.ConsoleProcessCreated))
+      });
+
+      register(ClientEvent.ConsoleProcessCreated, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ConsoleProcessCreatedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ConsoleProcessCreatedEvent(data));
+            return new ConsoleProcessCreatedEvent(data);
          }
-         else if (type.equals(ClientEvent.ConsoleProcessExit))
+      });
+
+      register(ClientEvent.ConsoleProcessExit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ServerProcessExitEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ServerProcessExitEvent(data.getHandle(),
-                                                          data.getExitCode()));
+            return new ServerProcessExitEvent(data.getHandle(),
+                                             data.getExitCode());
          }
-         else if (type.equals(ClientEvent.HTMLPreviewStartedEvent))
+      });
+
+      register(ClientEvent.HTMLPreviewStartedEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             HTMLPreviewStartedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new HTMLPreviewStartedEvent(data));
+            return new HTMLPreviewStartedEvent(data);
          }
-         else if (type.equals(ClientEvent.HTMLPreviewOutputEvent))
+      });
+
+      register(ClientEvent.HTMLPreviewOutputEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String output = event.getData();
-            eventBus_.fireEvent(new HTMLPreviewOutputEvent(output));
+            return new HTMLPreviewOutputEvent(output);
          }
-         else if (type.equals(ClientEvent.HTMLPreviewCompletedEvent))
+      });
+
+      register(ClientEvent.HTMLPreviewCompletedEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             HTMLPreviewResult result = event.getData();
-            eventBus_.fireEvent(new HTMLPreviewCompletedEvent(result));
+            return new HTMLPreviewCompletedEvent(result);
          }
-         else if (type.equals(ClientEvent.CompilePdfStartedEvent))
+      });
+
+      register(ClientEvent.CompilePdfStartedEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompilePdfStartedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new CompilePdfStartedEvent(data));
+            return new CompilePdfStartedEvent(data);
          }
-         else if (type.equals(ClientEvent.CompilePdfOutputEvent))
+      });
+
+      register(ClientEvent.CompilePdfOutputEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompileOutput output = event.getData();
-            eventBus_.fireEvent(new CompilePdfOutputEvent(output));
+            return new CompilePdfOutputEvent(output);
          }
-         else if (type.equals(ClientEvent.CompilePdfErrorsEvent))
+      });
+
+      register(ClientEvent.CompilePdfErrorsEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             JsArray<SourceMarker> data = event.getData();
-            eventBus_.fireEvent(new CompilePdfErrorsEvent(data));
+            return new CompilePdfErrorsEvent(data);
          }
-         else if (type.equals(ClientEvent.CompilePdfCompletedEvent))
+      });
+
+      register(ClientEvent.CompilePdfCompletedEvent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompilePdfResult result = event.getData();
-            eventBus_.fireEvent(new CompilePdfCompletedEvent(result));
+            return new CompilePdfCompletedEvent(result);
          }
-         else if (type.equals(ClientEvent.SynctexEditFile))
+      });
+
+      register(ClientEvent.SynctexEditFile, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SourceLocation sourceLocation = event.getData();
-            eventBus_.fireEvent(new SynctexEditFileEvent(sourceLocation));
+            return new SynctexEditFileEvent(sourceLocation);
          }
-         else if (type.equals(ClientEvent.FindResult))
+      });
+
+      register(ClientEvent.FindResult, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             FindResultEvent.Data data = event.getData();
-            eventBus_.fireEvent(new FindResultEvent(
-                  data.getHandle(), data.getResults().toArrayList()));
+            return new FindResultEvent(data.getHandle(),
+                                       data.getResults().toArrayList());
          }
-         else if (type.equals(ClientEvent.FindOperationEnded))
+      });
+
+      register(ClientEvent.FindOperationEnded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String data = event.getData();
-            eventBus_.fireEvent(new FindOperationEndedEvent(data));
+            return new FindOperationEndedEvent(data);
          }
-         else if (type.equals(ClientEvent.RPubsUploadStatus))
+      });
+
+      register(ClientEvent.RPubsUploadStatus, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RPubsUploadStatusEvent.Status status = event.getData();
-            eventBus_.fireEvent(new RPubsUploadStatusEvent(status));
+            return new RPubsUploadStatusEvent(status);
          }
-         else if (type.equals(ClientEvent.BuildStarted))
+      });
+
+      register(ClientEvent.BuildStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new BuildStartedEvent());
+            return new BuildStartedEvent();
          }
-         else if (type.equals(ClientEvent.BuildOutput))
+      });
+
+      register(ClientEvent.BuildOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompileOutput data = event.getData();
-            eventBus_.fireEvent(new BuildOutputEvent(data));
+            return new BuildOutputEvent(data);
          }
-         else if (type.equals(ClientEvent.BuildCompleted))
+      });
+
+      register(ClientEvent.BuildCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             BuildCompletedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new BuildCompletedEvent(data));
+            return new BuildCompletedEvent(data);
          }
-         else if (type.equals(ClientEvent.BuildErrors))
+      });
+
+      register(ClientEvent.BuildErrors, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             BuildErrorsEvent.Data data = event.getData();
-            eventBus_.fireEvent(new BuildErrorsEvent(data));
+            return new BuildErrorsEvent(data);
          }
-         else if (type.equals(ClientEvent.DirectoryNavigate))
+      });
+
+      register(ClientEvent.DirectoryNavigate, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             DirectoryNavigateEvent.Data data = event.getData();
-            eventBus_.fireEvent(new DirectoryNavigateEvent(data));
+            return new DirectoryNavigateEvent(data);
          }
-         else if (type.equals(ClientEvent.DeferredInitCompleted))
+      });
+
+      register(ClientEvent.DeferredInitCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new DeferredInitCompletedEvent());
+            return new DeferredInitCompletedEvent();
          }
-         else if (type.equals(ClientEvent.PlotsZoomSizeChanged))
+      });
+
+      register(ClientEvent.PlotsZoomSizeChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             PlotsZoomSizeChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new PlotsZoomSizeChangedEvent(data));
+            return new PlotsZoomSizeChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.SourceCppStarted))
+      });
+
+      register(ClientEvent.SourceCppStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new SourceCppStartedEvent());
+            return new SourceCppStartedEvent();
          }
-         else if (type.equals(ClientEvent.SourceCppCompleted))
+      });
+
+      register(ClientEvent.SourceCppCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SourceCppState state = event.getData();
-            eventBus_.fireEvent(new SourceCppCompletedEvent(state));
+            return new SourceCppCompletedEvent(state);
          }
-         else if (type.equals(ClientEvent.LoadedPackageUpdates))
+      });
+
+      register(ClientEvent.LoadedPackageUpdates, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String installCmd = event.getData();
-            eventBus_.fireEvent(new LoadedPackageUpdatesEvent(installCmd));
+            return new LoadedPackageUpdatesEvent(installCmd);
          }
-         else if (type.equals(ClientEvent.ActivatePane))
+      });
+
+      register(ClientEvent.ActivatePane, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String pane = event.getData();
-            eventBus_.fireEvent(new ActivatePaneEvent(pane));
+            return new ActivatePaneEvent(pane);
          }
-         else if (type.equals(ClientEvent.ShowPresentationPane))
+      });
+
+      register(ClientEvent.ShowPresentationPane, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             PresentationState state = event.getData();
-            eventBus_.fireEvent(new ShowPresentationPaneEvent(state));
+            return new ShowPresentationPaneEvent(state);
          }
-         else if (type.equals(ClientEvent.EnvironmentRefresh))
+      });
+
+      register(ClientEvent.EnvironmentRefresh, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new EnvironmentRefreshEvent());
+            return new EnvironmentRefreshEvent();
          }
-         else if (type.equals(ClientEvent.ListChanged))
+      });
+
+      register(ClientEvent.ListChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new ListChangedEvent(event.<JsObject>getData()));
+            return new ListChangedEvent(event.<JsObject>getData());
          }
-         else if (type.equals(ClientEvent.UiPrefsChanged))
+      });
+
+      register(ClientEvent.UiPrefsChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             UiPrefsChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new UiPrefsChangedEvent(data));
+            return new UiPrefsChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.ContextDepthChanged)) {
+      });
+
+      register(ClientEvent.ContextDepthChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
             EnvironmentContextData data = event.getData();
-            eventBus_.fireEvent(new ContextDepthChangedEvent(data, true));
+            return new ContextDepthChangedEvent(data, true);
          }
-         else if (type.equals(ClientEvent.HandleUnsavedChanges))
+      });
+
+      register(ClientEvent.HandleUnsavedChanges, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new HandleUnsavedChangesEvent());
+            return new HandleUnsavedChangesEvent();
          }
-         else if (type.equals(ClientEvent.Quit))
+      });
+
+      register(ClientEvent.Quit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             QuitEvent.Data data = event.getData();
-            eventBus_.fireEvent(new QuitEvent(data));
+            return new QuitEvent(data);
          }
-         else if (type.equals(ClientEvent.Suicide))
+      });
+
+      register(ClientEvent.Suicide, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             // NOTE: we don't explicitly stop listening for events here
             // for the reasons cited above in ClientEvent.Quit
-            
+
             // fire event
             String message = event.getData();
-            eventBus_.fireEvent(new SuicideEvent(message));
+            return new SuicideEvent(message);
          }
-         else if (type.equals(ClientEvent.SaveActionChanged))
+      });
+
+      register(ClientEvent.SaveActionChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SaveAction action = event.getData();
-            eventBus_.fireEvent(new SaveActionChangedEvent(action));
+            return new SaveActionChangedEvent(action);
          }
-         else if (type.equals(ClientEvent.EnvironmentAssigned))
+      });
+
+      register(ClientEvent.EnvironmentAssigned, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RObject objectInfo = event.getData();
-            eventBus_.fireEvent(new EnvironmentObjectAssignedEvent(objectInfo));
+            return new EnvironmentObjectAssignedEvent(objectInfo);
          }
-         else if (type.equals(ClientEvent.EnvironmentRemoved))
+      });
+
+      register(ClientEvent.EnvironmentRemoved, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String objectName = event.getData();
-            eventBus_.fireEvent(new EnvironmentObjectRemovedEvent(objectName));
+            return new EnvironmentObjectRemovedEvent(objectName);
          }
-         else if (type.equals(ClientEvent.BrowserLineChanged))
+      });
+
+      register(ClientEvent.BrowserLineChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             LineData lineData = event.getData();
-            eventBus_.fireEvent(new BrowserLineChangedEvent(lineData));
+            return new BrowserLineChangedEvent(lineData);
          }
-         else if (type.equals(ClientEvent.PackageLoaded))
+      });
+
+      register(ClientEvent.PackageLoaded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new PackageLoadedEvent(
-                  (String)event.getData()));
+            return new PackageLoadedEvent((String)event.getData());
          }
-         else if (type.equals(ClientEvent.PackageUnloaded))
+      });
+
+      register(ClientEvent.PackageUnloaded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new PackageUnloadedEvent(
-                  (String)event.getData()));
+            return new PackageUnloadedEvent((String)event.getData());
          }
-         else if (type.equals(ClientEvent.PresentationPaneRequestCompleted))
+      });
+
+      register(ClientEvent.PresentationPaneRequestCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new PresentationPaneRequestCompletedEvent());
+            return new PresentationPaneRequestCompletedEvent();
          }
-         else if (type.equals(ClientEvent.UnhandledError))
+      });
+
+      register(ClientEvent.UnhandledError, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             UnhandledError err = event.getData();
-            eventBus_.fireEvent(new UnhandledErrorEvent(err));
+            return new UnhandledErrorEvent(err);
          }
-         else if (type.equals(ClientEvent.ErrorHandlerChanged))
+      });
+
+      register(ClientEvent.ErrorHandlerChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ErrorHandlerType handlerType = event.getData();
-            eventBus_.fireEvent(new ErrorHandlerChangedEvent(handlerType));
+            return new ErrorHandlerChangedEvent(handlerType);
          }
-         else if (type.equals(ClientEvent.ViewerNavigate))
+      });
+
+      register(ClientEvent.ViewerNavigate, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ViewerNavigateEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ViewerNavigateEvent(data));
+            return new ViewerNavigateEvent(data);
          }
-         else if (type.equals(ClientEvent.SourceExtendedTypeDetected))
+      });
+
+      register(ClientEvent.SourceExtendedTypeDetected, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SourceExtendedTypeDetectedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new SourceExtendedTypeDetectedEvent(data));
+            return new SourceExtendedTypeDetectedEvent(data);
          }
-         else if (type.equals(ClientEvent.ShinyViewer))
+      });
+
+      register(ClientEvent.ShinyViewer, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ShinyApplicationParams data = event.getData();
-            eventBus_.fireEvent(new ShinyApplicationStatusEvent(data, true));
+            return new ShinyApplicationStatusEvent(data, true);
          }
-         else if (type.equals(ClientEvent.DebugSourceCompleted))
+      });
+
+      register(ClientEvent.DebugSourceCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             DebugSourceResult result = (DebugSourceResult)event.getData();
-            eventBus_.fireEvent(new DebugSourceCompletedEvent(result));
+            return new DebugSourceCompletedEvent(result);
          }
-         else if (type.equals(ClientEvent.RmdRenderStarted))
+      });
+
+      register(ClientEvent.RmdRenderStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdRenderStartedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new RmdRenderStartedEvent(data));
+            return new RmdRenderStartedEvent(data);
          }
-         else if (type.equals(ClientEvent.RmdRenderOutput))
+      });
+
+      register(ClientEvent.RmdRenderOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompileOutput data = event.getData();
-            eventBus_.fireEvent(new RmdRenderOutputEvent(data));
+            return new RmdRenderOutputEvent(data);
          }
-         else if (type.equals(ClientEvent.RmdRenderCompleted))
+      });
+
+      register(ClientEvent.RmdRenderCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdRenderResult result = event.getData();
-            eventBus_.fireEvent(new RmdRenderCompletedEvent(result));
+            return new RmdRenderCompletedEvent(result);
          }
-         else if (type.equals(ClientEvent.RmdTemplateDiscovered))
+      });
+
+      register(ClientEvent.RmdTemplateDiscovered, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdDiscoveredTemplate template = event.getData();
-            eventBus_.fireEvent(new RmdTemplateDiscoveredEvent(template));
+            return new RmdTemplateDiscoveredEvent(template);
          }
-         else if (type.equals(ClientEvent.RmdTemplateDiscoveryCompleted))
+      });
+
+      register(ClientEvent.RmdTemplateDiscoveryCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new RmdTemplateDiscoveryCompletedEvent());
+            return new RmdTemplateDiscoveryCompletedEvent();
          }
-         else if (type.equals(ClientEvent.RmdShinyDocStarted))
+      });
+
+      register(ClientEvent.RmdShinyDocStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdShinyDocInfo docInfo = event.getData();
-            eventBus_.fireEvent(new RmdShinyDocStartedEvent(docInfo));
+            return new RmdShinyDocStartedEvent(docInfo);
          }
-         else if (type.equals(ClientEvent.RSConnectDeploymentOutput))
+      });
+
+      register(ClientEvent.RSConnectDeploymentOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CompileOutput output = event.getData();
-            eventBus_.fireEvent(new RSConnectDeploymentOutputEvent(output));
+            return new RSConnectDeploymentOutputEvent(output);
          }
-         else if (type.equals(ClientEvent.RSConnectDeploymentCompleted))
+      });
+
+      register(ClientEvent.RSConnectDeploymentCompleted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String url = event.getData();
-            eventBus_.fireEvent(new RSConnectDeploymentCompletedEvent(url));
+            return new RSConnectDeploymentCompletedEvent(url);
          }
-         else if (type.equals(ClientEvent.RSConnectDeploymentFailed))
+      });
+
+      register(ClientEvent.RSConnectDeploymentFailed, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RSConnectDeploymentFailedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new RSConnectDeploymentFailedEvent(data));
+            return new RSConnectDeploymentFailedEvent(data);
          }
-         else if (type.equals(ClientEvent.UserPrompt))
+      });
+
+      register(ClientEvent.UserPrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             UserPrompt prompt = event.getData();
-            eventBus_.fireEvent(new UserPromptEvent(prompt));
+            return new UserPromptEvent(prompt);
          }
-         else if (type.equals(ClientEvent.InstallRtools))
+      });
+
+      register(ClientEvent.InstallRtools, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             InstallRtoolsEvent.Data data = event.getData();
-            eventBus_.fireEvent(new InstallRtoolsEvent(data));
+            return new InstallRtoolsEvent(data);
          }
-         else if (type.equals(ClientEvent.InstallShiny))
+      });
+
+      register(ClientEvent.InstallShiny, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String userAction = event.getData();
-            eventBus_.fireEvent(new InstallShinyEvent(userAction));
+            return new InstallShinyEvent(userAction);
          }
-         else if (type.equals(ClientEvent.SuspendAndRestart))
+      });
+
+      register(ClientEvent.SuspendAndRestart, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SuspendAndRestartEvent.Data data = event.getData();
-            eventBus_.fireEvent(new SuspendAndRestartEvent(data));
+            return new SuspendAndRestartEvent(data);
          }
-         else if (type.equals(ClientEvent.DataViewChanged))
+      });
+
+      register(ClientEvent.DataViewChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             DataViewChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new DataViewChangedEvent(data));
+            return new DataViewChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.ViewFunction))
+      });
+
+      register(ClientEvent.ViewFunction, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SearchPathFunctionDefinition data = event.getData();
-            eventBus_.fireEvent(new CodeBrowserNavigationEvent(
-                  data, null, false, true));
+            return new CodeBrowserNavigationEvent(
+                  data, null, false, true);
          }
-         else if (type.equals(ClientEvent.MarkersChanged))
+      });
+
+      register(ClientEvent.MarkersChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             MarkersChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new MarkersChangedEvent(data));
+            return new MarkersChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.EnableRStudioConnect))
+      });
+
+      register(ClientEvent.EnableRStudioConnect, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             EnableRStudioConnectUIEvent.Data data = event.getData();
-            eventBus_.fireEvent(new EnableRStudioConnectUIEvent(data));
+            return new EnableRStudioConnectUIEvent(data);
          }
-         else if (type.equals(ClientEvent.UpdateGutterMarkers))
+      });
+
+      register(ClientEvent.UpdateGutterMarkers, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             LintEvent.Data data = event.getData();
-            eventBus_.fireEvent(new LintEvent(data));
+            return new LintEvent(data);
          }
-         else if (type.equals(ClientEvent.SnippetsChanged))
+      });
+
+      register(ClientEvent.SnippetsChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SnippetsChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new SnippetsChangedEvent(data));
+            return new SnippetsChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.JumpToFunction))
+      });
+
+      register(ClientEvent.JumpToFunction, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             JumpToFunctionEvent.Data data = event.getData();
-            eventBus_.fireEvent(new JumpToFunctionEvent(data));
+            return new JumpToFunctionEvent(data);
          }
-         else if (type.equals(ClientEvent.CollabEditStarted))
+      });
+
+      register(ClientEvent.CollabEditStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CollabEditStartParams params = event.getData();
-            eventBus_.fireEvent(new CollabEditStartedEvent(params));
+            return new CollabEditStartedEvent(params);
          }
-         else if (type.equals(ClientEvent.SessionCountChanged))
+      });
+
+      register(ClientEvent.SessionCountChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SessionCountChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new SessionCountChangedEvent(data));
+            return new SessionCountChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.CollabEditEnded))
+      });
+
+      register(ClientEvent.CollabEditEnded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CollabEditEndedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new CollabEditEndedEvent(data));
+            return new CollabEditEndedEvent(data);
          }
-         else if (type.equals(ClientEvent.ProjectUsersChanged))
+      });
+
+      register(ClientEvent.ProjectUsersChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ProjectUserChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ProjectUserChangedEvent(data));
+            return new ProjectUserChangedEvent(data);
          }
-         else if (type.equals(ClientEvent.RVersionsChanged))
+      });
+
+      register(ClientEvent.RVersionsChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RVersionsInfo versions = event.getData();
-            eventBus_.fireEvent(new RVersionsChangedEvent(versions));
+            return new RVersionsChangedEvent(versions);
          }
-         else if (type.equals(ClientEvent.ShinyGadgetDialog))
+      });
+
+      register(ClientEvent.ShinyGadgetDialog, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ShinyGadgetDialogEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ShinyGadgetDialogEvent(data));
+            return new ShinyGadgetDialogEvent(data);
          }
-         else if (type.equals(ClientEvent.RmdParamsReady))
+      });
+
+      register(ClientEvent.RmdParamsReady, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             String paramsFile = event.getData();
-            eventBus_.fireEvent(new RmdParamsReadyEvent(paramsFile));
+            return new RmdParamsReadyEvent(paramsFile);
          }
-         else if (type.equals(ClientEvent.RegisterUserCommand))
+      });
+
+      register(ClientEvent.RegisterUserCommand, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RegisterUserCommandEvent.Data data = event.getData();
-            eventBus_.fireEvent(new RegisterUserCommandEvent(data));
+            return new RegisterUserCommandEvent(data);
          }
-         else if (type.equals(ClientEvent.ReplaceRanges))
+      });
+
+      register(ClientEvent.ReplaceRanges, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ReplaceRangesEvent.Data data = event.getData();
             ReplaceRangesEvent payload = new ReplaceRangesEvent(data);
-            eventBus_.fireEvent(new ReplaceRangesDispatchEvent(payload));
+            return new ReplaceRangesDispatchEvent(payload);
          }
-         else if (type.equals(ClientEvent.GetActiveDocumentContext))
+      });
+
+      register(ClientEvent.GetActiveDocumentContext, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             GetActiveDocumentContextEvent payload = new GetActiveDocumentContextEvent();
-            eventBus_.fireEvent(new GetActiveDocumentContextDispatchEvent(payload));
+            return new GetActiveDocumentContextDispatchEvent(payload);
          }
-         else if (type.equals(ClientEvent.SendToConsole))
+      });
+
+      register(ClientEvent.SendToConsole, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             SendToConsoleEvent.Data data = event.getData();
-            eventBus_.fireEvent(new SendToConsoleEvent(data));
+            return new SendToConsoleEvent(data);
          }
-         else if (type.equals(ClientEvent.UserFollowStarted))
+      });
+
+      register(ClientEvent.UserFollowStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ProjectUser user = event.getData();
-            eventBus_.fireEvent(new FollowUserEvent(user, true));
+            return new FollowUserEvent(user, true);
          }
-         else if (type.equals(ClientEvent.UserFollowEnded))
+      });
+
+      register(ClientEvent.UserFollowEnded, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             ProjectUser user = event.getData();
-            eventBus_.fireEvent(new FollowUserEvent(user, false));
+            return new FollowUserEvent(user, false);
          }
-         else if (type.equals(ClientEvent.ProjectAccessRevoked))
+      });
+
+      register(ClientEvent.ProjectAccessRevoked, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new ProjectAccessRevokedEvent());
+            return new ProjectAccessRevokedEvent();
          }
-         else if (type.equals(ClientEvent.CollabEditSaved))
+      });
+
+      register(ClientEvent.CollabEditSaved, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             CollabEditSavedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new CollabEditSavedEvent(data));
+            return new CollabEditSavedEvent(data);
          }
-         else if (type.equals(ClientEvent.AddinRegistryUpdated))
+      });
+
+      register(ClientEvent.AddinRegistryUpdated, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RAddins data = event.getData();
-            eventBus_.fireEvent(new AddinRegistryUpdatedEvent(data));
+            return new AddinRegistryUpdatedEvent(data);
          }
-         else if (type.equals(ClientEvent.ChunkOutput))
+      });
+
+      register(ClientEvent.ChunkOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdChunkOutput data = event.getData();
-            eventBus_.fireEvent(new RmdChunkOutputEvent(data));
+            return new RmdChunkOutputEvent(data);
          }
-         else if (type.equals(ClientEvent.ChunkOutputFinished))
+      });
+
+      register(ClientEvent.ChunkOutputFinished, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RmdChunkOutputFinishedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new RmdChunkOutputFinishedEvent(data));
+            return new RmdChunkOutputFinishedEvent(data);
          }
-         else if (type.equals(ClientEvent.RprofStarted))
+      });
+
+      register(ClientEvent.RprofStarted, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new RprofEvent(RprofEvent.RprofEventType.START, null));
+            return new RprofEvent(RprofEvent.RprofEventType.START, null);
          }
-         else if (type.equals(ClientEvent.RprofStopped))
+      });
+
+      register(ClientEvent.RprofStopped, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
-            eventBus_.fireEvent(new RprofEvent(RprofEvent.RprofEventType.STOP, null));
+            return new RprofEvent(RprofEvent.RprofEventType.STOP, null);
          }
-         else if (type.equals(ClientEvent.RprofCreated))
+      });
+
+      register(ClientEvent.RprofCreated, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
          {
             RprofEvent.Data data = event.getData();
-            eventBus_.fireEvent(new RprofEvent(RprofEvent.RprofEventType.CREATE, data));
-         }
-         else
-         {
-            GWT.log("WARNING: Server event not dispatched: " + type, null);
+            return new RprofEvent(RprofEvent.RprofEventType.CREATE, data);
          }
-      }
-      catch(Throwable e)
-      {
-         GWT.log("WARNING: Exception occured dispatching event: " + type, e);
-      }
+      });
    }
-   
 
    private final EventBus eventBus_;
 
-   private final ArrayList<ClientEvent> pendingEvents_ = new ArrayList<ClientEvent>();
+   private final RingBuffer<ClientEvent> pendingEvents_ = 
+                                          new RingBuffer<ClientEvent>();
+   private final RingBuffer<ClientEvent> bulkEvents_ = 
+                                          new RingBuffer<ClientEvent>();
    
-
+   // the order in which the events in each lane were queued
+   private final RingBuffer<Integer> pendingSequence_ =
+                                          new RingBuffer<Integer>();
+   private final RingBuffer<Integer> bulkSequence_ =
+                                          new RingBuffer<Integer>();
+   private int nextSequence_ = 0;
+   private final ClientEventCoalescer coalescer_ = new ClientEventCoalescer();
+   
+   private int maxQueueDepth_ = 0;
+   private int sliceCount_ = 0;
+   private double totalSliceMs_ = 0;
+   private double lastSliceMs_ = 0;
+   private double maxSliceMs_ = 0;
+   
+   private static final double SLICE_BUDGET_MS = 8;
+   
+   private static final HashSet<String> BULK_EVENTS = new HashSet<String>();
+   static
+   {
+      String[] bulkEvents = new String[] {
+         
+         // notebook chunk output
+         ClientEvent.ChunkOutput,
+         ClientEvent.ChunkOutputFinished,
+         
+         // builds
+         ClientEvent.BuildStarted,
+         ClientEvent.BuildOutput,
+         ClientEvent.BuildErrors,
+         ClientEvent.BuildCompleted,
+         
+         // pdf compilation
+         ClientEvent.CompilePdfStartedEvent,
+         ClientEvent.CompilePdfOutputEvent,
+         ClientEvent.CompilePdfErrorsEvent,
+         ClientEvent.CompilePdfCompletedEvent,
+         
+         // html preview
+         ClientEvent.HTMLPreviewStartedEvent,
+         ClientEvent.HTMLPreviewOutputEvent,
+         ClientEvent.HTMLPreviewCompletedEvent,
+         
+         // r markdown rendering
+         ClientEvent.RmdRenderStarted,
+         ClientEvent.RmdRenderOutput,
+         ClientEvent.RmdRenderCompleted,
+         
+         // deployment
+         ClientEvent.RSConnectDeploymentOutput,
+         ClientEvent.RSConnectDeploymentCompleted,
+         ClientEvent.RSConnectDeploymentFailed,
+         
+         // find in files
+         ClientEvent.FindResult,
+         ClientEvent.FindOperationEnded
+      };
+      
+      for (String type : bulkEvents)
+         BULK_EVENTS.add(type);
+   }
+   
+   // interactive events which are causally linked to bulk events, and so
+   // are never dispatched ahead of bulk events which were received before
+   // them. all other interactive events are independent of the bulk lane
+   private static final HashSet<String> BARRIER_EVENTS = new HashSet<String>();
+   static
+   {
+      String[] barrierEvents = new String[] {
+         
+         // the end of a stretch of console output
+         ClientEvent.Busy,
+         ClientEvent.ConsolePrompt,
+         ClientEvent.ConsoleWritePrompt,
+         ClientEvent.ConsoleWriteInput,
+         
+         // raised once r markdown rendering completes
+         ClientEvent.RmdShinyDocStarted,
+         ClientEvent.RmdParamsReady,
+         
+         // results of builds, compiles, renders and deployments
+         ClientEvent.MarkersChanged,
+         ClientEvent.ShowContent,
+         ClientEvent.BrowseUrl,
+         ClientEvent.ViewerNavigate,
+         ClientEvent.ShinyViewer,
+         
+         // the session going away
+         ClientEvent.Quit,
+         ClientEvent.Suicide,
+         ClientEvent.SuspendAndRestart
+      };
+      
+      for (String type : barrierEvents)
+         BARRIER_EVENTS.add(type);
+   }
 }
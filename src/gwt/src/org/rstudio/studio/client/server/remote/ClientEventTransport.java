@@ -0,0 +1,44 @@
+/*
+ * ClientEventTransport.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import org.rstudio.studio.client.server.ServerError;
+
+import com.google.gwt.core.client.JsArray;
+
+// Delivers batches of client events from the server to the
+// RemoteServerEventListener. A transport is asked to listen for events
+// following a given event id; it then reports zero or more batches of
+// events followed by either completion (after which the listener asks it
+// to listen again, acknowledging the events it has seen) or an error.
+interface ClientEventTransport
+{
+   interface Listener
+   {
+      void onEvents(JsArray<ClientEvent> events);
+      
+      void onCompleted();
+      
+      void onError(ServerError error);
+      
+      // the transport can't be used with this server (e.g. streaming
+      // isn't supported) so the listener should fall back to long polling
+      void onUnsupported();
+   }
+   
+   void listen(int lastEventId, Listener listener, RetryHandler retryHandler);
+   
+   void stop();
+}
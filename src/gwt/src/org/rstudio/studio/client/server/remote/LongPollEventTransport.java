@@ -0,0 +1,81 @@
+/*
+ * LongPollEventTransport.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+
+import com.google.gwt.core.client.JsArray;
+
+// Receives events by long polling get_events (the server holds each request
+// until events are available and returns a single batch per request)
+class LongPollEventTransport implements ClientEventTransport
+{
+   LongPollEventTransport(RemoteServer server)
+   {
+      server_ = server;
+   }
+   
+   @Override
+   public void listen(int lastEventId, 
+                      final Listener listener,
+                      RetryHandler retryHandler)
+   {
+      stop();
+      
+      // setup request callback (save reference for cancellation)
+      activeRequestCallback_ = new ServerRequestCallback<JsArray<ClientEvent>>() 
+      {
+         @Override
+         public void onResponseReceived(JsArray<ClientEvent> events)
+         {
+            listener.onEvents(events);
+            listener.onCompleted();
+         }
+         
+         @Override
+         public void onError(ServerError error)
+         {
+            listener.onError(error);
+         }
+      };
+      
+      // send request
+      activeRequest_ = server_.getEvents(lastEventId, 
+                                         activeRequestCallback_,
+                                         retryHandler);
+   }
+   
+   @Override
+   public void stop()
+   {
+      if (activeRequestCallback_ != null)
+      {
+         activeRequestCallback_.cancel();
+         activeRequestCallback_ = null;
+      }
+      if (activeRequest_ != null)
+      {
+         activeRequest_.cancel();
+         activeRequest_ = null;
+      }
+   }
+   
+   private final RemoteServer server_;
+   
+   private RpcRequest activeRequest_;
+   private ServerRequestCallback<JsArray<ClientEvent>> activeRequestCallback_;
+}
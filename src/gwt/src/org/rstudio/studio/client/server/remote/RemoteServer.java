@@ -16,7 +16,9 @@
 package org.rstudio.studio.client.server.remote;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -30,9 +32,17 @@ import org.rstudio.core.client.js.JsUtil;
 import org.rstudio.core.client.jsonrpc.RpcError;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
 import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcRequestBatch;
+import org.rstudio.core.client.jsonrpc.RpcRequestBatcher;
 import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
+import org.rstudio.core.client.jsonrpc.RpcRequestScheduler;
+import org.rstudio.core.client.jsonrpc.RpcRequestScheduler.Priority;
 import org.rstudio.core.client.jsonrpc.RpcResponse;
+import org.rstudio.core.client.jsonrpc.RpcResponseCache;
 import org.rstudio.core.client.jsonrpc.RpcResponseHandler;
+import org.rstudio.core.client.jsonrpc.RpcStats;
+import org.rstudio.core.client.jsonrpc.RpcStreamingRequest;
+import org.rstudio.core.client.patch.TextPatch;
 import org.rstudio.studio.client.application.Desktop;
 import org.rstudio.studio.client.application.events.ClientDisconnectedEvent;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -135,11 +145,14 @@ import org.rstudio.studio.client.workbench.model.TerminalOptions;
 import org.rstudio.studio.client.workbench.model.TexCapabilities;
 import org.rstudio.studio.client.workbench.model.WorkbenchMetrics;
 import org.rstudio.studio.client.workbench.prefs.model.RPrefs;
+import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import org.rstudio.studio.client.workbench.prefs.model.SpellingPrefsContext;
 import org.rstudio.studio.client.workbench.snippets.model.SnippetData;
 import org.rstudio.studio.client.workbench.views.environment.dataimport.DataImportOptions;
 import org.rstudio.studio.client.workbench.views.environment.dataimport.model.DataImportAssembleResponse;
 import org.rstudio.studio.client.workbench.views.environment.dataimport.model.DataImportPreviewResponse;
+import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptHandler;
 import org.rstudio.studio.client.workbench.views.environment.model.DataPreviewResult;
 import org.rstudio.studio.client.workbench.views.environment.model.DownloadInfo;
 import org.rstudio.studio.client.workbench.views.environment.model.EnvironmentContextData;
@@ -171,12 +184,15 @@ import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
 import org.rstudio.studio.client.workbench.views.vcs.dialog.CommitCount;
 import org.rstudio.studio.client.workbench.views.vcs.dialog.CommitInfo;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayInteger;
 import com.google.gwt.core.client.JsArrayNumber;
 import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.event.logical.shared.ValueChangeEvent;
+import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.http.client.URL;
 import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONBoolean;
@@ -196,15 +212,28 @@ public class RemoteServer implements Server
    public RemoteServer(Session session, 
                        EventBus eventBus,
                        final SatelliteManager satelliteManager,
-                       Provider<ConsoleProcessFactory> pConsoleProcessFactory)
+                       Provider<ConsoleProcessFactory> pConsoleProcessFactory,
+                       Provider<UIPrefs> pUIPrefs)
    {
       pConsoleProcessFactory_ = pConsoleProcessFactory;
+      pUIPrefs_ = pUIPrefs;
       clientId_ = null;
       disconnected_ = false;
       listeningForEvents_ = false;
       session_ = session;
       eventBus_ = eventBus;
       serverAuth_ = new RemoteServerAuth(this);
+      requestBatcher_ = new RpcRequestBatcher(
+            GWT.getHostPageBaseURL() + RPC_SCOPE + "/" + 
+            RpcRequestBatch.MULTIPLEX);
+      requestScheduler_ = new RpcRequestScheduler(requestBatcher_);
+      for (String method : INTERACTIVE_METHODS)
+         requestScheduler_.setPriority(method, Priority.INTERACTIVE);
+      for (String method : SUPERSEDABLE_METHODS)
+         requestScheduler_.setSupersedable(method);
+      for (String method : BULK_METHODS)
+         requestScheduler_.setPriority(method, Priority.BULK);
+      responseCache_ = new RpcResponseCache(requestScheduler_);
       
       // define external event listener if we are the main window
       // (so we can forward to the satellites)
@@ -242,11 +271,103 @@ public class RemoteServer implements Server
       if (session_.getSessionInfo().getMode().equals(SessionInfo.SERVER_MODE))
          serverAuth_.schedulePeriodicCredentialsUpdate();
       
+      // stream events when we are connected directly to the session (when
+      // running behind rserver the proxy buffers responses, so the session
+      // won't stream and we just use long polling)
+      final UIPrefs prefs = pUIPrefs_.get();
+      serverEventListener_.setStreamingEnabled(
+            Desktop.isDesktop() && prefs.streamClientEvents().getValue());
+      prefs.streamClientEvents().addValueChangeHandler(
+                                    new ValueChangeHandler<Boolean>() {
+         @Override
+         public void onValueChange(ValueChangeEvent<Boolean> event)
+         {
+            serverEventListener_.setStreamingEnabled(
+                  Desktop.isDesktop() && event.getValue());
+         }
+      });
+      
       // start event listener
       serverEventListener_.start();
       
       // register satallite callback
       registerSatelliteCallback();
+      
+      // configure request batching (and track changes to its prefs)
+      ValueChangeHandler<Boolean> batchingHandler = 
+                                    new ValueChangeHandler<Boolean>() {
+         @Override
+         public void onValueChange(ValueChangeEvent<Boolean> event)
+         {
+            updateRequestBatching();
+         }
+      };
+      ValueChangeHandler<Integer> batchingSizeHandler = 
+                                    new ValueChangeHandler<Integer>() {
+         @Override
+         public void onValueChange(ValueChangeEvent<Integer> event)
+         {
+            updateRequestBatching();
+         }
+      };
+      prefs.batchRpcRequests().addValueChangeHandler(batchingHandler);
+      prefs.rpcBatchFlushWindowMs().addValueChangeHandler(batchingSizeHandler);
+      prefs.rpcBatchMaxSize().addValueChangeHandler(batchingSizeHandler);
+      updateRequestBatching();
+      
+      // configure caching of idempotent calls
+      prefs.rpcCacheTtlMs().addValueChangeHandler(
+                                    new ValueChangeHandler<Integer>() {
+         @Override
+         public void onValueChange(ValueChangeEvent<Integer> event)
+         {
+            updateResponseCache();
+         }
+      });
+      updateResponseCache();
+      
+      // configure the number of concurrent requests
+      prefs.rpcMaxConcurrentRequests().addValueChangeHandler(
+                                    new ValueChangeHandler<Integer>() {
+         @Override
+         public void onValueChange(ValueChangeEvent<Integer> event)
+         {
+            requestScheduler_.setMaxConcurrent(event.getValue());
+         }
+      });
+      requestScheduler_.setMaxConcurrent(
+                              prefs.rpcMaxConcurrentRequests().getValue());
+      
+      // anything which depends on the state of the R session is stale once
+      // R has executed code and returned to the prompt
+      eventBus_.addHandler(ConsolePromptEvent.TYPE, new ConsolePromptHandler()
+      {
+         @Override
+         public void onConsolePrompt(ConsolePromptEvent event)
+         {
+            responseCache_.invalidateAll();
+         }
+      });
+   }
+   
+   private void updateRequestBatching()
+   {
+      UIPrefs prefs = pUIPrefs_.get();
+      requestBatcher_.setOptions(prefs.batchRpcRequests().getValue(),
+                                 prefs.rpcBatchFlushWindowMs().getValue(),
+                                 prefs.rpcBatchMaxSize().getValue());
+   }
+   
+   private void updateResponseCache()
+   {
+      int ttlMs = pUIPrefs_.get().rpcCacheTtlMs().getValue();
+      responseCache_.invalidateAll();
+      for (String method : IDEMPOTENT_METHODS)
+      {
+         boolean stateDependent =
+               Arrays.asList(STATE_DEPENDENT_METHODS).contains(method);
+         responseCache_.setIdempotent(method, stateDependent ? 0 : ttlMs);
+      }
    }
    
    public void stopEventListener()
@@ -1588,6 +1709,42 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
    }
 
+   public void saveDocumentPatch(String id,
+                                 String path,
+                                 String fileType,
+                                 String encoding,
+                                 String foldSpec,
+                                 JsArray<ChunkDefinition> chunkDefs,
+                                 TextPatch patch,
+                                 String hash,
+                                 int newLength,
+                                 String newHash,
+                                 ServerRequestCallback<String> requestCallback)
+   {
+      JSONArray hunks = new JSONArray();
+      for (TextPatch.Hunk hunk : patch.getHunks())
+      {
+         JSONObject hunkJson = new JSONObject();
+         hunkJson.put("offset", new JSONNumber(hunk.getOffset()));
+         hunkJson.put("length", new JSONNumber(hunk.getLength()));
+         hunkJson.put("replacement", new JSONString(hunk.getReplacement()));
+         hunks.set(hunks.size(), hunkJson);
+      }
+
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(id));
+      params.set(1, path == null ? JSONNull.getInstance() : new JSONString(path));
+      params.set(2, fileType == null ? JSONNull.getInstance() : new JSONString(fileType));
+      params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
+      params.set(4, new JSONString(StringUtil.notNull(foldSpec)));
+      params.set(5, chunkDefs == null ? JSONNull.getInstance() : new JSONObject(chunkDefs));
+      params.set(6, hunks);
+      params.set(7, new JSONString(hash));
+      params.set(8, new JSONNumber(newLength));
+      params.set(9, new JSONString(StringUtil.notNull(newHash)));
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_PATCH, params, requestCallback);
+   }
+
    public void checkForExternalEdit(
          String id,
          ServerRequestCallback<CheckForExternalEditResult> requestCallback)
@@ -2327,6 +2484,22 @@ public class RemoteServer implements Server
                          retryHandler);
    }
 
+   // satellite windows should never stream events (as with getEvents)
+   RpcStreamingRequest streamEvents(int lastEventId)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONNumber(lastEventId));
+      return new RpcStreamingRequest(new RpcRequest(
+            GWT.getHostPageBaseURL() + EVENTS_SCOPE + "/stream_events",
+            "stream_events",
+            params,
+            null,
+            false,
+            null,
+            clientId_,
+            clientVersion_));
+   }
+
    void handleUnauthorizedError()
    {
       // disconnect
@@ -2431,8 +2604,10 @@ public class RemoteServer implements Server
       // back through the main workbench window
       if (Satellite.isCurrentWindowSatellite())
       {
-         sendRequestViaMainWorkbench(scope, method, params, redactLog, cb);
-
+         if (canSendFromSatellite(scope, method))
+            sendRequestFromSatellite(scope, method, params, redactLog, cb);
+         else
+            sendRequestViaMainWorkbench(scope, method, params, redactLog, cb);
       }
       // otherwise just a standard request with single retry
       else
@@ -2457,6 +2632,7 @@ public class RemoteServer implements Server
          {
             // retry one time (passing null as last param ensures there
             // is no retry handler installed)
+            RpcStats.recordRetry(method);
             sendRequest(scope,
                         method, 
                         params, 
@@ -2497,6 +2673,7 @@ public class RemoteServer implements Server
             method,
             params,
             redactLog,
+            requestCallback != null ? requestCallback.getCaller() : null,
             new RpcResponseHandler() 
             {
                @Override
@@ -2508,7 +2685,12 @@ public class RemoteServer implements Server
                       requestCallback.cancelled())
                      return;
                   
-                  if (response.getError() != null)
+                  if (response.getError() != null &&
+                      response.getError().getCode() == RpcError.SUPERSEDED)
+                  {
+                     requestCallback.onCancelled();
+                  }
+                  else if (response.getError() != null)
                   {
                      requestCallback.onError(
                       new RemoteServerError(response.getError()));
@@ -2526,12 +2708,15 @@ public class RemoteServer implements Server
       
    // lowest level sendRequest method -- called from the main workbench
    // in two scenarios: direct internal call and servicing a proxied
-   // request from a satellite window
+   // request from a satellite window. the caller identifies the object
+   // issuing the request (see ServerRequestCallback.getCaller) for the
+   // scheduler, and is null for proxied requests
    private RpcRequest sendRequest(String sourceWindow,
                                   String scope, 
                                   String method, 
                                   JSONArray params,
                                   boolean redactLog,
+                                  Object caller,
                                   final RpcResponseHandler responseHandler,
                                   final RetryHandler retryHandler)
    {      
@@ -2551,18 +2736,30 @@ public class RemoteServer implements Server
                                              sourceWindow,
                                              clientId_,
                                              clientVersion_);
+      rpcRequest.setCaller(caller);
       
       if (isDisconnected())
          return rpcRequest;
 
-      // send the request
-      rpcRequest.send(new RpcRequestCallback() {
+      // send the request (idempotent calls go through the response cache,
+      // and calls which can be batched are handed to the scheduler and then
+      // on to the batcher, which sends them immediately if batching is
+      // disabled)
+      RpcRequestCallback rpcRequestCallback = new RpcRequestCallback() {
          public void onError(RpcRequest request, RpcError error)
          {
             // ignore errors if we are disconnected
             if (isDisconnected())           
                return;
             
+            // superseded requests were never sent so there is nothing to
+            // retry or resolve, just let the caller know
+            if (error.getCode() == RpcError.SUPERSEDED)
+            {
+               responseHandler.onResponseReceived(RpcResponse.create(error));
+               return;
+            }
+            
             // if we have a retry handler then see if we can resolve the
             // error and then retry
             if ( resolveRpcErrorAndRetry(error, retryHandler) )
@@ -2620,12 +2817,26 @@ public class RemoteServer implements Server
                   serverEventListener_.ensureEvents();
             }
          }
-      });
+      };
+      
+      if (scope.equals(RPC_SCOPE) && responseCache_.isIdempotent(method))
+         responseCache_.send(rpcRequest, rpcRequestCallback);
+      else if (isBatchable(scope, method))
+         requestScheduler_.send(rpcRequest, rpcRequestCallback);
+      else
+         rpcRequest.send(rpcRequestCallback);
 
       // return the request
       return rpcRequest;
    }
    
+   // calls outside of the rpc scope and calls which the session handles
+   // specially (outside of normal rpc dispatch) are never batched
+   private boolean isBatchable(String scope, String method)
+   {
+      return scope.equals(RPC_SCOPE) && !UNBATCHABLE_METHODS.contains(method);
+   }
+   
    private void ensureListeningForEvents()
    {
       // don't do this if we are disconnected
@@ -2785,6 +2996,12 @@ public class RemoteServer implements Server
             server.@org.rstudio.studio.client.server.remote.RemoteServer::sendRemoteServerRequest(Lcom/google/gwt/core/client/JavaScriptObject;Ljava/lang/String;Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;ZLcom/google/gwt/core/client/JavaScriptObject;)(sourceWindow, scope, method, params, redactLog, responseCallback);
          }
       ); 
+      
+      // satellites which send requests directly let us know when the
+      // server indicates that there are events pending
+      $wnd.ensureRemoteServerEvents = $entry(function() {
+         server.@org.rstudio.studio.client.server.remote.RemoteServer::ensureEventsForSatellite()();
+      });
    }-*/;
    
    // this code runs in the main workbench and implements the server request
@@ -2796,6 +3013,9 @@ public class RemoteServer implements Server
                                         final boolean redactLog,
                                         final JavaScriptObject responseCallback)
    {  
+      // time spent on our event loop on the satellite's behalf
+      double proxyStart = Duration.currentTimeMillis();
+      
       // get the WindowEx from the sourceWindow
       final WindowEx srcWnd = sourceWindow.<WindowEx>cast();
       
@@ -2809,8 +3029,11 @@ public class RemoteServer implements Server
          @Override
          public void onResponseReceived(RpcResponse response)
          {
+            double start = Duration.currentTimeMillis();
             if (!srcWnd.isClosed())
                performCallback(responseCallback, response);
+            RpcStats.recordProxyTime(method,
+                                     Duration.currentTimeMillis() - start);
          }
          
          public void onError(RpcError error)
@@ -2835,11 +3058,13 @@ public class RemoteServer implements Server
          {
             // retry one time (passing null as last param ensures there
             // is no retry handler installed)
+            RpcStats.recordRetry(method);
             sendRequest(getSourceWindowName(sourceWindow),
                         scope, 
                         method, 
                         jsonParams, 
                         redactLog, 
+                        null,
                         responseHandler, 
                         null);
          }   
@@ -2857,14 +3082,167 @@ public class RemoteServer implements Server
                   method, 
                   jsonParams, 
                   redactLog, 
+                  null,
                   responseHandler, 
                   retryHandler);
+      
+      RpcStats.recordProxiedCall(method,
+                                 Duration.currentTimeMillis() - proxyStart);
+   }
+   
+   private void ensureEventsForSatellite()
+   {
+      ensureListeningForEvents();
+      if (listeningForEvents_)
+         serverEventListener_.ensureEvents();
    }
    
    private native String getSourceWindowName(JavaScriptObject sourceWindow) /*-{
       return sourceWindow.RStudioSatelliteName;
    }-*/;
    
+   // satellites send most rpc requests to the server themselves (rather
+   // than proxying them through the main workbench, which costs two
+   // cross-window calls plus time on the main window's event loop). 
+   // requests which need to be coordinated with the main workbench are
+   // still proxied: methods which return an async handle (their completion
+   // is delivered via the main workbench's event stream) and the methods
+   // handled specially by the session (client_init, console input, etc.)
+   private boolean canSendFromSatellite(String scope, String method)
+   {
+      if (satelliteDirectDisabled_ || !scope.equals(RPC_SCOPE))
+         return false;
+      
+      if (UNBATCHABLE_METHODS.contains(method) ||
+          SATELLITE_PROXIED_METHODS.contains(method))
+      {
+         return false;
+      }
+      
+      SessionInfo sessionInfo = session_.getSessionInfo();
+      if (sessionInfo == null || sessionInfo.getClientId() == null)
+         return false;
+      
+      return pUIPrefs_.get().satelliteDirectRpc().getValue();
+   }
+   
+   private <T> void sendRequestFromSatellite(
+                                final String scope,
+                                final String method,
+                                final JSONArray params,
+                                final boolean redactLog,
+                                final ServerRequestCallback<T> requestCallback)
+   {
+      SessionInfo sessionInfo = session_.getSessionInfo();
+      RpcRequest rpcRequest = new RpcRequest(
+                                 getApplicationURL(scope) + "/" + method,
+                                 method,
+                                 params,
+                                 null,
+                                 redactLog,
+                                 getSatelliteWindowName(),
+                                 sessionInfo.getClientId(),
+                                 sessionInfo.getClientVersion());
+      
+      rpcRequest.send(new RpcRequestCallback() {
+         
+         public void onError(RpcRequest request, RpcError error)
+         {
+            if (requestCallback.cancelled())
+               return;
+            
+            // let the main workbench deal with errors where the method
+            // wasn't executed (it will retry, re-authenticate, etc. as
+            // appropriate). after a transmission error we can't know 
+            // whether the server executed the method, so only resend
+            // methods which can safely be executed twice
+            if (error.getCode() != RpcError.TRANSMISSION_ERROR ||
+                Arrays.asList(IDEMPOTENT_METHODS).contains(method))
+            {
+               sendRequestViaMainWorkbench(scope, 
+                                           method, 
+                                           params, 
+                                           redactLog, 
+                                           requestCallback);
+            }
+            else
+            {
+               requestCallback.onError(new RemoteServerError(error));
+            }
+         }
+         
+         public void onResponseReceived(RpcRequest request,
+                                        RpcResponse response)
+         {
+            if (requestCallback.cancelled())
+               return;
+            
+            RpcError error = response.getError();
+            if (error != null && !isMethodError(error))
+            {
+               // session level error (e.g. unauthorized or the main
+               // workbench has a new client id), the main workbench knows
+               // how to resolve these. if our client id is stale then stop
+               // sending requests directly
+               if (error.getCode() == RpcError.INVALID_CLIENT_ID)
+                  satelliteDirectDisabled_ = true;
+               onError(request, error);
+            }
+            else if (error != null)
+            {
+               requestCallback.onError(new RemoteServerError(error));
+            }
+            else if (response.getAsyncHandle() != null)
+            {
+               // async completions are only delivered to the main workbench
+               // so these methods need to be in SATELLITE_PROXIED_METHODS
+               Debug.log("Async method called directly from satellite: " +
+                         method);
+               requestCallback.onError(new RemoteServerError(
+                  RpcError.create(RpcError.EXECUTION_ERROR,
+                                  "Async method " + method + 
+                                  " can't be called from a satellite")));
+            }
+            else
+            {
+               T result = response.<T> getResult();
+               requestCallback.onResponseReceived(result);
+               
+               // events are only received by the main workbench
+               if (eventsPending(response))
+                  ensureEventsViaMainWorkbench();
+            }
+         }
+      });
+   }
+   
+   // errors returned by the method itself (as opposed to errors which
+   // prevented the method from being executed)
+   private static boolean isMethodError(RpcError error)
+   {
+      switch (error.getCode())
+      {
+      case RpcError.METHOD_NOT_FOUND:
+      case RpcError.PARAM_MISSING:
+      case RpcError.PARAM_TYPE_MISMATCH:
+      case RpcError.PARAM_INVALID:
+      case RpcError.METHOD_UNEXEPECTED:
+      case RpcError.EXECUTION_ERROR:
+         return true;
+      default:
+         return false;
+      }
+   }
+   
+   private native String getSatelliteWindowName() /*-{
+      return $wnd.RStudioSatelliteName;
+   }-*/;
+   
+   private native void ensureEventsViaMainWorkbench() /*-{
+      if ($wnd.opener && $wnd.opener.ensureRemoteServerEvents)
+         $wnd.opener.ensureRemoteServerEvents();
+   }-*/;
+   
    // call made from satellite -- this delegates to a native method which
    // sets up a javascript callback and then calls the main workbench
    private <T> void sendRequestViaMainWorkbench(
@@ -4189,7 +4567,7 @@ public class RemoteServer implements Server
       params.set(3, new JSONString(options));
       params.set(4, new JSONString(content));
       sendRequest(RPC_SCOPE,
-            "execute_inline_chunk",
+            EXECUTE_INLINE_CHUNK,
             params,
             requestCallback);
    }
@@ -4205,7 +4583,7 @@ public class RemoteServer implements Server
       params.set(2, new JSONString(contextId));
       params.set(3, new JSONString(requestId));
       sendRequest(RPC_SCOPE,
-            "refresh_chunk_output",
+            REFRESH_CHUNK_OUTPUT,
             params,
             requestCallback);
    }
@@ -4356,6 +4734,23 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, LINT_R_SOURCE_DOCUMENT, params, requestCallback);
    }
    
+   @Override
+   public void lintRSourceRange(String documentId,
+                                String documentPath,
+                                String code,
+                                int startRow,
+                                int rowCount,
+                                ServerRequestCallback<JsArray<LintItem>> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(documentId));
+      params.set(1, new JSONString(documentPath));
+      params.set(2, new JSONString(code));
+      params.set(3, new JSONNumber(startRow));
+      params.set(4, new JSONNumber(rowCount));
+      sendRequest(RPC_SCOPE, LINT_R_SOURCE_RANGE, params, requestCallback);
+   }
+   
    @Override
    public void analyzeProject(ServerRequestCallback<Void> requestCallback)
    {
@@ -4585,6 +4980,11 @@ public class RemoteServer implements Server
    private final RemoteServerEventListener serverEventListener_ ;
 
    private final Provider<ConsoleProcessFactory> pConsoleProcessFactory_;
+   private final Provider<UIPrefs> pUIPrefs_;
+   private final RpcRequestBatcher requestBatcher_;
+   private boolean satelliteDirectDisabled_ = false;
+   private final RpcRequestScheduler requestScheduler_;
+   private final RpcResponseCache responseCache_;
 
    private final Session session_;
    private final EventBus eventBus_;
@@ -4709,6 +5109,7 @@ public class RemoteServer implements Server
    private static final String OPEN_DOCUMENT = "open_document";
    private static final String SAVE_DOCUMENT = "save_document";
    private static final String SAVE_DOCUMENT_DIFF = "save_document_diff";
+   private static final String SAVE_DOCUMENT_PATCH = "save_document_patch";
    private static final String CHECK_FOR_EXTERNAL_EDIT = "check_for_external_edit";
    private static final String IGNORE_EXTERNAL_EDIT = "ignore_external_edit";
    private static final String CLOSE_DOCUMENT = "close_document";
@@ -4733,6 +5134,9 @@ public class RemoteServer implements Server
    
    private static final String GET_ACTIVE_DOCUMENT_CONTEXT_COMPLETED = "get_active_document_context_completed";
 
+   private static final String EXECUTE_INLINE_CHUNK = "execute_inline_chunk";
+   private static final String REFRESH_CHUNK_OUTPUT = "refresh_chunk_output";
+
    private static final String GET_RECENT_HISTORY = "get_recent_history";
    private static final String GET_HISTORY_ITEMS = "get_history_items";
    private static final String REMOVE_HISTORY_ITEMS = "remove_history_items";
@@ -4917,6 +5321,7 @@ public class RemoteServer implements Server
    private static final String GET_PENDING_ACTIONS = "get_pending_actions";
    
    private static final String LINT_R_SOURCE_DOCUMENT = "lint_r_source_document";
+   private static final String LINT_R_SOURCE_RANGE = "lint_r_source_range";
    private static final String ANALYZE_PROJECT = "analyze_project";
    
    private static final String GET_SET_CLASS_CALL = "get_set_class_slots";
@@ -4936,4 +5341,101 @@ public class RemoteServer implements Server
    private static final String STOP_PROFILING = "stop_profiling";
    private static final String OPEN_PROFILE = "open_profile";
    private static final String COPY_PROFILE = "copy_profile";
+   
+   // methods handled specially by the session (waitForMethod, suspend, etc.)
+   // or which do their work after responding (chunk execution and replay),
+   // and which therefore can't be executed as part of a multiplexed request
+   private static final HashSet<String> UNBATCHABLE_METHODS =
+                                                   new HashSet<String>();
+   static
+   {
+      UNBATCHABLE_METHODS.add(CLIENT_INIT);
+      UNBATCHABLE_METHODS.add(QUIT_SESSION);
+      UNBATCHABLE_METHODS.add(SUSPEND_SESSION);
+      UNBATCHABLE_METHODS.add(SUSPEND_FOR_RESTART);
+      UNBATCHABLE_METHODS.add(INTERRUPT);
+      UNBATCHABLE_METHODS.add(CONSOLE_INPUT);
+      UNBATCHABLE_METHODS.add(EDIT_COMPLETED);
+      UNBATCHABLE_METHODS.add(CHOOSE_FILE_COMPLETED);
+      UNBATCHABLE_METHODS.add(LOCATOR_COMPLETED);
+      UNBATCHABLE_METHODS.add(USER_PROMPT_COMPLETED);
+      UNBATCHABLE_METHODS.add(HANDLE_UNSAVED_CHANGES_COMPLETED);
+      UNBATCHABLE_METHODS.add(ASKPASS_COMPLETED);
+      UNBATCHABLE_METHODS.add(GET_ACTIVE_DOCUMENT_CONTEXT_COMPLETED);
+      UNBATCHABLE_METHODS.add(EXECUTE_INLINE_CHUNK);
+      UNBATCHABLE_METHODS.add(REFRESH_CHUNK_OUTPUT);
+   }
+   
+   // methods driven directly by typing/cursor movement which are
+   // dispatched ahead of everything else
+   private static final String[] INTERACTIVE_METHODS = new String[] {
+      GET_COMPLETIONS,
+      GET_DPLYR_JOIN_COMPLETIONS,
+      GET_CPP_COMPLETIONS,
+      GET_ARGS,
+      GET_HELP,
+      GET_HELP_AT_CURSOR,
+      IS_FUNCTION
+   };
+   
+   // interactive methods for which only the most recent queued call
+   // matters (their callers already ignore stale responses)
+   private static final String[] SUPERSEDABLE_METHODS = new String[] {
+      GET_COMPLETIONS,
+      GET_DPLYR_JOIN_COMPLETIONS,
+      GET_CPP_COMPLETIONS,
+      GET_ARGS,
+      GET_HELP
+   };
+   
+   // potentially slow methods with large payloads, which are limited to
+   // a fraction of the available connections
+   private static final String[] BULK_METHODS = new String[] {
+      GIT_DIFF_FILE,
+      GIT_HISTORY,
+      GIT_SHOW,
+      GIT_SHOW_FILE,
+      SVN_DIFF_FILE,
+      SVN_HISTORY,
+      SVN_SHOW,
+      SVN_SHOW_FILE,
+      GET_DEPLOYMENT_FILES,
+      GET_DATA_PREVIEW,
+      GET_OUTPUT_PREVIEW,
+      PREVIEW_DATA_IMPORT,
+      ANALYZE_PROJECT
+   };
+   
+   // methods which satellites always proxy through the main workbench
+   // (these are executed asynchronously by the session, with completion
+   // signaled via an event delivered to the main workbench)
+   private static final HashSet<String> SATELLITE_PROXIED_METHODS =
+                                                   new HashSet<String>();
+   static
+   {
+      SATELLITE_PROXIED_METHODS.add(SVN_HISTORY_COUNT);
+      SATELLITE_PROXIED_METHODS.add(SVN_HISTORY);
+      SATELLITE_PROXIED_METHODS.add(SVN_SHOW);
+      SATELLITE_PROXIED_METHODS.add(SVN_SHOW_FILE);
+      SATELLITE_PROXIED_METHODS.add(PREVIEW_DATA_IMPORT_ASYNC);
+      SATELLITE_PROXIED_METHODS.add(GET_R_ADDINS);
+      SATELLITE_PROXIED_METHODS.add(CHECK_FOR_UPDATES);
+   }
+   
+   // read-only methods whose identical calls can share a response (these
+   // must all be handled synchronously by the session)
+   private static final String[] IDEMPOTENT_METHODS = new String[] {
+      GET_HELP,
+      GET_ARGS,
+      IS_FUNCTION,
+      GET_COMPLETIONS
+   };
+   
+   // idempotent methods whose results also depend on files and documents
+   // (not just on R's state, which invalidates the cache at each prompt).
+   // identical in-flight calls still share a response but responses are
+   // never retained
+   private static final String[] STATE_DEPENDENT_METHODS = new String[] {
+      GET_COMPLETIONS
+   };
 }
@@ -26,7 +26,6 @@ import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
 import org.rstudio.core.client.jsonrpc.RpcResponse;
 import org.rstudio.studio.client.application.events.*;
 import org.rstudio.studio.client.server.ServerError;
-import org.rstudio.studio.client.server.ServerRequestCallback;
 
 import java.util.HashMap;
 
@@ -59,6 +58,9 @@ class RemoteServerEventListener
       listenErrorCount_ = 0;
       isListening_ = false;
       sessionWasQuit_ = false;
+      longPollTransport_ = new LongPollEventTransport(server);
+      streamingTransport_ = new StreamingEventTransport(server);
+      transport_ = longPollTransport_;
       
       // we take the liberty of stopping ourselves if the window is on 
       // the verge of being closed. this allows us to prevent the scenario:
@@ -92,6 +94,18 @@ class RemoteServerEventListener
       });
    }
      
+   // use a streaming transport (when available events are then delivered
+   // as they occur rather than requiring a new request for each batch)
+   public void setStreamingEnabled(boolean enabled)
+   {
+      if (enabled == streamingEnabled_)
+         return;
+      
+      streamingEnabled_ = enabled;
+      if (isListening_)
+         restart();
+   }
+   
    public void start()
    {      
       // start should never be called on a running event listener!
@@ -121,6 +135,10 @@ class RemoteServerEventListener
       // eliminate this scenario then
       lastEventId_ = -1;
       
+      // (re-)select the transport (if we previously fell back to polling
+      // this gives streaming another chance)
+      transport_ = streamingEnabled_ ? streamingTransport_ : longPollTransport_;
+      
       // start listening
       listen();
    }
@@ -129,16 +147,7 @@ class RemoteServerEventListener
    {        
       isListening_ = false;
       listenCount_ = 0;
-      if (activeRequestCallback_ != null)
-      {
-         activeRequestCallback_.cancel();
-         activeRequestCallback_ = null;
-      }
-      if (activeRequest_ != null)
-      {
-         activeRequest_.cancel();
-         activeRequest_ = null;
-      }
+      transport_.stop();
    }
    
    // ensure that we are actively listening for events (used to make 
@@ -247,11 +256,11 @@ class RemoteServerEventListener
       if (!isListening_)
          return;
           
-      // setup request callback (save reference for cancellation)
-      activeRequestCallback_ = new ServerRequestCallback<JsArray<ClientEvent>>() 
+      // setup transport listener
+      ClientEventTransport.Listener listener = new ClientEventTransport.Listener() 
       {
          @Override
-         public void onResponseReceived(JsArray<ClientEvent> events)
+         public void onEvents(JsArray<ClientEvent> events)
          {
             // keep watchdog appraised of successful receipt of events
             watchdog_.notifyResponseReceived();
@@ -277,17 +286,31 @@ class RemoteServerEventListener
                   }   
                }
             }
-            // catch all here to make sure that in all cases we call
-            // listen() again after processing
+            // catch all here to make sure that in all cases we continue
+            // listening after processing
             catch(Throwable e)
             {
                GWT.log("ERROR: Processing client events", e);
             }
-            
+         }
+         
+         @Override
+         public void onCompleted()
+         {
             // listen for more events
-            listen();
+            if (isListening_)
+               listen();
          }
          
+         @Override
+         public void onUnsupported()
+         {
+            // fall back to polling
+            transport_ = longPollTransport_;
+            if (isListening_)
+               listen();
+         }
+
          @Override
          public void onError(ServerError error)
          {           
@@ -334,8 +357,8 @@ class RemoteServerEventListener
          public void onRetry()
          {
             // need to do a full restart to ensure that the existing
-            // activeRequest_ and activeRequestCallback_ are cleaned up
-            // and all state is reset correctly
+            // transport request is cleaned up and all state is reset
+            // correctly
             restart();
          }
          
@@ -349,10 +372,8 @@ class RemoteServerEventListener
          }
       };
       
-      // send request
-      activeRequest_ = server_.getEvents(lastEventId_, 
-                                         activeRequestCallback_,
-                                         retryHandler);                             
+      // listen for events
+      transport_.listen(lastEventId_, listener, retryHandler);
    }
    
    
@@ -487,8 +508,10 @@ class RemoteServerEventListener
    private int listenErrorCount_ ;
    private boolean sessionWasQuit_ ;
    
-   private RpcRequest activeRequest_ ;
-   private ServerRequestCallback<JsArray<ClientEvent>> activeRequestCallback_;
+   private boolean streamingEnabled_ = false;
+   private ClientEventTransport transport_;
+   private final LongPollEventTransport longPollTransport_;
+   private final StreamingEventTransport streamingTransport_;
 
    private final ClientEventDispatcher eventDispatcher_;
    
@@ -0,0 +1,113 @@
+/*
+ * StreamingEventTransport.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RpcError;
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+import org.rstudio.core.client.jsonrpc.RpcStreamingRequest;
+
+import com.google.gwt.core.client.JsArray;
+
+// Receives events from stream_events, to which the server responds with a
+// stream of event batches written as they occur (one json rpc response per
+// line). The server ends the stream periodically, at which point we listen
+// again with the id of the last event seen, exactly as for long polling.
+//
+// Errors are not handled here: rather than duplicating the error handling 
+// (and retry/re-authentication) logic that's applied to get_events, any 
+// failure falls back to long polling, which will then either succeed or 
+// handle the error as usual.
+class StreamingEventTransport implements ClientEventTransport
+{
+   // opens a stream of the events following lastEventId (normally a
+   // stream_events request to the session, but can be a local stub server)
+   interface Source
+   {
+      RpcStreamingRequest streamEvents(int lastEventId);
+   }
+   
+   StreamingEventTransport(final RemoteServer server)
+   {
+      this(new Source()
+      {
+         @Override
+         public RpcStreamingRequest streamEvents(int lastEventId)
+         {
+            return server.streamEvents(lastEventId);
+         }
+      });
+   }
+   
+   StreamingEventTransport(Source source)
+   {
+      source_ = source;
+   }
+   
+   @Override
+   public void listen(int lastEventId, 
+                      final Listener listener,
+                      RetryHandler retryHandler)
+   {
+      stop();
+      
+      activeRequest_ = source_.streamEvents(lastEventId);
+      activeRequest_.send(new RpcStreamingRequest.Callback()
+      {
+         @Override
+         public void onResponse(RpcResponse response)
+         {
+            if (response.getError() != null)
+            {
+               onError(response.getError());
+               return;
+            }
+            
+            JsArray<ClientEvent> events = response.getResult();
+            listener.onEvents(events);
+         }
+         
+         @Override
+         public void onCompleted()
+         {
+            activeRequest_ = null;
+            listener.onCompleted();
+         }
+         
+         @Override
+         public void onError(RpcError error)
+         {
+            Debug.log("Event stream failed (" + error.getMessage() + "), " +
+                      "falling back to polling");
+            stop();
+            listener.onUnsupported();
+         }
+      });
+   }
+   
+   @Override
+   public void stop()
+   {
+      if (activeRequest_ != null)
+      {
+         activeRequest_.cancel();
+         activeRequest_ = null;
+      }
+   }
+   
+   private final Source source_;
+   
+   private RpcStreamingRequest activeRequest_;
+}
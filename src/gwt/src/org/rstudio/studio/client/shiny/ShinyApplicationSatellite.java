@@ -17,6 +17,8 @@ package org.rstudio.studio.client.shiny;
 import org.rstudio.studio.client.application.ApplicationUncaughtExceptionHandler;
 import org.rstudio.studio.client.common.satellite.Satellite;
 import org.rstudio.studio.client.common.satellite.SatelliteApplication;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishButton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.shiny.ui.ShinyApplicationView;
 import org.rstudio.studio.client.workbench.views.source.editors.text.themes.AceThemes;
 
@@ -37,4 +39,19 @@ public class ShinyApplicationSatellite extends SatelliteApplication
    {
       super(NAME, view, satellite, pAceThemes, exHandler);
    }
+   
+   @Override
+   protected String[] getClientEventTypes()
+   {
+      return CLIENT_EVENT_TYPES;
+   }
+   
+   // the events handled by the app viewer and by the publish
+   // button in its toolbar
+   public static final String[] CLIENT_EVENT_TYPES = 
+      combineClientEventTypes(
+         new String[] {
+            ClientEvent.ShinyViewer
+         },
+         RSConnectPublishButton.CLIENT_EVENT_TYPES);
 }
@@ -164,7 +164,7 @@ public class MRUList
       return entryPath;
    }
    
-   protected ArrayList<String> getMruEntries()
+   public ArrayList<String> getMruEntries()
    {
       return mruEntries_;
    }
@@ -0,0 +1,58 @@
+/*
+ * VersionedChangeTracker.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.model;
+
+/**
+ * Tracks changes to a source which increments a version number whenever it
+ * changes. Unlike event based trackers, trackers (and their forks) don't
+ * register handlers with the source, so any number of them can be created
+ * without adding to the cost of a change.
+ */
+public class VersionedChangeTracker implements ChangeTracker
+{
+   public interface Source
+   {
+      int getVersion();
+   }
+
+   public VersionedChangeTracker(Source source)
+   {
+      this(source, source.getVersion());
+   }
+
+   private VersionedChangeTracker(Source source, int version)
+   {
+      source_ = source;
+      version_ = version;
+   }
+
+   public boolean hasChanged()
+   {
+      return source_.getVersion() != version_;
+   }
+
+   public void reset()
+   {
+      version_ = source_.getVersion();
+   }
+
+   public ChangeTracker fork()
+   {
+      return new VersionedChangeTracker(source_, version_);
+   }
+
+   private final Source source_;
+   private int version_;
+}
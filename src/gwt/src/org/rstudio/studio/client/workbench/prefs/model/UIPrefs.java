@@ -448,6 +448,22 @@ public class UIPrefs extends UIPrefsAccessor implements UiPrefsChangedHandler
          // show profiler
          showProfiler().setGlobalValue(
                newUiPrefs.showProfiler().getGlobalValue());
+         
+         // rpc request batching
+         batchRpcRequests().setGlobalValue(
+               newUiPrefs.batchRpcRequests().getGlobalValue());
+         rpcBatchFlushWindowMs().setGlobalValue(
+               newUiPrefs.rpcBatchFlushWindowMs().getGlobalValue());
+         rpcBatchMaxSize().setGlobalValue(
+               newUiPrefs.rpcBatchMaxSize().getGlobalValue());
+         rpcCacheTtlMs().setGlobalValue(
+               newUiPrefs.rpcCacheTtlMs().getGlobalValue());
+         rpcMaxConcurrentRequests().setGlobalValue(
+               newUiPrefs.rpcMaxConcurrentRequests().getGlobalValue());
+         streamClientEvents().setGlobalValue(
+               newUiPrefs.streamClientEvents().getGlobalValue());
+         satelliteDirectRpc().setGlobalValue(
+               newUiPrefs.satelliteDirectRpc().getGlobalValue());
       }
       else if (e.getType().equals(UiPrefsChangedEvent.PROJECT_TYPE))
       {
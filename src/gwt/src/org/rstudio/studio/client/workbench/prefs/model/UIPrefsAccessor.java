@@ -550,6 +550,48 @@ public class UIPrefsAccessor extends Prefs
       return bool("show_profiler", false);
    }
    
+   // the number of lines retained by build and compile output panes (0 to
+   // retain all output)
+   public PrefValue<Integer> compileOutputMaxLines()
+   {
+      return integer("compile_output_max_lines", 0);
+   }
+   
+   public PrefValue<Boolean> batchRpcRequests()
+   {
+      return bool("batch_rpc_requests", false);
+   }
+   
+   public PrefValue<Integer> rpcBatchFlushWindowMs()
+   {
+      return integer("rpc_batch_flush_window_ms", 0);
+   }
+   
+   public PrefValue<Integer> rpcBatchMaxSize()
+   {
+      return integer("rpc_batch_max_size", 20);
+   }
+   
+   public PrefValue<Integer> rpcCacheTtlMs()
+   {
+      return integer("rpc_cache_ttl_ms", 0);
+   }
+   
+   public PrefValue<Integer> rpcMaxConcurrentRequests()
+   {
+      return integer("rpc_max_concurrent_requests", 0);
+   }
+   
+   public PrefValue<Boolean> streamClientEvents()
+   {
+      return bool("stream_client_events", true);
+   }
+   
+   public PrefValue<Boolean> satelliteDirectRpc()
+   {
+      return bool("satellite_direct_rpc", true);
+   }
+   
    private String getDefaultPdfPreview()
    {
       if (Desktop.isDesktop())
@@ -14,6 +14,9 @@
  */
 package org.rstudio.studio.client.workbench.views.console;
 
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyDownHandler;
 import com.google.gwt.user.client.ui.Image;
 import com.google.gwt.user.client.ui.IsWidget;
 import com.google.gwt.user.client.ui.Label;
@@ -23,6 +26,7 @@ import com.google.inject.Provider;
 
 import org.rstudio.core.client.theme.res.ThemeStyles;
 import org.rstudio.core.client.widget.CanFocus;
+import org.rstudio.core.client.widget.FindTextBox;
 import org.rstudio.core.client.widget.SecondaryToolbar;
 import org.rstudio.core.client.widget.Toolbar;
 import org.rstudio.core.client.widget.ToolbarButton;
@@ -104,6 +108,37 @@ public class ConsolePane extends WorkbenchPane
       toolbar.addRightWidget(profilerInterruptButton_);
       toolbar.addRightWidget(consoleInterruptButton_);
       
+      // the browser's find only sees the output which is currently rendered,
+      // so we provide our own find over all of the output
+      findTextBox_ = new FindTextBox("Find in Console");
+      findTextBox_.setOverrideWidth(90);
+      findTextBox_.addKeyDownHandler(new KeyDownHandler()
+      {
+         @Override
+         public void onKeyDown(KeyDownEvent event)
+         {
+            int keyCode = event.getNativeKeyCode();
+            if (keyCode == KeyCodes.KEY_ENTER)
+            {
+               event.preventDefault();
+               String term = findTextBox_.getValue().trim();
+               if (term.length() > 0)
+               {
+                  shell_.getDisplay().findInOutput(term,
+                                                   event.isShiftKeyDown());
+               }
+            }
+            else if (keyCode == KeyCodes.KEY_ESCAPE)
+            {
+               event.preventDefault();
+               findTextBox_.setValue("");
+               focus();
+            }
+         }
+      });
+      toolbar.addRightSeparator();
+      toolbar.addRightWidget(findTextBox_);
+      
       return toolbar;
    }
    
@@ -190,6 +225,7 @@ public class ConsolePane extends WorkbenchPane
    private Shell shell_;
    private Session session_;
    private Label workingDir_;
+   private FindTextBox findTextBox_;
    private ToolbarButton consoleInterruptButton_;
    private Image profilerInterruptButton_;
    private boolean debugMode_;
@@ -58,6 +58,7 @@ import org.rstudio.studio.client.workbench.views.console.shell.assist.HistoryCom
 import org.rstudio.studio.client.workbench.views.console.shell.assist.RCompletionManager;
 import org.rstudio.studio.client.workbench.views.console.shell.editor.InputEditorDisplay;
 import org.rstudio.studio.client.workbench.views.environment.events.DebugModeChangedEvent;
+import org.rstudio.studio.client.workbench.views.history.model.HistoryIndex;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceEditorNative;
 
@@ -86,6 +87,7 @@ public class Shell implements ConsoleInputHandler,
       void onBeforeUnselected();
       void onBeforeSelected();
       void onSelected();
+      boolean findInOutput(String text, boolean backwards);
    }
    
    @Inject
@@ -96,7 +98,8 @@ public class Shell implements ConsoleInputHandler,
                 Commands commands,
                 UIPrefs uiPrefs, 
                 ErrorManager errorManager,
-                ConsoleEditorProvider tracker)
+                ConsoleEditorProvider tracker,
+                HistoryIndex historyIndex)
    {
       super() ;
 
@@ -163,7 +166,7 @@ public class Shell implements ConsoleInputHandler,
       addKeyPressPreviewHandler(completionManager) ;
       
       addKeyDownPreviewHandler(new HistoryCompletionManager(
-            view_.getInputEditorDisplay(), server));
+            view_.getInputEditorDisplay(), historyIndex));
 
       AceEditorNative.syncUiPrefs(uiPrefs);
 
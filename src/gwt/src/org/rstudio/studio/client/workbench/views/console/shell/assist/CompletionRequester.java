@@ -235,7 +235,7 @@ public class CompletionRequester
             token,
             string,
             cursorPos,
-            new ServerRequestCallback<Completions>() {
+            new ServerRequestCallback<Completions>(this) {
                
                @Override
                public void onResponseReceived(Completions response)
@@ -270,7 +270,7 @@ public class CompletionRequester
             joinContext.getRightData(),
             joinContext.getVerb(),
             joinContext.getCursorPos(),
-            new ServerRequestCallback<Completions>() {
+            new ServerRequestCallback<Completions>(this) {
 
                @Override
                public void onError(ServerError error)
@@ -364,7 +364,7 @@ public class CompletionRequester
             chainExcludeArgsFromObject,
             filePath,
             documentId,
-            new ServerRequestCallback<Completions>()
+            new ServerRequestCallback<Completions>(this)
       {
          @Override
          public void onError(ServerError error)
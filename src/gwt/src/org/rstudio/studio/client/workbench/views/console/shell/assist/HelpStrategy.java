@@ -85,7 +85,7 @@ public class HelpStrategy
       server_.getHelp(selectedItem.name,
                       selectedItem.source,
                       selectedItem.type,
-                      new ServerRequestCallback<HelpInfo>() {
+                      new ServerRequestCallback<HelpInfo>(this) {
          @Override
          public void onError(ServerError error)
          {
@@ -129,7 +129,7 @@ public class HelpStrategy
          server_.getHelp(selectedItem.source,
                          null,
                          selectedItem.type,
-                         new ServerRequestCallback<HelpInfo>() {
+                         new ServerRequestCallback<HelpInfo>(this) {
             @Override
             public void onError(ServerError error)
             {
@@ -201,7 +201,7 @@ public class HelpStrategy
             selectedItem.name,
             selectedItem.source,
             selectedItem.type,
-            new ServerRequestCallback<HelpInfo>() {
+            new ServerRequestCallback<HelpInfo>(this) {
          
          @Override
          public void onError(ServerError error)
@@ -258,7 +258,7 @@ public class HelpStrategy
             packageName,
             null,
             selectedItem.type,
-            new ServerRequestCallback<HelpInfo>() {
+            new ServerRequestCallback<HelpInfo>(this) {
          
          @Override
          public void onError(ServerError error)
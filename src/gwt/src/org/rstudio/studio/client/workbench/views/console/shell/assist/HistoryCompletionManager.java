@@ -20,27 +20,29 @@ import com.google.gwt.event.logical.shared.CloseEvent;
 import com.google.gwt.event.logical.shared.CloseHandler;
 import com.google.gwt.user.client.ui.PopupPanel;
 import com.google.gwt.user.client.ui.PopupPanel.PositionCallback;
+
 import org.rstudio.core.client.Invalidation;
 import org.rstudio.core.client.Invalidation.Token;
 import org.rstudio.core.client.Rectangle;
 import org.rstudio.core.client.events.SelectionCommitEvent;
 import org.rstudio.core.client.events.SelectionCommitHandler;
-import org.rstudio.core.client.jsonrpc.RpcObjectList;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.workbench.views.console.shell.KeyDownPreviewHandler;
 import org.rstudio.studio.client.workbench.views.console.shell.KeyPressPreviewHandler;
 import org.rstudio.studio.client.workbench.views.console.shell.editor.InputEditorDisplay;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
-import org.rstudio.studio.client.workbench.views.history.model.HistoryServerOperations;
+import org.rstudio.studio.client.workbench.views.history.model.HistoryIndex;
+
+import java.util.ArrayList;
 
 public class HistoryCompletionManager implements KeyDownPreviewHandler,
                                                  KeyPressPreviewHandler
 {
    public HistoryCompletionManager(InputEditorDisplay input,
-                                   HistoryServerOperations server)
+                                   HistoryIndex historyIndex)
    {
       input_ = input;
-      server_ = server;
+      historyIndex_ = historyIndex;
    }
 
    public boolean previewKeyDown(NativeEvent event)
@@ -125,24 +127,24 @@ public class HistoryCompletionManager implements KeyDownPreviewHandler,
       final Token token = historyRequestInvalidation_.getInvalidationToken();
 
       String value = input_.getText();
-      server_.searchHistoryArchiveByPrefix(
+      historyIndex_.searchByPrefix(
             value, 20, true,
-            new SimpleRequestCallback<RpcObjectList<HistoryEntry>>()
+            new SimpleRequestCallback<ArrayList<HistoryEntry>>()
             {
                @Override
-               public void onResponseReceived(RpcObjectList<HistoryEntry> resp)
+               public void onResponseReceived(ArrayList<HistoryEntry> resp)
                {
                   if (token.isInvalid())
                      return;
 
-                  if (resp.length() == 0)
+                  if (resp.size() == 0)
                   {
                      popup_ = new CompletionListPopupPanel(new String[0]);
                      popup_.setText("(No matching commands)");
                   }
                   else
                   {
-                     String[] entries = new String[resp.length()];
+                     String[] entries = new String[resp.size()];
                      for (int i = 0; i < entries.length; i++)
                         entries[i] = resp.get(entries.length - i - 1).getCommand();
                      popup_ = new CompletionListPopupPanel(entries);
@@ -193,6 +195,6 @@ public class HistoryCompletionManager implements KeyDownPreviewHandler,
 
    private CompletionListPopupPanel popup_;
    private final InputEditorDisplay input_;
-   private final HistoryServerOperations server_;
+   private final HistoryIndex historyIndex_;
    private final Invalidation historyRequestInvalidation_ = new Invalidation();
 }
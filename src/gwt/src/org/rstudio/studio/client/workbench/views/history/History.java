@@ -60,6 +60,7 @@ import org.rstudio.studio.client.workbench.views.history.events.FetchCommandsHan
 import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedEvent;
 import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedHandler;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
+import org.rstudio.studio.client.workbench.views.history.model.HistoryIndex;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryServerOperations;
 import org.rstudio.studio.client.workbench.views.source.events.InsertSourceEvent;
 
@@ -152,18 +153,21 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
          final String query = searchQuery_;
          if (searchQuery_ != null && searchQuery_.length() > 0)
          {
-            server_.searchHistoryArchive(
+            historyIndex_.search(
                   searchQuery_, COMMAND_CHUNK_SIZE,
-                  new SimpleRequestCallback<RpcObjectList<HistoryEntry>>()
+                  new SimpleRequestCallback<ArrayList<HistoryEntry>>()
                   {
                      @Override
                      public void onResponseReceived(
-                           RpcObjectList<HistoryEntry> response)
+                           ArrayList<HistoryEntry> entries)
                      {
                         if (!query.equals(searchQuery_))
                            return;
 
-                        ArrayList<HistoryEntry> entries = toList(response);
+                        // follow the exact matches with approximate ones
+                        int remaining = COMMAND_CHUNK_SIZE - entries.size();
+                        entries.addAll(
+                              historyIndex_.searchFuzzy(query, remaining));
                         view_.showSearchResults(query, entries);
                      }
                   });
@@ -196,6 +200,7 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
    @Inject
    public History(final Display view,
                   HistoryServerOperations server,
+                  HistoryIndex historyIndex,
                   final GlobalDisplay globalDisplay,
                   ConsoleDispatcher consoleDispatcher,
                   EventBus events,
@@ -217,6 +222,7 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
       view_.addFetchCommandsHandler(this);
 
       server_ = server;
+      historyIndex_ = historyIndex;
       events_.addHandler(ConsoleResetHistoryEvent.TYPE, new ConsoleResetHistoryHandler()
       {
          @Override
@@ -678,6 +684,7 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
    private final GlobalDisplay globalDisplay_;
    private final SearchCommand searchCommand_;
    private HistoryServerOperations server_;
+   private final HistoryIndex historyIndex_;
    private final Session session_;
    private final ConsoleDispatcher consoleDispatcher_;
 }
@@ -31,6 +31,16 @@ public class HistoryEntry extends JavaScriptObject
       entry.command = command;
       return entry;
    }-*/;
+
+   public static final native HistoryEntry create(double index,
+                                                  double timestamp,
+                                                  String command) /*-{
+      var entry = new Object();
+      entry.index = index;
+      entry.timestamp = timestamp;
+      entry.command = command;
+      return entry;
+   }-*/;
    
    public final long getIndex()
    { 
@@ -0,0 +1,511 @@
+/*
+ * HistoryIndex.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.history.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.rstudio.core.client.jsonrpc.RpcObjectList;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedEvent;
+import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedHandler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Client-side index of the most recent entries in the history archive, so
+ * that history searches can be answered without a round trip to the server.
+ *
+ * The index is seeded from the archive on first use and then kept current
+ * from HistoryEntriesAddedEvent. Searches which can't be answered from the
+ * local window (because there may be older matching entries) fall back to
+ * the server; the archive results of the last such search are kept, so
+ * refining a query (e.g. typing more characters) is answered locally too.
+ */
+@Singleton
+public class HistoryIndex implements HistoryEntriesAddedHandler
+{
+   @Inject
+   public HistoryIndex(HistoryServerOperations server, EventBus events)
+   {
+      server_ = server;
+      events.addHandler(HistoryEntriesAddedEvent.TYPE, this);
+   }
+
+   /*
+    * search - find entries containing all of the terms in the query (using
+    * the same tokenization as the server), newest first
+    */
+   public void search(String query,
+                      int maxEntries,
+                      ServerRequestCallback<ArrayList<HistoryEntry>> callback)
+   {
+      search(new TermsQuery(query), maxEntries, false, callback);
+   }
+
+   /*
+    * searchByPrefix - find entries which start with the (trimmed) prefix,
+    * newest first
+    */
+   public void searchByPrefix(
+                      String prefix,
+                      int maxEntries,
+                      boolean uniqueOnly,
+                      ServerRequestCallback<ArrayList<HistoryEntry>> callback)
+   {
+      search(new PrefixQuery(prefix), maxEntries, uniqueOnly, callback);
+   }
+
+   /*
+    * searchFuzzy - find entries in the local window which contain the
+    * characters of the query in order (ignoring case and whitespace) but
+    * which aren't exact matches for it, best matches first
+    */
+   public ArrayList<HistoryEntry> searchFuzzy(String query, int maxEntries)
+   {
+      ArrayList<HistoryEntry> results = new ArrayList<HistoryEntry>();
+      String pattern = query.replaceAll("\\s+", "").toLowerCase();
+      if (pattern.length() < MIN_FUZZY_LENGTH || maxEntries <= 0)
+         return results;
+
+      TermsQuery exact = new TermsQuery(query);
+      ArrayList<FuzzyMatch> matches = new ArrayList<FuzzyMatch>();
+      for (int i = entries_.size() - 1; i >= 0; i--)
+      {
+         HistoryEntry entry = entries_.get(i);
+         if (exact.matches(entry.getCommand()))
+            continue;
+
+         int score = fuzzyScore(lowerCommands_.get(i), pattern);
+         if (score >= 0)
+            matches.add(new FuzzyMatch(entry, score));
+      }
+
+      // the sort is stable, so equally good matches stay newest first
+      Collections.sort(matches, new Comparator<FuzzyMatch>()
+      {
+         @Override
+         public int compare(FuzzyMatch a, FuzzyMatch b)
+         {
+            return b.score - a.score;
+         }
+      });
+
+      for (int i = 0; i < matches.size() && i < maxEntries; i++)
+         results.add(matches.get(i).entry);
+      return results;
+   }
+
+   @Override
+   public void onHistoryEntriesAdded(HistoryEntriesAddedEvent event)
+   {
+      if (seeding_)
+      {
+         // we can't tell whether these will be in the seed, so discard it
+         // when it arrives
+         stale_ = true;
+         return;
+      }
+
+      if (!seeded_)
+         return;
+
+      // the event carries console history indexes; entries are appended to
+      // the archive in the same order, so continue its numbering
+      double now = new Date().getTime();
+      RpcObjectList<HistoryEntry> entries = event.getEntries();
+      for (int i = 0; i < entries.length(); i++)
+      {
+         add(HistoryEntry.create(nextIndex_++,
+                                 now,
+                                 entries.get(i).getCommand()));
+      }
+      enforceWindowSize();
+   }
+
+   private void search(
+                final Query query,
+                final int maxEntries,
+                final boolean uniqueOnly,
+                final ServerRequestCallback<ArrayList<HistoryEntry>> callback)
+   {
+      ensureSeeded();
+
+      ArrayList<HistoryEntry> local = new ArrayList<HistoryEntry>();
+      for (int i = entries_.size() - 1; i >= 0; i--)
+      {
+         HistoryEntry entry = entries_.get(i);
+         if (query.matches(entry.getCommand()))
+            local.add(entry);
+      }
+      local = limit(local, maxEntries, uniqueOnly);
+
+      if (local.size() >= maxEntries || (seeded_ && complete_))
+      {
+         callback.onResponseReceived(local);
+         return;
+      }
+
+      // if every match for this query was also a match for the last query
+      // sent to the server, and that query returned all of its matches, the
+      // older entries we need are among its results
+      if (seeded_ &&
+          archiveQuery_ != null &&
+          archiveUniqueOnly_ == uniqueOnly &&
+          query.refines(archiveQuery_))
+      {
+         callback.onResponseReceived(
+               merge(local, archiveEntries_, query, maxEntries, uniqueOnly));
+         return;
+      }
+
+      final ArrayList<HistoryEntry> localEntries = local;
+      ServerRequestCallback<RpcObjectList<HistoryEntry>> serverCallback =
+            new ServerRequestCallback<RpcObjectList<HistoryEntry>>()
+      {
+         @Override
+         public void onResponseReceived(RpcObjectList<HistoryEntry> response)
+         {
+            ArrayList<HistoryEntry> archive = new ArrayList<HistoryEntry>();
+            for (int i = 0; i < response.length(); i++)
+               archive.add(response.get(i));
+
+            if (archive.size() < maxEntries)
+            {
+               archiveQuery_ = query;
+               archiveUniqueOnly_ = uniqueOnly;
+               archiveEntries_ = archive;
+            }
+
+            callback.onResponseReceived(
+                  merge(localEntries, archive, query, maxEntries, uniqueOnly));
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            callback.onError(error);
+         }
+      };
+
+      if (query instanceof PrefixQuery)
+      {
+         server_.searchHistoryArchiveByPrefix(query.getText(),
+                                              maxEntries,
+                                              uniqueOnly,
+                                              serverCallback);
+      }
+      else
+      {
+         server_.searchHistoryArchive(query.getText(),
+                                      maxEntries,
+                                      serverCallback);
+      }
+   }
+
+   private void ensureSeeded()
+   {
+      if (seeded_ || seeding_)
+         return;
+
+      seeding_ = true;
+      stale_ = false;
+
+      // an empty query matches every entry, so this returns the newest
+      // entries in the archive (newest first)
+      server_.searchHistoryArchive(
+            "",
+            WINDOW_SIZE,
+            new ServerRequestCallback<RpcObjectList<HistoryEntry>>()
+      {
+         @Override
+         public void onResponseReceived(RpcObjectList<HistoryEntry> response)
+         {
+            seeding_ = false;
+            if (stale_)
+               return;
+
+            entries_.clear();
+            lowerCommands_.clear();
+            for (int i = response.length() - 1; i >= 0; i--)
+               add(response.get(i));
+
+            nextIndex_ = response.length() > 0 ?
+                         response.get(0).getIndex() + 1 : 0;
+            complete_ = response.length() < WINDOW_SIZE;
+            seeded_ = true;
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            // searches continue to go to the server; seeding will be
+            // retried on the next one
+            seeding_ = false;
+         }
+      });
+   }
+
+   private void add(HistoryEntry entry)
+   {
+      entries_.add(entry);
+      lowerCommands_.add(entry.getCommand().toLowerCase());
+   }
+
+   private void enforceWindowSize()
+   {
+      // trim in chunks rather than on every addition
+      if (entries_.size() <= WINDOW_SIZE + WINDOW_SIZE / 10)
+         return;
+
+      int excess = entries_.size() - WINDOW_SIZE;
+      entries_.subList(0, excess).clear();
+      lowerCommands_.subList(0, excess).clear();
+      complete_ = false;
+
+      // the archive results may rely on entries which are no longer local
+      archiveQuery_ = null;
+      archiveEntries_ = null;
+   }
+
+   // combines local and archive results (which may overlap), newest first
+   private static ArrayList<HistoryEntry> merge(
+                                          ArrayList<HistoryEntry> local,
+                                          ArrayList<HistoryEntry> archive,
+                                          Query query,
+                                          int maxEntries,
+                                          boolean uniqueOnly)
+   {
+      ArrayList<HistoryEntry> merged = new ArrayList<HistoryEntry>(local);
+      for (HistoryEntry entry : archive)
+      {
+         if (query.matches(entry.getCommand()))
+            merged.add(entry);
+      }
+
+      Collections.sort(merged, new Comparator<HistoryEntry>()
+      {
+         @Override
+         public int compare(HistoryEntry a, HistoryEntry b)
+         {
+            return Long.signum(b.getIndex() - a.getIndex());
+         }
+      });
+
+      ArrayList<HistoryEntry> results = new ArrayList<HistoryEntry>();
+      long lastIndex = -1;
+      for (HistoryEntry entry : merged)
+      {
+         if (entry.getIndex() == lastIndex)
+            continue;
+         lastIndex = entry.getIndex();
+         results.add(entry);
+      }
+      return limit(results, maxEntries, uniqueOnly);
+   }
+
+   private static ArrayList<HistoryEntry> limit(
+                                          ArrayList<HistoryEntry> entries,
+                                          int maxEntries,
+                                          boolean uniqueOnly)
+   {
+      ArrayList<HistoryEntry> results = new ArrayList<HistoryEntry>();
+      HashSet<String> commands = new HashSet<String>();
+      for (HistoryEntry entry : entries)
+      {
+         if (results.size() >= maxEntries)
+            break;
+         if (uniqueOnly && !commands.add(entry.getCommand()))
+            continue;
+         results.add(entry);
+      }
+      return results;
+   }
+
+   // scores a subsequence match of the pattern in the text, favoring
+   // consecutive characters and matches at the start of words; returns -1
+   // if the pattern isn't a subsequence of the text
+   private static int fuzzyScore(String text, String pattern)
+   {
+      int score = 0;
+      int run = 0;
+      int matched = 0;
+      for (int i = 0; i < text.length() && matched < pattern.length(); i++)
+      {
+         if (text.charAt(i) != pattern.charAt(matched))
+         {
+            run = 0;
+            continue;
+         }
+
+         run++;
+         score += run;
+         if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+            score += 2;
+         matched++;
+      }
+      return matched == pattern.length() ? score : -1;
+   }
+
+   private abstract static class Query
+   {
+      public abstract String getText();
+
+      public abstract boolean matches(String command);
+
+      // true if every command matching this query also matches the other
+      public abstract boolean refines(Query other);
+   }
+
+   private static class TermsQuery extends Query
+   {
+      public TermsQuery(String text)
+      {
+         text_ = text;
+
+         // split on whitespace, with punctuation characters as separate
+         // terms (as boost::char_separator does on the server)
+         int start = -1;
+         for (int i = 0; i < text.length(); i++)
+         {
+            char c = text.charAt(i);
+            boolean punct = c > ' ' && c < 127 && !Character.isLetterOrDigit(c);
+            if (c <= ' ' || punct)
+            {
+               if (start >= 0)
+                  terms_.add(text.substring(start, i));
+               start = -1;
+               if (punct)
+                  terms_.add(String.valueOf(c));
+            }
+            else if (start < 0)
+            {
+               start = i;
+            }
+         }
+         if (start >= 0)
+            terms_.add(text.substring(start));
+      }
+
+      @Override
+      public String getText()
+      {
+         return text_;
+      }
+
+      @Override
+      public boolean matches(String command)
+      {
+         for (String term : terms_)
+         {
+            if (command.indexOf(term) == -1)
+               return false;
+         }
+         return true;
+      }
+
+      @Override
+      public boolean refines(Query other)
+      {
+         if (!(other instanceof TermsQuery))
+            return false;
+
+         // each of the other query's terms must be within one of ours
+         for (String otherTerm : ((TermsQuery) other).terms_)
+         {
+            boolean found = false;
+            for (String term : terms_)
+            {
+               if (term.indexOf(otherTerm) != -1)
+               {
+                  found = true;
+                  break;
+               }
+            }
+            if (!found)
+               return false;
+         }
+         return true;
+      }
+
+      private final String text_;
+      private final ArrayList<String> terms_ = new ArrayList<String>();
+   }
+
+   private static class PrefixQuery extends Query
+   {
+      public PrefixQuery(String prefix)
+      {
+         prefix_ = prefix.trim();
+      }
+
+      @Override
+      public String getText()
+      {
+         return prefix_;
+      }
+
+      @Override
+      public boolean matches(String command)
+      {
+         return command.startsWith(prefix_);
+      }
+
+      @Override
+      public boolean refines(Query other)
+      {
+         return other instanceof PrefixQuery &&
+                prefix_.startsWith(((PrefixQuery) other).prefix_);
+      }
+
+      private final String prefix_;
+   }
+
+   private static class FuzzyMatch
+   {
+      public FuzzyMatch(HistoryEntry entry, int score)
+      {
+         this.entry = entry;
+         this.score = score;
+      }
+
+      public final HistoryEntry entry;
+      public final int score;
+   }
+
+   // the number of most recent archive entries kept locally
+   private static final int WINDOW_SIZE = 1000;
+   private static final int MIN_FUZZY_LENGTH = 3;
+
+   private final HistoryServerOperations server_;
+   private final ArrayList<HistoryEntry> entries_ =
+                                          new ArrayList<HistoryEntry>();
+   private final ArrayList<String> lowerCommands_ = new ArrayList<String>();
+   private long nextIndex_ = 0;
+   private boolean seeded_ = false;
+   private boolean seeding_ = false;
+   private boolean stale_ = false;
+   private boolean complete_ = false;
+
+   private Query archiveQuery_ = null;
+   private boolean archiveUniqueOnly_ = false;
+   private ArrayList<HistoryEntry> archiveEntries_ = null;
+}
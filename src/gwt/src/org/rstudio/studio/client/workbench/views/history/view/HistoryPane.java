@@ -19,7 +19,6 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.Style.Unit;
-import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.event.shared.GwtEvent;
@@ -155,6 +154,7 @@ public class HistoryPane extends WorkbenchPane
       recentScrollPanel_.getElement().getStyle().setProperty("overflowX", "hidden");
       recentScrollPanel_.setWidget(vpanel);
       commandList_.setOwningScrollPanel(recentScrollPanel_);
+      commandList_.enableVirtualization();
 
       mainPanel_.add(recentScrollPanel_);
       mainPanel_.setWidgetTopBottom(recentScrollPanel_, 0, Unit.PX, 0, Unit.PX);
@@ -409,18 +409,22 @@ public class HistoryPane extends WorkbenchPane
 
    public void addRecentCommands(ArrayList<HistoryEntry> entries, boolean top)
    {
-      TableRowElement topRow = null;
-      if (top)
-         topRow = commandList_.getTopRow();
+      boolean empty = commandList_.getRowCount() == 0;
+      Element scrollEl = recentScrollPanel_.getElement();
+      int scrollHeight = scrollEl.getScrollHeight();
 
       commandList_.addItems(entries, top);
 
       if (top)
       {
-         if (topRow == null)
+         // keep the existing commands in place as the earlier ones are
+         // added above them
+         if (empty)
             recentScrollPanel_.scrollToBottom();
          else
-            recentScrollPanel_.setVerticalScrollPosition(topRow.getOffsetTop());
+            recentScrollPanel_.setVerticalScrollPosition(
+                  recentScrollPanel_.getVerticalScrollPosition() +
+                  scrollEl.getScrollHeight() - scrollHeight);
       }
       else
          recentScrollPanel_.onContentSizeChanged();
@@ -16,6 +16,7 @@ package org.rstudio.studio.client.workbench.views.output.lint;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.Invalidation;
+import org.rstudio.core.client.jsonrpc.RpcStats;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.RetinaStyleInjector;
@@ -30,11 +31,14 @@ import org.rstudio.studio.client.workbench.views.presentation.events.SourceFileS
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceEditorNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Range;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionContext;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionOperation;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionRequest;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.model.CppDiagnostic;
 
 import com.google.gwt.core.client.JsArray;
@@ -54,13 +58,16 @@ public class LintManager
                          Position cursorPosition,
                          boolean showMarkers,
                          boolean explicit,
-                         boolean excludeCurrentStatement)
+                         boolean excludeCurrentStatement,
+                         int documentVersion)
       {
          this.cursorPosition = cursorPosition;
          this.token = token;
          this.showMarkers = showMarkers;
          this.explicit = explicit;
          this.excludeCurrentStatement = excludeCurrentStatement;
+         this.documentVersion = documentVersion;
+         this.startTime = System.currentTimeMillis();
       }
       
       public final Invalidation.Token token;
@@ -68,6 +75,8 @@ public class LintManager
       public final boolean showMarkers;
       public final boolean explicit;
       public final boolean excludeCurrentStatement;
+      public final int documentVersion;
+      public final double startTime;
    }
    
    private void reset()
@@ -114,12 +123,24 @@ public class LintManager
                   docDisplay_.getCursorPosition(),
                   showMarkers_,
                   explicit_,
-                  excludeCurrentStatement_);
+                  excludeCurrentStatement_,
+                  docDisplay_.getDocumentVersion());
             reset();
             lintActiveDocument(context);
          }
       };
       
+      // Track the rows edited since the document was last linted, so that
+      // background diagnostics only need to look at the code around them
+      docDisplay_.addDocumentChangedHandler(new DocumentChangedEvent.Handler()
+      {
+         @Override
+         public void onDocumentChanged(DocumentChangedEvent event)
+         {
+            recordEdit(event.getEvent());
+         }
+      });
+      
       // Background linting
       docDisplay_.addValueChangeHandler(new ValueChangeHandler<Void>()
       {
@@ -183,6 +204,24 @@ public class LintManager
       if (target_.getPath() == null)
          return;
       
+      // background diagnostics for R scripts only re-lint the top-level
+      // expressions which were edited, using the editor's (unsaved) code
+      if (canLintRange(context))
+      {
+         Range range = docDisplay_.getTopLevelExpressionRange(dirtyStartRow_,
+                                                             dirtyEndRow_);
+         if (range != null && !coversDocument(range))
+         {
+            performRangeLintServerRequest(context, range);
+            return;
+         }
+      }
+      
+      lintDocument(context);
+   }
+   
+   private void lintDocument(final LintContext context)
+   {
       if (context.showMarkers)
       {
          target_.saveThenExecute(null, new Command()
@@ -207,6 +246,21 @@ public class LintManager
       }
    }
 
+   private boolean canLintRange(LintContext context)
+   {
+      return !context.explicit &&
+             !context.showMarkers &&
+             hasDocumentLint_ &&
+             dirtyStartRow_ != -1 &&
+             target_.getTextFileType().isR();
+   }
+   
+   private boolean coversDocument(Range range)
+   {
+      return range.getStart().getRow() == 0 &&
+             range.getEnd().getRow() >= docDisplay_.getRowCount() - 1;
+   }
+   
    private void performLintServerRequest(final LintContext context)
    {
       if (context.token.isInvalid())
@@ -258,12 +312,14 @@ public class LintManager
                                  allLint.push(cppLint.get(i));
                               for (int i = 0; i < rLint.length(); i++)
                                  allLint.push(rLint.get(i));
-                              showLint(context, allLint);
+                              recordLintTime(context, "document", false);
+                              showLint(context, allLint, null);
                            }
 
                            @Override
                            public void onError(ServerError error)
                            {
+                              recordLintTime(context, "document", true);
                               Debug.logError(error);
                            }
                         });
@@ -292,26 +348,147 @@ public class LintManager
                @Override
                public void onResponseReceived(JsArray<LintItem> lint)
                {
+                  recordLintTime(context, "document", false);
                   if (context.token.isInvalid())
                      return;
 
-                  showLint(context, lint);
+                  showLint(context, lint, null);
                }
 
                @Override
                public void onError(ServerError error)
                {
+                  recordLintTime(context, "document", true);
+                  Debug.logError(error);
+               }
+            });
+   }
+   
+   private void performRangeLintServerRequest(final LintContext context,
+                                              final Range range)
+   {
+      final int startRow = range.getStart().getRow();
+      final String code = docDisplay_.getCode(range.getStart(),
+                                              range.getEnd());
+      
+      server_.lintRSourceRange(
+            target_.getId(),
+            target_.getPath(),
+            code,
+            startRow,
+            docDisplay_.getRowCount(),
+            new ServerRequestCallback<JsArray<LintItem>>()
+            {
+               @Override
+               public void onResponseReceived(JsArray<LintItem> lint)
+               {
+                  recordLintTime(context, "range", false);
+                  
+                  if (context.token.isInvalid())
+                     return;
+                  
+                  // the server can't lint the range on its own (e.g. it
+                  // hasn't seen the whole document since it restarted)
+                  if (lint == null)
+                  {
+                     lintDocument(context);
+                     return;
+                  }
+                  
+                  showLint(context, lint, range);
+               }
+               
+               @Override
+               public void onError(ServerError error)
+               {
+                  recordLintTime(context, "range", true);
                   Debug.logError(error);
                }
             });
    }
    
+   // Extends the rows needing lint to cover an edit, moving them along with
+   // any rows inserted or removed above them.
+   private void recordEdit(AceDocumentChangeEventNative event)
+   {
+      Range range = event.getRange();
+      int row = range.getStart().getRow();
+      int rows = range.getEnd().getRow() - row;
+      boolean insertion = event.isInsertion();
+      
+      if (dirtyStartRow_ == -1)
+      {
+         dirtyStartRow_ = row;
+         dirtyEndRow_ = row;
+      }
+      else
+      {
+         dirtyStartRow_ = Math.min(row,
+               shiftRow(dirtyStartRow_, row, rows, insertion));
+         dirtyEndRow_ = shiftRow(dirtyEndRow_, row, rows, insertion);
+      }
+      
+      if (insertion)
+         dirtyEndRow_ = Math.max(dirtyEndRow_, row + rows);
+      else
+         dirtyEndRow_ = Math.max(dirtyEndRow_, row);
+   }
+   
+   private static int shiftRow(int row,
+                               int editRow,
+                               int rows,
+                               boolean insertion)
+   {
+      if (row <= editRow)
+         return row;
+      else if (insertion)
+         return row + rows;
+      else
+         return Math.max(editRow, row - rows);
+   }
+   
+   // Records the time taken from the lint being requested to its results
+   // arriving (including any save of the document) alongside the rpc stats,
+   // by the size of the document, so that the cost of whole document and
+   // range lint can be compared in Help > Diagnostics.
+   private void recordLintTime(LintContext context,
+                               String scope,
+                               boolean error)
+   {
+      int rows = docDisplay_.getRowCount();
+      String size;
+      if (rows < 500)
+         size = "< 500 lines";
+      else if (rows < 2000)
+         size = "500 - 2000 lines";
+      else if (rows < 10000)
+         size = "2000 - 10000 lines";
+      else
+         size = "10000+ lines";
+      
+      RpcStats.record("[diagnostics] " + scope + " lint, " + size,
+                      0,
+                      0,
+                      System.currentTimeMillis() - context.startTime,
+                      error);
+   }
+   
+   // Shows lint for the whole document, or (if range is non-null) replaces
+   // the lint within the range.
    private void showLint(LintContext context,
-                         JsArray<LintItem> lint)
+                         JsArray<LintItem> lint,
+                         Range range)
    {
       if (docDisplay_.isPopupVisible() || !docDisplay_.isFocused())
          return;
       
+      boolean edited =
+            docDisplay_.getDocumentVersion() != context.documentVersion;
+      
+      // Rows in range lint are only meaningful for the code that was linted
+      if (range != null && edited)
+         return;
+      
       // Filter out items at the last cursor position, if the cursor
       // hasn't moved.
       if (context.excludeCurrentStatement &&
@@ -322,14 +499,27 @@ public class LintManager
          for (int i = 0; i < lint.length(); i++)
             if (!lint.get(i).asRange().contains(pos))
                filteredLint.push(lint.get(i));
-         
-         docDisplay_.showLint(filteredLint);
-         return;
+         lint = filteredLint;
       }
       
-      docDisplay_.showLint(lint);
-      return;
+      if (range == null)
+      {
+         docDisplay_.showLint(lint);
+         hasDocumentLint_ = true;
+      }
+      else
+      {
+         docDisplay_.replaceLint(range.getStart().getRow(),
+                                 range.getEnd().getRow(),
+                                 lint);
+      }
       
+      // Edits made while linting still need to be looked at
+      if (!edited)
+      {
+         dirtyStartRow_ = -1;
+         dirtyEndRow_ = -1;
+      }
    }
    
    public void schedule(int milliseconds)
@@ -381,6 +571,12 @@ public class LintManager
    private boolean showMarkers_;
    private boolean excludeCurrentStatement_;
    
+   // rows edited since the document was last linted (-1 if none), and
+   // whether lint for the whole document is being shown
+   private int dirtyStartRow_ = -1;
+   private int dirtyEndRow_ = -1;
+   private boolean hasDocumentLint_ = false;
+   
    private LintServerOperations server_;
    private UIPrefs uiPrefs_;
    private EventBus eventBus_;
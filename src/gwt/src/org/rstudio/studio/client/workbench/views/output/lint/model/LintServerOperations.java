@@ -28,6 +28,16 @@ public interface LintServerOperations
                             boolean explicit,
                             ServerRequestCallback<JsArray<LintItem>> requestCallback);
    
+   // lints unsaved code from the document, starting at startRow of the
+   // rowCount rows now in the document; yields null if the whole document
+   // needs to be linted instead
+   void lintRSourceRange(String documentId,
+                         String documentPath,
+                         String code,
+                         int startRow,
+                         int rowCount,
+                         ServerRequestCallback<JsArray<LintItem>> requestCallback);
+   
    void getCppDiagnostics(
                 String docPath,
                 ServerRequestCallback<JsArray<CppDiagnostic>> requestCallback);
@@ -64,6 +64,7 @@ import org.rstudio.studio.client.common.GlobalProgressDelayer;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.common.dependencies.DependencyManager;
 import org.rstudio.studio.client.common.filetypes.EditableFileType;
+import org.rstudio.studio.client.common.filetypes.FileType;
 import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
 import org.rstudio.studio.client.common.filetypes.TextFileType;
 import org.rstudio.studio.client.common.filetypes.events.OpenPresentationSourceFileEvent;
@@ -112,6 +113,7 @@ import org.rstudio.studio.client.workbench.views.environment.events.DebugModeCha
 import org.rstudio.studio.client.workbench.views.output.find.events.FindInFilesEvent;
 import org.rstudio.studio.client.workbench.views.source.NewShinyWebApplication.Result;
 import org.rstudio.studio.client.workbench.views.source.SourceWindowManager.NavigationResult;
+import org.rstudio.studio.client.workbench.views.source.editors.DeferredEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetSource;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
@@ -149,6 +151,7 @@ import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
 import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class Source implements InsertSourceHandler,
@@ -674,6 +677,7 @@ public class Source implements InsertSourceHandler,
       });
       
       restoreDocuments(session);
+      warmUpRestoredTabs();
       
       // get the key to use for active tab persistence; use ordinal-based key
       // for source windows rather than their ID to avoid unbounded accumulation
@@ -696,7 +700,7 @@ public class Source implements InsertSourceHandler,
 
             if (view_.getTabCount() > 0 && view_.getActiveTabIndex() >= 0)
             {
-               editors_.get(view_.getActiveTabIndex()).onInitiallyLoaded();
+               getEditorAt(view_.getActiveTabIndex()).onInitiallyLoaded();
             }
 
             // clear the history manager
@@ -825,7 +829,7 @@ public class Source implements InsertSourceHandler,
                                       Command continuation)
                   {
                      view_.closeTab(
-                           editingTarget.asWidget(),
+                           getTabWidget(editingTarget),
                            false,
                            continuation);
                   }
@@ -906,7 +910,7 @@ public class Source implements InsertSourceHandler,
              (SourceWindowManager.isMainSourceWindow() && 
               !windowManager_.isSourceWindowOpen(docWindowId)))
          {
-            EditingTarget editor = addTab(doc, true);
+            EditingTarget editor = addTab(doc, null, true);
             
             // if this is a source window, check to see if it was opened to
             // pop out a particular doc, and restore that doc's position if so
@@ -1270,7 +1274,7 @@ public class Source implements InsertSourceHandler,
             {
                if (firstTarget_ != null)
                {
-                  view_.selectTab(firstTarget_.asWidget());
+                  view_.selectTab(getTabWidget(firstTarget_));
                   firstTarget_.setCursorPosition(Position.create(0, 0));
                }
                
@@ -2047,21 +2051,84 @@ public class Source implements InsertSourceHandler,
    @Handler
    public void onSaveAllSourceDocs()
    {
-      cpsExecuteForEachEditor(editors_, new CPSEditingTargetCommand()
+      ArrayList<EditingTarget> dirtyTargets = new ArrayList<EditingTarget>();
+      for (EditingTarget target : editors_)
+      {
+         if (target.dirtyState().getValue())
+            dirtyTargets.add(target);
+      }
+      
+      saveEditingTargets(dirtyTargets, null);
+   }
+   
+   /**
+    * Saves the given editors. Saves which don't require any input from the
+    * user are started together, so their requests are in flight at the
+    * same time; saves which prompt (for a path or an encoding) are run one
+    * at a time after them, so only one dialog is shown at once.
+    * onCompleted is executed once every save succeeds.
+    */
+   private void saveEditingTargets(ArrayList<EditingTarget> targets,
+                                   final Command onCompleted)
+   {
+      Barrier barrier = new Barrier();
+      barrier.addBarrierReleasedHandler(new BarrierReleasedHandler()
       {
          @Override
-         public void execute(EditingTarget target, Command continuation)
+         public void onBarrierReleased(BarrierReleasedEvent event)
+         {
+            if (onCompleted != null)
+               onCompleted.execute();
+         }
+      });
+      
+      // hold the barrier until all the saves have been started, in case
+      // some of them complete immediately
+      Barrier.Token startToken = barrier.acquire();
+      
+      ArrayList<EditingTarget> interactiveTargets = 
+                                    new ArrayList<EditingTarget>();
+      for (EditingTarget target : targets)
+      {
+         if (target.isSaveInteractive())
+         {
+            interactiveTargets.add(target);
+            continue;
+         }
+         
+         final Barrier.Token token = barrier.acquire();
+         target.save(new Command()
          {
-            if (target.dirtyState().getValue())
+            @Override
+            public void execute()
             {
-               target.save(continuation);
+               token.release();
             }
-            else
+         });
+      }
+      
+      final Barrier.Token interactiveToken = barrier.acquire();
+      cpsExecuteForEachEditor(
+            interactiveTargets,
+            new CPSEditingTargetCommand()
             {
-               continuation.execute();
-            }
-         }
-      });
+               @Override
+               public void execute(EditingTarget saveTarget,
+                                   Command continuation)
+               {
+                  saveTarget.save(continuation);
+               }
+            },
+            new Command()
+            {
+               @Override
+               public void execute()
+               {
+                  interactiveToken.release();
+               }
+            });
+      
+      startToken.release();
    }
    
    
@@ -2122,33 +2189,15 @@ public class Source implements InsertSourceHandler,
       }
         
       // execute the save
-      cpsExecuteForEachEditor(
-         
-         // targets the user chose to save
-         saveTargets, 
-         
-         // save each editor
-         new CPSEditingTargetCommand()
-         {
-            @Override
-            public void execute(EditingTarget saveTarget, 
-                                Command continuation)
-            {         
-               saveTarget.save(continuation); 
-            }
-         },
-         
-         // onCompleted at the end
-         onCompleted
-      );          
+      saveEditingTargets(saveTargets, onCompleted);
    }
           
    
    private EditingTarget getEditingTargetForId(String id)
    {
-      for (EditingTarget target : editors_)
-         if (id.equals(target.getId()))
-            return target;
+      for (int i = 0; i < editors_.size(); i++)
+         if (id.equals(editors_.get(i).getId()))
+            return getEditorAt(i);
 
       return null;
    }
@@ -2222,7 +2271,7 @@ public class Source implements InsertSourceHandler,
                   }
                   else
                   {
-                     view_.closeTab(target.asWidget(), false, continuation);
+                     view_.closeTab(getTabWidget(target), false, continuation);
                   }
                }
             });
@@ -2379,7 +2428,7 @@ public class Source implements InsertSourceHandler,
                else
                {
                   // untitled document -- just close the tab non-interactively
-                  view_.closeTab(saveTarget.asWidget(), false, continuation);
+                  view_.closeTab(getTabWidget(saveTarget), false, continuation);
                }
             }
          },
@@ -2619,7 +2668,7 @@ public class Source implements InsertSourceHandler,
                else
                {
                   view_.selectTab(i);
-                  editingTargetAction.execute(target);
+                  editingTargetAction.execute(getEditorAt(i));
                }
                return;
             }
@@ -2764,7 +2813,7 @@ public class Source implements InsertSourceHandler,
             view_.selectTab(i);
             pMruList_.get().add(thisPath);
             if (resultCallback != null)
-               resultCallback.onSuccess(target);
+               resultCallback.onSuccess(getEditorAt(i));
             return true;
          }
       }
@@ -2914,14 +2963,45 @@ public class Source implements InsertSourceHandler,
 
    private EditingTarget addTab(SourceDocument doc, Integer position)
    {
-      final EditingTarget target = editingTargetSource_.getEditingTarget(
-            doc, fileContext_, new Provider<String>()
-            {
-               public String get()
+      return addTab(doc, position, false);
+   }
+
+   private EditingTarget addTab(SourceDocument doc,
+                                Integer position,
+                                boolean restoring)
+   {
+      Provider<String> defaultNameProvider = new Provider<String>()
+      {
+         public String get()
+         {
+            return getNextDefaultName();
+         }
+      };
+
+      // restored documents which aren't visible don't need an editor yet;
+      // it's created when the document is first used
+      final EditingTarget target;
+      FileType type = fileTypeRegistry_.getTypeByTypeName(doc.getType());
+      boolean deferred = restoring && DeferredEditingTarget.canDefer(doc, type);
+      if (deferred)
+      {
+         target = new DeferredEditingTarget(
+               editingTargetSource_,
+               new CommandWithArg<DeferredEditingTarget>()
                {
-                  return getNextDefaultName();
-               }
-            });
+                  @Override
+                  public void execute(DeferredEditingTarget deferredTarget)
+                  {
+                     onDeferredTargetMaterialized(deferredTarget);
+                  }
+               });
+         target.initialize(doc, fileContext_, type, defaultNameProvider);
+      }
+      else
+      {
+         target = editingTargetSource_.getEditingTarget(
+               doc, fileContext_, defaultNameProvider);
+      }
       
       final Widget widget = createWidget(target);
 
@@ -2951,9 +3031,27 @@ public class Source implements InsertSourceHandler,
                    target.getName().getValue(),
                    target.getTabTooltip(), // used as tooltip, if non-null
                    position,
-                   true);
+                   !deferred);
       fireDocTabsChanged();
 
+      addTabHandlers(target, widget);
+      
+      events_.fireEvent(new SourceDocAddedEvent(doc));
+      
+      // adding a tab may enable commands that are only available when 
+      // multiple documents are open; if this is the second document, go check
+      if (editors_.size() == 2)
+         manageMultiTabCommands();
+      
+      // if the target had an editing session active, attempt to resume it
+      if (doc.getCollabParams() != null)
+         target.beginCollabSession(doc.getCollabParams());
+      
+      return target;
+   }
+
+   private void addTabHandlers(final EditingTarget target, final Widget widget)
+   {
       target.getName().addValueChangeHandler(new ValueChangeHandler<String>()
       {
          public void onValueChange(ValueChangeEvent<String> event)
@@ -2991,21 +3089,124 @@ public class Source implements InsertSourceHandler,
             view_.closeTab(widget, false);
          }
       });
-      
-      events_.fireEvent(new SourceDocAddedEvent(doc));
-      
-      // adding a tab may enable commands that are only available when 
-      // multiple documents are open; if this is the second document, go check
-      if (editors_.size() == 2)
-         manageMultiTabCommands();
-      
-      // if the target had an editing session active, attempt to resume it
-      if (doc.getCollabParams() != null)
-         target.beginCollabSession(doc.getCollabParams());
-      
+   }
+
+   private void onDeferredTargetMaterialized(DeferredEditingTarget deferred)
+   {
+      // replace the placeholder with the real editor; the tab keeps the
+      // placeholder's widget, which now contains the editor's widget
+      EditingTarget target = deferred.materialize();
+      Widget widget = deferred.asWidget();
+      int index = editors_.indexOf(deferred);
+      if (index == -1)
+         return;
+
+      editors_.set(index, target);
+      tabWidgets_.put(target, widget);
+      if (activeEditor_ == deferred)
+         activeEditor_ = target;
+
+      addTabHandlers(target, widget);
+      view_.renameTab(widget,
+                      target.getIcon(),
+                      target.getName().getValue(),
+                      target.getTabTooltip());
+   }
+
+   // Returns the editor for the given tab, creating it if the tab was
+   // restored without one.
+   private EditingTarget getEditorAt(int index)
+   {
+      EditingTarget target = editors_.get(index);
+      if (target instanceof DeferredEditingTarget)
+         target = ((DeferredEditingTarget) target).materialize();
       return target;
    }
 
+   private Widget getTabWidget(EditingTarget target)
+   {
+      Widget widget = tabWidgets_.get(target);
+      return widget != null ? widget : target.asWidget();
+   }
+
+   // Creates the editors for the most recently used restored documents
+   // while the user is idle, so switching to them is quick.
+   private void warmUpRestoredTabs()
+   {
+      new RestoredTabWarmUp().start();
+   }
+
+   // Materializes one restored tab each time the user has been idle (no
+   // keyboard, mouse or touch input) for WARM_UP_IDLE_MS, so creating the
+   // editors never competes with the user for the UI thread.
+   private class RestoredTabWarmUp extends Timer
+                                   implements NativePreviewHandler
+   {
+      public void start()
+      {
+         previewReg_ = Event.addNativePreviewHandler(this);
+         schedule(WARM_UP_IDLE_MS);
+      }
+
+      @Override
+      public void onPreviewNativeEvent(NativePreviewEvent event)
+      {
+         // restart the idle period on user activity
+         switch (event.getTypeInt())
+         {
+            case Event.ONKEYDOWN:
+            case Event.ONMOUSEDOWN:
+            case Event.ONMOUSEWHEEL:
+            case Event.ONTOUCHSTART:
+               schedule(WARM_UP_IDLE_MS);
+               break;
+         }
+      }
+
+      @Override
+      public void run()
+      {
+         // the MRU list may not be available until startup is complete,
+         // so pick the tabs on the first idle period
+         if (targets_ == null)
+         {
+            targets_ = new ArrayList<DeferredEditingTarget>();
+            for (String path : pMruList_.get().getMruEntries())
+            {
+               for (EditingTarget target : editors_)
+               {
+                  if (target instanceof DeferredEditingTarget &&
+                      path.equals(target.getPath()))
+                  {
+                     targets_.add((DeferredEditingTarget) target);
+                  }
+               }
+               if (targets_.size() >= WARM_UP_TAB_COUNT)
+                  break;
+            }
+         }
+
+         // skip tabs which have been closed or materialized since
+         while (!targets_.isEmpty())
+         {
+            DeferredEditingTarget target = targets_.remove(0);
+            if (editors_.contains(target))
+            {
+               target.materialize();
+               break;
+            }
+         }
+
+         if (targets_.isEmpty())
+            previewReg_.removeHandler();
+         else
+            schedule(WARM_UP_IDLE_MS);
+      }
+
+      private HandlerRegistration previewReg_;
+      private ArrayList<DeferredEditingTarget> targets_ = null;
+   }
+
    private String getNextDefaultName()
    {
       int max = 0;
@@ -3100,6 +3301,7 @@ public class Source implements InsertSourceHandler,
    private void closeTabIndex(int idx, boolean closeDocument)
    {
       EditingTarget target = editors_.remove(idx);
+      tabWidgets_.remove(target);
 
       tabOrder_.remove(new Integer(idx));
       for (int i = 0; i < tabOrder_.size(); i++)
@@ -3224,7 +3426,7 @@ public class Source implements InsertSourceHandler,
 
       if (event.getSelectedItem() >= 0)
       {
-         activeEditor_ = editors_.get(event.getSelectedItem());
+         activeEditor_ = getEditorAt(event.getSelectedItem());
          activeEditor_.onActivate();
          
          // let any listeners know this tab was activated
@@ -3634,7 +3836,7 @@ public class Source implements InsertSourceHandler,
             suspendSourceNavigationAdding_ = true;
             try
             {
-               view_.selectTab(target.asWidget());
+               view_.selectTab(getTabWidget(target));
                target.restorePosition(navigation.getPosition());
             }
             finally
@@ -4035,7 +4237,7 @@ public class Source implements InsertSourceHandler,
          String editorPath = editors_.get(i).getPath();
          if (editorPath != null && editorPath.equals(path))
          {
-            onEditorLocated.execute(editors_.get(i));
+            onEditorLocated.execute(getEditorAt(i));
             break;
          }
       }
@@ -4049,7 +4251,7 @@ public class Source implements InsertSourceHandler,
          String editorId = editors_.get(i).getId();
          if (editorId != null && editorId.equals(id))
          {
-            onEditorLocated.execute(editors_.get(i));
+            onEditorLocated.execute(getEditorAt(i));
             break;
          }
       }
@@ -4074,6 +4276,10 @@ public class Source implements InsertSourceHandler,
    }
    
    ArrayList<EditingTarget> editors_ = new ArrayList<EditingTarget>();
+   // tab widgets of editors which were created for restored tabs (see
+   // DeferredEditingTarget); other editors' widgets are their tabs' widgets
+   private final HashMap<EditingTarget, Widget> tabWidgets_ =
+         new HashMap<EditingTarget, Widget>();
    ArrayList<Integer> tabOrder_ = new ArrayList<Integer>();
    private EditingTarget activeEditor_;
    private final Commands commands_;
@@ -4104,6 +4310,8 @@ public class Source implements InsertSourceHandler,
   
    private static final String MODULE_SOURCE = "source-pane";
    private static final String KEY_ACTIVETAB = "activeTab";
+   private static final int WARM_UP_TAB_COUNT = 3;
+   private static final int WARM_UP_IDLE_MS = 2000;
    private boolean initialized_;
    private Timer debugSelectionTimer_ = null;
    
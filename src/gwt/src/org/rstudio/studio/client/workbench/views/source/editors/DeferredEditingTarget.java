@@ -0,0 +1,465 @@
+/*
+ * DeferredEditingTarget.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors;
+
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.resources.client.ImageResource;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.HasValue;
+import com.google.gwt.user.client.ui.SimpleLayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Provider;
+
+import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.events.EnsureHeightHandler;
+import org.rstudio.core.client.events.EnsureVisibleHandler;
+import org.rstudio.core.client.files.FileSystemContext;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.common.ReadOnlyValue;
+import org.rstudio.studio.client.common.Value;
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.TextFileType;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.events.CollabEditStartParams;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
+
+import java.util.HashSet;
+
+/**
+ * Stands in for the editing target of a restored text document until the
+ * document is first used. The tab's name, icon and dirty state are answered
+ * from the source document; anything which needs the editor creates the
+ * real editing target (see materialize()) and delegates to it. The real
+ * target's widget is shown within this target's widget, so the tab itself
+ * doesn't change.
+ */
+public class DeferredEditingTarget implements EditingTarget
+{
+   public DeferredEditingTarget(
+         EditingTargetSource editingTargetSource,
+         CommandWithArg<DeferredEditingTarget> onMaterialized)
+   {
+      editingTargetSource_ = editingTargetSource;
+      onMaterialized_ = onMaterialized;
+   }
+
+   /**
+    * Returns true if the editor for the document can be created on demand
+    * (i.e. without side effects that need to happen at startup).
+    */
+   public static boolean canDefer(SourceDocument document, FileType type)
+   {
+      return type instanceof TextFileType &&
+             document.getCollabParams() == null &&
+             (document.getPath() != null ||
+              !StringUtil.isNullOrEmpty(getTempName(document)));
+   }
+
+   @Override
+   public void initialize(SourceDocument document,
+                          FileSystemContext fileContext,
+                          FileType type,
+                          Provider<String> defaultNameProvider)
+   {
+      document_ = document;
+      fileContext_ = fileContext;
+      type_ = type;
+      defaultNameProvider_ = defaultNameProvider;
+
+      name_.setValue(document.getPath() != null ?
+            FileSystemItem.getNameFromPath(document.getPath()) :
+            getTempName(document));
+      dirtyState_.setValue(document.isDirty());
+   }
+
+   public boolean isMaterialized()
+   {
+      return target_ != null;
+   }
+
+   /**
+    * Returns the real editing target for the document, creating it first
+    * if necessary.
+    */
+   public EditingTarget materialize()
+   {
+      if (target_ == null)
+      {
+         target_ = editingTargetSource_.getEditingTarget(document_,
+                                                         fileContext_,
+                                                         defaultNameProvider_);
+         if (forceSaveCommandActive_)
+            target_.forceSaveCommandActive();
+         panel_.setWidget(target_.asWidget());
+         panel_.onResize();
+         onMaterialized_.execute(this);
+      }
+      return target_;
+   }
+
+   @Override
+   public Widget asWidget()
+   {
+      return panel_;
+   }
+
+   @Override
+   public String getId()
+   {
+      return document_.getId();
+   }
+
+   @Override
+   public HasValue<String> getName()
+   {
+      return isMaterialized() ? target_.getName() : name_;
+   }
+
+   @Override
+   public String getTitle()
+   {
+      return getName().getValue();
+   }
+
+   @Override
+   public String getPath()
+   {
+      return isMaterialized() ? target_.getPath() : document_.getPath();
+   }
+
+   @Override
+   public String getContext()
+   {
+      return isMaterialized() ? target_.getContext() : null;
+   }
+
+   @Override
+   public ImageResource getIcon()
+   {
+      return isMaterialized() ? target_.getIcon() : type_.getDefaultIcon();
+   }
+
+   @Override
+   public String getTabTooltip()
+   {
+      return getPath();
+   }
+
+   @Override
+   public TextFileType getTextFileType()
+   {
+      return isMaterialized() ? target_.getTextFileType() :
+                                (TextFileType) type_;
+   }
+
+   @Override
+   public void adaptToExtendedFileType(String extendedType)
+   {
+      if (isMaterialized())
+         target_.adaptToExtendedFileType(extendedType);
+      else
+         document_.setExtendedType(extendedType);
+   }
+
+   @Override
+   public String getExtendedFileType()
+   {
+      return isMaterialized() ? target_.getExtendedFileType() :
+                                document_.getExtendedType();
+   }
+
+   @Override
+   public HashSet<AppCommand> getSupportedCommands()
+   {
+      return materialize().getSupportedCommands();
+   }
+
+   @Override
+   public boolean canCompilePdf()
+   {
+      return materialize().canCompilePdf();
+   }
+
+   @Override
+   public void verifyCppPrerequisites()
+   {
+      materialize().verifyCppPrerequisites();
+   }
+
+   @Override
+   public void focus()
+   {
+      materialize().focus();
+   }
+
+   @Override
+   public void onActivate()
+   {
+      materialize().onActivate();
+   }
+
+   @Override
+   public void onDeactivate()
+   {
+      if (isMaterialized())
+         target_.onDeactivate();
+   }
+
+   @Override
+   public void onInitiallyLoaded()
+   {
+      materialize().onInitiallyLoaded();
+   }
+
+   @Override
+   public void recordCurrentNavigationPosition()
+   {
+      if (isMaterialized())
+         target_.recordCurrentNavigationPosition();
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent)
+   {
+      materialize().navigateToPosition(position, recordCurrent);
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent,
+                                  boolean highlightLine)
+   {
+      materialize().navigateToPosition(position, recordCurrent, highlightLine);
+   }
+
+   @Override
+   public void restorePosition(SourcePosition position)
+   {
+      materialize().restorePosition(position);
+   }
+
+   @Override
+   public SourcePosition currentPosition()
+   {
+      return materialize().currentPosition();
+   }
+
+   @Override
+   public boolean isAtSourceRow(SourcePosition position)
+   {
+      return materialize().isAtSourceRow(position);
+   }
+
+   @Override
+   public void forceLineHighlighting()
+   {
+      materialize().forceLineHighlighting();
+   }
+
+   @Override
+   public void setCursorPosition(Position position)
+   {
+      materialize().setCursorPosition(position);
+   }
+
+   @Override
+   public void ensureCursorVisible()
+   {
+      materialize().ensureCursorVisible();
+   }
+
+   @Override
+   public Position search(String regex)
+   {
+      return materialize().search(regex);
+   }
+
+   @Override
+   public Position search(Position startPos, String regex)
+   {
+      return materialize().search(startPos, regex);
+   }
+
+   @Override
+   public void highlightDebugLocation(SourcePosition startPos,
+                                      SourcePosition endPos,
+                                      boolean executing)
+   {
+      materialize().highlightDebugLocation(startPos, endPos, executing);
+   }
+
+   @Override
+   public void endDebugHighlighting()
+   {
+      if (isMaterialized())
+         target_.endDebugHighlighting();
+   }
+
+   @Override
+   public void beginCollabSession(CollabEditStartParams params)
+   {
+      materialize().beginCollabSession(params);
+   }
+
+   @Override
+   public void endCollabSession()
+   {
+      if (isMaterialized())
+         target_.endCollabSession();
+   }
+
+   @Override
+   public boolean onBeforeDismiss()
+   {
+      // dirty documents need the editor to prompt for saving
+      if (isMaterialized() || dirtyState_.getValue())
+         return materialize().onBeforeDismiss();
+      return true;
+   }
+
+   @Override
+   public void onDismiss(int dismissType)
+   {
+      if (isMaterialized())
+         target_.onDismiss(dismissType);
+   }
+
+   @Override
+   public ReadOnlyValue<Boolean> dirtyState()
+   {
+      return isMaterialized() ? target_.dirtyState() : dirtyState_;
+   }
+
+   @Override
+   public boolean isSaveCommandActive()
+   {
+      if (isMaterialized())
+         return target_.isSaveCommandActive();
+
+      // the same rules as TextEditingTarget.isSaveCommandActive
+      return forceSaveCommandActive_ ||
+             dirtyState_.getValue() ||
+             (document_.getPath() == null &&
+              StringUtil.isNullOrEmpty(document_.getContents())) ||
+             (getTextFileType().canSourceOnSave() &&
+              document_.sourceOnSave());
+   }
+
+   @Override
+   public void forceSaveCommandActive()
+   {
+      if (isMaterialized())
+         target_.forceSaveCommandActive();
+      else
+         forceSaveCommandActive_ = true;
+   }
+
+   @Override
+   public void save(Command onCompleted)
+   {
+      materialize().save(onCompleted);
+   }
+
+   @Override
+   public boolean isSaveInteractive()
+   {
+      return materialize().isSaveInteractive();
+   }
+
+   @Override
+   public void saveWithPrompt(Command onCompleted, Command onCancelled)
+   {
+      materialize().saveWithPrompt(onCompleted, onCancelled);
+   }
+
+   @Override
+   public void revertChanges(Command onCompleted)
+   {
+      materialize().revertChanges(onCompleted);
+   }
+
+   @Override
+   public long getFileSizeLimit()
+   {
+      return materialize().getFileSizeLimit();
+   }
+
+   @Override
+   public long getLargeFileSize()
+   {
+      return materialize().getLargeFileSize();
+   }
+
+   // Handlers are registered with the real target when it's created (see
+   // Source.addTab), so events are fired on the real target.
+
+   @Override
+   public HandlerRegistration addEnsureVisibleHandler(
+         EnsureVisibleHandler handler)
+   {
+      return NULL_REGISTRATION;
+   }
+
+   @Override
+   public HandlerRegistration addEnsureHeightHandler(
+         EnsureHeightHandler handler)
+   {
+      return NULL_REGISTRATION;
+   }
+
+   @Override
+   public HandlerRegistration addCloseHandler(CloseHandler<Void> handler)
+   {
+      return NULL_REGISTRATION;
+   }
+
+   @Override
+   public void fireEvent(GwtEvent<?> event)
+   {
+      materialize().fireEvent(event);
+   }
+
+   private static String getTempName(SourceDocument document)
+   {
+      return document.getProperties().getString("tempName");
+   }
+
+   private static final HandlerRegistration NULL_REGISTRATION =
+         new HandlerRegistration()
+         {
+            public void removeHandler()
+            {
+            }
+         };
+
+   private final EditingTargetSource editingTargetSource_;
+   private final CommandWithArg<DeferredEditingTarget> onMaterialized_;
+   private final SimpleLayoutPanel panel_ = new SimpleLayoutPanel();
+   private final Value<String> name_ = new Value<String>(null);
+   private final Value<Boolean> dirtyState_ = new Value<Boolean>(false);
+
+   private SourceDocument document_;
+   private FileSystemContext fileContext_;
+   private FileType type_;
+   private Provider<String> defaultNameProvider_;
+   private EditingTarget target_;
+   private boolean forceSaveCommandActive_ = false;
+}
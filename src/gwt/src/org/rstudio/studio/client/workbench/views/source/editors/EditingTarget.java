@@ -118,6 +118,12 @@ public interface EditingTarget extends IsWidget,
     */
    void saveWithPrompt(Command onCompleted, Command onCancelled);
    
+   /**
+    * @return True if saving the document requires input from the user
+    *    (e.g. choosing a path or an encoding)
+    */
+   boolean isSaveInteractive();
+   
    /**
     * Revert any changes
     */
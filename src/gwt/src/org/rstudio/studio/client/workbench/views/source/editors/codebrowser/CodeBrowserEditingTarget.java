@@ -610,6 +610,12 @@ public class CodeBrowserEditingTarget implements EditingTarget
       onCompleted.execute();
    }
    
+   @Override
+   public boolean isSaveInteractive()
+   {
+      return false;
+   }
+   
    @Override
    public void saveWithPrompt(Command onCompleted, Command onCancelled)
    {
@@ -366,6 +366,11 @@ public class ProfilerEditingTarget implements EditingTarget,
       onCompleted.execute();
    }
 
+   public boolean isSaveInteractive()
+   {
+      return false;
+   }
+
    public void saveWithPrompt(Command onCompleted, Command onCancelled)
    {
       onCompleted.execute();
@@ -69,7 +69,7 @@ import org.rstudio.studio.client.common.filetypes.TextFileType;
 import org.rstudio.studio.client.server.Void;
 import org.rstudio.studio.client.workbench.commands.Commands;
 import org.rstudio.studio.client.workbench.model.ChangeTracker;
-import org.rstudio.studio.client.workbench.model.EventBasedChangeTracker;
+import org.rstudio.studio.client.workbench.model.VersionedChangeTracker;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefsAccessor;
 import org.rstudio.studio.client.workbench.snippets.SnippetHelper;
@@ -188,37 +188,6 @@ public class AceEditor implements DocDisplay,
       private final Anchor end_;
    }
 
-   private class AceEditorChangeTracker extends EventBasedChangeTracker<Void>
-   {
-      private AceEditorChangeTracker()
-      {
-         super(AceEditor.this);
-         AceEditor.this.addFoldChangeHandler(new org.rstudio.studio.client.workbench.views.source.editors.text.events.FoldChangeEvent.Handler()
-         {
-            @Override
-            public void onFoldChange(FoldChangeEvent event)
-            {
-               changed_ = true;
-            }
-         });
-         AceEditor.this.addLineWidgetsChangedHandler(new org.rstudio.studio.client.workbench.views.source.editors.text.events.LineWidgetsChangedEvent.Handler() {
-            @Override
-            public void onLineWidgetsChanged(LineWidgetsChangedEvent event)
-            {
-               changed_ = true;
-            }
-         });
-      }
-
-      @Override
-      public ChangeTracker fork()
-      {
-         AceEditorChangeTracker forked = new AceEditorChangeTracker();
-         forked.changed_ = changed_;
-         return forked;
-      }
-   }
-
    public static void preload()
    {
       load(null);
@@ -280,8 +249,10 @@ public class AceEditor implements DocDisplay,
       {
          public void onValueChange(ValueChangeEvent<Void> evt)
          {
+            documentVersion_++;
             if (!valueChangeSuppressed_)
             {
+               changeVersion_++;
                ValueChangeEvent.fire(AceEditor.this, null);
             }
          }
@@ -292,6 +263,7 @@ public class AceEditor implements DocDisplay,
          @Override
          public void onFoldChange(FoldChangeEvent event)
          {
+            changeVersion_++;
             AceEditor.this.fireEvent(new FoldChangeEvent());
          }
       });
@@ -1099,6 +1071,12 @@ public class AceEditor implements DocDisplay,
       return Position.create(lastRow, getLength(lastRow));
    }
    
+   @Override
+   public int getDroppedChangeCount()
+   {
+      return widget_.getDroppedChangeCount();
+   }
+   
    @Override
    public void setInsertMatching(boolean value)
    {
@@ -1562,7 +1540,22 @@ public class AceEditor implements DocDisplay,
 
    public ChangeTracker getChangeTracker()
    {
-      return new AceEditorChangeTracker();
+      // tracks edits (other than those made with value change events
+      // suppressed) along with fold and line widget changes
+      return new VersionedChangeTracker(new VersionedChangeTracker.Source()
+      {
+         @Override
+         public int getVersion()
+         {
+            return changeVersion_;
+         }
+      });
+   }
+
+   @Override
+   public int getDocumentVersion()
+   {
+      return documentVersion_;
    }
 
    // Because anchored selections create Ace event listeners, they
@@ -2744,6 +2737,84 @@ public class AceEditor implements DocDisplay,
       return cursor.getRow();
    }
 
+   public Range getTopLevelExpressionRange(int startRow, int endRow)
+   {
+      TextFileType fileType = getFileType();
+      if (fileType == null || !fileType.isR())
+         return null;
+      
+      int lastRow = getRowCount() - 1;
+      if (!isScopeTreeReady(lastRow))
+         return null;
+      
+      CodeModel codeModel = getSession().getMode().getCodeModel();
+      startRow = Math.max(0, Math.min(startRow, lastRow));
+      endRow = Math.max(startRow, Math.min(endRow, lastRow));
+      
+      // move the start up until it begins a top-level expression
+      TokenCursor cursor;
+      while ((cursor = findContinuedExpression(codeModel, startRow)) != null)
+         startRow = cursor.getRow();
+      
+      // and the end down until the row after it begins one
+      while (endRow < lastRow &&
+             (cursor = findContinuedExpression(codeModel, endRow + 1)) != null)
+      {
+         if (!cursor.isLeftBracket())
+            endRow++;
+         else if (cursor.fwdToMatchingToken())
+            endRow = Math.max(endRow + 1, cursor.getRow());
+         else
+            endRow = lastRow;
+      }
+      
+      return Range.create(startRow, 0, endRow, getLine(endRow).length());
+   }
+   
+   // If the expression before the given row continues onto it, returns a
+   // cursor on the token which causes it to (an unmatched opening bracket,
+   // a trailing operator, etc); otherwise returns null.
+   private TokenCursor findContinuedExpression(CodeModel codeModel, int row)
+   {
+      TokenCursor cursor = codeModel.getTokenCursor();
+      cursor.moveToStartOfRow(row);
+      if (!cursor.moveToPreviousToken())
+         return null;
+      
+      TokenCursor bracketCursor = cursor.cloneCursor();
+      if (bracketCursor.findOpeningBracket(
+            new String[] { "(", "[", "{" }, false))
+      {
+         return bracketCursor;
+      }
+      
+      if (cursor.hasType("keyword.operator") ||
+          cursor.valueEquals(",") ||
+          cursor.valueEquals("else") ||
+          cursor.valueEquals("repeat"))
+      {
+         return cursor;
+      }
+      
+      // the body of a function definition or control flow statement may
+      // begin on the next line
+      if (cursor.valueEquals(")"))
+      {
+         TokenCursor headCursor = cursor.cloneCursor();
+         if (headCursor.bwdToMatchingToken() &&
+             headCursor.moveToPreviousToken() &&
+             (headCursor.valueEquals("function") ||
+              headCursor.valueEquals("if") ||
+              headCursor.valueEquals("for") ||
+              headCursor.valueEquals("while")))
+         {
+            return cursor;
+         }
+      }
+      
+      return null;
+   }
+
    // ---- Annotation related operations
 
    public JsArray<AceAnnotation> getAnnotations()
@@ -2774,6 +2845,12 @@ public class AceEditor implements DocDisplay,
       widget_.showLint(lint);
    }
 
+   @Override
+   public void replaceLint(int startRow, int endRow, JsArray<LintItem> lint)
+   {
+      widget_.replaceLint(startRow, endRow, lint);
+   }
+   
    @Override
    public void clearLint()
    {
@@ -2969,6 +3046,7 @@ public class AceEditor implements DocDisplay,
    
    private void fireLineWidgetsChanged()
    {
+      changeVersion_++;
       AceEditor.this.fireEvent(new LineWidgetsChangedEvent());
    }
    
@@ -3025,6 +3103,8 @@ public class AceEditor implements DocDisplay,
    
    private static final int DEBUG_CONTEXT_LINES = 2;
    private final HandlerManager handlers_ = new HandlerManager(this);
+   private int documentVersion_ = 0;
+   private int changeVersion_ = 0;
    private final AceEditorWidget widget_;
    private final SnippetHelper snippets_;
    private CompletionManager completionManager_;
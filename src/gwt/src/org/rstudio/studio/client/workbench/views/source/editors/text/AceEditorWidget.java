@@ -110,6 +110,7 @@ public class AceEditorWidget extends Composite
             if (inOnChangeHandler_)
             {
                Debug.log("Warning: ignoring recursive ACE change event");
+               droppedChangeCount_++;
                return;
             }
             inOnChangeHandler_ = true;
@@ -884,7 +885,43 @@ public class AceEditorWidget extends Composite
       clearAnnotations();
       JsArray<AceAnnotation> annotations = LintItem.asAceAnnotations(lint);
       editor_.getSession().setAnnotations(annotations);
+      addLintMarkers(lint, annotations);
+   }
+   
+   public void replaceLint(int startRow,
+                           int endRow,
+                           JsArray<LintItem> lint)
+   {
+      // Detach the annotations within the rows being replaced, along with
+      // any whose markers have already been removed.
+      ArrayList<AnchoredAceAnnotation> annotations =
+            new ArrayList<AnchoredAceAnnotation>();
       
+      for (int i = 0; i < annotations_.size(); i++)
+      {
+         AnchoredAceAnnotation annotation = annotations_.get(i);
+         int row = annotation.anchor_.getRow();
+         
+         if ((row >= startRow && row <= endRow) ||
+             editor_.getSession().getMarker(annotation.getMarkerId()) == null)
+         {
+            annotation.detach();
+         }
+         else
+         {
+            annotations.add(annotation);
+         }
+      }
+      annotations_ = annotations;
+      
+      addLintMarkers(lint, LintItem.asAceAnnotations(lint));
+      editor_.getSession().setAnnotations(getAnnotations());
+      editor_.getRenderer().renderMarkers();
+   }
+   
+   private void addLintMarkers(JsArray<LintItem> lint,
+                               JsArray<AceAnnotation> annotations)
+   {
       // Now, set (and cache) inline markers.
       for (int i = 0; i < lint.length(); i++)
       {
@@ -1041,12 +1078,20 @@ public class AceEditorWidget extends Composite
    {
       return isRendered_;
    }
+   
+   // the number of change events which weren't delivered to handlers (so
+   // that anything tracking the changes can tell it missed some)
+   public int getDroppedChangeCount()
+   {
+      return droppedChangeCount_;
+   }
 
    private final AceEditorNative editor_;
    private final HandlerManager capturingHandlers_;
    private final List<HandlerRegistration> aceEventHandlers_;
    private boolean initToEmptyString_ = true;
    private boolean inOnChangeHandler_ = false;
+   private int droppedChangeCount_ = 0;
    private boolean isRendered_ = false;
    private ArrayList<Breakpoint> breakpoints_ = new ArrayList<Breakpoint>();
    
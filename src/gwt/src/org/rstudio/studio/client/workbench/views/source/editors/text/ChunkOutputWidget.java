@@ -14,10 +14,14 @@
  */
 package org.rstudio.studio.client.workbench.views.source.editors.text;
 
+import java.util.ArrayList;
+
 import org.rstudio.core.client.CommandWithArg;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.VirtualConsole;
+import org.rstudio.core.client.container.RingBuffer;
 import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.dom.ElementEx;
 import org.rstudio.core.client.js.JsArrayEx;
 import org.rstudio.core.client.resources.CoreResources;
 import org.rstudio.core.client.widget.PreWidget;
@@ -36,14 +40,20 @@ import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteOutp
 import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteInputEvent;
 import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteInputHandler;
 
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.dom.client.BodyElement;
 import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.Style;
 import com.google.gwt.dom.client.Style.Overflow;
 import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.resources.client.CssResource;
 import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
@@ -51,9 +61,11 @@ import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Event;
 import com.google.gwt.user.client.EventListener;
+import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.HTMLPanel;
 import com.google.gwt.user.client.ui.Image;
+import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.Widget;
 
 public class ChunkOutputWidget extends Composite
@@ -75,6 +87,7 @@ public class ChunkOutputWidget extends Composite
    public interface ChunkStyle extends CssResource
    {
       String overflowY();
+      String expander();
    }
 
    public ChunkOutputWidget(String chunkId,
@@ -194,20 +207,27 @@ public class ChunkOutputWidget extends Composite
       {
          if (output.get(i).length() < 2)
             continue;
-         vconsole_.submit(
+         retainEntry(
                (output.get(i).getInt(0) == CONSOLE_INPUT ? 
                      "> " + output.get(i).getString(1)  + "\n" :
                      output.get(i).getString(1)), 
                classOfOutput(output.get(i).getInt(0)));
       }
+      submitEntries();
       if (state_ == CHUNK_EXECUTING || state_ == CHUNK_EMPTY)
          showReadyState();
-      vconsole_.redraw(console_.getElement());
-      onRenderCompleted_.execute(console_.getElement().getOffsetHeight());
-      // scroll to the bottom
-      console_.getElement().setScrollTop(console_.getElement().getScrollHeight());
       state_ = CONSOLE_READY;
-      setOverflowStyle();
+
+      // the output is rendered once the chunk is scrolled into view; until
+      // then reserve space for it based on the number of lines
+      int lines = vconsole_.getLineCount() + 
+                  (vconsole_.hasPartialLine() ? 1 : 0);
+      console_.getElement().getStyle().setHeight(
+            Math.min(lines * ESTIMATED_LINE_HEIGHT, MAX_CONSOLE_HEIGHT),
+            Unit.PX);
+      onRenderCompleted_.execute(console_.getElement().getOffsetHeight());
+      redrawPending_ = true;
+      scheduleRender();
    }
    
    private void showHtmlOutput(String url)
@@ -290,10 +310,209 @@ public class ChunkOutputWidget extends Composite
 
    private void renderConsoleOutput(String text, String clazz)
    {
-      vconsole_.submitAndRender(text, clazz,
-            console_.getElement());
-      console_.getElement().setScrollTop(console_.getElement().getScrollHeight());
-      onRenderCompleted_.execute(console_.getElement().getOffsetHeight());
+      // output is rendered (at most) once per frame; only the most recent
+      // lines are kept in the console unless the output has been expanded.
+      // until then each entry is also retained (even before the output is
+      // long enough to collapse) since once it collapses the earliest
+      // output is only available from the retained entries
+      vconsole_.submit(text, clazz);
+      if (!expanded_)
+      {
+         retainEntry(text, clazz);
+         hiddenLines_ += vconsole_.enforceMaxLines(MAX_COLLAPSED_LINES);
+      }
+      scheduleRender();
+   }
+   
+   // retains output so that it can be shown if the output is collapsed and
+   // then expanded; once the retained text exceeds MAX_RETAINED_CHARS the
+   // oldest entries are dropped (and can no longer be shown)
+   private void retainEntry(String text, String clazz)
+   {
+      entries_.add(new ConsoleEntry(text, clazz));
+      retainedChars_ += text.length();
+      while (retainedChars_ > MAX_RETAINED_CHARS && entries_.size() > 1)
+      {
+         ConsoleEntry dropped = entries_.remove();
+         retainedChars_ -= dropped.text.length();
+         droppedLines_ += countLines(dropped.text);
+      }
+   }
+
+   // submits the console entries to the console; unless the output has been
+   // expanded only the entries making up the last MAX_COLLAPSED_LINES lines
+   // are submitted
+   private void submitEntries()
+   {
+      int start = 0;
+      hiddenLines_ = 0;
+      if (expanded_)
+      {
+         if (droppedLines_ > 0)
+         {
+            vconsole_.submit("[" + droppedLines_ + " earlier line" +
+                             (droppedLines_ == 1 ? "" : "s") +
+                             " not retained]\n", null);
+         }
+      }
+      else
+      {
+         hiddenLines_ = droppedLines_;
+         int lines = 0;
+         start = entries_.size();
+         while (start > 0 && lines < MAX_COLLAPSED_LINES)
+            lines += countLines(entries_.get(--start).text);
+         for (int i = 0; i < start; i++)
+            hiddenLines_ += countLines(entries_.get(i).text);
+      }
+
+      for (int i = start; i < entries_.size(); i++)
+         vconsole_.submit(entries_.get(i).text, entries_.get(i).clazz);
+   }
+
+   private static int countLines(String text)
+   {
+      int count = 0;
+      int newline = text.indexOf('\n');
+      while (newline >= 0)
+      {
+         count++;
+         newline = text.indexOf('\n', newline + 1);
+      }
+      return count;
+   }
+
+   private void expandOutput()
+   {
+      if (vconsole_ == null)
+         return;
+      expanded_ = true;
+      vconsole_.clear();
+      submitEntries();
+      
+      // the console now holds all of the output, so there's no need to
+      // retain it separately
+      entries_.clear();
+      retainedChars_ = 0;
+      redrawPending_ = true;
+      scheduleRender();
+   }
+
+   private void scheduleRender()
+   {
+      if (!s_pendingRenders.contains(this))
+         s_pendingRenders.add(this);
+      scheduleFlush();
+   }
+
+   // called when the editor hosting chunk outputs renders (e.g. because it
+   // was scrolled), so that outputs scrolled into view get rendered
+   public static void onEditorRendered()
+   {
+      if (!s_pendingRenders.isEmpty())
+         scheduleFlush();
+   }
+
+   private static void scheduleFlush()
+   {
+      if (s_flushScheduled)
+         return;
+      s_flushScheduled = true;
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            s_flushScheduled = false;
+            flushPendingRenders();
+         }
+      });
+   }
+
+   // renders the pending output of the chunks which are in (or near) the
+   // viewport, within a per-frame time budget; all of the DOM changes are
+   // made before any of the rendered chunks are measured
+   private static void flushPendingRenders()
+   {
+      double deadline = Duration.currentTimeMillis() + FRAME_BUDGET_MS;
+      ArrayList<ChunkOutputWidget> rendered = new ArrayList<ChunkOutputWidget>();
+      boolean deferred = false;
+      for (int i = 0; i < s_pendingRenders.size(); i++)
+      {
+         ChunkOutputWidget widget = s_pendingRenders.get(i);
+         if (widget.console_ == null || !widget.isAttached())
+         {
+            s_pendingRenders.remove(i--);
+            continue;
+         }
+
+         // leave chunks which are scrolled out of view for later
+         if (!widget.isNearViewport())
+            continue;
+
+         if (!rendered.isEmpty() && Duration.currentTimeMillis() > deadline)
+         {
+            deferred = true;
+            break;
+         }
+
+         widget.renderPendingOutput();
+         rendered.add(widget);
+         s_pendingRenders.remove(i--);
+      }
+
+      for (ChunkOutputWidget widget : rendered)
+         widget.onOutputRendered();
+
+      if (deferred)
+         scheduleFlush();
+   }
+
+   private boolean isNearViewport()
+   {
+      if (getElement().getOffsetWidth() == 0)
+         return false;
+      int top = getElement().<ElementEx>cast().getBoundingClientRect().getTop();
+      int height = Window.getClientHeight();
+      return top + getElement().getOffsetHeight() >= -height && 
+             top <= 2 * height;
+   }
+
+   private void renderPendingOutput()
+   {
+      Element el = console_.getElement();
+      el.getStyle().clearHeight();
+      if (redrawPending_)
+      {
+         // build the output while the console is detached from the document
+         Element parent = el.getParentElement();
+         Node next = el.getNextSibling();
+         el.removeFromParent();
+         vconsole_.redraw(el);
+         parent.insertBefore(el, next);
+         redrawPending_ = false;
+      }
+      else
+      {
+         vconsole_.render(el);
+      }
+
+      expander_.setVisible(hiddenLines_ > 0);
+      if (hiddenLines_ > 0)
+         expander_.setText("Show " + hiddenLines_ + " earlier line" +
+                           (hiddenLines_ == 1 ? "" : "s"));
+   }
+
+   private void onOutputRendered()
+   {
+      Element el = console_.getElement();
+      el.setScrollTop(el.getScrollHeight());
+      int height = el.getOffsetHeight();
+      if (expander_.isVisible())
+         height += expander_.getOffsetHeight();
+      onRenderCompleted_.execute(height);
+      if (state_ == CONSOLE_READY)
+         setOverflowStyle();
    }
 
    public void setChunkExecuting()
@@ -366,31 +585,60 @@ public class ChunkOutputWidget extends Composite
          vconsole_ = new VirtualConsole();
       else
          vconsole_.clear();
+      entries_.clear();
+      retainedChars_ = 0;
+      droppedLines_ = 0;
+      hiddenLines_ = 0;
+      expanded_ = false;
+      redrawPending_ = false;
       if (console_ == null)
       {
          console_ = new PreWidget();
          console_.getElement().removeAttribute("tabIndex");
          console_.getElement().getStyle().setMarginTop(0, Unit.PX);
-         console_.getElement().getStyle().setPropertyPx("maxHeight", 500);
+         console_.getElement().getStyle().setPropertyPx("maxHeight", 
+               MAX_CONSOLE_HEIGHT);
          console_.getElement().getStyle().setOverflowY(Overflow.AUTO);
       }
       else
       {
          console_.getElement().setInnerHTML("");
       }
+      if (expander_ == null)
+      {
+         expander_ = new Label();
+         expander_.setStyleName(style.expander());
+         expander_.addClickHandler(new ClickHandler()
+         {
+            @Override
+            public void onClick(ClickEvent event)
+            {
+               expandOutput();
+            }
+         });
+      }
+      expander_.setVisible(false);
+
       // remove the frame if it exists
       if (frame_ != null)
          frame_.removeFromParent();
       
-      // attach the console
+      // attach the console (below the expander for collapsed output)
+      root_.add(expander_);
       root_.add(console_);
    }
    
    private void destroyConsole()
    {
       vconsole_.clear();
+      entries_.clear();
+      retainedChars_ = 0;
+      droppedLines_ = 0;
+      s_pendingRenders.remove(this);
       console_.removeFromParent();
       console_ = null;
+      if (expander_ != null)
+         expander_.removeFromParent();
    }
    
    private void registerConsoleEvents()
@@ -499,6 +747,28 @@ public class ChunkOutputWidget extends Composite
    private ChunkOutputFrame frame_;
    private PreWidget console_;
    private VirtualConsole vconsole_;
+   private Label expander_;
+
+   // the console output received until the output is expanded, so that it
+   // can be expanded if it collapses
+   private static class ConsoleEntry
+   {
+      public ConsoleEntry(String text, String clazz)
+      {
+         this.text = text;
+         this.clazz = clazz;
+      }
+
+      public final String text;
+      public final String clazz;
+   }
+   private final RingBuffer<ConsoleEntry> entries_ = 
+         new RingBuffer<ConsoleEntry>();
+   private int retainedChars_ = 0;
+   private int droppedLines_ = 0;
+   private int hiddenLines_ = 0;
+   private boolean expanded_ = false;
+   private boolean redrawPending_ = false;
    
    private int state_ = CHUNK_EMPTY;
    
@@ -509,6 +779,16 @@ public class ChunkOutputWidget extends Composite
    private static String s_backgroundColor = null;
    private static String s_color           = null;
    private static String s_busyColor       = null;
+
+   private static final ArrayList<ChunkOutputWidget> s_pendingRenders = 
+         new ArrayList<ChunkOutputWidget>();
+   private static boolean s_flushScheduled = false;
+
+   private final static int MAX_COLLAPSED_LINES  = 1000;
+   private final static int MAX_CONSOLE_HEIGHT   = 500;
+   private final static int MAX_RETAINED_CHARS   = 1024 * 1024;
+   private final static int ESTIMATED_LINE_HEIGHT = 15;
+   private final static int FRAME_BUDGET_MS      = 10;
    
    public final static int CHUNK_EMPTY       = 0;
    public final static int CHUNK_EXECUTING   = 1;
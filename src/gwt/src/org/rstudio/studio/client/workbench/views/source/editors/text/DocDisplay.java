@@ -134,6 +134,13 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    void reindent();
    void reindent(Range range);
    ChangeTracker getChangeTracker();
+   
+   /**
+    * Returns a number which increases every time the document's text is
+    * edited, so that callers can cheaply check for edits since they last
+    * looked at the document.
+    */
+   int getDocumentVersion();
 
    String getCode(Position start, Position end);
    DocDisplay.AnchoredSelection createAnchoredSelection(Widget hostWidget,
@@ -308,6 +315,13 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    int getStartOfCurrentStatement();
    int getEndOfCurrentStatement();
    
+   /**
+    * Expands the given rows to the whole top-level expressions (function
+    * definitions, multi-line calls, etc.) which contain them. Returns null
+    * if this can't be determined, e.g. for documents which aren't R.
+    */
+   Range getTopLevelExpressionRange(int startRow, int endRow);
+   
    void highlightDebugLocation(
          SourcePosition startPos,
          SourcePosition endPos,
@@ -326,6 +340,7 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    
    void setAnnotations(JsArray<AceAnnotation> annotations);
    void showLint(JsArray<LintItem> lint);
+   void replaceLint(int startRow, int endRow, JsArray<LintItem> lint);
    void clearLint();
    void removeMarkersAtCursorPosition();
    void removeMarkersOnCursorLine();
@@ -374,6 +389,7 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    JsArray<ChunkDefinition> getChunkDefs();
 
    Position getDocumentEnd();
+   int getDroppedChangeCount();
    
    void setInsertMatching(boolean value);
    void setSurroundSelectionPref(String value);
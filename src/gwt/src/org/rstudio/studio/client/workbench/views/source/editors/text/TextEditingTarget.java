@@ -2106,6 +2106,22 @@ public class TextEditingTarget implements
                                              onCompleted));
    }
    
+   public boolean isSaveInteractive()
+   {
+      // untitled documents prompt for a path, and documents without an
+      // encoding prompt for one unless they're ASCII (see
+      // withEncodingRequiredUnlessAscii)
+      if (docUpdateSentinel_.getPath() == null)
+         return true;
+      
+      return StringUtil.isNullOrEmpty(StringUtil.firstNotNullOrEmpty(
+                  new String[] {
+                     docUpdateSentinel_.getEncoding(),
+                     prefs_.defaultEncoding().getValue()
+                  })) &&
+             !docUpdateSentinel_.isAscii();
+   }
+   
    public void saveWithPrompt(final Command command, final Command onCancelled)
    {
       view_.ensureVisible();
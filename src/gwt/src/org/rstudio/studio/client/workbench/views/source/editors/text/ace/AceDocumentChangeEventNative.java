@@ -31,4 +31,45 @@ public class AceDocumentChangeEventNative extends JavaScriptObject
    public final native String getText() /*-{
       return this.data.text;
    }-*/;
+   
+   public final native boolean isInsertion() /*-{
+      return this.data.action.indexOf("insert") === 0;
+   }-*/;
+   
+   // Returns the number of characters inserted by an insertText or
+   // insertLines change (0 for removals). insertLines changes don't record
+   // the document's line ending, so a line feed is assumed.
+   public final native int getInsertedLength() /*-{
+      var data = this.data;
+      if (data.action === "insertText")
+         return data.text.length;
+      
+      if (data.action === "insertLines")
+      {
+         var length = 0;
+         for (var i = 0; i < data.lines.length; i++)
+            length += data.lines[i].length + 1;
+         return length;
+      }
+      
+      return 0;
+   }-*/;
+   
+   // Returns the number of characters removed by a removeText or
+   // removeLines change (0 for insertions).
+   public final native int getRemovedLength() /*-{
+      var data = this.data;
+      if (data.action === "removeText")
+         return data.text.length;
+      
+      if (data.action === "removeLines")
+      {
+         var length = 0;
+         for (var i = 0; i < data.lines.length; i++)
+            length += data.lines[i].length + data.nl.length;
+         return length;
+      }
+      
+      return 0;
+   }-*/;
 }
@@ -58,6 +58,8 @@ public class CppCompletionRequest
                                CppCompletionManager manager,
                                Command onTerminated)
    {
+      super(manager);
+      
       RStudioGinjector.INSTANCE.injectMembers(this);
       
       docDisplay_ = docDisplay;
@@ -241,7 +241,7 @@ public class SignatureToolTipManager
       if (isBoringFunction(name))
          return;
       
-      server_.getArgs(name, source, new ServerRequestCallback<String>()
+      server_.getArgs(name, source, new ServerRequestCallback<String>(this)
       {
          @Override
          public void onResponseReceived(String response)
@@ -441,7 +441,7 @@ public class SignatureToolTipManager
       setAnchor(cursor.cloneCursor());
       
       final String fnString = callString;
-      server_.getArgs(fnString, "", new ServerRequestCallback<String>() {
+      server_.getArgs(fnString, "", new ServerRequestCallback<String>(this) {
          
          @Override
          public void onResponseReceived(String arguments)
@@ -155,6 +155,9 @@ public class TextEditingTargetNotebook
                // load initial chunk output from server
                loadInitialChunkOutput();
             }
+            
+            // render any output for chunks which were scrolled into view
+            ChunkOutputWidget.onEditorRendered();
          }
       });
    }
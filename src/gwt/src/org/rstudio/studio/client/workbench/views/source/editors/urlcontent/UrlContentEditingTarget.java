@@ -355,6 +355,11 @@ public class UrlContentEditingTarget implements EditingTarget
       onCompleted.execute();
    }
    
+   public boolean isSaveInteractive()
+   {
+      return false;
+   }
+   
    public void saveWithPrompt(Command onCompleted, Command onCancelled)
    {
       onCompleted.execute();
@@ -29,7 +29,9 @@ import org.rstudio.core.client.Barrier.Token;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.TimeBufferedCommand;
 import org.rstudio.core.client.js.JsObject;
-import org.rstudio.core.client.patch.SubstringDiff;
+import org.rstudio.core.client.patch.Crc32;
+import org.rstudio.core.client.patch.EditTracker;
+import org.rstudio.core.client.patch.TextPatch;
 import org.rstudio.core.client.widget.Operation;
 import org.rstudio.core.client.widget.ProgressIndicator;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -43,7 +45,9 @@ import org.rstudio.studio.client.workbench.events.LastChanceSaveHandler;
 import org.rstudio.studio.client.workbench.model.ChangeTracker;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.Fold;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.VimMarks;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.FoldChangeEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.rmd.ChunkDefinition;
@@ -129,6 +133,38 @@ public class DocUpdateSentinel
       docDisplay_.addValueChangeHandler(this);
       docDisplay_.addFoldChangeHandler(this);
 
+      // record the edits made since the last save, so that saves only need
+      // to send the changed ranges rather than diffing the whole document
+      if (docDisplay_.getCode().equals(sourceDoc_.getContents()))
+         resetEdits(sourceDoc_.getContents());
+      docDisplay_.addDocumentChangedHandler(new DocumentChangedEvent.Handler()
+      {
+         @Override
+         public void onDocumentChanged(DocumentChangedEvent event)
+         {
+            // record the rows changed rather than offsets, which would
+            // cost time proportional to the row on every keystroke (see
+            // EditTracker)
+            AceDocumentChangeEventNative change = event.getEvent();
+            int startRow = change.getRange().getStart().getRow();
+            int endRow = change.getRange().getEnd().getRow();
+            if (change.isInsertion())
+            {
+               edits_.replaceRows(startRow,
+                                  1,
+                                  endRow - startRow + 1,
+                                  change.getInsertedLength());
+            }
+            else
+            {
+               edits_.replaceRows(startRow,
+                                  endRow - startRow + 1,
+                                  1,
+                                  -change.getRemovedLength());
+            }
+         }
+      });
+
       // Web only
       closeHandlerReg_ = Window.addWindowClosingHandler(new ClosingHandler()
       {
@@ -358,12 +394,31 @@ public class DocUpdateSentinel
       final JsArray<ChunkDefinition> newChunkDefs = docDisplay_.getChunkDefs();
       JsArray<ChunkDefinition> oldChunkDefs = sourceDoc_.getChunkDefs();
       
-      //String patch = DiffMatchPatch.diff(oldContents, newContents);
-      SubstringDiff diff = new SubstringDiff(oldContents, newContents);
+      // Use the recorded edits if they apply to the contents the server has;
+      // otherwise (e.g. a previous save failed) fall back to diffing. Edits
+      // made from here on are relative to the contents we're about to send.
+      // If the editor dropped any change events the recorded edits can't be
+      // trusted, so diff instead.
+      if (docDisplay_.getDroppedChangeCount() != droppedChangeCount_)
+         edits_.invalidate();
+      //
+      // The server checks that the patched contents have the length we
+      // expect. Checksumming the whole document on every save would cost
+      // more than creating the patch, so the checksum is only sent when
+      // falling back to diffing (which is already proportional to the size
+      // of the document).
+      TextPatch patch = edits_.createPatch(oldContents, newContents);
+      String patchedHash = null;
+      if (patch == null)
+      {
+         patch = TextPatch.fromDiff(oldContents, newContents);
+         patchedHash = Crc32.hash(newContents);
+      }
+      resetEdits(newContents);
 
       // Don't auto-save when there are no changes. In addition to being
       // wasteful, it causes the server to think the document is dirty.
-      if (path == null && fileType == null && diff.isEmpty()
+      if (path == null && fileType == null && patch.isEmpty()
           && foldSpec.equals(oldFoldSpec) 
           && (newChunkDefs == null || 
               ChunkDefinition.equalTo(newChunkDefs, oldChunkDefs)))
@@ -398,17 +453,17 @@ public class DocUpdateSentinel
          Debug.logException(e);
       }
 
-      server_.saveDocumentDiff(
+      server_.saveDocumentPatch(
             sourceDoc_.getId(),
             path,
             fileType,
             encoding,
             foldSpec,
             newChunkDefs,
-            diff.getReplacement(),
-            diff.getOffset(),
-            diff.getLength(),
+            patch,
             hash,
+            newContents.length(),
+            patchedHash,
             new ServerRequestCallback<String>()
             {
                @Override
@@ -727,9 +782,17 @@ public class DocUpdateSentinel
    {
       return sourceDoc_.getId();
    }
+   
+   private void resetEdits(String contents)
+   {
+      edits_.reset(contents);
+      droppedChangeCount_ = docDisplay_.getDroppedChangeCount();
+   }
 
    private boolean changesPending_ = false;
    private final ChangeTracker changeTracker_;
+   private final EditTracker edits_ = new EditTracker();
+   private int droppedChangeCount_ = 0;
    private final SourceServerOperations server_;
    private final DocDisplay docDisplay_;
    private SourceDocument sourceDoc_;
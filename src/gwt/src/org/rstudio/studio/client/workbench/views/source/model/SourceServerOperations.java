@@ -18,6 +18,7 @@ import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 
 import org.rstudio.core.client.js.JsObject;
+import org.rstudio.core.client.patch.TextPatch;
 import org.rstudio.studio.client.common.codetools.CodeToolsServerOperations;
 import org.rstudio.studio.client.events.GetActiveDocumentContextEvent;
 import org.rstudio.studio.client.htmlpreview.model.HTMLPreviewServerOperations;
@@ -120,6 +121,30 @@ public interface SourceServerOperations extends FilesServerOperations,
                          String hash,
                          ServerRequestCallback<String> requestCallback);
 
+   /**
+    * Same as saveDocumentDiff, but the change is described by a patch which
+    * may contain several hunks. Hunk offsets and lengths are relative to the
+    * contents the server is expected to have (before the patch is applied).
+    * newLength is the length (in UTF-16 code units, i.e. String.length())
+    * of the contents the patch is expected to produce, and newHash their
+    * checksum (see Crc32), or null to skip the checksum; if the patched
+    * contents don't match them the server rejects the patch (returning
+    * null).
+    *
+    * The return value has the same semantics as saveDocumentDiff.
+    */
+   void saveDocumentPatch(String id,
+                          String path,
+                          String fileType,
+                          String encoding,
+                          String foldSpec,
+                          JsArray<ChunkDefinition> chunkOutput,
+                          TextPatch patch,
+                          String hash,
+                          int newLength,
+                          String newHash,
+                          ServerRequestCallback<String> requestCallback);
+
    void checkForExternalEdit(
          String id,
          ServerRequestCallback<CheckForExternalEditResult> requestCallback);
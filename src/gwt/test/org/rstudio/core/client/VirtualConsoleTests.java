@@ -0,0 +1,151 @@
+/*
+ * VirtualConsoleTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import junit.framework.Assert;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.dom.client.DivElement;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class VirtualConsoleTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testCarriageReturn()
+   {
+      Assert.assertEquals("xbc", VirtualConsole.consolify("abc\rx"));
+      Assert.assertEquals("abc\nx", VirtualConsole.consolify("abc\n\rx"));
+   }
+
+   public void testBackspace()
+   {
+      Assert.assertEquals("abd", VirtualConsole.consolify("abc\bd"));
+      Assert.assertEquals("d", VirtualConsole.consolify("\bd"));
+   }
+
+   public void testRenderMatchesText()
+   {
+      VirtualConsole console = new VirtualConsole();
+      DivElement parent = Document.get().createDivElement();
+      console.submitAndRender("one\ntwo", "a", parent);
+      console.submitAndRender("\rTWO\n", "b", parent);
+      console.submitAndRender("three\b\b\bee", null, parent);
+      Assert.assertEquals(console.toString(), parent.getInnerText());
+      Assert.assertEquals("one\nTWO\nthee", console.toString());
+   }
+
+   public void testTrimLines()
+   {
+      VirtualConsole console = new VirtualConsole();
+      DivElement parent = Document.get().createDivElement();
+      console.submitAndRender("1\n2\n3\n4", null, parent);
+      Assert.assertEquals(2, console.trimLines(2));
+      Assert.assertEquals("3\n4", console.toString());
+      Assert.assertEquals(console.toString(), parent.getInnerText());
+      Assert.assertEquals(1, console.getLineCount());
+   }
+
+   // streams 100k lines of progress bar output (each line redrawn several
+   // times with \r before being completed) and reports the cost per update
+   // as the console grows, which should stay flat. the same output is then
+   // rendered with a full redraw per update (as before the console tracked
+   // dirty ranges) for as many lines as is practical, for comparison
+   public void testProgressBarBenchmark()
+   {
+      VirtualConsole console = new VirtualConsole();
+      DivElement parent = Document.get().createDivElement();
+      double start = Duration.currentTimeMillis();
+      for (int line = 0; line < PROGRESS_LINES; line++)
+      {
+         writeProgressLine(console, parent, line, false);
+         if ((line + 1) % REPORT_LINES == 0)
+         {
+            double now = Duration.currentTimeMillis();
+            report("dirty range", line + 1, REPORT_LINES, now - start);
+            start = now;
+         }
+      }
+      Assert.assertEquals(PROGRESS_LINES, console.getLineCount());
+      Assert.assertEquals(console.toString(), parent.getInnerText());
+
+      VirtualConsole redrawn = new VirtualConsole();
+      DivElement redrawParent = Document.get().createDivElement();
+      start = Duration.currentTimeMillis();
+      for (int line = 0; line < REDRAW_LINES; line++)
+      {
+         writeProgressLine(redrawn, redrawParent, line, true);
+         if ((line + 1) % (REDRAW_LINES / 4) == 0)
+         {
+            double now = Duration.currentTimeMillis();
+            report("full redraw", line + 1, REDRAW_LINES / 4, now - start);
+            start = now;
+         }
+      }
+      Assert.assertEquals(redrawn.toString(), redrawParent.getInnerText());
+   }
+
+   private static void writeProgressLine(VirtualConsole console,
+                                         DivElement parent,
+                                         int line,
+                                         boolean redraw)
+   {
+      for (int update = 0; update < UPDATES_PER_LINE; update++)
+      {
+         console.submit("\r" + progressBar(line, update), null);
+         if (redraw)
+            console.redraw(parent);
+         else
+            console.render(parent);
+      }
+      console.submit("\n", null);
+      if (redraw)
+         console.redraw(parent);
+      else
+         console.render(parent);
+   }
+
+   private static String progressBar(int line, int update)
+   {
+      int percent = (update + 1) * 100 / UPDATES_PER_LINE;
+      StringBuilder bar = new StringBuilder("|");
+      for (int i = 0; i < BAR_WIDTH; i++)
+         bar.append(i < percent * BAR_WIDTH / 100 ? '=' : ' ');
+      return bar.append("| ").append(percent).append("% ").append(line)
+                .toString();
+   }
+
+   private static void report(String label,
+                              int lines,
+                              int windowLines,
+                              double ms)
+   {
+      int updates = windowLines * (UPDATES_PER_LINE + 1);
+      System.out.println(label + " at " + lines + " lines: " +
+                         Math.round(ms * 1000000 / updates) / 1000.0 +
+                         "ms per update");
+   }
+
+   private static final int PROGRESS_LINES = 100000;
+   private static final int REPORT_LINES = 10000;
+   private static final int REDRAW_LINES = 2000;
+   private static final int UPDATES_PER_LINE = 4;
+   private static final int BAR_WIDTH = 50;
+}
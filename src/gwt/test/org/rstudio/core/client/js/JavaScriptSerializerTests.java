@@ -0,0 +1,210 @@
+/*
+ * JavaScriptSerializerTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.js;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.rstudio.studio.client.workbench.views.source.events.DocTabClosedEvent;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class JavaScriptSerializerTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+   
+   @Override
+   protected void gwtSetUp()
+   {
+      serializer_ = GWT.create(JavaScriptSerializer.class);
+   }
+   
+   public void testRoundTrip()
+   {
+      JavaScriptObject jso = serializer_.serialize(
+                                          new DocTabClosedEvent("doc1"));
+      Assert.assertTrue(getTypeId(jso) >= 0);
+      Assert.assertEquals(DocTabClosedEvent.class.getName(), 
+                          getClassName(jso));
+      
+      DocTabClosedEvent event = serializer_.deserialize(jso);
+      Assert.assertNotNull(event);
+      Assert.assertEquals("doc1", event.getDocId());
+   }
+   
+   public void testTypeIdsAreStable()
+   {
+      JavaScriptObject first = serializer_.serialize(
+                                          new DocTabClosedEvent("a"));
+      JavaScriptObject second = serializer_.serialize(
+                                          new DocTabClosedEvent("b"));
+      Assert.assertEquals(getTypeId(first), getTypeId(second));
+   }
+   
+   public void testDeserializeByClassName()
+   {
+      // payloads without a type id fall back to dispatch by class name
+      JavaScriptObject jso = serializer_.serialize(
+                                          new DocTabClosedEvent("doc2"));
+      removeTypeId(jso);
+      
+      DocTabClosedEvent event = serializer_.deserialize(jso);
+      Assert.assertNotNull(event);
+      Assert.assertEquals("doc2", event.getDocId());
+   }
+   
+   public void testUnknownClass()
+   {
+      Assert.assertNull(serializer_.serialize(new Object()));
+      Assert.assertNull(serializer_.<Object>deserialize(
+                                 createPayload("org.rstudio.NoSuchClass")));
+   }
+   
+   public void testNull()
+   {
+      Assert.assertNull(serializer_.serialize(null));
+      Assert.assertNull(serializer_.<Object>deserialize(null));
+   }
+   
+   public void testBatchRoundTrip()
+   {
+      List<DocTabClosedEvent> events = createEvents(3);
+      List<DocTabClosedEvent> hydrated = serializer_.deserializeBatch(
+                                       serializer_.serializeBatch(events));
+      Assert.assertEquals(events.size(), hydrated.size());
+      for (int i = 0; i < events.size(); i++)
+         Assert.assertEquals(events.get(i).getDocId(), 
+                             hydrated.get(i).getDocId());
+   }
+   
+   // compares dispatch by type id with the class name compare chain the
+   // generator used to emit (modeled here as a chain with one entry per
+   // serializable class, the event's class being last), then times
+   // delivering a burst of events one at a time and as a single batch
+   public void testDispatchBenchmark()
+   {
+      DocTabClosedEvent event = new DocTabClosedEvent("doc");
+      String[] chain = new String[SERIALIZABLE_CLASSES];
+      for (int i = 0; i < chain.length - 1; i++)
+         chain[i] = "org.rstudio.studio.client.events.Event" + i;
+      chain[chain.length - 1] = event.getClass().getName();
+      
+      HashMap<Class<?>, Integer> typeIds = new HashMap<Class<?>, Integer>();
+      typeIds.put(event.getClass(), chain.length - 1);
+      
+      int found = 0;
+      double start = Duration.currentTimeMillis();
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         String name = event.getClass().getName();
+         for (int j = 0; j < chain.length; j++)
+         {
+            if (name.equals(chain[j]))
+            {
+               found++;
+               break;
+            }
+         }
+      }
+      double chainMs = Duration.currentTimeMillis() - start;
+      
+      start = Duration.currentTimeMillis();
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         if (typeIds.get(event.getClass()) != null)
+            found++;
+      }
+      double idMs = Duration.currentTimeMillis() - start;
+      Assert.assertEquals(2 * ITERATIONS, found);
+      
+      start = Duration.currentTimeMillis();
+      for (int i = 0; i < ITERATIONS; i++)
+         serializer_.deserialize(serializer_.serialize(event));
+      double roundTripMs = Duration.currentTimeMillis() - start;
+      
+      System.out.println("class name chain (" + chain.length + " classes): " +
+                         perCall(chainMs, ITERATIONS) + "ms, type id: " + 
+                         perCall(idMs, ITERATIONS) + "ms per lookup");
+      System.out.println("serialize + deserialize: " + 
+                         perCall(roundTripMs, ITERATIONS) + "ms per event");
+      
+      List<DocTabClosedEvent> events = createEvents(BURST_SIZE);
+      int bursts = ITERATIONS / BURST_SIZE;
+      
+      start = Duration.currentTimeMillis();
+      for (int i = 0; i < bursts; i++)
+      {
+         for (DocTabClosedEvent e : events)
+            serializer_.deserialize(serializer_.serialize(e));
+      }
+      double singleMs = Duration.currentTimeMillis() - start;
+      
+      start = Duration.currentTimeMillis();
+      for (int i = 0; i < bursts; i++)
+         serializer_.deserializeBatch(serializer_.serializeBatch(events));
+      double batchMs = Duration.currentTimeMillis() - start;
+      
+      System.out.println("burst of " + BURST_SIZE + " events: " + 
+                         perCall(singleMs, bursts) + "ms one at a time, " +
+                         perCall(batchMs, bursts) + "ms batched");
+   }
+   
+   private static List<DocTabClosedEvent> createEvents(int count)
+   {
+      List<DocTabClosedEvent> events = new ArrayList<DocTabClosedEvent>();
+      for (int i = 0; i < count; i++)
+         events.add(new DocTabClosedEvent("doc" + i));
+      return events;
+   }
+   
+   private static String perCall(double ms, int iterations)
+   {
+      return Double.toString(Math.round(ms * 1000000 / iterations) / 1000.0);
+   }
+   
+   private static native int getTypeId(JavaScriptObject jso) /*-{
+      return jso.type_id;
+   }-*/;
+   
+   private static native String getClassName(JavaScriptObject jso) /*-{
+      return jso.class_name;
+   }-*/;
+   
+   private static native void removeTypeId(JavaScriptObject jso) /*-{
+      delete jso.type_id;
+   }-*/;
+   
+   private static native JavaScriptObject createPayload(
+                                             String className) /*-{
+      return { "class_name": className, "class_data": {} };
+   }-*/;
+   
+   private JavaScriptSerializer serializer_;
+   
+   // the number of @JavaScriptSerializable classes in the tree
+   private static final int SERIALIZABLE_CLASSES = 38;
+   private static final int ITERATIONS = 100000;
+   private static final int BURST_SIZE = 10;
+}
@@ -0,0 +1,209 @@
+/*
+ * RpcJsonTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import junit.framework.Assert;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.junit.client.GWTTestCase;
+
+// compares the native JSON request/response path with the JSONValue
+// wrapper path it replaced, for payloads the size of a small call, an
+// environment listing and a data preview
+public class RpcJsonTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testRequestMatchesWrapperSerialization()
+   {
+      JSONArray params = createParams(20);
+      Assert.assertEquals(canonical(wrapperRequestString(params)),
+                          canonical(nativeRequestString(params)));
+   }
+
+   public void testResponseMatchesWrapperParse()
+   {
+      String json = createResponse(20);
+      Assert.assertEquals(canonical(wrapperParse(json)),
+                          canonical(RpcResponse.parse(json)));
+   }
+
+   public void testLenientFallback()
+   {
+      // JSON.parse rejects unquoted keys, eval accepts them
+      RpcResponse response = RpcResponse.parse("{result: 1}");
+      Assert.assertNotNull(response);
+      Assert.assertNull(response.getError());
+   }
+
+   public void testInvalidResponse()
+   {
+      Assert.assertNull(RpcResponse.parse("{\"result\": "));
+   }
+
+   public void testRequestBenchmark()
+   {
+      for (int rows : PAYLOAD_ROWS)
+      {
+         JSONArray params = createParams(rows);
+         int iterations = iterationsFor(rows);
+
+         double start = Duration.currentTimeMillis();
+         for (int i = 0; i < iterations; i++)
+            wrapperRequestString(params);
+         double wrapperMs = Duration.currentTimeMillis() - start;
+
+         start = Duration.currentTimeMillis();
+         for (int i = 0; i < iterations; i++)
+            nativeRequestString(params);
+         double nativeMs = Duration.currentTimeMillis() - start;
+
+         report("request", rows, iterations, wrapperMs, nativeMs);
+      }
+   }
+
+   public void testResponseBenchmark()
+   {
+      for (int rows : PAYLOAD_ROWS)
+      {
+         String json = createResponse(rows);
+         int iterations = iterationsFor(rows);
+
+         double start = Duration.currentTimeMillis();
+         for (int i = 0; i < iterations; i++)
+            wrapperParse(json);
+         double wrapperMs = Duration.currentTimeMillis() - start;
+
+         start = Duration.currentTimeMillis();
+         for (int i = 0; i < iterations; i++)
+            RpcResponse.parse(json);
+         double nativeMs = Duration.currentTimeMillis() - start;
+
+         report("response", rows, iterations, wrapperMs, nativeMs);
+      }
+   }
+
+   // the request string as built before the native path (a JSONObject
+   // wrapping the params, serialized with toString)
+   private static String wrapperRequestString(JSONArray params)
+   {
+      JSONObject request = new JSONObject();
+      request.put("method", new JSONString(METHOD));
+      request.put("params", params);
+      request.put("clientId", new JSONString(CLIENT_ID));
+      request.put("clientVersion", new JSONString(CLIENT_VERSION));
+      return request.toString();
+   }
+
+   private static String nativeRequestString(JSONArray params)
+   {
+      RpcRequest request = new RpcRequest("/rpc/" + METHOD,
+                                          METHOD,
+                                          params,
+                                          null,
+                                          false,
+                                          null,
+                                          CLIENT_ID,
+                                          CLIENT_VERSION);
+      return RpcRequest.stringify(request.toJavaScriptObject());
+   }
+
+   // the response as parsed before the native path (a JSONValue tree
+   // which is then unwrapped to the underlying object)
+   private static RpcResponse wrapperParse(String json)
+   {
+      return JSONParser.parseStrict(json).isObject()
+                                         .getJavaScriptObject().cast();
+   }
+
+   // rows of the kind returned for environment listings and data previews
+   private static JSONArray createParams(int rows)
+   {
+      JSONArray values = new JSONArray();
+      for (int i = 0; i < rows; i++)
+      {
+         JSONObject row = new JSONObject();
+         row.put("name", new JSONString("object" + i));
+         row.put("type", new JSONString("numeric"));
+         row.put("value", new JSONString("num [1:" + i + "] 1 2 3 4 5 ..."));
+         row.put("size", new JSONNumber(i * 8));
+         values.set(i, row);
+      }
+
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString("R_GlobalEnv"));
+      params.set(1, values);
+      return params;
+   }
+
+   private static String createResponse(int rows)
+   {
+      JSONObject response = new JSONObject();
+      response.put("result", createParams(rows));
+      return response.toString();
+   }
+
+   private static int iterationsFor(int rows)
+   {
+      return Math.max(1, 100000 / rows);
+   }
+
+   private static void report(String path,
+                              int rows,
+                              int iterations,
+                              double wrapperMs,
+                              double nativeMs)
+   {
+      System.out.println(path + " with " + rows + " rows: " +
+                         "JSONValue " + perCall(wrapperMs, iterations) +
+                         "ms, native " + perCall(nativeMs, iterations) +
+                         "ms per call");
+   }
+
+   private static String perCall(double ms, int iterations)
+   {
+      return Double.toString(Math.round(ms * 1000 / iterations) / 1000.0);
+   }
+
+   private static String canonical(String json)
+   {
+      return RpcRequest.stringify(parse(json));
+   }
+
+   private static String canonical(JavaScriptObject jso)
+   {
+      return RpcRequest.stringify(jso);
+   }
+
+   private static native JavaScriptObject parse(String json) /*-{
+      return JSON.parse(json);
+   }-*/;
+
+   private static final int[] PAYLOAD_ROWS = new int[] { 10, 1000, 10000 };
+
+   private static final String METHOD = "list_environment";
+   private static final String CLIENT_ID = "33e600bb-c1b1-46bf-b562-ab5cba070b0e";
+   private static final String CLIENT_VERSION = "1";
+}
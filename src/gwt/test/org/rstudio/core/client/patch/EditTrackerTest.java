@@ -0,0 +1,265 @@
+/*
+ * EditTrackerTest.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+public class EditTrackerTest extends TestCase
+{
+   public void setUp() throws Exception
+   {
+      tracker_ = new EditTracker();
+      tracker_.reset(BASE);
+   }
+
+   public void testNoEdits() throws Exception
+   {
+      TextPatch patch = tracker_.createPatch(BASE, BASE);
+      assertNotNull(patch);
+      assertTrue(patch.isEmpty());
+   }
+
+   public void testInsert() throws Exception
+   {
+      // "X" typed at the start of row 1
+      String current = "abc\nXdef\nghi\n";
+      tracker_.replaceRows(1, 1, 1, 1);
+      TextPatch patch = checkPatch(current);
+      assertEquals(1, patch.getHunks().size());
+      assertEquals(4, patch.getHunks().get(0).getOffset());
+      assertEquals(4, patch.getHunks().get(0).getLength());
+      assertEquals("Xdef\n", patch.getHunks().get(0).getReplacement());
+   }
+
+   public void testRemove() throws Exception
+   {
+      // row 1 removed (rows 1 and 2 become row 1)
+      String current = "abc\nghi\n";
+      tracker_.replaceRows(1, 2, 1, -4);
+      TextPatch patch = checkPatch(current);
+      assertEquals(1, patch.getHunks().size());
+      assertEquals(8, patch.getHunks().get(0).getLength());
+      assertEquals("ghi\n", patch.getHunks().get(0).getReplacement());
+   }
+
+   public void testSeparateEditsKeepBaseOffsets() throws Exception
+   {
+      // "abc\ndef\nghi\n" -> "abc\ndef\ngXYhi\n" -> "Zbc\ndef\ngXYhi\n"
+      String current = "Zbc\ndef\ngXYhi\n";
+      tracker_.replaceRows(2, 1, 1, 2);
+      tracker_.replaceRows(0, 1, 1, -1);
+      tracker_.replaceRows(0, 1, 1, 1);
+      TextPatch patch = checkPatch(current);
+      assertEquals(2, patch.getHunks().size());
+      assertEquals(0, patch.getHunks().get(0).getOffset());
+      assertEquals(8, patch.getHunks().get(1).getOffset());
+   }
+
+   public void testAdjacentEditsAreMerged() throws Exception
+   {
+      // typing "xyz" one character at a time
+      String current = "abc\nxyzdef\nghi\n";
+      tracker_.replaceRows(1, 1, 1, 1);
+      tracker_.replaceRows(1, 1, 1, 1);
+      tracker_.replaceRows(1, 1, 1, 1);
+      TextPatch patch = checkPatch(current);
+      assertEquals(1, patch.getHunks().size());
+      assertEquals("xyzdef\n", patch.getHunks().get(0).getReplacement());
+   }
+
+   public void testOverlappingEditsAreMerged() throws Exception
+   {
+      // "abc\ndef\nghi\n" -> "abc\nd1\n2ef\nghi\n" -> "abc\nd1\nhi\n"
+      String current = "abc\nd1\nhi\n";
+      tracker_.replaceRows(1, 1, 2, 3);
+      tracker_.replaceRows(2, 2, 1, -5);
+      TextPatch patch = checkPatch(current);
+      assertEquals(1, patch.getHunks().size());
+   }
+
+   public void testEditsAtEndOfText() throws Exception
+   {
+      // the last row of BASE is empty
+      tracker_.replaceRows(3, 1, 1, 1);
+      checkPatch(BASE + "x");
+
+      // a line break added to text which doesn't end with one
+      tracker_.reset("abc");
+      tracker_.replaceRows(0, 1, 2, 1);
+      TextPatch patch = tracker_.createPatch("abc", "abc\n");
+      assertNotNull(patch);
+      assertEquals("abc\n", patch.patch("abc"));
+   }
+
+   public void testRestoredTextIsOmitted() throws Exception
+   {
+      // type a character and then delete it again
+      tracker_.replaceRows(1, 1, 1, 1);
+      tracker_.replaceRows(1, 1, 1, -1);
+      assertTrue(tracker_.createPatch(BASE, BASE).isEmpty());
+
+      // replace a character with the same character
+      tracker_.replaceRows(0, 1, 1, -1);
+      tracker_.replaceRows(0, 1, 1, 1);
+      assertTrue(tracker_.createPatch(BASE, BASE).isEmpty());
+   }
+
+   public void testInvalidate() throws Exception
+   {
+      tracker_.replaceRows(0, 1, 1, 1);
+      tracker_.invalidate();
+      assertNull(tracker_.createPatch(BASE, "X" + BASE));
+
+      // edits after invalidation are ignored until the next reset
+      tracker_.replaceRows(0, 1, 1, 1);
+      assertNull(tracker_.createPatch(BASE, "XX" + BASE));
+
+      tracker_.reset(BASE);
+      tracker_.replaceRows(0, 1, 1, 1);
+      checkPatch("X" + BASE);
+   }
+
+   public void testOutOfRangeEditInvalidates() throws Exception
+   {
+      tracker_.replaceRows(-1, 1, 1, 0);
+      assertNull(tracker_.createPatch(BASE, BASE));
+
+      // rows past the end of the text
+      tracker_.reset(BASE);
+      tracker_.replaceRows(10, 1, 1, 0);
+      assertNull(tracker_.createPatch(BASE, BASE));
+   }
+
+   public void testMismatchedText() throws Exception
+   {
+      tracker_.replaceRows(0, 1, 1, 1);
+
+      // a different base than the one being tracked
+      assertNull(tracker_.createPatch("xyz\n", "Xxyz\n"));
+
+      // current text which doesn't reflect the recorded edits
+      assertNull(tracker_.createPatch(BASE, BASE));
+   }
+
+   public void testRandomEdits() throws Exception
+   {
+      // random insertions and removals, reported as the editor reports
+      // them, with a save (patch and reset) every few edits
+      Random random = new Random(42);
+      String base = BASE;
+      StringBuilder current = new StringBuilder(BASE);
+      for (int i = 0; i < 20000; i++)
+      {
+         int offset = random.nextInt(current.length() + 1);
+         int startRow = rowOf(current, offset);
+         if (random.nextBoolean() || current.length() == offset)
+         {
+            String text = RANDOM_TEXT[random.nextInt(RANDOM_TEXT.length)];
+            current.insert(offset, text);
+            int endRow = rowOf(current, offset + text.length());
+            tracker_.replaceRows(startRow, 1, endRow - startRow + 1,
+                                 text.length());
+         }
+         else
+         {
+            int length = 1 + random.nextInt(
+                  Math.min(10, current.length() - offset));
+            int endRow = rowOf(current, offset + length);
+            current.delete(offset, offset + length);
+            tracker_.replaceRows(startRow, endRow - startRow + 1, 1,
+                                 -length);
+         }
+
+         if (random.nextInt(10) == 0)
+         {
+            TextPatch patch = tracker_.createPatch(base,
+                                                   current.toString());
+            assertNotNull(patch);
+            assertEquals(current.toString(), patch.patch(base));
+            base = current.toString();
+            tracker_.reset(base);
+         }
+      }
+   }
+
+   private static int rowOf(CharSequence text, int offset)
+   {
+      int row = 0;
+      for (int i = 0; i < offset; i++)
+      {
+         if (text.charAt(i) == '\n')
+            row++;
+      }
+      return row;
+   }
+
+   public void testFromDiff() throws Exception
+   {
+      String current = "abc\nd!!f\nghi\n";
+      TextPatch patch = TextPatch.fromDiff(BASE, current);
+      assertEquals(1, patch.getHunks().size());
+      assertEquals(current, patch.patch(BASE));
+
+      assertTrue(TextPatch.fromDiff(BASE, BASE).isEmpty());
+      assertEquals(BASE, TextPatch.fromDiff(BASE, BASE).patch(BASE));
+   }
+
+   public void testPatch() throws Exception
+   {
+      TextPatch patch = new TextPatch();
+      patch.addHunk(0, 3, "xyz");
+      patch.addHunk(8, 0, "!");
+      patch.addHunk(10, 2, "");
+      assertEquals("xyz\ndef\n!gh", patch.patch(BASE));
+      assertEquals(4, patch.getReplacementLength());
+   }
+
+   public void testCrc32MatchesUtf8Encoding() throws Exception
+   {
+      String[] texts = new String[] {
+            "",
+            BASE,
+            "café è",
+            "中文",
+            "😀 surrogate pair"
+      };
+
+      for (String text : texts)
+      {
+         byte[] bytes = text.getBytes("UTF-8");
+         CRC32 crc = new CRC32();
+         crc.update(bytes);
+         assertEquals(Long.toString(crc.getValue()), Crc32.hash(text));
+      }
+   }
+
+   // asserts that the tracked edits yield a patch from BASE to current
+   private TextPatch checkPatch(String current)
+   {
+      TextPatch patch = tracker_.createPatch(BASE, current);
+      assertNotNull(patch);
+      assertEquals(current, patch.patch(BASE));
+      return patch;
+   }
+
+   private static final String BASE = "abc\ndef\nghi\n";
+   private static final String[] RANDOM_TEXT =
+                           new String[] { "x", "yz", "\n", "a\nb", "\n\n" };
+
+   private EditTracker tracker_;
+}
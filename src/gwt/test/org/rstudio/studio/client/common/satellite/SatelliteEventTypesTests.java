@@ -0,0 +1,128 @@
+/*
+ * SatelliteEventTypesTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.satellite;
+
+import java.util.ArrayList;
+
+import junit.framework.Assert;
+
+import org.rstudio.studio.client.common.rpubs.events.RPubsUploadStatusEvent;
+import org.rstudio.studio.client.htmlpreview.HTMLPreviewApplication;
+import org.rstudio.studio.client.htmlpreview.events.HTMLPreviewCompletedEvent;
+import org.rstudio.studio.client.htmlpreview.events.HTMLPreviewOutputEvent;
+import org.rstudio.studio.client.htmlpreview.events.HTMLPreviewStartedEvent;
+import org.rstudio.studio.client.rmarkdown.RmdOutputSatellite;
+import org.rstudio.studio.client.rmarkdown.events.RmdRenderCompletedEvent;
+import org.rstudio.studio.client.rmarkdown.events.RmdRenderStartedEvent;
+import org.rstudio.studio.client.rsconnect.events.RSConnectDeploymentCompletedEvent;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDispatcher;
+import org.rstudio.studio.client.shiny.ShinyApplicationSatellite;
+
+import com.google.gwt.event.shared.EventHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerManager;
+import com.google.gwt.junit.client.GWTTestCase;
+
+// checks that satellites subscribe to the server events fired for the
+// handlers registered by the widgets they host (the publish button in
+// particular)
+public class SatelliteEventTypesTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testEventTypeSources()
+   {
+      assertSources(RSConnectDeploymentCompletedEvent.TYPE,
+                    ClientEvent.RSConnectDeploymentCompleted);
+      assertSources(RPubsUploadStatusEvent.TYPE,
+                    ClientEvent.RPubsUploadStatus);
+      assertSources(RmdRenderCompletedEvent.TYPE,
+                    ClientEvent.RmdRenderCompleted);
+   }
+
+   public void testUnsubscribedEventTypes()
+   {
+      HandlerManager handlers = publishButtonHandlers();
+      ArrayList<String> unsubscribed = Satellite.getUnsubscribedEventTypes(
+            new String[] { ClientEvent.ShinyViewer }, handlers);
+      Assert.assertTrue(unsubscribed.contains(
+                              ClientEvent.RSConnectDeploymentCompleted));
+      Assert.assertTrue(unsubscribed.contains(ClientEvent.RPubsUploadStatus));
+      Assert.assertTrue(unsubscribed.contains(ClientEvent.RmdRenderCompleted));
+   }
+
+   public void testHTMLPreviewSubscriptions()
+   {
+      HandlerManager handlers = publishButtonHandlers();
+      addHandler(handlers, HTMLPreviewStartedEvent.TYPE);
+      addHandler(handlers, HTMLPreviewOutputEvent.TYPE);
+      addHandler(handlers, HTMLPreviewCompletedEvent.TYPE);
+      assertSubscribed(HTMLPreviewApplication.CLIENT_EVENT_TYPES, handlers);
+   }
+
+   public void testShinyApplicationSubscriptions()
+   {
+      assertSubscribed(ShinyApplicationSatellite.CLIENT_EVENT_TYPES,
+                       publishButtonHandlers());
+   }
+
+   public void testRmdOutputSubscriptions()
+   {
+      HandlerManager handlers = publishButtonHandlers();
+      addHandler(handlers, RmdRenderStartedEvent.TYPE);
+      assertSubscribed(RmdOutputSatellite.CLIENT_EVENT_TYPES, handlers);
+   }
+
+   private static void assertSources(GwtEvent.Type<?> type, String source)
+   {
+      ArrayList<String> sources =
+            ClientEventDispatcher.getEventTypeSources().get(type);
+      Assert.assertNotNull(sources);
+      Assert.assertTrue(sources.contains(source));
+   }
+
+   private static void assertSubscribed(String[] subscribed,
+                                        HandlerManager handlers)
+   {
+      ArrayList<String> unsubscribed =
+            Satellite.getUnsubscribedEventTypes(subscribed, handlers);
+      Assert.assertTrue("Not subscribed: " + unsubscribed,
+                        unsubscribed.isEmpty());
+   }
+
+   // the handlers the publish button registers (see RSConnectPublishButton)
+   private static HandlerManager publishButtonHandlers()
+   {
+      HandlerManager handlers = new HandlerManager(null);
+      addHandler(handlers, RSConnectDeploymentCompletedEvent.TYPE);
+      addHandler(handlers, RPubsUploadStatusEvent.TYPE);
+      addHandler(handlers, RmdRenderCompletedEvent.TYPE);
+      return handlers;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <H extends EventHandler> void addHandler(
+                                                HandlerManager handlers,
+                                                GwtEvent.Type<H> type)
+   {
+      // the handler is never invoked, only its registration is checked
+      handlers.addHandler(type, (H) new EventHandler() {});
+   }
+}
@@ -0,0 +1,76 @@
+/*
+ * ConsoleOutputLinesTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import junit.framework.Assert;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ConsoleOutputLinesTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testCarriageReturnAfterPrompt()
+   {
+      ConsoleOutputLines lines = new ConsoleOutputLines();
+      lines.appendText("> ", "prompt");
+      lines.appendOutput("50%", null);
+      lines.appendOutput("\r60%", null);
+      Assert.assertEquals("> 60%", getLine(lines, lines.getEndLine() - 1));
+   }
+
+   // output following lines which are replaced by a widget (as for an
+   // extended error) keeps pounding over itself from where it started
+   public void testReplaceLinesMovesOutput()
+   {
+      ConsoleOutputLines lines = new ConsoleOutputLines();
+      lines.appendText("error 1\nerror 2\n", "error");
+      lines.appendText("> ", "prompt");
+      lines.appendOutput("50%", null);
+
+      Assert.assertTrue(lines.replaceLines(
+            0, 2, Document.get().createDivElement()));
+      Assert.assertEquals(2, lines.getLineCount());
+
+      lines.appendOutput("\r60%", null);
+      Assert.assertEquals("> 60%", getLine(lines, lines.getEndLine() - 1));
+   }
+
+   public void testReplaceEmptyRange()
+   {
+      ConsoleOutputLines lines = new ConsoleOutputLines();
+      lines.appendText("> ", "prompt");
+      lines.appendOutput("50%", null);
+
+      Assert.assertTrue(lines.replaceLines(
+            0, 0, Document.get().createDivElement()));
+      Assert.assertEquals(2, lines.getLineCount());
+
+      lines.appendOutput("\r60%", null);
+      Assert.assertEquals("> 60%", getLine(lines, lines.getEndLine() - 1));
+   }
+
+   private static String getLine(ConsoleOutputLines lines, int line)
+   {
+      ConsoleOutputLines.Block block =
+                              lines.getBlock(lines.findBlock(line));
+      return block.getLine(line - block.getStart()).getText();
+   }
+}
@@ -0,0 +1,251 @@
+/*
+ * ShellWidgetTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import junit.framework.Assert;
+
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+import org.rstudio.studio.client.RStudioGinjector;
+import org.rstudio.studio.client.workbench.model.SessionInfo;
+import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.RootPanel;
+
+public class ShellWidgetTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   // streams 50 MB of output through consoleWriteOutput with a 1000 line
+   // limit. output is written a frame's worth at a time (yielding between
+   // frames so the output view renders as it would in the IDE) and the
+   // cost of writing each 5 MB is reported, which should stay flat as the
+   // output streams
+   public void testConsoleWriteOutputBenchmark()
+   {
+      AceEditor.load(new Command()
+      {
+         @Override
+         public void execute()
+         {
+            ShellWidget shell = createShell();
+            shell.setMaxOutputLines(MAX_LINES);
+            streamOutput(shell);
+         }
+      });
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   // measures the time from receiving the client_init response to a fully
+   // restored console (including the first paint after the replay) for
+   // console action lists of increasing size, replayed with a 1000 line
+   // limit
+   public void testConsoleReplayBenchmark()
+   {
+      AceEditor.load(new Command()
+      {
+         @Override
+         public void execute()
+         {
+            replayNext(0);
+         }
+      });
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   private void replayNext(final int index)
+   {
+      if (index >= REPLAY_ACTIONS.length)
+      {
+         finishTest();
+         return;
+      }
+
+      final int actionCount = REPLAY_ACTIONS[index];
+      String json = createClientInitResponse(actionCount, MAX_LINES);
+      final ShellWidget shell = createShell();
+
+      final double start = Duration.currentTimeMillis();
+      SessionInfo sessionInfo = RpcResponse.parse(json).getResult();
+      double parsed = Duration.currentTimeMillis();
+
+      // as in Shell.onSessionInit
+      shell.setMaxOutputLines(sessionInfo.getConsoleActionsLimit());
+      shell.playbackActions(sessionInfo.getConsoleActions());
+      final double replayed = Duration.currentTimeMillis();
+      final double parseMs = parsed - start;
+
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            double restored = Duration.currentTimeMillis();
+            System.out.println(
+                  actionCount + " console actions: parse " +
+                  Math.round(parseMs) + "ms, replay " +
+                  Math.round(replayed - start - parseMs) + "ms, " +
+                  "client_init to restored console " +
+                  Math.round(restored - start) + "ms");
+
+            // the most recent output was restored
+            Assert.assertTrue(shell.findInOutput(
+                  "[" + (actionCount / ACTIONS_PER_COMMAND - 1) + "]",
+                  true));
+            shell.removeFromParent();
+            replayNext(index + 1);
+         }
+      });
+   }
+
+   private static ShellWidget createShell()
+   {
+      ShellWidget shell = new ShellWidget(
+            new AceEditor(),
+            RStudioGinjector.INSTANCE.getEventBus());
+      shell.setPixelSize(800, 600);
+      RootPanel.get().add(shell);
+      return shell;
+   }
+
+   private void streamOutput(final ShellWidget shell)
+   {
+      final String chunk = createChunk();
+      final int chunksPerFrame = FRAME_BYTES / chunk.length();
+      final int chunksPerReport = REPORT_BYTES / chunk.length();
+      final int totalChunks = TOTAL_BYTES / chunk.length();
+      final double streamStart = Duration.currentTimeMillis();
+
+      Scheduler.get().scheduleIncremental(new RepeatingCommand()
+      {
+         @Override
+         public boolean execute()
+         {
+            double start = Duration.currentTimeMillis();
+            for (int i = 0; i < chunksPerFrame && written_ < totalChunks; i++)
+            {
+               shell.consoleWriteOutput(
+                     chunk + lineMarker(written_) + "\n");
+               written_++;
+               if (written_ % chunksPerReport == 0)
+               {
+                  reportMs_ += Duration.currentTimeMillis() - start;
+                  System.out.println(
+                        "consoleWriteOutput at " +
+                        (written_ / chunksPerReport) * (REPORT_BYTES >> 20) +
+                        " MB: " + Math.round(reportMs_) + "ms per " +
+                        (REPORT_BYTES >> 20) + " MB");
+                  reportMs_ = 0;
+                  start = Duration.currentTimeMillis();
+               }
+            }
+            reportMs_ += Duration.currentTimeMillis() - start;
+
+            if (written_ < totalChunks)
+               return true;
+
+            System.out.println(
+                  "streamed " + (TOTAL_BYTES >> 20) + " MB in " +
+                  Math.round(Duration.currentTimeMillis() - streamStart) +
+                  "ms (including rendering)");
+
+            // only the most recent lines are retained
+            Assert.assertEquals(MAX_LINES, shell.getMaxOutputLines());
+            Assert.assertTrue(shell.findInOutput(
+                  lineMarker(totalChunks - 1), true));
+            Assert.assertFalse(shell.findInOutput(lineMarker(0), false));
+            finishTest();
+            return false;
+         }
+      });
+   }
+
+   // a chunk of output of the kind printed by e.g. a large data frame (a
+   // line identifying the chunk is appended to each, see lineMarker)
+   private static String createChunk()
+   {
+      StringBuilder chunk = new StringBuilder();
+      for (int i = 0; i < LINES_PER_CHUNK - 1; i++)
+      {
+         chunk.append(i).append("  ");
+         for (int j = 0; j < 10; j++)
+            chunk.append(" 0.").append((i * 31 + j * 17) % 1000000);
+         chunk.append('\n');
+      }
+      return chunk.toString();
+   }
+
+   // a client_init response whose console actions repeat a prompt, the
+   // command entered, its output (ending with a line identifying the
+   // command) and, for some commands, an error
+   private static native String createClientInitResponse(
+                                                   int actionCount,
+                                                   int actionsLimit) /*-{
+      var types = [];
+      var data = [];
+      for (var i = 0; types.length < actionCount; i++)
+      {
+         types.push(0, 1, 2, 2);
+         data.push("> ", "summary(x" + i + ")");
+         data.push("   Min. 1st Qu.  Median    Mean 3rd Qu.    Max. \n",
+                   "   0.00    2.50    5.00    5.00    7.50   10.00 [" +
+                   i + "]\n");
+         if (i % 10 == 9)
+         {
+            types.pop();
+            data.pop();
+            types.push(3);
+            data.push("Error: object 'x" + i + "' not found [" + i + "]\n");
+         }
+      }
+      return JSON.stringify({
+         "result": {
+            "console_actions": { "type": types, "data": data },
+            "console_actions_limit": actionsLimit
+         }
+      });
+   }-*/;
+
+   private static String lineMarker(int chunk)
+   {
+      return "[chunk " + chunk + "]";
+   }
+
+   private int written_ = 0;
+   private double reportMs_ = 0;
+
+   private static final int MAX_LINES = 1000;
+   private static final int LINES_PER_CHUNK = 50;
+   private static final int TOTAL_BYTES = 50 << 20;
+   private static final int REPORT_BYTES = 5 << 20;
+   private static final int FRAME_BYTES = 256 << 10;
+   private static final int TIMEOUT_MS = 600000;
+
+   private static final int ACTIONS_PER_COMMAND = 4;
+   private static final int[] REPLAY_ACTIONS =
+                                    new int[] { 1000, 10000, 100000 };
+}
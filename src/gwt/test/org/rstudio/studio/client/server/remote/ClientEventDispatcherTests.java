@@ -0,0 +1,234 @@
+/*
+ * ClientEventDispatcherTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import junit.framework.Assert;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ClientEventDispatcherTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+   
+   public void testEveryEventTypeIsRegistered()
+   {
+      for (String type : EVENT_CHAIN)
+         Assert.assertNotNull(type, ClientEventDispatcher.getDecoder(type));
+   }
+   
+   public void testUnknownEventType()
+   {
+      Assert.assertNull(ClientEventDispatcher.getDecoder("no_such_event"));
+   }
+   
+   // compares the per-event cost of finding an event's handler with the
+   // if/else chain (one string comparison per type preceding the event's
+   // type) against the decoder table lookup, for an event near the start
+   // of the chain (console output) and the one at its end
+   public void testDispatchCost()
+   {
+      String[] types = new String[] {
+         ClientEvent.ConsoleOutput,
+         EVENT_CHAIN[EVENT_CHAIN.length - 1]
+      };
+      
+      for (String type : types)
+      {
+         double chainNs = timeChainLookup(type);
+         double tableNs = timeTableLookup(type);
+         System.out.println("dispatch lookup for '" + type + "': " +
+                            "if/else chain " + format(chainNs) + "ns, " +
+                            "decoder table " + format(tableNs) + "ns");
+      }
+   }
+   
+   private double timeChainLookup(String type)
+   {
+      int found = 0;
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         if (chainLookup(copyOf(type)) >= 0)
+            found++;
+      }
+      long elapsed = System.currentTimeMillis() - start;
+      Assert.assertEquals(ITERATIONS, found);
+      return (elapsed * 1000000.0) / ITERATIONS;
+   }
+   
+   private double timeTableLookup(String type)
+   {
+      int found = 0;
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         if (ClientEventDispatcher.getDecoder(copyOf(type)) != null)
+            found++;
+      }
+      long elapsed = System.currentTimeMillis() - start;
+      Assert.assertEquals(ITERATIONS, found);
+      return (elapsed * 1000000.0) / ITERATIONS;
+   }
+   
+   // the dispatch order of the if/else chain which the decoder table replaced
+   private static int chainLookup(String type)
+   {
+      for (int i = 0; i < EVENT_CHAIN.length; i++)
+      {
+         if (type.equals(EVENT_CHAIN[i]))
+            return i;
+      }
+      return -1;
+   }
+   
+   // event types arrive as freshly parsed strings rather than as the
+   // interned constants (so comparisons can't short circuit on identity)
+   private static String copyOf(String type)
+   {
+      return new StringBuilder(type).toString();
+   }
+   
+   private static String format(double ns)
+   {
+      return Long.toString(Math.round(ns));
+   }
+   
+   private static final int ITERATIONS = 200000;
+   
+   private static final String[] EVENT_CHAIN = new String[] {
+      ClientEvent.Busy,
+      ClientEvent.ConsoleOutput,
+      ClientEvent.ConsoleError,
+      ClientEvent.ConsoleWritePrompt,
+      ClientEvent.ConsoleWriteInput,
+      ClientEvent.ConsolePrompt,
+      ClientEvent.ShowEditor,
+      ClientEvent.FileChanged,
+      ClientEvent.WorkingDirChanged,
+      ClientEvent.ShowHelp,
+      ClientEvent.ShowErrorMessage,
+      ClientEvent.ChooseFile,
+      ClientEvent.BrowseUrl,
+      ClientEvent.PlotsStateChanged,
+      ClientEvent.ViewData,
+      ClientEvent.PackageStateChanged,
+      ClientEvent.PackageStatusChanged,
+      ClientEvent.Locator,
+      ClientEvent.ConsoleResetHistory,
+      ClientEvent.SessionSerialization,
+      ClientEvent.HistoryEntriesAdded,
+      ClientEvent.QuotaStatus,
+      ClientEvent.FileEdit,
+      ClientEvent.ShowContent,
+      ClientEvent.ShowData,
+      ClientEvent.AbendWarning,
+      ClientEvent.ShowWarningBar,
+      ClientEvent.OpenProjectError,
+      ClientEvent.VcsRefresh,
+      ClientEvent.AskPass,
+      ClientEvent.ConsoleProcessOutput,
+      ClientEvent.ConsoleProcessPrompt,
+      ClientEvent.ConsoleProcessCreated,
+      ClientEvent.ConsoleProcessExit,
+      ClientEvent.HTMLPreviewStartedEvent,
+      ClientEvent.HTMLPreviewOutputEvent,
+      ClientEvent.HTMLPreviewCompletedEvent,
+      ClientEvent.CompilePdfStartedEvent,
+      ClientEvent.CompilePdfOutputEvent,
+      ClientEvent.CompilePdfErrorsEvent,
+      ClientEvent.CompilePdfCompletedEvent,
+      ClientEvent.SynctexEditFile,
+      ClientEvent.FindResult,
+      ClientEvent.FindOperationEnded,
+      ClientEvent.RPubsUploadStatus,
+      ClientEvent.BuildStarted,
+      ClientEvent.BuildOutput,
+      ClientEvent.BuildCompleted,
+      ClientEvent.BuildErrors,
+      ClientEvent.DirectoryNavigate,
+      ClientEvent.DeferredInitCompleted,
+      ClientEvent.PlotsZoomSizeChanged,
+      ClientEvent.SourceCppStarted,
+      ClientEvent.SourceCppCompleted,
+      ClientEvent.LoadedPackageUpdates,
+      ClientEvent.ActivatePane,
+      ClientEvent.ShowPresentationPane,
+      ClientEvent.EnvironmentRefresh,
+      ClientEvent.ListChanged,
+      ClientEvent.UiPrefsChanged,
+      ClientEvent.ContextDepthChanged,
+      ClientEvent.HandleUnsavedChanges,
+      ClientEvent.Quit,
+      ClientEvent.Suicide,
+      ClientEvent.SaveActionChanged,
+      ClientEvent.EnvironmentAssigned,
+      ClientEvent.EnvironmentRemoved,
+      ClientEvent.BrowserLineChanged,
+      ClientEvent.PackageLoaded,
+      ClientEvent.PackageUnloaded,
+      ClientEvent.PresentationPaneRequestCompleted,
+      ClientEvent.UnhandledError,
+      ClientEvent.ErrorHandlerChanged,
+      ClientEvent.ViewerNavigate,
+      ClientEvent.SourceExtendedTypeDetected,
+      ClientEvent.ShinyViewer,
+      ClientEvent.DebugSourceCompleted,
+      ClientEvent.RmdRenderStarted,
+      ClientEvent.RmdRenderOutput,
+      ClientEvent.RmdRenderCompleted,
+      ClientEvent.RmdTemplateDiscovered,
+      ClientEvent.RmdTemplateDiscoveryCompleted,
+      ClientEvent.RmdShinyDocStarted,
+      ClientEvent.RSConnectDeploymentOutput,
+      ClientEvent.RSConnectDeploymentCompleted,
+      ClientEvent.RSConnectDeploymentFailed,
+      ClientEvent.UserPrompt,
+      ClientEvent.InstallRtools,
+      ClientEvent.InstallShiny,
+      ClientEvent.SuspendAndRestart,
+      ClientEvent.DataViewChanged,
+      ClientEvent.ViewFunction,
+      ClientEvent.MarkersChanged,
+      ClientEvent.EnableRStudioConnect,
+      ClientEvent.UpdateGutterMarkers,
+      ClientEvent.SnippetsChanged,
+      ClientEvent.JumpToFunction,
+      ClientEvent.CollabEditStarted,
+      ClientEvent.SessionCountChanged,
+      ClientEvent.CollabEditEnded,
+      ClientEvent.ProjectUsersChanged,
+      ClientEvent.RVersionsChanged,
+      ClientEvent.ShinyGadgetDialog,
+      ClientEvent.RmdParamsReady,
+      ClientEvent.RegisterUserCommand,
+      ClientEvent.ReplaceRanges,
+      ClientEvent.GetActiveDocumentContext,
+      ClientEvent.SendToConsole,
+      ClientEvent.UserFollowStarted,
+      ClientEvent.UserFollowEnded,
+      ClientEvent.ProjectAccessRevoked,
+      ClientEvent.CollabEditSaved,
+      ClientEvent.AddinRegistryUpdated,
+      ClientEvent.ChunkOutput,
+      ClientEvent.ChunkOutputFinished,
+      ClientEvent.RprofStarted,
+      ClientEvent.RprofStopped,
+      ClientEvent.RprofCreated
+   };
+}
@@ -0,0 +1,175 @@
+/*
+ * SatelliteProxyTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import junit.framework.Assert;
+
+import org.rstudio.core.client.js.JsArrayEx;
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+// measures the main window event loop time spent proxying the rpc calls of
+// three active pop-outs (a source window, an html preview and a shiny
+// app), which is the time saved on the main window when the pop-outs send
+// their calls directly. the work measured per call is what the main window
+// does in RemoteServer.sendRemoteServerRequest and its response handler:
+// copying the params out of the satellite's window, serializing the
+// request, parsing the response and handing it back to the satellite
+public class SatelliteProxyTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testProxiedParamsMatchSatelliteParams()
+   {
+      JavaScriptObject params = createParams(3, 10);
+      JSONArray proxied = params.<JsArrayEx>cast().toJSONArray();
+      Assert.assertEquals(stringify(params),
+                          stringify(proxied.getJavaScriptObject()));
+   }
+
+   public void testProxyBenchmark()
+   {
+      // calls per pop-out, with the size of their params and responses
+      Workload[] popouts = new Workload[] {
+         new Workload("source window", "get_completions", 5, 200),
+         new Workload("html preview", "preview_html", 2, 20),
+         new Workload("shiny app", "get_shiny_viewer_type", 1, 1)
+      };
+
+      double totalMs = 0;
+      for (Workload popout : popouts)
+      {
+         double ms = timeProxiedCalls(popout);
+         totalMs += ms;
+         System.out.println(popout.name + " (" + popout.method + "): " +
+                            format(ms / CALLS_PER_POPOUT) + "ms per call, " +
+                            format(ms) + "ms for " + CALLS_PER_POPOUT +
+                            " calls");
+      }
+
+      System.out.println("main window time saved with three pop-outs: " +
+                         format(totalMs) + "ms per " + CALLS_PER_POPOUT +
+                         " calls each");
+   }
+
+   private double timeProxiedCalls(Workload workload)
+   {
+      JavaScriptObject params = createParams(workload.paramCount, 10);
+      String response = createResponse(workload.resultCount);
+      JavaScriptObject callback = createCallback();
+
+      double start = Duration.currentTimeMillis();
+      for (int i = 0; i < CALLS_PER_POPOUT; i++)
+      {
+         // request: params copied into the main window, then serialized
+         JSONArray jsonParams = params.<JsArrayEx>cast().toJSONArray();
+         String request = stringify(createRequest(
+                                    workload.method,
+                                    jsonParams.getJavaScriptObject()));
+         Assert.assertTrue(request.length() > 0);
+
+         // response: parsed, then handed back to the satellite
+         RpcResponse rpcResponse = RpcResponse.parse(response);
+         invokeCallback(callback, rpcResponse);
+      }
+      double elapsed = Duration.currentTimeMillis() - start;
+
+      Assert.assertEquals(CALLS_PER_POPOUT, getCallCount(callback));
+      return elapsed;
+   }
+
+   private static String format(double ms)
+   {
+      return Double.toString(Math.round(ms * 1000) / 1000.0);
+   }
+
+   private static native JavaScriptObject createParams(int count,
+                                                       int width) /*-{
+      var params = [];
+      for (var i = 0; i < count; i++)
+      {
+         var values = [];
+         for (var j = 0; j < width; j++)
+            values.push("value" + j);
+         params.push({ "name": "param" + i, "values": values });
+      }
+      return params;
+   }-*/;
+
+   private static native String createResponse(int count) /*-{
+      var result = [];
+      for (var i = 0; i < count; i++)
+         result.push({ "name": "item" + i, "package": "base", "type": 1 });
+      return JSON.stringify({ "result": result });
+   }-*/;
+
+   private static native JavaScriptObject createRequest(
+                                             String method,
+                                             JavaScriptObject params) /*-{
+      return {
+         "method": method,
+         "params": params,
+         "sourceWnd": "satellite",
+         "clientId": "33e600bb-c1b1-46bf-b562-ab5cba070b0e",
+         "clientVersion": "1"
+      };
+   }-*/;
+
+   private static native JavaScriptObject createCallback() /*-{
+      return {
+         calls: 0,
+         onResponse: function(response) { this.calls++; }
+      };
+   }-*/;
+
+   private static native void invokeCallback(JavaScriptObject callback,
+                                             RpcResponse response) /*-{
+      callback.onResponse(response);
+   }-*/;
+
+   private static native int getCallCount(JavaScriptObject callback) /*-{
+      return callback.calls;
+   }-*/;
+
+   private static native String stringify(JavaScriptObject value) /*-{
+      return JSON.stringify(value);
+   }-*/;
+
+   private static class Workload
+   {
+      Workload(String name, String method, int paramCount, int resultCount)
+      {
+         this.name = name;
+         this.method = method;
+         this.paramCount = paramCount;
+         this.resultCount = resultCount;
+      }
+
+      final String name;
+      final String method;
+      final int paramCount;
+      final int resultCount;
+   }
+
+   private static final int CALLS_PER_POPOUT = 1000;
+}
@@ -0,0 +1,194 @@
+/*
+ * StreamingEventTransportTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import java.util.ArrayList;
+
+import junit.framework.Assert;
+
+import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcStreamingRequest;
+import org.rstudio.studio.client.server.ServerError;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.junit.client.GWTTestCase;
+
+// exercises the streaming transport end to end against the stub event
+// stream served by org.rstudio.studio.server.StubEventStreamServlet
+public class StreamingEventTransportTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.EventStreamTest";
+   }
+
+   // events arrive in batches as they're streamed, and listening again
+   // from the last event seen (as RemoteServerEventListener does with
+   // lastEventId_) resumes the stream without gaps or repeats
+   public void testStreamAndResume()
+   {
+      final StreamingEventTransport transport =
+                              new StreamingEventTransport(stubSource(""));
+      final ArrayList<Integer> ids = new ArrayList<Integer>();
+      final int[] streams = new int[] { 0 };
+
+      transport.listen(-1, new ClientEventTransport.Listener()
+      {
+         @Override
+         public void onEvents(JsArray<ClientEvent> events)
+         {
+            Assert.assertTrue(events.length() <= EVENTS_PER_BATCH);
+            for (int i = 0; i < events.length(); i++)
+               ids.add(events.get(i).getId());
+         }
+
+         @Override
+         public void onCompleted()
+         {
+            streams[0]++;
+            if (ids.size() < EVENT_COUNT)
+            {
+               transport.listen(ids.get(ids.size() - 1), this, null);
+               return;
+            }
+
+            for (int i = 0; i < EVENT_COUNT; i++)
+               Assert.assertEquals(i, ids.get(i).intValue());
+            Assert.assertEquals(EVENT_COUNT, ids.size());
+
+            // each stream ends after a fixed number of batches
+            Assert.assertTrue(streams[0] > 1);
+            finishTest();
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            fail("Unexpected error: " + error.getUserMessage());
+         }
+
+         @Override
+         public void onUnsupported()
+         {
+            fail("Unexpected fallback to long polling");
+         }
+      }, null);
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   // once every event has been acknowledged the stream ends with no events
+   public void testNoNewEvents()
+   {
+      StreamingEventTransport transport =
+                              new StreamingEventTransport(stubSource(""));
+      transport.listen(EVENT_COUNT - 1, new ClientEventTransport.Listener()
+      {
+         @Override
+         public void onEvents(JsArray<ClientEvent> events)
+         {
+            Assert.assertEquals(0, events.length());
+         }
+
+         @Override
+         public void onCompleted()
+         {
+            finishTest();
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            fail("Unexpected error: " + error.getUserMessage());
+         }
+
+         @Override
+         public void onUnsupported()
+         {
+            fail("Unexpected fallback to long polling");
+         }
+      }, null);
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   // a failed stream asks the listener to fall back to long polling
+   public void testFallback()
+   {
+      StreamingEventTransport transport = new StreamingEventTransport(
+                                          stubSource("?mode=unavailable"));
+      transport.listen(-1, new ClientEventTransport.Listener()
+      {
+         @Override
+         public void onEvents(JsArray<ClientEvent> events)
+         {
+            fail("Unexpected events");
+         }
+
+         @Override
+         public void onCompleted()
+         {
+            fail("Unexpected completion");
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            fail("Unexpected error: " + error.getUserMessage());
+         }
+
+         @Override
+         public void onUnsupported()
+         {
+            finishTest();
+         }
+      }, null);
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   private static StreamingEventTransport.Source stubSource(
+                                                      final String query)
+   {
+      return new StreamingEventTransport.Source()
+      {
+         @Override
+         public RpcStreamingRequest streamEvents(int lastEventId)
+         {
+            JSONArray params = new JSONArray();
+            params.set(0, new JSONNumber(lastEventId));
+            return new RpcStreamingRequest(new RpcRequest(
+                  GWT.getModuleBaseURL() + "stub_events" + query,
+                  "stream_events",
+                  params,
+                  null,
+                  false,
+                  null,
+                  null,
+                  "test"));
+         }
+      };
+   }
+
+   // must match StubEventStreamServlet
+   private static final int EVENT_COUNT = 7;
+   private static final int EVENTS_PER_BATCH = 2;
+
+   private static final int TIMEOUT_MS = 10000;
+}
@@ -0,0 +1,178 @@
+/*
+ * VersionedChangeTrackerTest.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+public class VersionedChangeTrackerTest extends TestCase
+{
+   private static class Document implements VersionedChangeTracker.Source
+   {
+      public int getVersion()
+      {
+         versionReads_++;
+         return version_;
+      }
+
+      public void edit()
+      {
+         version_++;
+      }
+
+      public int getVersionReads()
+      {
+         return versionReads_;
+      }
+
+      private int version_ = 0;
+      private int versionReads_ = 0;
+   }
+
+   public void setUp() throws Exception
+   {
+      document_ = new Document();
+   }
+
+   public void testNewTrackerIsUnchanged() throws Exception
+   {
+      document_.edit();
+      ChangeTracker tracker = new VersionedChangeTracker(document_);
+      assertFalse(tracker.hasChanged());
+   }
+
+   public void testVersionBumpIsAChange() throws Exception
+   {
+      ChangeTracker tracker = new VersionedChangeTracker(document_);
+      document_.edit();
+      assertTrue(tracker.hasChanged());
+
+      // further changes don't un-change the tracker
+      document_.edit();
+      assertTrue(tracker.hasChanged());
+   }
+
+   public void testReset() throws Exception
+   {
+      ChangeTracker tracker = new VersionedChangeTracker(document_);
+      document_.edit();
+      tracker.reset();
+      assertFalse(tracker.hasChanged());
+
+      document_.edit();
+      assertTrue(tracker.hasChanged());
+   }
+
+   public void testFork() throws Exception
+   {
+      ChangeTracker tracker = new VersionedChangeTracker(document_);
+      document_.edit();
+
+      // a fork starts from the version of the tracker, not the document
+      ChangeTracker fork = tracker.fork();
+      assertTrue(fork.hasChanged());
+
+      // resetting the original doesn't affect the fork (or vice versa)
+      tracker.reset();
+      assertFalse(tracker.hasChanged());
+      assertTrue(fork.hasChanged());
+
+      fork.reset();
+      document_.edit();
+      ChangeTracker fork2 = fork.fork();
+      fork.reset();
+      assertFalse(fork.hasChanged());
+      assertTrue(fork2.hasChanged());
+      assertTrue(tracker.hasChanged());
+   }
+
+   public void testMultipleTrackersPerDocument() throws Exception
+   {
+      // e.g. the dirty state and the save sentinel track the same editor
+      ChangeTracker dirty = new VersionedChangeTracker(document_);
+      ChangeTracker saved = new VersionedChangeTracker(document_);
+
+      document_.edit();
+      assertTrue(dirty.hasChanged());
+      assertTrue(saved.hasChanged());
+
+      saved.reset();
+      assertTrue(dirty.hasChanged());
+      assertFalse(saved.hasChanged());
+
+      // trackers on another document are independent
+      Document other = new Document();
+      ChangeTracker otherTracker = new VersionedChangeTracker(other);
+      document_.edit();
+      assertFalse(otherTracker.hasChanged());
+      assertTrue(saved.hasChanged());
+   }
+
+   public void testSaveCyclesKeepStateBounded() throws Exception
+   {
+      // each save forks the editor's tracker and resets it when the save
+      // completes if nothing has changed since the fork, as
+      // DocUpdateSentinel does; some saves complete after further edits
+      ChangeTracker tracker = new VersionedChangeTracker(document_);
+      ArrayList<WeakReference<ChangeTracker>> forks =
+            new ArrayList<WeakReference<ChangeTracker>>();
+      for (int i = 0; i < SAVE_CYCLES; i++)
+      {
+         document_.edit();
+         ChangeTracker thisSave = tracker.fork();
+         forks.add(new WeakReference<ChangeTracker>(thisSave));
+         if (i % 3 == 0)
+            document_.edit();
+
+         if (!thisSave.hasChanged())
+            tracker.reset();
+      }
+
+      // an edit does no work for the trackers created along the way, and
+      // checking for changes costs a single version read however many
+      // saves there have been
+      int reads = document_.getVersionReads();
+      document_.edit();
+      assertEquals(reads, document_.getVersionReads());
+      assertTrue(tracker.hasChanged());
+      assertEquals(reads + 1, document_.getVersionReads());
+
+      // nothing retains the trackers forked for completed saves
+      for (int i = 0; i < 10 && countReachable(forks) > 0; i++)
+      {
+         System.gc();
+         Thread.sleep(10);
+      }
+      assertEquals(0, countReachable(forks));
+   }
+
+   private static int countReachable(
+                           ArrayList<WeakReference<ChangeTracker>> trackers)
+   {
+      int count = 0;
+      for (WeakReference<ChangeTracker> tracker : trackers)
+      {
+         if (tracker.get() != null)
+            count++;
+      }
+      return count;
+   }
+
+   private Document document_;
+
+   private static final int SAVE_CYCLES = 10000;
+}
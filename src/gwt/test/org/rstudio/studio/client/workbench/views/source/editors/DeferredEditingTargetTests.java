@@ -0,0 +1,215 @@
+/*
+ * DeferredEditingTargetTests.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors;
+
+import java.util.ArrayList;
+
+import junit.framework.Assert;
+
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
+import org.rstudio.studio.client.workbench.model.RemoteFileSystemContext;
+import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.RootPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Provider;
+
+public class DeferredEditingTargetTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio";
+   }
+
+   public void testPlaceholderSaveCommandActive()
+   {
+      // as for a TextEditingTarget, source on save keeps save active
+      DeferredEditingTarget target = createTarget(
+            createDocument("a.R", "x <- 1\n", true));
+      Assert.assertTrue(target.isSaveCommandActive());
+
+      target = createTarget(createDocument("b.R", "x <- 1\n", false));
+      Assert.assertFalse(target.isSaveCommandActive());
+      target.forceSaveCommandActive();
+      Assert.assertTrue(target.isSaveCommandActive());
+
+      // none of which needed the editor
+      Assert.assertFalse(target.isMaterialized());
+   }
+
+   // measures restoring 50 tabs of 1000 lines each, to first paint: with a
+   // placeholder per tab (as Source.restoreDocuments now creates), and with
+   // an Ace editor holding the contents per tab (the bulk of what a
+   // TextEditingTarget creates; the target itself needs a running session).
+   // heap use is reported where the browser provides performance.memory
+   public void testRestoreBenchmark()
+   {
+      AceEditor.load(new Command()
+      {
+         @Override
+         public void execute()
+         {
+            final ArrayList<SourceDocument> documents =
+                  new ArrayList<SourceDocument>();
+            for (int i = 0; i < TAB_COUNT; i++)
+               documents.add(createDocument("script" + i + ".R",
+                                            createContents(i),
+                                            false));
+
+            final double heap = getUsedHeap();
+            final double start = Duration.currentTimeMillis();
+            for (SourceDocument document : documents)
+               add(createTarget(document).asWidget());
+
+            afterPaint("placeholders", start, heap, new Command()
+            {
+               @Override
+               public void execute()
+               {
+                  double heap = getUsedHeap();
+                  double start = Duration.currentTimeMillis();
+                  for (SourceDocument document : documents)
+                  {
+                     AceEditor editor = new AceEditor();
+                     editor.setCode(document.getContents(), false);
+                     add(editor.asWidget());
+                  }
+
+                  afterPaint("editors", start, heap, new Command()
+                  {
+                     @Override
+                     public void execute()
+                     {
+                        finishTest();
+                     }
+                  });
+               }
+            });
+         }
+      });
+
+      delayTestFinish(TIMEOUT_MS);
+   }
+
+   private static void add(Widget widget)
+   {
+      widget.setPixelSize(800, 600);
+      RootPanel.get().add(widget);
+   }
+
+   private void afterPaint(final String label,
+                           final double start,
+                           final double heap,
+                           final Command onReported)
+   {
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            double used = getUsedHeap();
+            System.out.println(
+                  TAB_COUNT + " restored tabs with " + label + ": " +
+                  Math.round(Duration.currentTimeMillis() - start) +
+                  "ms to first paint, heap " +
+                  (heap < 0 || used < 0 ?
+                        "not available" :
+                        "+" + Math.round((used - heap) / 1024) + " KB"));
+            onReported.execute();
+         }
+      });
+   }
+
+   private static DeferredEditingTarget createTarget(SourceDocument document)
+   {
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            new UnusedEditingTargetSource(), null);
+      target.initialize(document, null, FileTypeRegistry.R,
+                        new Provider<String>()
+                        {
+                           @Override
+                           public String get()
+                           {
+                              return "Untitled";
+                           }
+                        });
+      return target;
+   }
+
+   private static String createContents(int document)
+   {
+      StringBuilder contents = new StringBuilder();
+      for (int i = 0; i < LINES_PER_TAB; i++)
+      {
+         contents.append("x").append(i).append(" <- summary(data")
+                 .append(document).append("[").append(i).append(", ])\n");
+      }
+      return contents.toString();
+   }
+
+   private static native SourceDocument createDocument(
+                                             String path,
+                                             String contents,
+                                             boolean sourceOnSave) /*-{
+      return {
+         "id": path,
+         "path": path,
+         "type": "r_source",
+         "contents": contents,
+         "dirty": false,
+         "source_on_save": sourceOnSave,
+         "properties": {}
+      };
+   }-*/;
+
+   private static native double getUsedHeap() /*-{
+      var memory = $wnd.performance && $wnd.performance.memory;
+      return memory ? memory.usedJSHeapSize : -1;
+   }-*/;
+
+   // placeholders in these tests are never materialized
+   private static class UnusedEditingTargetSource
+                                             implements EditingTargetSource
+   {
+      @Override
+      public EditingTarget getEditingTarget(FileType fileType)
+      {
+         Assert.fail("Editing target created");
+         return null;
+      }
+
+      @Override
+      public EditingTarget getEditingTarget(
+            SourceDocument document,
+            RemoteFileSystemContext fileContext,
+            Provider<String> defaultNameProvider)
+      {
+         Assert.fail("Editing target created");
+         return null;
+      }
+   }
+
+   private static final int TAB_COUNT = 50;
+   private static final int LINES_PER_TAB = 1000;
+   private static final int TIMEOUT_MS = 120000;
+}
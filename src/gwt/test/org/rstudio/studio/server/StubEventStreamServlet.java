@@ -0,0 +1,116 @@
+/*
+ * StubEventStreamServlet.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// A local stand-in for the session's stream_events handler. The session
+// has EVENT_COUNT events queued (with ids 0 to EVENT_COUNT - 1); each
+// stream writes the events following the requested id one batch per line,
+// flushing between batches, and ends after BATCHES_PER_STREAM batches so
+// that the client has to listen again (acknowledging what it has seen).
+//
+// Requests with ?mode=unavailable fail with 503, as for a server which
+// can't stream.
+public class StubEventStreamServlet extends HttpServlet
+{
+   @Override
+   protected void doPost(HttpServletRequest request,
+                         HttpServletResponse response) throws IOException
+   {
+      if ("unavailable".equals(request.getParameter("mode")))
+      {
+         response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+         return;
+      }
+
+      int lastEventId = readLastEventId(request.getReader());
+
+      response.setContentType("application/json");
+      PrintWriter writer = response.getWriter();
+
+      int nextId = lastEventId + 1;
+      if (nextId >= EVENT_COUNT)
+      {
+         // nothing new, end the stream with an empty batch
+         writer.println("{\"result\":[]}");
+         writer.flush();
+         return;
+      }
+
+      for (int batch = 0;
+           batch < BATCHES_PER_STREAM && nextId < EVENT_COUNT;
+           batch++)
+      {
+         StringBuilder events = new StringBuilder();
+         for (int i = 0; i < EVENTS_PER_BATCH && nextId < EVENT_COUNT; i++)
+         {
+            if (i > 0)
+               events.append(',');
+            events.append("{\"id\":").append(nextId)
+                  .append(",\"type\":\"console_output\"")
+                  .append(",\"data\":\"output ").append(nextId)
+                  .append("\\n\"}");
+            nextId++;
+         }
+
+         writer.println("{\"result\":[" + events + "]}");
+         writer.flush();
+         response.flushBuffer();
+         pause();
+      }
+   }
+
+   private static int readLastEventId(BufferedReader reader) throws IOException
+   {
+      StringBuilder body = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null)
+         body.append(line);
+
+      Matcher matcher = PARAMS_PATTERN.matcher(body);
+      return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+   }
+
+   // give the client a chance to see each batch before the next arrives
+   private static void pause()
+   {
+      try
+      {
+         Thread.sleep(50);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   public static final int EVENT_COUNT = 7;
+   public static final int EVENTS_PER_BATCH = 2;
+   public static final int BATCHES_PER_STREAM = 2;
+
+   private static final Pattern PARAMS_PATTERN =
+                        Pattern.compile("\"params\"\\s*:\\s*\\[\\s*(-?\\d+)");
+
+   private static final long serialVersionUID = 1L;
+}